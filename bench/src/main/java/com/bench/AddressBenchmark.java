@@ -0,0 +1,36 @@
+package com.bench;
+
+import com.config.IpConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주소 변환({@link IpConfig#toIPv4IfPossible}). 규칙과 상관없이 입력 형식별로 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressBenchmark {
+
+    /** IPv4, IPv4-mapped, 루프백, 순수 IPv6 */
+    @Param({"203.0.113.7", "::ffff:203.0.113.7", "::1", "2001:db8::7"})
+    String address;
+
+    @Benchmark
+    public String toIPv4IfPossible() {
+        return IpConfig.toIPv4IfPossible(address);
+    }
+}
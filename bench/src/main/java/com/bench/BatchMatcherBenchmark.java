@@ -0,0 +1,96 @@
+package com.bench;
+
+import com.rule.BatchMatcher;
+import com.rule.Ipv4;
+import com.rule.PrefixTrie;
+import com.rule.Rule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 배치 조회 비교 (주소 하나당 ns): 트라이 {@link PrefixTrie#match(int)}, 스칼라/벡터 {@link BatchMatcher}.
+ *
+ * <p>규칙은 /16 ~ /32 무작위 CIDR, 주소는 무작위 IPv4다. 벡터 구현은 포크한 JVM에
+ * {@code --add-modules jdk.incubator.vector}를 줘야 켜진다(없으면 {@code vector}도 스칼라로 돈다).
+ * 준비 단계에서 세 경로의 결과가 같은지 먼저 확인한다.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BatchMatcherBenchmark {
+
+    /** 한 번에 판정하는 주소 수 */
+    private static final int BATCH = 1 << 16;
+
+    @Param({"100", "10000", "200000"})
+    int ruleCount;
+
+    private PrefixTrie trie;
+    private BatchMatcher scalar;
+    private BatchMatcher vector;
+    private int[] ips;
+    private int[] out;
+
+    @Setup
+    public void setup() {
+        SplittableRandom rnd = new SplittableRandom(ruleCount);
+        StringBuilder sb = new StringBuilder(ruleCount * 20);
+        for (int i = 0; i < ruleCount; i++) {
+            int len = 16 + rnd.nextInt(17);
+            int net = rnd.nextInt() & (int) (0xFFFFFFFFL << (32 - len));
+            sb.append(Ipv4.format(net)).append('/').append(len).append(',');
+        }
+        trie = PrefixTrie.compile(sb.toString(), null);
+        scalar = BatchMatcher.scalar(trie);
+        vector = BatchMatcher.of(trie);
+        ips = new int[BATCH];
+        for (int i = 0; i < BATCH; i++) ips[i] = rnd.nextInt();
+        out = new int[BATCH];
+
+        int[] expected = trie().clone();
+        if (!Arrays.equals(expected, scalar().clone()) || !Arrays.equals(expected, vector())) {
+            throw new IllegalStateException("batch matchers disagree with the trie: " + vector);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] trie() {
+        for (int i = 0; i < BATCH; i++) {
+            Rule r = trie.match(ips[i]);
+            out[i] = r == null ? -1 : r.id();
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] scalar() {
+        scalar.match(ips, 0, BATCH, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] vector() {
+        vector.match(ips, 0, BATCH, out);
+        return out;
+    }
+}
@@ -0,0 +1,75 @@
+package com.bench;
+
+import com.config.EnvConfig;
+import com.config.IpConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 규칙 판정 엔진 비교: 컴파일된 구간 테이블({@link IpConfig#isAllowed(String)}) vs
+ * 레거시 선형 매칭({@link IpConfig#isValidIP}, {@link IpConfig#findMatchedToken}).
+ *
+ * <p>규칙 수 × 형식 구성 × 적중 비율로 돈다. 레거시는 호출마다 규칙 문자열 전체를 나누고 정규식을 돌리므로
+ * 1000 규칙에서도 ms 단위, 100만 규칙이면 한 번에 수 초가 걸린다. 기본 조합은 몇 분 안에 끝나도록 작게 두었고,
+ * 넓히려면 {@code -p ruleCount=10,1000,100000,1000000 -p mix=CIDR,RANGE,WILDCARD,SINGLE,MIXED -p hitRatio=0.0,0.5,1.0}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IpConfigBenchmark {
+
+    @Param({"10", "10000"})
+    int ruleCount;
+
+    @Param({"CIDR", "MIXED"})
+    RuleFixture.Mix mix;
+
+    @Param({"0.5"})
+    double hitRatio;
+
+    private String rules;
+    private IpConfig config;
+    private String[] ips;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rules = EnvConfig.normalizeRules(RuleFixture.rules(ruleCount, mix));
+        config = IpConfig.of(rules);
+        ips = RuleFixture.addresses(ruleCount, hitRatio, 42);
+    }
+
+    private String nextIp() {
+        return ips[next++ & (RuleFixture.POOL - 1)];
+    }
+
+    @Benchmark
+    public boolean isAllowed() {
+        return config.isAllowed(nextIp());
+    }
+
+    @Benchmark
+    public boolean legacyIsValidIP() {
+        return IpConfig.isValidIP(nextIp(), rules);
+    }
+
+    @Benchmark
+    public String findMatchedToken() {
+        return IpConfig.findMatchedToken(nextIp(), rules);
+    }
+}
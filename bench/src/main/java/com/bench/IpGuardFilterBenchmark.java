@@ -0,0 +1,75 @@
+package com.bench;
+
+import com.config.EnvConfig;
+import com.constant.AttributeKeys;
+import com.filter.IpGuardFilter;
+import com.rule.RuleStore;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 하나의 가드 비용: {@link IpGuardFilter#doFilter} (주소 추출 → 스냅샷 조회 → 속성/헤더/MDC 기록 → 체인).
+ *
+ * <p>규칙은 파일 감시 없이 메모리에서 컴파일한 {@link RuleStore} 하나. 요청 제한/자동 차단/판정 토큰/섀도 모드는 끈 상태이고,
+ * 로그는 {@code slf4j-nop}으로 버린다. 요청/응답은 {@link ServletStubs}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IpGuardFilterBenchmark {
+
+    @Param({"10", "10000"})
+    int ruleCount;
+
+    @Param({"CIDR", "MIXED"})
+    RuleFixture.Mix mix;
+
+    @Param({"0.5"})
+    double hitRatio;
+
+    private static final FilterChain CHAIN = (req, res) -> {};
+
+    private RuleStore store;
+    private IpGuardFilter filter;
+    private final ServletStubs.Request request = new ServletStubs.Request();
+    private final ServletStubs.Response response = new ServletStubs.Response();
+    private String[] ips;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String rules = EnvConfig.normalizeRules(RuleFixture.rules(ruleCount, mix));
+        store = new RuleStore(RuleStore.Loader.of(rules, null), RuleStore.DEFAULT_DEBOUNCE_MILLIS);
+        filter = new IpGuardFilter(store);
+        ips = RuleFixture.addresses(ruleCount, hitRatio, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        ServletStubs.Request req = request.next(ips[next++ & (RuleFixture.POOL - 1)]);
+        filter.doFilter(req, response.next(), CHAIN);
+        return req.getAttribute(AttributeKeys.ALLOWED.getKey());
+    }
+}
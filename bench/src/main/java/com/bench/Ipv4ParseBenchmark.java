@@ -0,0 +1,70 @@
+package com.bench;
+
+import com.rule.Ipv4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IPv4 파서: {@link Ipv4#parse(CharSequence)} vs {@code InetAddress.getByName}.
+ *
+ * <p>리터럴만 넣으므로 DNS 조회는 일어나지 않는다. 할당량(bytes/op)은 {@code -prof gc}로 본다.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Ipv4ParseBenchmark {
+
+    private static final int N = 4096;
+
+    private String[] inputs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws UnknownHostException {
+        SplittableRandom rnd = new SplittableRandom(7);
+        inputs = new String[N];
+        for (int i = 0; i < N; i++) {
+            inputs[i] = rnd.nextInt(256) + "." + rnd.nextInt(256) + "." + rnd.nextInt(256) + "." + rnd.nextInt(256);
+        }
+        // 두 경로의 결과가 같은지 먼저 확인
+        for (String s : inputs) {
+            if (Ipv4.parse(s) != inet(s)) throw new IllegalStateException("parsers disagree on " + s);
+        }
+    }
+
+    private String nextInput() {
+        return inputs[next++ & (N - 1)];
+    }
+
+    private static long inet(String s) throws UnknownHostException {
+        byte[] b = InetAddress.getByName(s).getAddress();
+        return ((b[0] & 0xFFL) << 24) | ((b[1] & 0xFF) << 16) | ((b[2] & 0xFF) << 8) | (b[3] & 0xFF);
+    }
+
+    @Benchmark
+    public long ipv4Parse() {
+        return Ipv4.parse(nextInput());
+    }
+
+    @Benchmark
+    public long inetAddress() throws UnknownHostException {
+        return inet(nextInput());
+    }
+}
@@ -0,0 +1,75 @@
+package com.bench;
+
+import com.rule.ImportedList;
+import com.rule.Ipv4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대량 목록 가져오기: CIDR / CSV 범위 / ipset 줄을 섞은 파일을 읽어 {@link ImportedList}로 컴파일.
+ *
+ * <p>한 번 읽는 데 걸리는 시간(ms)을 잰다. 운영 규모(500만 줄)는 {@code -p lines=5000000}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ListImporterBenchmark {
+
+    /** 목록 줄 수 */
+    @Param({"1000000"})
+    int lines;
+
+    private Path file;
+    private ImportedList.Source source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("ip-list-bench", ".txt");
+        SplittableRandom rnd = new SplittableRandom(5);
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < lines; i++) {
+                int ip = rnd.nextInt();
+                switch (i % 3) {
+                    case 0 -> w.append(Ipv4.format(ip & 0xFFFFFF00)).append("/24");
+                    case 1 -> w.append(Ipv4.format(ip)).append(',').append(Ipv4.format(ip + 15)).append(",x");
+                    default -> w.append("add bl ").append(Ipv4.format(ip));
+                }
+                w.newLine();
+            }
+        }
+        source = new ImportedList.Source(file, true);
+        long read = ImportedList.load(source).stats().ipv4();
+        if (read != lines) throw new IllegalStateException("imported " + read + " of " + lines + " lines");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ImportedList load() throws IOException {
+        return ImportedList.load(source);
+    }
+}
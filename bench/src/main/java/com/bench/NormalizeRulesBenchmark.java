@@ -0,0 +1,48 @@
+package com.bench;
+
+import com.config.EnvConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 규칙 정규화({@link EnvConfig#normalizeRules}, {@code ~} → {@code -}). 파일/환경변수를 읽을 때마다 규칙 전체에 한 번 돈다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NormalizeRulesBenchmark {
+
+    /** 정규화할 규칙 수 */
+    @Param({"10", "10000"})
+    int ruleCount;
+
+    @Param({"CIDR", "MIXED"})
+    RuleFixture.Mix mix;
+
+    private String raw;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        raw = RuleFixture.rules(ruleCount, mix);
+    }
+
+    @Benchmark
+    public String normalizeRules() {
+        return EnvConfig.normalizeRules(raw);
+    }
+}
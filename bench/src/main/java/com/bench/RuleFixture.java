@@ -0,0 +1,78 @@
+package com.bench;
+
+import com.rule.Ipv4;
+
+import java.util.SplittableRandom;
+
+/**
+ * 벤치마크용 규칙 목록과 조회 주소 생성 (같은 인자면 항상 같은 결과).
+ *
+ * <p>규칙 {@code i}는 {@code 11.0.0.0}부터 이어지는 {@code i}번째 /24 블록 하나를 쓴다(최대 100만 개, 27.x까지).
+ * 블록 안의 {@code .15}는 어떤 형식이든 걸리고, 빗나가는 주소는 {@code 200.0.0.0/8}에서 뽑는다.</p>
+ */
+public final class RuleFixture {
+
+    /** 규칙 형식 구성 */
+    public enum Mix {
+        /** {@code a.b.c.0/24} */
+        CIDR,
+        /** {@code a.b.c.10 ~ a.b.c.20} */
+        RANGE,
+        /** {@code a.b.c.*} */
+        WILDCARD,
+        /** {@code a.b.c.15} */
+        SINGLE,
+        /** 위 네 형식을 돌아가며 + 열 개 중 하나는 거부({@code !}) */
+        MIXED
+    }
+
+    /** 조회 주소 수 (2의 거듭제곱, 인덱스를 마스크로 돌린다) */
+    public static final int POOL = 4096;
+    /** 블록 안에서 모든 형식에 걸리는 호스트 */
+    private static final int HIT_HOST = 15;
+    private static final int FIRST_BLOCK = 11 << 24;
+    private static final int MAX_RULES = 1 << 20;
+
+    private RuleFixture() {}
+
+    /**
+     * 규칙 문자열 (개행 구분, 범위는 {@code ~}). 엔진에 넣기 전에 {@code EnvConfig.normalizeRules}를 거친다.
+     * @param count 규칙 수 (1 ~ 1,048,576)
+     * @param mix   형식 구성
+     */
+    public static String rules(int count, Mix mix) {
+        if (count < 1 || count > MAX_RULES) throw new IllegalArgumentException("rule count out of range: " + count);
+        StringBuilder sb = new StringBuilder(count * 20);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append('\n');
+            int block = FIRST_BLOCK + (i << 8);
+            Mix kind = mix == Mix.MIXED ? Mix.values()[i % 4] : mix;
+            if (mix == Mix.MIXED && i % 10 == 9) sb.append('!');
+            switch (kind) {
+                case CIDR -> sb.append(Ipv4.format(block)).append("/24");
+                case RANGE -> sb.append(Ipv4.format(block + 10)).append(" ~ ").append(Ipv4.format(block + 20));
+                case WILDCARD -> sb.append(Ipv4.format(block), 0, Ipv4.format(block).length() - 1).append('*');
+                default -> sb.append(Ipv4.format(block + HIT_HOST));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 조회 주소 {@value #POOL}개. 맞는 주소는 규칙 블록 중 하나를 고르게 뽑는다.
+     * @param count    규칙 수
+     * @param hitRatio 규칙에 걸리는 주소 비율 (0 ~ 1)
+     * @param seed     난수 시드
+     */
+    public static String[] addresses(int count, double hitRatio, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        String[] out = new String[POOL];
+        for (int k = 0; k < POOL; k++) {
+            int ip = rnd.nextDouble() < hitRatio
+                    ? FIRST_BLOCK + (rnd.nextInt(count) << 8) + HIT_HOST
+                    : (200 << 24) + rnd.nextInt(1 << 24);
+            out[k] = Ipv4.format(ip);
+        }
+        return out;
+    }
+}
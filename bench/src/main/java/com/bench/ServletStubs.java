@@ -0,0 +1,71 @@
+package com.bench;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 필터가 쓰는 메서드만 구현한 요청/응답. Mockito 목은 호출 기록 비용이 필터보다 커서 쓰지 않는다.
+ * 구현하지 않은 메서드는 {@link UnsupportedOperationException}.
+ */
+final class ServletStubs {
+
+    private ServletStubs() {}
+
+    /** 소켓 주소와 속성만 있는 {@code GET /files} 요청 (헤더 없음) */
+    static final class Request extends HttpServletRequestWrapper {
+        private final Map<String, Object> attributes = new HashMap<>();
+        private String remoteAddr;
+
+        Request() {
+            super(unsupported(HttpServletRequest.class));
+        }
+
+        /** 다음 요청으로 재사용 */
+        Request next(String ip) {
+            remoteAddr = ip;
+            attributes.clear();
+            return this;
+        }
+
+        @Override public String getRemoteAddr() { return remoteAddr; }
+        @Override public String getHeader(String name) { return null; }
+        @Override public String getServletPath() { return "/files"; }
+        @Override public String getPathInfo() { return null; }
+        @Override public String getRequestURI() { return "/files"; }
+        @Override public String getMethod() { return "GET"; }
+        @Override public Object getAttribute(String name) { return attributes.get(name); }
+        @Override public void setAttribute(String name, Object o) { attributes.put(name, o); }
+        @Override public void removeAttribute(String name) { attributes.remove(name); }
+    }
+
+    /** 헤더는 버리고 상태만 기억하는 응답 */
+    static final class Response extends HttpServletResponseWrapper {
+        private int status = SC_OK;
+
+        Response() {
+            super(unsupported(HttpServletResponse.class));
+        }
+
+        Response next() {
+            status = SC_OK;
+            return this;
+        }
+
+        @Override public void setHeader(String name, String value) {}
+        @Override public int getStatus() { return status; }
+        @Override public void sendError(int sc) { status = sc; }
+        @Override public void sendError(int sc, String msg) { status = sc; }
+    }
+
+    private static <T> T unsupported(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+}
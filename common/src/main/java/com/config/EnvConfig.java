@@ -24,7 +24,9 @@ public final class EnvConfig {
      */
     public static String env(String envKey) {
         if (envKey == null) return null;
-        String envValue = System.getenv(envKey).trim();
+        String envValue = System.getenv(envKey);
+        if (envValue == null) return null;
+        envValue = envValue.trim();
         return envValue.isEmpty() ? null :envValue;
     }
 
@@ -44,7 +46,7 @@ public final class EnvConfig {
      */
     public static Path rootPath(String envKey, Path defaultPath) {
         String envValue = env(envKey);
-        Path root = (envValue != null) ? Paths.get(envValue) : detectDesktop();
+        Path root = (envValue != null) ? Paths.get(envValue) : defaultPath;
         return root.toAbsolutePath().normalize();
     }
     
@@ -54,16 +56,17 @@ public final class EnvConfig {
      * @return ipRange || normalizeIpRange 빈문자열이거나 null인 경우 ipRange 있으면 normalizeIpRange
      */
     public static String normalizeRules(String ipRange) {
-        String normalizeIpRange =ipRange.replaceAll("\\s*~\\s*", "-").trim();
-        return (ipRange == null || ipRange.isBlank()) ? ipRange : normalizeIpRange;
+        if (ipRange == null || ipRange.isBlank()) return ipRange;
+        return ipRange.replaceAll("\\s*~\\s*", "-").trim();
     }
     
     /**
      * 텍스트 파일 내용 읽기
      * @param filePath 파일 경로
-     * @return 텍스트 파일 내용 문자열
+     * @return 텍스트 파일 내용 문자열 (경로가 없거나 파일이 없으면 빈 문자열)
      */
     public static String readStringSafe(Path filePath) {
+        if (filePath == null || !Files.isRegularFile(filePath)) return "";
         try {
             return Files.readString(filePath);
         } catch (IOException e) {
@@ -100,7 +103,7 @@ public final class EnvConfig {
      */
     public static Path resolveAllowFile(String dirHint, String fileName) {
         final String home = System.getProperty("user.home");
-        final Path cwd = Paths.get("").toAbsolutePath();
+        final Path cwd = Paths.get(System.getProperty("user.dir")).toAbsolutePath();
 
         LinkedHashSet<Path> cands = new LinkedHashSet<>();
 
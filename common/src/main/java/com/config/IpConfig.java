@@ -1,53 +1,185 @@
 package com.config;
 
 import com.constant.ErrorCode;
+import com.constant.HeaderKeys;
 import com.constant.IPRegex;
 import com.exception.AppException;
+import com.rule.ClientAddress;
+import com.rule.IntervalTable;
+import com.rule.Ipv4;
+import com.rule.Ipv6;
+import com.rule.Ipv6Table;
+import com.rule.RuleSchedule;
+import com.rule.RuleStore;
+import com.rule.RuleTokens;
 import jakarta.servlet.http.HttpServletRequest;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.lang.ref.Cleaner;
+import java.lang.ref.WeakReference;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 import java.util.regex.Pattern;
 
-import static com.constant.RegexConst.IPV6_MAPPED_V4;
 import static com.constant.RegexConst.RULE_SEP;
 import static java.util.regex.Pattern.matches;
 
 /**
  * IpConfig
  *  - EnvConfig로부터 규칙을 읽고(~ → - 정규화, 파일 병합)
- *  - mergedRules 보관
- *  - isAllowed(ip) 로 직접 검사 (CIDR / Range / Wildcard / Single IPv4)
- *  - assertValidRules(...) 로 사전 검증 가능
+ *  - mergedRules 보관 + 생성 시 한 번 {@link IntervalTable}로 컴파일
+ *  - isAllowed(ip) 는 컴파일된 구간 테이블을 이진 탐색 (CIDR / Range / Wildcard / Single IPv4)
+ *  - IPv6 토큰(CIDR / Range / Single)은 128비트 {@link Ipv6Table}로 따로 컴파일
+ *  - {@code !} 로 시작하는 거부 토큰은 허용 합집합에서 빼고 컴파일 (순서와 상관없이 거부 우선)
+ *  - assertValidRules(...) 로 사전 검증 가능 ({@code host:} 규칙은 이름 형식만 본다.
+ *    주소로 펼치는 것은 {@link com.rule.RuleStore} 경로뿐이고 여기서는 무시된다)
+ *  - 시간대 규칙({@code @mon-fri 09:00-18:00})은 지금 켜진 것만 컴파일하고, 다음 경계 시각에 공용 데몬 스레드가
+ *    그때 켜진 테이블로 바꿔 끼운다(상태별 테이블은 재사용). 조회는 테이블 하나를 읽을 뿐 시계를 보지 않는다.
+ *    스케줄러를 쓸 수 없을 때만 조회마다 시계와 경계를 비교한다
  */
 public final class IpConfig {
 
+    private static final String MAPPED_V4_PREFIX = "::ffff:";
+
+    /** 지금 켜진 규칙의 테이블과 그 테이블이 유효한 마지막 시각(미포함, epoch ms) */
+    private record Active(IntervalTable table, Ipv6Table table6, long until) {}
+
+    /** 시간대 규칙이 처음 쓰일 때 만든다 (경계 교체용 공용 데몬 스레드 하나 + 버려진 인스턴스의 예약 정리) */
+    private static final class Switcher {
+        static final ScheduledThreadPoolExecutor EXECUTOR = executor();
+        static final Cleaner CLEANER = Cleaner.create();
+
+        private static ScheduledThreadPoolExecutor executor() {
+            ScheduledThreadPoolExecutor s = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "ip-config-windows");
+                t.setDaemon(true);
+                return t;
+            });
+            s.setRemoveOnCancelPolicy(true);
+            return s;
+        }
+    }
+
     private final String mergedRules;
     // allow-ip 파일 경로
     private final Path allowFile;
+    // 시간대 규칙이 있는지 (없으면 시계를 보지 않는다)
+    private final boolean windowed;
+    private final ZoneId zone;
+    private final LongSupplier clock;
+    // 켜진 규칙 문자열 → 컴파일 결과 (창이 켜지고 꺼지는 상태 수만큼만 쌓인다)
+    private final Map<String, Active> compiled = new HashMap<>();
+    // 지금 쓰는 테이블 (경계를 넘으면 바꿔 끼운다)
+    private volatile Active active;
+    // 다음 경계에 걸어 둔 교체 (인스턴스가 수거되면 Cleaner가 취소)
+    private final AtomicReference<ScheduledFuture<?>> pending = new AtomicReference<>();
+    // 스케줄러가 예약을 거부했으면 조회마다 시계를 본다
+    private volatile boolean polling;
 
     public String mergedRules() { return mergedRules; }
 
     public Path allowFile() { return allowFile; }
 
+    /** 지금 켜진 규칙의 허용 구간 테이블 */
+    public IntervalTable table() { return active().table(); }
+
+    /** 지금 켜진 규칙의 IPv6 구간 테이블 */
+    public Ipv6Table table6() { return active().table6(); }
+
     private IpConfig(String mergedRules, Path allowFile) {
+        this(mergedRules, allowFile, RuleSchedule.zoneFromEnv(), System::currentTimeMillis);
+    }
+
+    /**
+     * @param zone  시간대 규칙의 요일/시각 기준
+     * @param clock 현재 시각(epoch ms)
+     */
+    IpConfig(String mergedRules, Path allowFile, ZoneId zone, LongSupplier clock) {
         this.mergedRules = mergedRules;
         this.allowFile = allowFile;
+        this.windowed = RuleSchedule.hasWindows(mergedRules);
+        this.zone = zone;
+        this.clock = clock;
+        if (!windowed) {
+            this.active = new Active(RuleTokens.compile(mergedRules), RuleTokens.compile6(mergedRules), Long.MAX_VALUE);
+            return;
+        }
+        this.active = advance(clock.getAsLong());
+        AtomicReference<ScheduledFuture<?>> task = pending;
+        Switcher.CLEANER.register(this, () -> {
+            ScheduledFuture<?> f = task.getAndSet(null);
+            if (f != null) f.cancel(false);
+        });
+        schedule(active.until());
+    }
+
+    private Active active() {
+        Active a = active;
+        if (!polling) return a;
+        long now = clock.getAsLong();
+        return now < a.until() ? a : advance(now);
+    }
+
+    /** {@code now}에 켜진 규칙으로 바꿔 끼운다. 다음 경계가 {@link RuleStore#SCHEDULE_HORIZON}보다 멀면 그때 다시 본다 */
+    private synchronized Active advance(long now) {
+        Active a = active;
+        if (a != null && now < a.until()) return a; // 다른 스레드가 먼저 바꿨다
+        RuleSchedule.Epoch epoch = RuleSchedule.epochs(mergedRules, null, zone, Instant.ofEpochMilli(now),
+                RuleStore.SCHEDULE_HORIZON).get(0);
+        Active tables = compiled.computeIfAbsent(epoch.userRules(),
+                rules -> new Active(RuleTokens.compile(rules), RuleTokens.compile6(rules), 0));
+        active = new Active(tables.table(), tables.table6(), epoch.end().toEpochMilli());
+        return active;
+    }
+
+    /** 경계 시각에 {@link #switchIfDue()} 예약. 예약 작업은 인스턴스를 약하게만 잡는다 */
+    private void schedule(long until) {
+        long delay = Math.max(0, until - clock.getAsLong());
+        WeakReference<IpConfig> self = new WeakReference<>(this);
+        try {
+            ScheduledFuture<?> next = Switcher.EXECUTOR.schedule(() -> {
+                IpConfig cfg = self.get();
+                if (cfg != null) cfg.switchIfDue();
+            }, delay, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> prev = pending.getAndSet(next);
+            if (prev != null) prev.cancel(false);
+        } catch (RejectedExecutionException e) {
+            polling = true;
+        }
+    }
+
+    /** 경계를 지났으면 그때 켜진 테이블로 바꾸고 다음 경계를 예약한다 (일찍 깨면 남은 시간만큼 다시 예약) */
+    synchronized void switchIfDue() {
+        schedule(advance(clock.getAsLong()).until());
     }
 
 
-    private static boolean isValidIP(String ipToValidate, String patternString) {
+    /**
+     * 레거시 선형 매칭: 토큰을 매번 나누고 정규식으로 판별한다.
+     * 요청 경로에서는 쓰지 않으며, 컴파일된 테이블과 결과가 같은지 비교할 때 사용.
+     */
+    public static boolean isValidIP(String ipToValidate, String patternString) {
         if (ipToValidate == null || ipToValidate.isBlank()) return false;
         if (patternString == null || patternString.isBlank()) return false;
 
         String[] patterns = RULE_SEP.split(patternString);
         for (String raw : patterns) {
             String p = raw == null ? "" : raw.trim();
-            if (p.isEmpty()) continue;
+            if (RuleTokens.isDeny(p) && matches(ipToValidate, RuleTokens.body(p))) return false;
+        }
+        for (String raw : patterns) {
+            String p = raw == null ? "" : raw.trim();
+            if (p.isEmpty() || RuleTokens.isDeny(p)) continue;
 
             if (IPRegex.CIDR.matches(p)) {
                 if (isIpInCidr(ipToValidate, p)) return true;
@@ -59,7 +191,7 @@ public final class IpConfig {
                 if (isIpInWildcard(ipToValidate, p)) return true;
 
             } else if (IPRegex.IPV4.matches(p)) {
-                if (ipToValidate.equals(p)) return true;
+                if (isSameIp(ipToValidate, p)) return true;
             }
         }
         return false;
@@ -126,13 +258,19 @@ public final class IpConfig {
     }
 
 
-    private static int ipv4ToInt(String ip) throws UnknownHostException {
-        byte[] b = InetAddress.getByName(ip).getAddress();
-        if (b.length != 4) throw new IllegalArgumentException("IPv4 only");
-        return ((b[0] & 0xFF) << 24) | ((b[1] & 0xFF) << 16) | ((b[2] & 0xFF) << 8) | (b[3] & 0xFF);
+    private static boolean isSameIp(String ip, String single) {
+        long a = Ipv4.parse(ip);
+        return a != Ipv4.INVALID && a == Ipv4.parse(single);
+    }
+
+    /** IPv4 리터럴 → int (DNS 조회 없음, 리터럴이 아니면 IllegalArgumentException) */
+    private static int ipv4ToInt(String ip) {
+        long v = Ipv4.parse(ip);
+        if (v == Ipv4.INVALID) throw new IllegalArgumentException("IPv4 literal only: " + ip);
+        return (int) v;
     }
 
-    private static long ipv4ToLong(String ip) throws UnknownHostException {
+    private static long ipv4ToLong(String ip) {
         return ((long) ipv4ToInt(ip)) & 0xFFFFFFFFL;
     }
 
@@ -148,9 +286,29 @@ public final class IpConfig {
         return new IpConfig(merged, usedFile);
     }
 
-    /** 주어진 IPv4가 mergedRules 상 허용되는지 (null/blank는 false) */
+    /**
+     * 환경변수/파일 없이 정규화된 규칙 문자열만으로 생성 (벤치마크, 테스트, 임베딩용)
+     * @param mergedRules {@code EnvConfig.normalizeRules}를 거친 규칙
+     */
+    public static IpConfig of(String mergedRules) {
+        return new IpConfig(mergedRules, null);
+    }
+
+    /** 주어진 IPv4/IPv6가 mergedRules 상 허용되는지 (null/blank/형식 오류는 false) */
     public boolean isAllowed(String ip) {
-        return isValidIP(ip, mergedRules);
+        Active a = active();
+        IntervalTable table = a.table();
+        long v = Ipv4.parse(ip);
+        if (v != Ipv4.INVALID) return table.contains((int) v);
+        long[] v6 = Ipv6.scratch();
+        if (!Ipv6.parse(ip, v6)) return false;
+        if (Ipv6.isMappedIpv4(v6[0], v6[1])) return table.contains((int) v6[1]);
+        return a.table6().labelOf(v6[0], v6[1]) == RuleTokens.V6_ALLOW;
+    }
+
+    /** IPv4 int 값으로 허용 여부 검사 (할당 없음) */
+    public boolean isAllowed(int ip) {
+        return active().table().contains(ip);
     }
 
     /** 규칙 문자열 사전 검증 (유효하지 않은 토큰이 있으면 IllegalArgumentException) */
@@ -162,7 +320,17 @@ public final class IpConfig {
             idx++;
             String p = raw == null ? "" : raw.trim();
             if (p.isEmpty()) continue;
-            boolean ok = IPRegex.CIDR.matches(p)
+            try {
+                RuleSchedule.window(p);
+            } catch (IllegalArgumentException e) {
+                throw new AppException(ErrorCode.INVALID_IP_FORMAT, "Invalid time window at #" + idx + ": " + e.getMessage());
+            }
+            p = RuleTokens.body(p);
+            boolean ok = RuleTokens.isHostToken(p)
+                    ? RuleTokens.hostName(p) != null
+                    : RuleTokens.isIpv6Token(p)
+                    ? RuleTokens.expand6(p, (sHi, sLo, eHi, eLo) -> {})
+                    : IPRegex.CIDR.matches(p)
                     || IPRegex.RANGE.matches(p)
                     || IPRegex.WILDCARD.matches(p)
                     || IPRegex.IPV4.matches(p);
@@ -182,32 +350,29 @@ public final class IpConfig {
         // IPv6 루프백 → IPv4 루프백
         if ("::1".equals(s) || "0:0:0:0:0:0:0:1".equalsIgnoreCase(s)) return "127.0.0.1";
         // IPv6-mapped IPv4 (::ffff:a.b.c.d)
-        Matcher m = IPV6_MAPPED_V4.matcher(s);
-        if (m.matches()) return m.group(1);
+        if (s.regionMatches(true, 0, MAPPED_V4_PREFIX, 0, MAPPED_V4_PREFIX.length())
+                && Ipv4.parse(s, MAPPED_V4_PREFIX.length(), s.length()) != Ipv4.INVALID) {
+            return s.substring(MAPPED_V4_PREFIX.length());
+        }
         // 그 외 순수 IPv6은 변환 불가
         return null;
     }
 
     /**
      * 요청에서 클라이언트 IPv4를 추출.
-     * trustProxyHeaders=true면 X-Forwarded-For / X-Real-IP를 우선 사용.
-     * @param req
-     * @param trustProxyHeaders
-     * @return
+     * trustProxyHeaders=true면 소켓 주소가 기본 신뢰 프록시(루프백)일 때
+     * X-Forwarded-For를 오른쪽부터 훑어 처음 나오는 신뢰하지 않는 홉을 쓴다 ({@link ClientAddress}).
+     * XFF가 없으면 X-Real-IP.
+     * @param req 요청
+     * @param trustProxyHeaders 프록시 헤더 사용 여부
+     * @return 클라이언트 IP (IPv4로 바꿀 수 있으면 IPv4)
      */
     public static String clientIPv4(HttpServletRequest req, boolean trustProxyHeaders) {
         String ip = req.getRemoteAddr();
-
-//        if (trustProxyHeaders) {
-//            String xff = req.getHeader("X-Forwarded-For");
-//            if (xff != null && !xff.isBlank()) {
-//                // "client, proxy1, proxy2" 형태 → 첫 번째 토큰 사용
-//                ip = xff.split(",")[0].trim();
-//            } else {
-//                String xri = req.getHeader("X-Real-IP");
-//                if (xri != null && !xri.isBlank()) ip = xri.trim();
-//            }
-//        }
+        if (trustProxyHeaders) {
+            ip = ClientAddress.defaults().resolve(ip,
+                    req.getHeader(HeaderKeys.FORWARDED_FOR.getKey()), req.getHeader(HeaderKeys.REAL_IP.getKey()));
+        }
         String v4 = toIPv4IfPossible(ip);
         return (v4 != null) ? v4 : ip;
     }
@@ -223,14 +388,14 @@ public final class IpConfig {
         if (IPRegex.CIDR.matches(token)) return isIpInCidr(ip, token);
         if (IPRegex.RANGE.matches(token)) return isIpInRange(ip, token);
         if (IPRegex.WILDCARD.matches(token)) return isIpInWildcard(ip, token);
-        if (IPRegex.IPV4.matches(token)) return ip.equals(token);
+        if (IPRegex.IPV4.matches(token)) return isSameIp(ip, token);
         return false;
     }
 
 
     /**
      * 규칙 문자열(구분자 혼합 허용)을 토큰으로 나누고, IP에 첫 번째로 매칭되는 토큰을 반환.
-     * 매칭 없으면 null.
+     * 거부 토큰({@code !...})이 걸리면 허용 토큰보다 먼저 그 토큰을 반환. 매칭 없으면 null.
      */
     public static String findMatchedToken(String ip, String patternString) {
         if (patternString == null || patternString.isBlank()) return null;
@@ -239,7 +404,10 @@ public final class IpConfig {
                 .filter(s -> !s.isEmpty())
                 .toList();
         for (String token : tokens) {
-            if (matches(ip, token)) return token; // 첫 매칭 토큰 반환
+            if (RuleTokens.isDeny(token) && matches(ip, RuleTokens.body(token))) return token;
+        }
+        for (String token : tokens) {
+            if (!RuleTokens.isDeny(token) && matches(ip, token)) return token; // 첫 매칭 토큰 반환
         }
         return null;
     }
@@ -3,7 +3,13 @@ package com.constant;
 public enum AttributeKeys {
     ALLOWED("ip.allowed"),
     REASON("ip.reason"),
-    CLIENT("ip.client");
+    CLIENT("ip.client"),
+    /** 응답 상태를 자동 차단 목록에 이미 넘기기로 한 가드가 있는지 (Valve + 필터 이중 집계 방지) */
+    BAN_TRACKED("ip.ban.tracked"),
+    /** 요청 제한을 이미 확인한 가드가 있는지 (Valve + 필터 이중 차감 방지) */
+    RATE_CHECKED("ip.rate.checked"),
+    /** 판정에 쓴 규칙 스냅샷 버전 (Long) */
+    RULE_VERSION("ip.rule.version");
 
     private final String key;
 
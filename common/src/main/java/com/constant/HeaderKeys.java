@@ -2,7 +2,12 @@ package com.constant;
 
 public enum HeaderKeys {
     ALLOWED("X-Ip-Allowed"),
-    REASON("X-Ip-Reason");
+    REASON("X-Ip-Reason"),
+    RETRY_AFTER("Retry-After"),
+    FORWARDED_FOR("X-Forwarded-For"),
+    REAL_IP("X-Real-IP"),
+    /** 서버1이 서명한 판정 토큰 ({@code com.filter.DecisionToken}) */
+    DECISION("X-Ip-Decision");
 
     private final String key;
 
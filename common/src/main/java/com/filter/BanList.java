@@ -0,0 +1,329 @@
+package com.filter;
+
+import com.config.EnvConfig;
+import com.rule.ClientAddress;
+import com.rule.Ipv4;
+import com.rule.Ipv6;
+import com.rule.PrefixTrie;
+import com.rule.Rule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 에러 응답을 몰아서 내는 클라이언트(경로 훑기 등)를 일정 시간 자동 차단하는 메모리 목록.
+ *
+ * <ul>
+ *   <li>{@link IpGuardFilter}/{@link IpGuardValve}가 응답 상태를 {@link #record(String, int)}로 넘긴다.
+ *       세는 상태(기본 400, 404)가 창({@code window}) 안에 {@code errors}번 쌓이면 {@code ban} 동안 차단한다.</li>
+ *   <li>조회는 해시 조회 한 번({@link #banned(String)}). 차단이 하나도 없으면 주소 정규화도 하지 않는다.</li>
+ *   <li>창 카운터와 차단의 만료는 항목마다 타이머를 두지 않고 {@link TimingWheel} 하나에 모은다.
+ *       데몬 스레드 하나가 틱마다 휠을 돌린다. 만료 시각은 조회 때도 확인하므로 휠이 늦어도 풀린 차단이 남지 않는다.</li>
+ *   <li>루프백과 이 호스트 주소({@link ClientAddress#localHostAddress()})는 기본으로 세지 않는다. 한 프로세스에서
+ *       서버1이 서버2를 부르면 사용자 대신 404를 받는 쪽이 이 주소라, 세면 호스트 자신이 차단된다({@code local=count}로 끔).</li>
+ *   <li>{@code exempt} 규칙(allow 규칙과 같은 형식)에 걸리는 주소도 세지 않는다. 다른 호스트의 내부 호출자를 여기에 둔다.</li>
+ *   <li>관리 엔드포인트는 {@link #bans()}/{@link #clear(String)}/{@link #clearAll()}로 보고 지운다.</li>
+ * </ul>
+ *
+ * <h2>설정 ({@value #ENV})</h2>
+ * <p>{@code 키=값}을 {@code ;}로 구분. 시간은 초. 생략한 키는 기본값.</p>
+ * <pre>
+ * IP_AUTO_BAN=errors=20;window=10;ban=600;status=400,404;exempt=10.0.0.0/8,192.168.0.10;local=exempt
+ * </pre>
+ */
+public final class BanList implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(BanList.class);
+
+    /** 자동 차단 설정 환경변수 */
+    public static final String ENV = "IP_AUTO_BAN";
+    /** 차단된 요청의 이유 */
+    public static final String REASON = "denied:banned";
+    /** 휠 틱(ms) */
+    static final long TICK_MILLIS = 250;
+    /** 루프백 (이 호스트 주소는 생성할 때 더한다) */
+    private static final String LOOPBACK = "127.0.0.0/8,::1";
+
+    /**
+     * 차단 정책.
+     * @param errors       차단까지 허용하는 에러 수
+     * @param windowMillis 에러를 세는 창(ms)
+     * @param banMillis    차단 시간(ms)
+     * @param statuses     세는 응답 상태
+     * @param exempt       세지 않는 주소 규칙 (null 허용)
+     * @param exemptLocal  루프백/이 호스트 주소를 세지 않을지
+     */
+    public record Policy(int errors, long windowMillis, long banMillis, BitSet statuses, String exempt,
+                         boolean exemptLocal) {
+        /** 기본값: 10초에 400/404 20번이면 10분 차단, 루프백/이 호스트 주소만 예외 */
+        public static final Policy DEFAULT = new Policy(20, 10_000, 600_000, statusesOf("400,404"), null, true);
+
+        public Policy {
+            if (errors < 1) throw new IllegalArgumentException("errors must be positive: " + errors);
+            if (windowMillis < 1 || banMillis < 1) throw new IllegalArgumentException("window/ban must be positive");
+            statuses = (BitSet) statuses.clone();
+        }
+
+        @Override
+        public BitSet statuses() {
+            return (BitSet) statuses.clone();
+        }
+
+        /**
+         * {@code 키=값;...} 해석. 잘못된 항목은 경고 후 기본값을 쓴다.
+         * @param spec 예: {@code errors=20;window=10;ban=600;status=400,404;exempt=10.0.0.0/8;local=count}
+         */
+        public static Policy parse(String spec) {
+            int errors = DEFAULT.errors;
+            long window = DEFAULT.windowMillis;
+            long ban = DEFAULT.banMillis;
+            BitSet statuses = DEFAULT.statuses;
+            String exempt = DEFAULT.exempt;
+            boolean exemptLocal = DEFAULT.exemptLocal;
+            for (String entry : spec.split(";")) {
+                int eq = entry.indexOf('=');
+                if (eq <= 0) {
+                    if (!entry.isBlank()) log.warn("{} entry ignored: [{}]", ENV, entry);
+                    continue;
+                }
+                String key = entry.substring(0, eq).trim();
+                String value = entry.substring(eq + 1).trim();
+                try {
+                    switch (key) {
+                        case "errors" -> errors = Integer.parseInt(value);
+                        case "window" -> window = Long.parseLong(value) * 1_000;
+                        case "ban" -> ban = Long.parseLong(value) * 1_000;
+                        case "status" -> statuses = statusesOf(value);
+                        case "exempt" -> exempt = value;
+                        case "local" -> exemptLocal = switch (value) {
+                            case "exempt" -> true;
+                            case "count" -> false;
+                            default -> throw new IllegalArgumentException("local must be exempt or count");
+                        };
+                        default -> log.warn("{} entry ignored: [{}]", ENV, entry);
+                    }
+                } catch (IllegalArgumentException e) {
+                    log.warn("{} entry ignored: [{}] ({})", ENV, entry, e.getMessage());
+                }
+            }
+            return new Policy(errors, window, ban, statuses, exempt, exemptLocal);
+        }
+
+        private static BitSet statusesOf(String list) {
+            BitSet out = new BitSet(600);
+            for (String s : list.split(",")) {
+                int status = Integer.parseInt(s.trim());
+                if (status < 100 || status > 599) throw new IllegalArgumentException("not a status: " + status);
+                out.set(status);
+            }
+            return out;
+        }
+    }
+
+    /**
+     * 차단 하나.
+     * @param ip          정규화된 주소
+     * @param sinceMillis 차단 시작(ms)
+     * @param untilMillis 차단 끝(ms, 미포함)
+     * @param errors      차단 직전 창의 에러 수
+     */
+    public record Ban(String ip, long sinceMillis, long untilMillis, int errors) {}
+
+    /** 창 하나의 에러 카운터 */
+    private static final class Window {
+        final long start;
+        final AtomicInteger count = new AtomicInteger();
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+
+    private final Policy policy;
+    private final BitSet statuses;
+    /** 세지 않는 주소 (없으면 null) */
+    private final PrefixTrie exempt;
+    private final LongSupplier clock;
+    private final TimingWheel wheel;
+    private final Map<String, Ban> bans = new ConcurrentHashMap<>();
+    private final Map<String, Window> counters = new ConcurrentHashMap<>();
+    private final LongAdder blocked = new LongAdder();
+
+    private ScheduledExecutorService ticker;
+
+    /**
+     * @param policy      차단 정책
+     * @param clockMillis 밀리초 시계
+     */
+    public BanList(Policy policy, LongSupplier clockMillis) {
+        this.policy = policy;
+        this.statuses = policy.statuses();
+        String local = policy.exemptLocal() ? LOOPBACK + "," + ClientAddress.localHostAddress() : null;
+        boolean none = (policy.exempt() == null || policy.exempt().isBlank()) && local == null;
+        // 운영자 규칙이 먼저라 그쪽의 거부 토큰(!)이 로컬 예외보다 우선한다
+        this.exempt = none ? null : PrefixTrie.compile(policy.exempt(), local);
+        this.clock = clockMillis;
+        this.wheel = new TimingWheel(TICK_MILLIS, clockMillis.getAsLong());
+    }
+
+    /**
+     * {@value #ENV} 환경변수로 생성.
+     * @return 설정이 없으면 null (자동 차단 끔)
+     */
+    public static BanList fromEnv() {
+        String spec = EnvConfig.env(ENV);
+        return spec == null ? null : new BanList(Policy.parse(spec), System::currentTimeMillis);
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    /**
+     * 차단 여부 (요청 경로, 해시 조회 한 번).
+     * @param ip 클라이언트 주소
+     * @return 유효한 차단, 없으면 null
+     */
+    public Ban banned(String ip) {
+        if (bans.isEmpty() || ip == null) return null;
+        Ban b = bans.get(canonical(ip));
+        if (b == null || b.untilMillis() <= clock.getAsLong()) return null;
+        blocked.increment();
+        return b;
+    }
+
+    /**
+     * 응답 상태 기록. 세지 않는 상태면 바로 돌아간다.
+     * @param ip     클라이언트 주소
+     * @param status 응답 상태
+     * @return 이번 기록으로 차단됐으면 true
+     */
+    public boolean record(String ip, int status) {
+        if (ip == null || status < 0 || !statuses.get(status)) return false;
+        if (exempt != null && isExempt(ip)) return false;
+        String key = canonical(ip);
+        long now = clock.getAsLong();
+        Ban current = bans.get(key);
+        if (current != null && current.untilMillis() > now) return false;
+
+        Window w = counters.get(key);
+        if (w == null || now - w.start >= policy.windowMillis()) {
+            Window fresh = new Window(now);
+            w = counters.merge(key, fresh, (old, f) -> now - old.start >= policy.windowMillis() ? f : old);
+            if (w == fresh) wheel.schedule(() -> counters.remove(key, fresh), now + policy.windowMillis());
+        }
+        int count = w.count.incrementAndGet();
+        if (count != policy.errors()) return false;
+
+        counters.remove(key, w);
+        ban(key, now, now + policy.banMillis(), count);
+        log.warn("IP auto banned - ip={}, errors={} in {}ms, until={}", key, count, now - w.start,
+                Instant.ofEpochMilli(now + policy.banMillis()));
+        return true;
+    }
+
+    private void ban(String key, long now, long until, int errors) {
+        Ban b = new Ban(key, now, until, errors);
+        bans.put(key, b);
+        wheel.schedule(() -> bans.remove(key, b), until);
+    }
+
+    /** 유효한 차단 목록 (끝나는 시각 순) */
+    public List<Ban> bans() {
+        long now = clock.getAsLong();
+        List<Ban> out = new ArrayList<>();
+        for (Ban b : bans.values()) {
+            if (b.untilMillis() > now) out.add(b);
+        }
+        out.sort(Comparator.comparingLong(Ban::untilMillis).thenComparing(Ban::ip));
+        return out;
+    }
+
+    /**
+     * 차단 하나 해제 (카운터도 지운다).
+     * @return 해제한 차단, 없으면 null
+     */
+    public Ban clear(String ip) {
+        String key = canonical(ip.trim());
+        counters.remove(key);
+        Ban b = bans.remove(key);
+        if (b != null) log.info("IP ban cleared - ip={}", key);
+        return b == null || b.untilMillis() <= clock.getAsLong() ? null : b;
+    }
+
+    /**
+     * 모든 차단과 카운터 해제.
+     * @return 해제한 (유효한) 차단 수
+     */
+    public int clearAll() {
+        int n = bans().size();
+        bans.clear();
+        counters.clear();
+        log.info("IP bans cleared - count={}", n);
+        return n;
+    }
+
+    /** 만료 처리: 휠을 지금까지 돌린다 (틱 스레드가 부른다) */
+    void expire() {
+        wheel.advance(clock.getAsLong());
+    }
+
+    /** 차단으로 막은 요청 수 */
+    public long blocked() {
+        return blocked.sum();
+    }
+
+    /** 만료 대기 중인 카운터/차단 수 (휠에 남은 작업) */
+    int pending() {
+        return wheel.size();
+    }
+
+    /** 틱 스레드 시작 (이미 시작했으면 무시) */
+    public synchronized void start() {
+        if (ticker != null) return;
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ip-ban-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::expire, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** 틱 스레드 중지 */
+    @Override
+    public synchronized void close() {
+        if (ticker != null) ticker.shutdownNow();
+        ticker = null;
+    }
+
+    private boolean isExempt(String ip) {
+        Rule r = exempt.match(ip);
+        return r != null && r.allows();
+    }
+
+    /** 같은 주소가 같은 키가 되도록 정규화 (IPv4-mapped → IPv4, IPv6는 RFC 5952) */
+    static String canonical(String ip) {
+        long v4 = Ipv4.parse(ip);
+        if (v4 != Ipv4.INVALID) return Ipv4.format((int) v4);
+        long[] v6 = Ipv6.scratch();
+        if (!Ipv6.parse(ip, v6)) return ip;
+        return Ipv6.isMappedIpv4(v6[0], v6[1]) ? Ipv4.format((int) v6[1]) : Ipv6.format(v6[0], v6[1]);
+    }
+
+    @Override
+    public String toString() {
+        return "BanList[bans=" + bans.size() + ", counters=" + counters.size() + ", blocked=" + blocked() + "]";
+    }
+}
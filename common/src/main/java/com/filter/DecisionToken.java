@@ -0,0 +1,173 @@
+package com.filter;
+
+import com.config.EnvConfig;
+import com.constant.HeaderKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.LongSupplier;
+
+/**
+ * 서버1이 내린 IP 판정을 서버2로 넘기는 HMAC 서명 토큰.
+ *
+ * <p>서버1이 서버2를 부를 때 {@code X-Client-IP}/{@code X-Ip-Allowed} 헤더는 누구나 위조할 수 있고, 서버2는 어차피
+ * 소켓 주소(서버1)로 규칙을 다시 조회했다. 토큰은 (클라이언트 IP, 판정, 이유, 규칙 버전, 만료)를 공유 키로 서명해
+ * {@link HeaderKeys#DECISION} 헤더 하나로 보낸다. 서버2의 가드는 서명과 만료만 확인하고 규칙 조회 없이 그 판정을 쓴다.</p>
+ *
+ * <ul>
+ *   <li>형식: {@code base64url(본문).base64url(HMAC-SHA256 앞 16바이트)}. 본문은
+ *       형식(1) + 허용(1) + 규칙 버전(8) + 만료 ms(8) + IP 길이(1) + IP + 이유(UTF-8).</li>
+ *   <li>서명 비교는 {@link MessageDigest#isEqual}(상수 시간)로 한다.</li>
+ *   <li>유효 시간은 짧다({@value #TTL_MILLIS}ms). 내부 호출 한 번에 쓰고 버리는 토큰이다.</li>
+ *   <li>서명이 틀리거나 만료된 토큰은 없는 것으로 보고, 가드는 평소처럼 직접 판정한다.</li>
+ * </ul>
+ *
+ * <h2>설정 ({@value #ENV})</h2>
+ * <p>두 서버가 같은 값을 써야 한다. {@code base64:}로 시작하면 디코딩한 바이트, 아니면 UTF-8 바이트가 키다.
+ * {@value #MIN_KEY_BYTES}바이트보다 짧으면 경고 후 토큰을 쓰지 않는다.</p>
+ */
+public final class DecisionToken {
+    private static final Logger log = LoggerFactory.getLogger(DecisionToken.class);
+
+    /** 공유 키 환경변수 */
+    public static final String ENV = "IP_DECISION_KEY";
+    /** 토큰 유효 시간(ms) */
+    public static final long TTL_MILLIS = 30_000;
+    /** 최소 키 길이(바이트) */
+    public static final int MIN_KEY_BYTES = 16;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte FORMAT = 1;
+    private static final int MAC_BYTES = 16;
+    /** 형식 + 허용 + 버전 + 만료 + IP 길이 */
+    private static final int FIXED_BYTES = 1 + 1 + 8 + 8 + 1;
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    /**
+     * 검증된 판정.
+     * @param ip            클라이언트 주소 (서버1이 판정한 값)
+     * @param allowed       허용 여부
+     * @param reason        이유 (예: {@code allowed:user(10.0.0.0/8)})
+     * @param ruleVersion   판정에 쓴 규칙 스냅샷 버전
+     * @param expiresMillis 만료 시각(ms)
+     */
+    public record Decision(String ip, boolean allowed, String reason, long ruleVersion, long expiresMillis) {}
+
+    private final SecretKeySpec key;
+    private final LongSupplier clock;
+    /** {@link Mac}은 스레드 안전하지 않아 스레드마다 하나 */
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * @param key         공유 키 ({@value #MIN_KEY_BYTES}바이트 이상)
+     * @param clockMillis 밀리초 시계
+     */
+    public DecisionToken(byte[] key, LongSupplier clockMillis) {
+        if (key.length < MIN_KEY_BYTES) {
+            throw new IllegalArgumentException("decision key must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(key.clone(), ALGORITHM);
+        this.clock = clockMillis;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        newMac(); // 알고리즘이 없으면 여기서 실패
+    }
+
+    /**
+     * {@value #ENV} 환경변수로 생성.
+     * @return 설정이 없거나 키가 잘못됐으면 null (토큰 끔)
+     */
+    public static DecisionToken fromEnv() {
+        String spec = EnvConfig.env(ENV);
+        if (spec == null) return null;
+        try {
+            byte[] key = spec.startsWith("base64:")
+                    ? Base64.getDecoder().decode(spec.substring("base64:".length()).trim())
+                    : spec.getBytes(StandardCharsets.UTF_8);
+            return new DecisionToken(key, System::currentTimeMillis);
+        } catch (IllegalArgumentException e) {
+            log.warn("{} ignored, decision tokens off - {}", ENV, e.getMessage());
+            return null;
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        }
+    }
+
+    /**
+     * 판정을 서명한다.
+     * @param ip          클라이언트 주소
+     * @param allowed     허용 여부
+     * @param reason      이유 (null이면 빈 문자열)
+     * @param ruleVersion 규칙 스냅샷 버전
+     * @return 헤더 값
+     */
+    public String issue(String ip, boolean allowed, String reason, long ruleVersion) {
+        byte[] ipBytes = ip.getBytes(StandardCharsets.US_ASCII);
+        if (ipBytes.length > 255) throw new IllegalArgumentException("address too long: " + ip);
+        byte[] reasonBytes = reason == null ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(FIXED_BYTES + ipBytes.length + reasonBytes.length)
+                .put(FORMAT)
+                .put((byte) (allowed ? 1 : 0))
+                .putLong(ruleVersion)
+                .putLong(clock.getAsLong() + TTL_MILLIS)
+                .put((byte) ipBytes.length)
+                .put(ipBytes)
+                .put(reasonBytes);
+        byte[] payload = body.array();
+        return B64.encodeToString(payload) + '.' + B64.encodeToString(sign(payload));
+    }
+
+    /**
+     * 서명과 만료를 확인한다.
+     * @param token 헤더 값 (null 허용)
+     * @return 유효한 판정, 아니면 null
+     */
+    public Decision verify(String token) {
+        if (token == null) return null;
+        int dot = token.indexOf('.');
+        if (dot <= 0) return null;
+        byte[] payload;
+        byte[] mac;
+        try {
+            payload = B64D.decode(token.substring(0, dot));
+            mac = B64D.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), mac)) return null;
+        if (payload.length < FIXED_BYTES || payload[0] != FORMAT) return null;
+
+        ByteBuffer in = ByteBuffer.wrap(payload, 1, payload.length - 1);
+        boolean allowed = in.get() == 1;
+        long version = in.getLong();
+        long expires = in.getLong();
+        if (expires <= clock.getAsLong()) return null;
+        int ipLength = in.get() & 0xFF;
+        if (in.remaining() < ipLength) return null;
+        String ip = new String(payload, in.position(), ipLength, StandardCharsets.US_ASCII);
+        int reasonAt = in.position() + ipLength;
+        String reason = new String(payload, reasonAt, payload.length - reasonAt, StandardCharsets.UTF_8);
+        return new Decision(ip, allowed, reason, version, expires);
+    }
+
+    private byte[] sign(byte[] payload) {
+        return Arrays.copyOf(macs.get().doFinal(payload), MAC_BYTES);
+    }
+}
@@ -1,15 +1,20 @@
 package com.filter;
 
-import com.config.EnvConfig;
-import com.config.IpConfig;
 import com.constant.AttributeKeys;
 import com.constant.HeaderKeys;
+import com.rule.ClientAddress;
+import com.rule.Ipv4;
+import com.rule.Ipv6;
+import com.rule.PrefixTrie;
+import com.rule.Rule;
+import com.rule.RuleSnapshot;
+import com.rule.RuleStore;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.net.Inet4Address;
+import java.util.Map;
 
 
 import org.slf4j.Logger;
@@ -23,11 +28,29 @@ import static java.util.regex.Pattern.matches;
  * 요청 보낸 IP를통해 허용/비허용 + 이유(reason)” 요청 속성(Request Attribute)과 응답 헤더(Response Header)에 제공
  *
  * <ol>
- *   <li>클라이언트 IP를 추출한다.</li>
- *   <li>환경변수와 allow-ip.txt를 합친 규칙으로 허용 여부를 계산한다.</li>
- *   <li>어떤 규칙에 걸렸는지 “이유(reason)” 문자열을 만든다. (user &rarr; default 우선)</li>
+ *   <li>클라이언트 IP를 추출한다. 소켓 주소가 신뢰 프록시({@value ClientAddress#TRUSTED_PROXIES_ENV},
+ *       기본은 루프백만)면 {@code X-Forwarded-For}를 오른쪽부터 훑어 처음 나오는 신뢰하지 않는 홉을 쓴다.
+ *       루프백 요청은 시작 시 한 번 조회한 이 호스트 주소로 판정한다.</li>
+ *   <li>요청 경로로 규칙 묶음을 고른다. {@value #PATH_RULES_ENV}에 등록된 접두사(예: {@code /transfer})가
+ *       있으면 그 규칙 파일만, 없으면 기본 규칙(환경변수 + allow-ip.txt)을 쓴다.
+ *       접두사 비교는 미리 정렬된 {@link PathRouter}로 몇 번의 문자열 비교면 끝난다.</li>
+ *   <li>환경변수와 allow-ip.txt를 컴파일한 스냅샷({@link RuleStore})을 한 번 조회해
+ *       허용 여부와 걸린 규칙(거부 &rarr; user &rarr; default 우선)을 함께 얻는다.
+ *       요청 경로에서는 파일을 읽지 않으며, 파일이 바뀌면 백그라운드에서 스냅샷이 교체된다.
+ *       한 JVM의 여러 서버는 {@link RuleRegistry}를 공유해 같은 스냅샷을 본다.</li>
+ *   <li>이유(reason)는 규칙마다 미리 만들어 둔 문자열을 그대로 쓴다.
+ *       (예: {@code allowed:user(10.0.0.0/8)}, {@code denied:user(!10.1.2.3)}, {@code denied:no-match})</li>
  *   <li>결과를 <b>요청 속성</b>과 <b>응답 헤더</b>에 기록한다.</li>
- *   <li>요청은 <b>막지 않고 그대로 통과</b>시킨다.</li>
+ *   <li>{@value RateLimiter#ENV}가 설정돼 있으면 IPv4 클라이언트별 토큰 버킷({@link RateLimiter})을 확인해
+ *       넘친 요청은 {@code 429} + {@code Retry-After}(초)로 끝낸다.</li>
+ *   <li>{@value BanList#ENV}가 설정돼 있으면 자동 차단 목록({@link BanList})을 규칙보다 먼저 해시 조회 한 번으로 확인해
+ *       차단된 클라이언트는 {@code 403}({@value BanList#REASON})으로 끝낸다. 통과한 요청의 응답 상태는 목록에 넘겨
+ *       400/404 같은 에러가 몰리면 자동 차단된다.</li>
+ *   <li>{@value DecisionToken#ENV}가 설정돼 있고 요청에 서명이 맞는 {@code X-Ip-Decision} 토큰({@link DecisionToken})이 있으면
+ *       규칙을 조회하지 않고 토큰의 클라이언트 IP/판정/이유를 쓴다(서버1 → 서버2 내부 호출). 서명이 틀리거나 만료된 토큰은 무시한다.</li>
+ *   <li>{@value ShadowEvaluator#ENV}가 설정돼 있으면 규칙으로 판정한 요청 중 그 비율만큼을 레거시 선형 매칭과
+ *       컴파일된 조회기로 다시 판정해 비교한다({@link ShadowEvaluator}). 요청 스레드는 큐에 넣기만 하고 판정은 바꾸지 않는다.</li>
+ *   <li>그 밖의 요청은 <b>막지 않고 그대로 통과</b>시킨다.</li>
  * </ol>
  *
  * <h2>규칙 포맷(예)</h2>
@@ -36,12 +59,14 @@ import static java.util.regex.Pattern.matches;
  *   <li>CIDR: {@code 192.168.0.0/16}</li>
  *   <li>범위: {@code 10.0.0.1 - 10.0.0.200} 또는 {@code 10.0.0.1~10.0.0.200}</li>
  *   <li>와일드카드: {@code 172.30.1.*}</li>
+ *   <li>IPv6: {@code 2001:db8::/32}, {@code 2001:db8::1-2001:db8::ff}, {@code 2001:db8::1}</li>
+ *   <li>거부: 위 형식 앞에 {@code !} (예: {@code !10.1.2.3}). 허용 규칙과 겹치면 거부가 우선.</li>
  *   <li>토큰 구분: 쉼표, 파이프, 세미콜론, 개행 등을 지원( {@link com.constant.RegexConst#RULE_SEP} ).</li>
  * </ul>
  *
  * <h2>속성/헤더 키</h2>
  * <ul>
- *   <li>요청 속성: {@code AttributeKeys.CLIENT, ALLOWED, REASON}</li>
+ *   <li>요청 속성: {@code AttributeKeys.CLIENT, ALLOWED, REASON, RULE_VERSION}</li>
  *   <li>응답 헤더: {@code HeaderKeys.ALLOWED, HeaderKeys.REASON}</li>
  * </ul>
  *
@@ -51,10 +76,94 @@ import static java.util.regex.Pattern.matches;
  */
 public class IpGuardFilter implements Filter {
     private static final Logger log = LoggerFactory.getLogger(IpGuardFilter.class);
+
+    /** 경로별 규칙 설정 환경변수 (= {@link RuleRegistry#PATH_RULES_ENV}) */
+    public static final String PATH_RULES_ENV = RuleRegistry.PATH_RULES_ENV;
+    /** Too Many Requests (servlet API에 상수가 없다) */
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /** 기본 규칙 + 경로별 규칙 보관소 */
+    private final RuleRegistry rules;
+    /** 보관소 수명을 이 필터가 관리하는지 (공유 레지스트리면 false) */
+    private final boolean ownsRules;
+    /** 신뢰 프록시 (컴파일 완료) */
+    private final ClientAddress proxies = ClientAddress.fromEnv();
+
+    /** 환경변수/allow-ip.txt 기반 규칙 + {@value #PATH_RULES_ENV} 경로별 규칙 + {@value RateLimiter#ENV} 제한으로 생성 */
+    public IpGuardFilter() {
+        this(RuleRegistry.fromEnv(), true);
+    }
+
+    /**
+     * 공유 레지스트리로 생성. 보관소는 레지스트리 주인이 시작/종료한다.
+     * @param shared 프로세스 공용 규칙 레지스트리
+     */
+    public IpGuardFilter(RuleRegistry shared) {
+        this(shared, false);
+    }
+
+    public IpGuardFilter(RuleStore store) {
+        this(store, Map.of());
+    }
+
+    /**
+     * @param store      기본 규칙 보관소
+     * @param pathStores 경로 접두사 → 규칙 보관소 (각자 따로 감시/교체된다)
+     */
+    public IpGuardFilter(RuleStore store, Map<String, RuleStore> pathStores) {
+        this(store, pathStores, null);
+    }
+
+    /**
+     * @param store      기본 규칙 보관소
+     * @param pathStores 경로 접두사 → 규칙 보관소
+     * @param limiter    클라이언트별 요청 제한 (null = 제한 없음)
+     */
+    public IpGuardFilter(RuleStore store, Map<String, RuleStore> pathStores, RateLimiter limiter) {
+        this(new RuleRegistry(store, pathStores, null, null, limiter, null), true);
+    }
+
+    private IpGuardFilter(RuleRegistry rules, boolean ownsRules) {
+        this.rules = rules;
+        this.ownsRules = ownsRules;
+    }
+
     @Override
     public void init(FilterConfig filterConfig) {
+        if (ownsRules) rules.start();
     }
 
+    @Override
+    public void destroy() {
+        if (ownsRules) rules.close();
+    }
+
+    /** 요청 제한 확인: 0 = 통과, 양수 = 기다릴 밀리초 (Valve가 이미 확인했으면 0) */
+    private long acquire(HttpServletRequest request, String ip) {
+        RateLimiter limiter = rules.limiter();
+        if (limiter == null || request.getAttribute(AttributeKeys.RATE_CHECKED.getKey()) != null) return 0;
+        long v4 = Ipv4.parse(ip);
+        return v4 == Ipv4.INVALID ? 0 : limiter.tryAcquire((int) v4);
+    }
+
+    /** 컨텍스트 경로를 뺀 요청 경로 (Tomcat이 정규화/디코딩한 값) */
+    private static String pathOf(HttpServletRequest request) {
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (servletPath == null) return pathInfo;
+        return pathInfo == null ? servletPath : servletPath + pathInfo;
+    }
+
+
+    /** 서명이 맞고 만료되지 않은 판정 토큰 (토큰을 안 쓰거나 없으면 null) */
+    private DecisionToken.Decision upstream(HttpServletRequest request) {
+        DecisionToken tokens = rules.tokens();
+        String token = tokens == null ? null : request.getHeader(HeaderKeys.DECISION.getKey());
+        if (token == null) return null;
+        DecisionToken.Decision d = tokens.verify(token);
+        if (d == null) log.warn("IP decision token rejected - remote={}", request.getRemoteAddr());
+        return d;
+    }
 
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
@@ -63,35 +172,56 @@ public class IpGuardFilter implements Filter {
         HttpServletRequest request = (HttpServletRequest) req;
         HttpServletResponse response = (HttpServletResponse) res;
 
-        String ip = Inet4Address.getLocalHost().getHostAddress();
+        // 서버1이 서명한 판정이 있으면 그대로 쓴다 (클라이언트 IP도 토큰의 값)
+        DecisionToken.Decision upstream = upstream(request);
+        String ip = upstream != null ? upstream.ip() : proxies.resolve(request.getRemoteAddr(),
+                request.getHeader(HeaderKeys.FORWARDED_FOR.getKey()), request.getHeader(HeaderKeys.REAL_IP.getKey()));
 
-        // 규칙
-        IpConfig cfg = IpConfig.fromEnv();
-        String userRaw = EnvConfig.loadAllowFileRulesNormalized();
-        String envRaw = EnvConfig.defaultIpRules();
-
-        // 허용 여부
-        boolean allowed = cfg.isAllowed(ip);
-
-        // 이유
-        String reason;
-        String hit = IpConfig.findMatchedToken(ip, userRaw);
-        if (hit != null) {
-            reason = "user IP(" + hit + ")";
-        } else if ((hit = IpConfig.findMatchedToken(ip, envRaw)) != null) {
-            reason = "default IP(" + hit + ")";
-        } else {
-            if (ip.contains(":")) {
-                reason = "unavailable format(" + ip + ")";
+        // 자동 차단 확인 후 경로별 규칙 선택 → 허용 여부 + 이유 (스냅샷 조회 한 번)
+        BanList bans = rules.bans();
+        BanList.Ban ban = bans == null ? null : bans.banned(ip);
+        RuleStore store = ban != null || upstream != null ? null : rules.route(pathOf(request));
+        // 판정과 버전(토큰 서명/섀도 표본)은 같은 스냅샷에서
+        RuleSnapshot snap = store == null ? null : store.current();
+        // 한 번만 파싱해 조회와 형식 판정에 같이 쓴다 (IPv6는 스레드별 버퍼)
+        Rule hit = null;
+        boolean address = true;
+        if (snap != null) {
+            long v4 = Ipv4.parse(ip);
+            if (v4 != Ipv4.INVALID) {
+                hit = store.match(snap, (int) v4);
             } else {
-                reason = "no match IP(" + ip + ")";
+                long[] v6 = Ipv6.scratch();
+                address = Ipv6.parse(ip, v6);
+                if (address) hit = store.match(snap, v6[0], v6[1]);
             }
         }
+        boolean allowed = ban == null && (upstream != null ? upstream.allowed() : hit != null && hit.allows());
+        String reason;
+        if (ban != null) {
+            reason = BanList.REASON;
+        } else if (upstream != null) {
+            reason = upstream.reason();
+        } else if (hit != null) {
+            reason = hit.reason();
+        } else if (!address) {
+            reason = "denied:ip-format-not-supported(" + ip + ")";
+        } else {
+            reason = PrefixTrie.REASON_NO_MATCH;
+        }
 
         // 서버 내부에서 참조할 요청 속성으로 저장
         request.setAttribute(AttributeKeys.CLIENT.getKey(), ip);
         request.setAttribute(AttributeKeys.ALLOWED.getKey(), allowed);
         request.setAttribute(AttributeKeys.REASON.getKey(), reason);
+        if (upstream != null) {
+            request.setAttribute(AttributeKeys.RULE_VERSION.getKey(), upstream.ruleVersion());
+        } else if (snap != null) {
+            request.setAttribute(AttributeKeys.RULE_VERSION.getKey(), snap.version());
+            // 표본이면 큐에 넣기만 한다 (비교는 섀도 스레드)
+            ShadowEvaluator shadow = rules.shadow();
+            if (shadow != null) shadow.sample(ip, snap);
+        }
         // request.setAttribute("ip.rules.merged", cfg.mergedRules());
         // request.setAttribute("ip.rules.file", allowFile);
 
@@ -109,9 +239,29 @@ public class IpGuardFilter implements Filter {
             log.info("IP guard check - allowed={}, reason={}, {} {}",
                     allowed, reason, request.getMethod(), request.getRequestURI());
 
+            if (ban != null) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+
+            // 요청 제한 (IPv4만, 토큰으로 온 요청은 서버1이 이미 셌다)
+            long waitMillis = upstream != null ? 0 : acquire(request, ip);
+            if (waitMillis > 0) {
+                log.warn("IP rate limited - retryAfter={}ms, {} {}", waitMillis, request.getMethod(), request.getRequestURI());
+                response.setHeader(HeaderKeys.RETRY_AFTER.getKey(), String.valueOf((waitMillis + 999) / 1000));
+                response.sendError(SC_TOO_MANY_REQUESTS);
+                return;
+            }
+
+            // 응답 상태는 한 가드만 넘긴다 (Valve가 먼저 맡았으면 건너뜀)
+            boolean track = bans != null && request.getAttribute(AttributeKeys.BAN_TRACKED.getKey()) == null;
+            if (track) request.setAttribute(AttributeKeys.BAN_TRACKED.getKey(), Boolean.TRUE);
+
             // 차단 시
             //response.sendError(HttpServletResponse.SC_FORBIDDEN);
             chain.doFilter(request, response);
+            // 비동기 응답(규칙 피드 롱 폴링)은 아직 상태가 없다
+            if (track && !request.isAsyncStarted()) bans.record(ip, response.getStatus());
         } finally {
             // 쓰레드 로컬 정리 필수!
             MDC.clear();
@@ -0,0 +1,207 @@
+package com.filter;
+
+import com.config.EnvConfig;
+import com.constant.AttributeKeys;
+import com.constant.HeaderKeys;
+import com.rule.ClientAddress;
+import com.rule.Ipv4;
+import com.rule.Rule;
+import com.rule.RuleSnapshot;
+import com.rule.RuleStore;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link IpGuardFilter}의 Tomcat Valve 버전. Host(또는 Engine) 파이프라인에 걸어 <b>거부 요청을 서블릿 처리 전에 끝낸다</b>.
+ *
+ * <p>필터는 컨텍스트의 필터 체인까지 와야 돌기 때문에, 거부될 요청도 세션/매핑/에러 페이지/로그 비용을 다 낸다.
+ * Valve는 커넥터가 요청을 파싱한 직후 돌므로 스캔이나 폭주 트래픽이 정상 요청의 스레드를 덜 잡아먹는다.</p>
+ *
+ * <ul>
+ *   <li>규칙 조회는 필터와 같다: {@link RuleStore} 스냅샷 + {@value RuleRegistry#PATH_RULES_ENV} 경로별 규칙.
+ *       같은 {@link RuleRegistry}를 필터와 나눠 쓰면 컴파일/감시도 한 번이다.</li>
+ *   <li>클라이언트 IP도 필터와 같다: 신뢰 프록시 뒤면 {@code X-Forwarded-For}의 처음 나오는 신뢰하지 않는 홉({@link ClientAddress}).</li>
+ *   <li>거부: 미리 만들어 둔 {@code 403} 본문을 그대로 쓰고 끝낸다. {@code sendError}를 쓰지 않으므로
+ *       에러 페이지 디스패치도, 요청마다의 로그도 없다(건수만 센다).</li>
+ *   <li>자동 차단 목록({@link BanList})에 있는 클라이언트는 규칙 조회 전에 같은 {@code 403}으로 끝낸다.
+ *       통과한 요청의 응답 상태는 Valve가 목록에 넘긴다(뒤의 필터는 다시 세지 않는다).</li>
+ *   <li>{@link RateLimiter}가 있으면 넘친 요청도 같은 방식으로 {@code 429} + {@code Retry-After}.</li>
+ *   <li>서명이 맞는 판정 토큰({@link DecisionToken})이 있으면 규칙 조회와 요청 제한 없이 토큰의 판정을 쓴다.</li>
+ *   <li>허용: 필터와 같은 요청 속성({@code AttributeKeys})을 남기고 다음 Valve로 넘긴다.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * if (IpGuardValve.enabled()) tomcat.getHost().getPipeline().addValve(new IpGuardValve());
+ * }</pre>
+ */
+public class IpGuardValve extends ValveBase {
+    private static final Logger log = LoggerFactory.getLogger(IpGuardValve.class);
+
+    /** Valve 사용 여부 환경변수 ({@code true}면 서버가 Host 파이프라인에 등록) */
+    public static final String ENABLE_ENV = "IP_GUARD_VALVE";
+
+    private static final String TEXT_PLAIN = "text/plain;charset=US-ASCII";
+    private static final byte[] FORBIDDEN = "403 Forbidden\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOO_MANY = "429 Too Many Requests\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final RuleRegistry rules;
+    /** 보관소 수명을 이 Valve가 관리하는지 (공유 레지스트리면 false) */
+    private final boolean ownsRules;
+    private final ClientAddress proxies = ClientAddress.fromEnv();
+
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder banned = new LongAdder();
+
+    /** 필터와 같은 환경변수/allow-ip.txt/경로별 규칙/요청 제한으로 생성 */
+    public IpGuardValve() {
+        this(RuleRegistry.fromEnv(), true);
+    }
+
+    /**
+     * 공유 레지스트리로 생성. 보관소는 레지스트리 주인이 시작/종료한다.
+     * @param shared 프로세스 공용 규칙 레지스트리
+     */
+    public IpGuardValve(RuleRegistry shared) {
+        this(shared, false);
+    }
+
+    /**
+     * @param store      기본 규칙 보관소
+     * @param pathStores 경로 접두사 → 규칙 보관소
+     * @param limiter    클라이언트별 요청 제한 (null = 제한 없음)
+     */
+    public IpGuardValve(RuleStore store, Map<String, RuleStore> pathStores, RateLimiter limiter) {
+        this(new RuleRegistry(store, pathStores, null, null, limiter, null), true);
+    }
+
+    private IpGuardValve(RuleRegistry rules, boolean ownsRules) {
+        super(true);
+        this.rules = rules;
+        this.ownsRules = ownsRules;
+    }
+
+    /** {@value #ENABLE_ENV}가 {@code true}인지 */
+    public static boolean enabled() {
+        return Boolean.parseBoolean(EnvConfig.env(ENABLE_ENV));
+    }
+
+    @Override
+    protected void startInternal() throws LifecycleException {
+        if (ownsRules) rules.start();
+        super.startInternal();
+    }
+
+    @Override
+    protected void stopInternal() throws LifecycleException {
+        super.stopInternal();
+        log.info("IP guard valve stats - denied={}, limited={}, banned={}", denied(), limited(), banned());
+        if (ownsRules) rules.close();
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        DecisionToken tokens = rules.tokens();
+        String token = tokens == null ? null : request.getHeader(HeaderKeys.DECISION.getKey());
+        DecisionToken.Decision upstream = token == null ? null : tokens.verify(token);
+        String ip = upstream != null ? upstream.ip() : proxies.resolve(request.getRemoteAddr(),
+                request.getHeader(HeaderKeys.FORWARDED_FOR.getKey()), request.getHeader(HeaderKeys.REAL_IP.getKey()));
+
+        BanList bans = rules.bans();
+        if (bans != null && bans.banned(ip) != null) {
+            banned.increment();
+            reject(response, 403, FORBIDDEN);
+            return;
+        }
+
+        String reason;
+        long version;
+        if (upstream != null) {
+            if (!upstream.allowed()) {
+                denied.increment();
+                reject(response, 403, FORBIDDEN);
+                return;
+            }
+            reason = upstream.reason();
+            version = upstream.ruleVersion();
+        } else {
+            RuleStore store = rules.route(pathOf(request));
+            RuleSnapshot snap = store.current();
+            Rule hit = store.match(snap, ip);
+            if (hit == null || !hit.allows()) {
+                denied.increment();
+                reject(response, 403, FORBIDDEN);
+                return;
+            }
+            reason = hit.reason();
+            version = snap.version();
+        }
+
+        RateLimiter limiter = rules.limiter();
+        if (limiter != null && upstream == null) {
+            request.setAttribute(AttributeKeys.RATE_CHECKED.getKey(), Boolean.TRUE);
+            long v4 = Ipv4.parse(ip);
+            long waitMillis = v4 == Ipv4.INVALID ? 0 : limiter.tryAcquire((int) v4);
+            if (waitMillis > 0) {
+                limited.increment();
+                response.setHeader(HeaderKeys.RETRY_AFTER.getKey(), String.valueOf((waitMillis + 999) / 1000));
+                reject(response, 429, TOO_MANY);
+                return;
+            }
+        }
+
+        request.setAttribute(AttributeKeys.CLIENT.getKey(), ip);
+        request.setAttribute(AttributeKeys.ALLOWED.getKey(), Boolean.TRUE);
+        request.setAttribute(AttributeKeys.REASON.getKey(), reason);
+        request.setAttribute(AttributeKeys.RULE_VERSION.getKey(), version);
+        if (bans == null) {
+            getNext().invoke(request, response);
+            return;
+        }
+        request.setAttribute(AttributeKeys.BAN_TRACKED.getKey(), Boolean.TRUE);
+        getNext().invoke(request, response);
+        // 비동기 응답(규칙 피드 롱 폴링)은 아직 상태가 없다
+        if (!request.isAsyncStarted()) bans.record(ip, response.getStatus());
+    }
+
+    /** 미리 만든 본문으로 응답하고 끝낸다 (에러 페이지 디스패치 없음) */
+    private static void reject(Response response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(TEXT_PLAIN);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /** 컨텍스트 경로를 뺀 디코딩된 요청 경로 (서블릿 매핑 결과에 기대지 않는다) */
+    private static String pathOf(Request request) {
+        String uri = request.getDecodedRequestURI();
+        String contextPath = request.getContextPath();
+        if (uri == null || contextPath == null || contextPath.isEmpty()) return uri;
+        return uri.startsWith(contextPath) ? uri.substring(contextPath.length()) : uri;
+    }
+
+    /** 거부한 요청 수 */
+    public long denied() {
+        return denied.sum();
+    }
+
+    /** 요청 제한에 걸린 요청 수 */
+    public long limited() {
+        return limited.sum();
+    }
+
+    /** 자동 차단으로 막은 요청 수 */
+    public long banned() {
+        return banned.sum();
+    }
+}
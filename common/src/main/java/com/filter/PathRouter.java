@@ -0,0 +1,68 @@
+package com.filter;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * URL 경로 접두사 → 값 라우터 (미리 정렬해 두는 불변 객체).
+ *
+ * <p>접두사를 길이 내림차순으로 정렬해 두고 앞에서부터 {@code regionMatches}로 비교하므로
+ * 가장 긴 접두사가 먼저 걸린다. 정규식도, 요청마다의 객체 생성도 없다.</p>
+ *
+ * <ul>
+ *   <li>경로 구획 단위로만 맞춘다: {@code /files}는 {@code /files}, {@code /files/a}에 걸리고
+ *       {@code /filesystem}에는 걸리지 않는다.</li>
+ *   <li>끝의 {@code /}는 무시한다({@code /files/} = {@code /files}).</li>
+ * </ul>
+ *
+ * @param <T> 경로별 값 (예: {@link com.rule.RuleStore})
+ */
+public final class PathRouter<T> {
+
+    private final String[] prefixes;
+    private final Object[] values;
+
+    /**
+     * @param routes 접두사 → 값 (접두사는 {@code /}로 시작)
+     */
+    public PathRouter(Map<String, T> routes) {
+        TreeMap<String, T> sorted = new TreeMap<>(
+                Comparator.<String>comparingInt(String::length).reversed().thenComparing(Comparator.naturalOrder()));
+        routes.forEach((k, v) -> sorted.put(normalize(k), v));
+        this.prefixes = sorted.keySet().toArray(new String[0]);
+        this.values = sorted.values().toArray();
+    }
+
+    /**
+     * 경로에 맞는 값 찾기.
+     * @param path 요청 경로 (컨텍스트 경로 제외, null 허용)
+     * @return 가장 긴 접두사의 값, 없으면 null
+     */
+    @SuppressWarnings("unchecked")
+    public T route(String path) {
+        if (path == null) return null;
+        for (int i = 0; i < prefixes.length; i++) {
+            String p = prefixes[i];
+            int n = p.length();
+            if (path.regionMatches(0, p, 0, n)
+                    && (n == 0 || path.length() == n || path.charAt(n) == '/')) {
+                return (T) values[i];
+            }
+        }
+        return null;
+    }
+
+    /** 등록된 접두사 수 */
+    public int size() {
+        return prefixes.length;
+    }
+
+    /** 접두사 정규화: 앞에 {@code /} 보장, 끝의 {@code /} 제거 ({@code /} 자체는 빈 문자열 = 전체) */
+    private static String normalize(String prefix) {
+        String p = prefix.trim();
+        if (!p.startsWith("/")) p = "/" + p;
+        while (p.endsWith("/")) p = p.substring(0, p.length() - 1);
+        return p;
+    }
+}
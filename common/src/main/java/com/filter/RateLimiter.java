@@ -0,0 +1,282 @@
+package com.filter;
+
+import com.config.EnvConfig;
+import com.rule.PrefixTrie;
+import com.rule.Rule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 클라이언트 IPv4별 토큰 버킷 요청 제한기 (락 없음, 박싱 없음).
+ *
+ * <h2>구조</h2>
+ * <ul>
+ *   <li>오픈 어드레싱 {@link AtomicLongArray}. 버킷 하나 = {@code long} 두 칸
+ *       {@code [키 = IPv4 + 1][상태 = 확인값 8비트 | 마지막 충전 시각(ms) 32비트 | 밀리토큰 24비트]}.
+ *       버킷마다 따로 CAS하므로 공유 카운터나 전역 락이 없다.</li>
+ *   <li>충전은 지연 계산: 조회 시 {@code 경과 시간 × 초당 토큰}만큼 더하고 버스트로 자른다.
+ *       타이머 스레드가 없고, 통과 한 번 = 상태 CAS 한 번(새 클라이언트면 키 CAS 한 번 더).</li>
+ *   <li>확인값은 IP의 두 번째 해시. 버킷이 다른 IP에 넘어가는 사이 끼어든 CAS는 확인값이 달라 실패하고,
+ *       확인값이 다른 상태는 "가득 찬 새 버킷"으로 읽는다.</li>
+ *   <li>키는 지우지 않는다. 탐색 창(8칸)이 차면 가득 찰 만큼 오래 쉰 버킷을 CAS로 가져가고,
+ *       그것도 없으면 IP 해시로 고른 한 칸을 덮어쓴다(그 클라이언트는 새 버킷으로 시작).</li>
+ * </ul>
+ *
+ * <h2>설정 ({@value #ENV})</h2>
+ * <p>{@code 규칙=초당[/버스트]} 항목을 {@code ;}로 구분. 규칙은 allow 규칙과 같은 형식(CIDR, 범위, 와일드카드, 단일 IP),
+ * {@code *}는 나머지 전체, {@code off}는 제한 없음. 겹치면 먼저 적은 항목이 이긴다.
+ * 버스트를 생략하면 초당 값(최소 1)을 쓴다.</p>
+ * <pre>
+ * IP_RATE_LIMITS=10.0.0.0/8=off;203.0.113.0/24=5/10;*=20/40
+ * </pre>
+ */
+public final class RateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+    /** 제한 설정 환경변수 */
+    public static final String ENV = "IP_RATE_LIMITS";
+    /** 기본 버킷 수 */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /** 버스트 상한 (밀리토큰 24비트) */
+    public static final int MAX_BURST = 16_000;
+
+    private static final int PROBE = 8;
+    private static final long MILLI = 1_000;
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final String ANY = "*";
+
+    /**
+     * 버킷 한 종류.
+     * @param perSecond 초당 충전 토큰 수
+     * @param burst     버킷 크기(한 번에 몰아 쓸 수 있는 요청 수)
+     */
+    public record Limit(double perSecond, int burst) {
+        public Limit {
+            if (!(perSecond > 0) || perSecond > 1_000_000) {
+                throw new IllegalArgumentException("rate out of range: " + perSecond);
+            }
+            if (burst < 1 || burst > MAX_BURST) {
+                throw new IllegalArgumentException("burst out of range: " + burst);
+            }
+        }
+
+        /** {@code 초당[/버스트]} 해석, {@code off}면 null(제한 없음) */
+        public static Limit parse(String spec) {
+            String s = spec.trim();
+            if (s.equalsIgnoreCase("off")) return null;
+            int slash = s.indexOf('/');
+            double rate = Double.parseDouble(slash < 0 ? s : s.substring(0, slash).trim());
+            int burst = slash < 0 ? (int) Math.max(1, Math.ceil(rate)) : Integer.parseInt(s.substring(slash + 1).trim());
+            return new Limit(rate, burst);
+        }
+    }
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final LongSupplier clock;
+    private final long epoch;
+
+    /** 대역별 제한: 규칙 id → 제한 인덱스(-1 = 제한 없음) */
+    private final PrefixTrie subnets;
+    private final int[] limitOfRule;
+    /** 제한 목록 (마지막은 fallback) 과 밀리토큰 단위로 미리 계산한 값 */
+    private final Limit[] limits;
+    private final long[] rateMilli;
+    private final long[] burstMilli;
+    /** 이만큼 쉰 버킷은 어느 제한이든 가득 차 있으므로 넘겨줘도 손해가 없다 */
+    private final long idleMillis;
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param subnetLimits 규칙 → 제한 (순서 = 우선순위, 값 null = 제한 없음)
+     * @param fallback     어느 규칙에도 안 걸린 IP의 제한(null = 제한 없음)
+     * @param capacity     최대 버킷 수(2의 거듭제곱으로 올림, 최소 {@value #PROBE})
+     * @param clockMillis  밀리초 시계
+     */
+    public RateLimiter(Map<String, Limit> subnetLimits, Limit fallback, int capacity, LongSupplier clockMillis) {
+        int size = Integer.highestOneBit(Math.max(PROBE, capacity) - 1) << 1;
+        this.slots = new AtomicLongArray(size * 2);
+        this.mask = size - 1;
+        this.clock = clockMillis;
+        this.epoch = clockMillis.getAsLong();
+
+        this.subnets = PrefixTrie.compile(String.join(",", subnetLimits.keySet()), null);
+        List<Rule> rules = subnets.rules();
+        List<Limit> list = new ArrayList<>();
+        this.limitOfRule = new int[rules.size()];
+        for (Rule r : rules) {
+            Limit l = subnetLimits.get(r.token());
+            limitOfRule[r.id()] = l == null ? -1 : list.size();
+            if (l != null) list.add(l);
+        }
+        list.add(fallback);
+        this.limits = list.toArray(new Limit[0]);
+        this.rateMilli = new long[limits.length];
+        this.burstMilli = new long[limits.length];
+        long idle = 0;
+        for (int i = 0; i < limits.length; i++) {
+            Limit l = limits[i];
+            if (l == null) continue;
+            rateMilli[i] = Math.max(1, Math.round(l.perSecond() * MILLI));
+            burstMilli[i] = l.burst() * MILLI;
+            idle = Math.max(idle, ceilDiv(burstMilli[i] * MILLI, rateMilli[i]));
+        }
+        this.idleMillis = idle;
+    }
+
+    /**
+     * {@value #ENV} 환경변수로 생성.
+     * @return 설정이 없으면 null
+     */
+    public static RateLimiter fromEnv() {
+        String spec = EnvConfig.env(ENV);
+        return spec == null ? null : parse(spec, DEFAULT_CAPACITY, System::currentTimeMillis);
+    }
+
+    /**
+     * 설정 문자열 해석. 잘못된 항목은 경고 후 건너뛴다.
+     * @param spec 예: {@code 10.0.0.0/8=off;*=20/40}
+     */
+    public static RateLimiter parse(String spec, int capacity, LongSupplier clockMillis) {
+        Map<String, Limit> subnets = new LinkedHashMap<>();
+        Limit fallback = null;
+        for (String entry : spec.split(";")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq <= 0 || eq == entry.length() - 1) {
+                if (!entry.isBlank()) log.warn("{} entry ignored: [{}]", ENV, entry);
+                continue;
+            }
+            String rule = entry.substring(0, eq).trim();
+            Limit limit;
+            try {
+                limit = Limit.parse(entry.substring(eq + 1));
+            } catch (IllegalArgumentException e) {
+                log.warn("{} entry ignored: [{}] ({})", ENV, entry, e.getMessage());
+                continue;
+            }
+            if (rule.equals(ANY)) fallback = limit;
+            else subnets.putIfAbsent(rule, limit);
+        }
+        return new RateLimiter(subnets, fallback, capacity, clockMillis);
+    }
+
+    /**
+     * IP의 제한.
+     * @return 제한, 제한 없는 IP면 null
+     */
+    public Limit limitOf(int ip) {
+        int li = limitIndex(ip);
+        return li < 0 ? null : limits[li];
+    }
+
+    private int limitIndex(int ip) {
+        Rule r = subnets.match(ip);
+        return r == null ? rateMilli.length - 1 : limitOfRule[r.id()];
+    }
+
+    /**
+     * 요청 하나 통과 시도.
+     * @param ip IPv4 int 값
+     * @return 0이면 통과(토큰 1개 사용), 양수면 다음 토큰까지 기다릴 밀리초.
+     *         버킷 자리를 두고 경합이 {@value #PROBE}번 넘게 이어지면 막지 않고 통과시킨다.
+     */
+    public long tryAcquire(int ip) {
+        int li = limitIndex(ip);
+        if (li < 0 || rateMilli[li] == 0) return 0;
+
+        long key = (ip & 0xFFFFFFFFL) + 1;
+        int check = check(ip);
+        long now = clock.getAsLong() - epoch;
+        int h = hash(ip);
+        for (int attempt = 0; attempt < PROBE; attempt++) {
+            int free = -1;
+            int idle = -1;
+            for (int i = 0; i < PROBE; i++) {
+                int idx = (h + i) & mask;
+                long k = slots.get(idx * 2);
+                if (k == key) return acquireAt(idx, check, li, now);
+                if (k == 0) {
+                    free = idx;
+                    break;
+                }
+                if (idle < 0 && isIdle(slots.get(idx * 2 + 1), now)) idle = idx;
+            }
+            // 빈 칸 → 쉰 버킷 → 두 번째 해시로 고른 칸 순서로 차지한다
+            int idx = free >= 0 ? free : idle >= 0 ? idle : (h + (check & (PROBE - 1))) & mask;
+            long expect = free >= 0 ? 0 : slots.get(idx * 2);
+            if (slots.compareAndSet(idx * 2, expect, key)) return acquireAt(idx, check, li, now);
+        }
+        return 0;
+    }
+
+    private long acquireAt(int idx, int check, int li, long now) {
+        long rate = rateMilli[li];
+        long burst = burstMilli[li];
+        int at = idx * 2 + 1;
+        while (true) {
+            long s = slots.get(at);
+            long tokens;
+            if (checkOf(s) != check) {
+                tokens = burst;
+            } else {
+                long elapsed = (now - timeOf(s)) & 0xFFFFFFFFL;
+                tokens = Math.min(burst, (s & TOKEN_MASK) + elapsed * rate / MILLI);
+            }
+            if (tokens < MILLI) {
+                rejected.increment();
+                return Math.max(1, ceilDiv((MILLI - tokens) * MILLI, rate));
+            }
+            long next = ((long) check << 56) | ((now & 0xFFFFFFFFL) << TOKEN_BITS) | (tokens - MILLI);
+            if (slots.compareAndSet(at, s, next)) return 0;
+        }
+    }
+
+    private boolean isIdle(long state, long now) {
+        return ((now - timeOf(state)) & 0xFFFFFFFFL) >= idleMillis;
+    }
+
+    /** 제한에 걸린 요청 수 */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public int capacity() {
+        return slots.length() / 2;
+    }
+
+    private static long timeOf(long state) {
+        return (state >>> TOKEN_BITS) & 0xFFFFFFFFL;
+    }
+
+    private static int checkOf(long state) {
+        return (int) (state >>> 56);
+    }
+
+    /** 1~255 (상태 0 = 빈 칸과 겹치지 않게) */
+    private static int check(int ip) {
+        return Integer.remainderUnsigned(ip * 0x85EBCA6B, 255) + 1;
+    }
+
+    private int hash(int ip) {
+        return (ip * 0x9E3779B9) >>> 7 & mask;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter[capacity=" + capacity() + ", rejected=" + rejected() + "]";
+    }
+}
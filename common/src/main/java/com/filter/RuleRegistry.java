@@ -0,0 +1,186 @@
+package com.filter;
+
+import com.config.EnvConfig;
+import com.rule.RuleStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 JVM 안의 모든 필터/Valve가 같이 쓰는 규칙 보관소 묶음 (기본 규칙 + 경로별 규칙).
+ *
+ * <p>{@code Launcher}처럼 Tomcat 여러 개를 한 프로세스에 띄울 때, 인스턴스마다 규칙을 따로 컴파일하고
+ * 따로 감시하면 메모리와 리로드 비용이 서버 수만큼 든다. 레지스트리를 하나 만들어 넘기면</p>
+ * <ul>
+ *   <li>규칙은 한 번만 컴파일되고, 모든 서버가 같은 불변 스냅샷을 조회한다.</li>
+ *   <li>파일이 바뀌면 한 번만 다시 읽고, 교체는 {@link RuleStore}의 참조 교체 한 번이라 어느 순간이든 모든 서버가 같은 버전을 본다.</li>
+ *   <li>같은 파일을 가리키는 경로 접두사는 보관소 하나를 같이 쓴다.</li>
+ * </ul>
+ *
+ * <p>자동 차단 목록({@link BanList}, {@value BanList#ENV})도 여기서 같이 들고 있어, 한 서버에서 차단된 클라이언트는
+ * 같은 프로세스의 다른 서버에서도 막힌다. 판정 토큰({@link DecisionToken}, {@value DecisionToken#ENV})도 같이 들고 있어
+ * 서버1이 서명한 판정을 서버2의 가드가 그대로 믿는다. 요청 제한({@link RateLimiter}, {@value RateLimiter#ENV})과
+ * 섀도 비교({@link ShadowEvaluator}, {@value ShadowEvaluator#ENV})도 여기 있어, 클라이언트는 서버 수와 상관없이
+ * 버킷 하나를 쓰고 섀도 평가 스레드도 하나만 돈다.</p>
+ *
+ * <p>수명은 레지스트리를 만든 쪽이 관리한다({@link #start()}/{@link #close()}).
+ * 레지스트리를 받은 필터/Valve는 보관소를 시작하거나 닫지 않는다.</p>
+ */
+public final class RuleRegistry implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RuleRegistry.class);
+
+    /** 경로별 규칙 설정 환경변수 (예: {@code /files=/etc/ip/files.txt;/transfer=/etc/ip/ops.txt}) */
+    public static final String PATH_RULES_ENV = "IP_PATH_RULES";
+
+    private final RuleStore defaults;
+    private final PathRouter<RuleStore> routes;
+    private final List<RuleStore> stores;
+    private final BanList bans;
+    private final DecisionToken tokens;
+    private final RateLimiter limiter;
+    private final ShadowEvaluator shadow;
+
+    /**
+     * @param defaults   기본 규칙 보관소 (경로별 규칙이 없는 요청용)
+     * @param pathStores 경로 접두사 → 규칙 보관소
+     */
+    public RuleRegistry(RuleStore defaults, Map<String, RuleStore> pathStores) {
+        this(defaults, pathStores, null);
+    }
+
+    /**
+     * @param defaults   기본 규칙 보관소 (경로별 규칙이 없는 요청용)
+     * @param pathStores 경로 접두사 → 규칙 보관소
+     * @param bans       자동 차단 목록 (null = 자동 차단 끔)
+     */
+    public RuleRegistry(RuleStore defaults, Map<String, RuleStore> pathStores, BanList bans) {
+        this(defaults, pathStores, bans, null);
+    }
+
+    /**
+     * @param defaults   기본 규칙 보관소 (경로별 규칙이 없는 요청용)
+     * @param pathStores 경로 접두사 → 규칙 보관소
+     * @param bans       자동 차단 목록 (null = 자동 차단 끔)
+     * @param tokens     판정 토큰 서명/검증 (null = 토큰 끔)
+     */
+    public RuleRegistry(RuleStore defaults, Map<String, RuleStore> pathStores, BanList bans, DecisionToken tokens) {
+        this(defaults, pathStores, bans, tokens, null, null);
+    }
+
+    /**
+     * @param defaults   기본 규칙 보관소 (경로별 규칙이 없는 요청용)
+     * @param pathStores 경로 접두사 → 규칙 보관소
+     * @param bans       자동 차단 목록 (null = 자동 차단 끔)
+     * @param tokens     판정 토큰 서명/검증 (null = 토큰 끔)
+     * @param limiter    클라이언트별 요청 제한 (null = 제한 없음)
+     * @param shadow     레거시/컴파일 엔진 비교 (null = 끔)
+     */
+    public RuleRegistry(RuleStore defaults, Map<String, RuleStore> pathStores, BanList bans, DecisionToken tokens,
+                        RateLimiter limiter, ShadowEvaluator shadow) {
+        this.defaults = defaults;
+        this.bans = bans;
+        this.tokens = tokens;
+        this.limiter = limiter;
+        this.shadow = shadow;
+        this.routes = new PathRouter<>(pathStores);
+        List<RuleStore> all = new ArrayList<>();
+        all.add(defaults);
+        pathStores.values().stream().distinct().filter(s -> s != defaults).forEach(all::add);
+        this.stores = List.copyOf(all);
+    }
+
+    /**
+     * 환경변수/allow-ip.txt 기반 기본 규칙 + {@value #PATH_RULES_ENV} 경로별 규칙 + {@value BanList#ENV} 자동 차단
+     * + {@value DecisionToken#ENV} 판정 토큰 + {@value RateLimiter#ENV} 요청 제한 + {@value ShadowEvaluator#ENV} 섀도 비교
+     */
+    public static RuleRegistry fromEnv() {
+        return new RuleRegistry(new RuleStore(), pathStoresFromEnv(), BanList.fromEnv(), DecisionToken.fromEnv(),
+                RateLimiter.fromEnv(), ShadowEvaluator.fromEnv());
+    }
+
+    /**
+     * {@value #PATH_RULES_ENV} 해석: {@code 접두사=규칙파일} 쌍을 {@code ;} 또는 {@code ,}로 구분.
+     * 경로별 규칙은 그 파일만 쓰고 DEFAULT_IP는 섞지 않는다. 잘못된 항목은 경고 후 건너뛴다.
+     */
+    static Map<String, RuleStore> pathStoresFromEnv() {
+        String spec = EnvConfig.env(PATH_RULES_ENV);
+        if (spec == null) return Map.of();
+        Map<String, RuleStore> stores = new LinkedHashMap<>();
+        Map<Path, RuleStore> byFile = new HashMap<>();
+        for (String entry : spec.split("[;,]")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0 || eq == entry.length() - 1) {
+                if (!entry.isBlank()) log.warn("{} entry ignored: [{}]", PATH_RULES_ENV, entry);
+                continue;
+            }
+            String prefix = entry.substring(0, eq).trim();
+            Path file = Path.of(entry.substring(eq + 1).trim()).toAbsolutePath().normalize();
+            if (!Files.isRegularFile(file)) log.warn("IP rules for {} not found yet: {}", prefix, file);
+            stores.put(prefix, byFile.computeIfAbsent(file,
+                    f -> new RuleStore(RuleStore.Loader.ofFile(f), RuleStore.DEFAULT_DEBOUNCE_MILLIS)));
+        }
+        return stores;
+    }
+
+    /**
+     * 요청 경로의 규칙 보관소.
+     * @param path 컨텍스트 경로를 뺀 요청 경로 (null 허용)
+     * @return 가장 긴 접두사의 보관소, 없으면 기본 보관소
+     */
+    public RuleStore route(String path) {
+        RuleStore s = routes.route(path);
+        return s == null ? defaults : s;
+    }
+
+    /** 기본 규칙 보관소 */
+    public RuleStore defaults() {
+        return defaults;
+    }
+
+    /** 모든 보관소 (중복 없음, 첫 번째 = 기본) */
+    public List<RuleStore> stores() {
+        return stores;
+    }
+
+    /** 자동 차단 목록 (설정이 없으면 null) */
+    public BanList bans() {
+        return bans;
+    }
+
+    /** 판정 토큰 (설정이 없으면 null) */
+    public DecisionToken tokens() {
+        return tokens;
+    }
+
+    /** 클라이언트별 요청 제한 (설정이 없으면 null) */
+    public RateLimiter limiter() {
+        return limiter;
+    }
+
+    /** 레거시/컴파일 엔진 비교 (설정이 없으면 null) */
+    public ShadowEvaluator shadow() {
+        return shadow;
+    }
+
+    /** 모든 보관소의 파일 감시 + 차단 만료 처리 + 섀도 평가 스레드 시작 (이미 시작했으면 무시) */
+    public void start() {
+        stores.forEach(RuleStore::startWatching);
+        if (bans != null) bans.start();
+        if (shadow != null) shadow.start();
+    }
+
+    /** 감시 중지 */
+    @Override
+    public void close() {
+        stores.forEach(RuleStore::close);
+        if (bans != null) bans.close();
+        if (shadow != null) shadow.close();
+    }
+}
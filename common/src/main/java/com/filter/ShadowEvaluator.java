@@ -0,0 +1,291 @@
+package com.filter;
+
+import com.config.EnvConfig;
+import com.config.IpConfig;
+import com.rule.Ipv4;
+import com.rule.Rule;
+import com.rule.RuleSchedule;
+import com.rule.RuleSnapshot;
+import com.rule.RuleSource;
+import com.rule.RuleTokens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 실제 요청 일부를 레거시 선형 매칭({@link IpConfig#isValidIP}/{@link IpConfig#findMatchedToken})과
+ * 컴파일된 조회기({@link RuleSnapshot#match(String)}) 양쪽으로 다시 판정해 결과와 지연을 비교하는 섀도 모드.
+ *
+ * <ul>
+ *   <li>요청 스레드는 난수 한 번으로 표본인지 정하고, 표본이면 (IP, 스냅샷)을 큐에 넣기만 한다.
+ *       큐가 차 있으면 버린다(기다리지 않는다). 두 엔진의 평가는 데몬 스레드 하나가 한다.</li>
+ *   <li>두 엔진은 같은 스냅샷의 규칙 문자열로 평가한다. 레거시 쪽은 user → default 순서로 이어 붙여
+ *       걸린 토큰의 우선순위가 컴파일 결과와 같다.</li>
+ *   <li>판정(허용/불허)이 다르면 {@code decision}, 판정은 같고 걸린 토큰만 다르면 {@code token} 불일치로 남긴다.
+ *       실행 중 더한 허용 규칙은 맨 뒤 id를 받으므로 토큰 불일치가 날 수 있다.</li>
+ *   <li>레거시가 모르는 것은 비교하지 않는다: IPv6 클라이언트, 컴파일 파일/복제로 받은 스냅샷(규칙 문자열 없음),
+ *       가져온 목록, {@code host:}/시간대 규칙이 있는 스냅샷.</li>
+ *   <li>불일치는 최근 {@value #KEEP_DIVERGENCES}개를 들고 있고 처음 {@value #MAX_LOGGED}개는 경고 로그로 남긴다.
+ *       {@value #REPORT_EVERY}건마다, 그리고 종료 시 엔진별 평균/최대 지연을 로그로 보고한다.</li>
+ * </ul>
+ *
+ * <h2>설정 ({@value #ENV})</h2>
+ * <p>표본 비율(0 초과 1 이하). 레거시 평가는 규칙 수에 비례하므로 트래픽이 많으면 작게 둔다.</p>
+ * <pre>
+ * IP_SHADOW_RATE=0.001
+ * </pre>
+ */
+public final class ShadowEvaluator implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ShadowEvaluator.class);
+
+    /** 표본 비율 환경변수 */
+    public static final String ENV = "IP_SHADOW_RATE";
+    /** 큐 크기 (넘치면 표본을 버린다) */
+    static final int QUEUE = 1_024;
+    /** 들고 있는 최근 불일치 수 */
+    static final int KEEP_DIVERGENCES = 100;
+    /** 경고 로그로 남기는 불일치 수 */
+    static final int MAX_LOGGED = 100;
+    /** 이만큼 비교할 때마다 지연 보고 */
+    static final long REPORT_EVERY = 10_000;
+
+    /**
+     * 두 엔진의 판정이 다른 표본.
+     * @param ip              클라이언트 주소
+     * @param version         평가한 스냅샷 버전
+     * @param kind            {@code decision}(허용 여부가 다름) 또는 {@code token}(걸린 규칙만 다름)
+     * @param compiledAllowed 컴파일 조회기 판정
+     * @param compiledToken   컴파일 조회기가 찾은 토큰 (없으면 null)
+     * @param legacyAllowed   레거시 판정
+     * @param legacyToken     레거시가 찾은 토큰 (없으면 null)
+     */
+    public record Divergence(String ip, long version, String kind, boolean compiledAllowed, String compiledToken,
+                             boolean legacyAllowed, String legacyToken) {}
+
+    /**
+     * 누적 통계.
+     * @param sampled         큐에 넣은 표본 수
+     * @param dropped         큐가 차서 버린 표본 수
+     * @param skipped         레거시가 모르는 입력이라 비교하지 않은 표본 수
+     * @param compared        비교한 표본 수
+     * @param divergences     불일치 수 (판정 + 토큰)
+     * @param compiledNanos   컴파일 조회기 평가 시간 합(ns)
+     * @param legacyNanos     레거시 평가 시간 합(ns)
+     * @param compiledMaxNanos 컴파일 조회기 최대 평가 시간(ns)
+     * @param legacyMaxNanos  레거시 최대 평가 시간(ns)
+     */
+    public record Stats(long sampled, long dropped, long skipped, long compared, long divergences,
+                        long compiledNanos, long legacyNanos, long compiledMaxNanos, long legacyMaxNanos) {
+
+        /** 비교 한 번당 컴파일 조회기 평균(ns) */
+        public long compiledAvgNanos() {
+            return compared == 0 ? 0 : compiledNanos / compared;
+        }
+
+        /** 비교 한 번당 레거시 평균(ns) */
+        public long legacyAvgNanos() {
+            return compared == 0 ? 0 : legacyNanos / compared;
+        }
+    }
+
+    /** 표본 하나 */
+    private record Sample(String ip, RuleSnapshot snapshot) {}
+
+    /**
+     * 스냅샷 하나의 레거시 입력 (스냅샷마다 한 번 만든다, 경로별 보관소는 버전이 겹칠 수 있어 참조로 구분).
+     * @param rules 레거시에 넘길 규칙 문자열 (비교하지 않는 스냅샷이면 null)
+     */
+    private record Legacy(RuleSnapshot snapshot, String rules) {}
+
+    private final double rate;
+    private final BlockingQueue<Sample> queue = new ArrayBlockingQueue<>(QUEUE);
+    private final ArrayDeque<Divergence> recent = new ArrayDeque<>();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder divergences = new LongAdder();
+    private final LongAdder compiledNanos = new LongAdder();
+    private final LongAdder legacyNanos = new LongAdder();
+    private final LongAccumulator compiledMax = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator legacyMax = new LongAccumulator(Math::max, 0);
+
+    /** 평가 스레드만 쓴다 */
+    private Legacy legacy;
+    private Thread worker;
+
+    /** @param rate 표본 비율 (0 초과 1 이하) */
+    public ShadowEvaluator(double rate) {
+        if (!(rate > 0) || rate > 1) throw new IllegalArgumentException("sample rate out of range: " + rate);
+        this.rate = rate;
+    }
+
+    /**
+     * {@value #ENV} 환경변수로 생성.
+     * @return 설정이 없거나 잘못됐으면 null (섀도 모드 끔)
+     */
+    public static ShadowEvaluator fromEnv() {
+        String spec = EnvConfig.env(ENV);
+        if (spec == null) return null;
+        try {
+            return new ShadowEvaluator(Double.parseDouble(spec.trim()));
+        } catch (IllegalArgumentException e) {
+            log.warn("{} ignored, shadow evaluation off - {}", ENV, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 요청 경로: 표본이면 큐에 넣는다 (난수 한 번 + 큐 넣기, 막히지 않음).
+     * @param ip       클라이언트 주소
+     * @param snapshot 판정에 쓴 규칙 스냅샷
+     */
+    public void sample(String ip, RuleSnapshot snapshot) {
+        if (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) return;
+        if (queue.offer(new Sample(ip, snapshot))) {
+            sampled.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /** 큐에 쌓인 표본을 지금 스레드에서 모두 평가 (테스트용) */
+    synchronized int drain() {
+        int n = 0;
+        for (Sample s; (s = queue.poll()) != null; n++) {
+            evaluate(s);
+        }
+        return n;
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Sample s = queue.take();
+                synchronized (this) {
+                    evaluate(s);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void evaluate(Sample s) {
+        String rules = legacyRules(s.snapshot());
+        if (rules == null || Ipv4.parse(s.ip()) == Ipv4.INVALID) {
+            skipped.increment();
+            return;
+        }
+        long t0 = System.nanoTime();
+        Rule hit = s.snapshot().match(s.ip());
+        long t1 = System.nanoTime();
+        boolean legacyAllowed = IpConfig.isValidIP(s.ip(), rules);
+        String legacyToken = IpConfig.findMatchedToken(s.ip(), rules);
+        long t2 = System.nanoTime();
+
+        compiledNanos.add(t1 - t0);
+        legacyNanos.add(t2 - t1);
+        compiledMax.accumulate(t1 - t0);
+        legacyMax.accumulate(t2 - t1);
+
+        boolean compiledAllowed = hit != null && hit.allows();
+        String compiledToken = hit == null ? null : hit.token();
+        String kind = compiledAllowed != legacyAllowed ? "decision"
+                : Objects.equals(compiledToken, legacyToken) ? null : "token";
+        if (kind != null) {
+            diverged(new Divergence(s.ip(), s.snapshot().version(), kind,
+                    compiledAllowed, compiledToken, legacyAllowed, legacyToken));
+        }
+
+        compared.increment();
+        if (compared.sum() % REPORT_EVERY == 0) log.info("IP shadow evaluation - {}", describe(stats()));
+    }
+
+    private void diverged(Divergence d) {
+        divergences.increment();
+        if (recent.size() == KEEP_DIVERGENCES) recent.removeFirst();
+        recent.addLast(d);
+        if (divergences.sum() <= MAX_LOGGED) {
+            log.warn("IP shadow divergence - ip={}, version={}, kind={}, compiled={}({}), legacy={}({})",
+                    d.ip(), d.version(), d.kind(), d.compiledAllowed(), d.compiledToken(),
+                    d.legacyAllowed(), d.legacyToken());
+        }
+    }
+
+    /** 스냅샷의 레거시 규칙 문자열, 레거시가 모르는 규칙이 있으면 null */
+    private String legacyRules(RuleSnapshot snap) {
+        Legacy l = legacy;
+        if (l != null && l.snapshot() == snap) return l.rules();
+        String rules = null;
+        if (snap.userRules() != null && !hasImports(snap)) {
+            String user = snap.userRules();
+            String defaults = snap.defaultRules() == null ? "" : snap.defaultRules();
+            String joined = user.isBlank() ? defaults : defaults.isBlank() ? user : user + "," + defaults;
+            if (!RuleSchedule.hasWindows(joined) && RuleTokens.hostNames(joined).isEmpty()) rules = joined;
+        }
+        legacy = new Legacy(snap, rules);
+        return rules;
+    }
+
+    private static boolean hasImports(RuleSnapshot snap) {
+        for (Rule r : snap.matcher().rules()) {
+            if (r != null && r.source() == RuleSource.IMPORT) return true;
+        }
+        return false;
+    }
+
+    /** 누적 통계 */
+    public Stats stats() {
+        return new Stats(sampled.sum(), dropped.sum(), skipped.sum(), compared.sum(), divergences.sum(),
+                compiledNanos.sum(), legacyNanos.sum(), compiledMax.get(), legacyMax.get());
+    }
+
+    /** 최근 불일치 (오래된 것부터) */
+    public synchronized List<Divergence> divergences() {
+        return new ArrayList<>(recent);
+    }
+
+    /** 평가 스레드 시작 (이미 시작했으면 무시) */
+    public synchronized void start() {
+        if (worker != null) return;
+        worker = new Thread(this::run, "ip-shadow");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("IP shadow evaluation on - rate={}", rate);
+    }
+
+    /** 평가 스레드 중지 후 통계 보고 */
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            t = worker;
+            worker = null;
+        }
+        if (t == null) return;
+        t.interrupt();
+        log.info("IP shadow evaluation off - {}", describe(stats()));
+    }
+
+    private static String describe(Stats s) {
+        return "compared=" + s.compared() + ", divergences=" + s.divergences()
+                + ", skipped=" + s.skipped() + ", dropped=" + s.dropped()
+                + ", compiled avg/max=" + s.compiledAvgNanos() + "/" + s.compiledMaxNanos() + "ns"
+                + ", legacy avg/max=" + s.legacyAvgNanos() + "/" + s.legacyMaxNanos() + "ns";
+    }
+
+    @Override
+    public String toString() {
+        return "ShadowEvaluator[rate=" + rate + ", " + describe(stats()) + "]";
+    }
+}
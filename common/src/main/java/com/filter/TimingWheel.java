@@ -0,0 +1,129 @@
+package com.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 계층형 타이밍 휠. 만료 작업을 항목마다 타이머 없이 한 구조에 모아 두고 시계가 지날 때 한꺼번에 꺼낸다.
+ *
+ * <ul>
+ *   <li>{@value #LEVELS}단 × {@value #SLOTS}칸. 0단 한 칸 = 틱 하나, k단 한 칸 = {@code 64^k} 틱.
+ *       만료까지 남은 틱으로 단을 고르므로 등록은 O(1)이다.</li>
+ *   <li>0단이 한 바퀴 돌 때마다 윗단의 칸 하나를 아래로 다시 뿌린다(캐스케이드). 항목 하나는 최대 단 수만큼만 옮겨진다.</li>
+ *   <li>맨 윗단 범위({@code 64^4} 틱)보다 먼 항목은 맨 윗단 끝에 두었다가 내려올 때 다시 자리를 잡는다.</li>
+ *   <li>취소는 없다. 작업 쪽에서 아직 유효한지 확인하고 아니면 아무것도 하지 않으면 된다.</li>
+ * </ul>
+ *
+ * <p>등록/진행은 락 하나로 직렬화한다(둘 다 드문 경로). 만료 작업은 락 밖에서 실행된다.</p>
+ */
+final class TimingWheel {
+    static final int LEVELS = 4;
+    static final int SLOTS = 64;
+    private static final int BITS = 6;
+    private static final int MASK = SLOTS - 1;
+    private static final long SPAN = 1L << (BITS * LEVELS);
+
+    private static final class Node {
+        final Runnable task;
+        final long deadline;
+        Node next;
+
+        Node(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMillis;
+    private final long originMillis;
+    private final Node[][] wheel = new Node[LEVELS][SLOTS];
+    /** 마지막으로 처리한 틱 */
+    private long tick;
+    private int size;
+
+    /**
+     * @param tickMillis  틱 길이(ms). 만료는 이 단위로 올림된다
+     * @param startMillis 시작 시각(ms)
+     */
+    TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tick must be positive: " + tickMillis);
+        this.tickMillis = tickMillis;
+        this.originMillis = startMillis;
+    }
+
+    /**
+     * 작업 등록.
+     * @param task           만료 시 실행할 작업
+     * @param deadlineMillis 만료 시각(ms). 이미 지났으면 다음 틱에 실행
+     */
+    synchronized void schedule(Runnable task, long deadlineMillis) {
+        long d = Math.floorDiv(deadlineMillis - originMillis + tickMillis - 1, tickMillis);
+        place(new Node(task, Math.max(d, tick + 1)));
+        size++;
+    }
+
+    private void place(Node n) {
+        long delta = n.deadline - tick;
+        long at = n.deadline;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) level++;
+        if (delta >= SPAN) at = tick + SPAN - 1;
+        int slot = (int) (at >>> (BITS * level)) & MASK;
+        n.next = wheel[level][slot];
+        wheel[level][slot] = n;
+    }
+
+    /**
+     * 시계를 {@code nowMillis}까지 진행하고 만료된 작업을 실행한다.
+     * @return 실행한 작업 수
+     */
+    int advance(long nowMillis) {
+        List<Runnable> due = new ArrayList<>();
+        synchronized (this) {
+            long target = Math.floorDiv(nowMillis - originMillis, tickMillis);
+            while (tick < target) {
+                if (size == 0) {
+                    tick = target;
+                    break;
+                }
+                tick++;
+                // 윗단부터 내려야 같은 틱에 캐스케이드된 항목이 아랫단에서 바로 잡힌다
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((tick & ((1L << (BITS * level)) - 1)) != 0) continue;
+                    int slot = (int) (tick >>> (BITS * level)) & MASK;
+                    Node n = wheel[level][slot];
+                    wheel[level][slot] = null;
+                    while (n != null) {
+                        Node next = n.next;
+                        place(n);
+                        n = next;
+                    }
+                }
+                int slot = (int) tick & MASK;
+                Node n = wheel[0][slot];
+                wheel[0][slot] = null;
+                while (n != null) {
+                    Node next = n.next;
+                    if (n.deadline <= tick) {
+                        due.add(n.task);
+                        size--;
+                    } else {
+                        place(n);
+                    }
+                    n = next;
+                }
+            }
+        }
+        for (Runnable r : due) r.run();
+        return due.size();
+    }
+
+    /** 등록된(아직 실행 안 된) 작업 수 */
+    synchronized int size() {
+        return size;
+    }
+
+    long tickMillis() {
+        return tickMillis;
+    }
+}
@@ -0,0 +1,180 @@
+package com.rule;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 대량 주소 일괄 판정 (접근 로그/방화벽 내보내기 감사용).
+ *
+ * <p>온라인 필터와 같은 규칙 스냅샷을 {@link BatchMatcher}(가능하면 Vector API)로 평탄화해 조회하므로
+ * 판정 결과가 {@link RuleSnapshot#match(int)}와 항상 같다.
+ * 입력 배열을 {@link ForkJoinPool}에서 나눠 처리하고, 결과는 허용 비트셋 + 규칙별 적중 수로 돌려준다.</p>
+ *
+ * <pre>{@code
+ * BatchEvaluator.Result r = BatchEvaluator.evaluate(store.current(), ips, ForkJoinPool.commonPool());
+ * r.allowed().get(i);        // i번째 주소 허용 여부
+ * r.ruleHits()[rule.id()];   // 규칙별 적중 수
+ * }</pre>
+ */
+public final class BatchEvaluator {
+    private BatchEvaluator() {}
+
+    /** 작업을 더 나누지 않는 크기 (64의 배수: 비트셋 word 경계에서 자르기 위함) */
+    private static final int LEAF = 64 * 1024;
+    /** 줄 단위 입력을 한 번에 모아 판정하는 개수 */
+    private static final int CHUNK = 1 << 20;
+
+    /**
+     * 판정 결과.
+     * @param allowed      i번째 주소 허용 여부
+     * @param matchedRule  i번째 주소에 걸린 규칙 id (없으면 -1, 거부 규칙일 수 있음)
+     * @param ruleHits     규칙 id별 적중 수(거부 규칙 포함)
+     * @param allowedCount 허용 주소 수
+     */
+    public record Result(BitSet allowed, int[] matchedRule, long[] ruleHits, long allowedCount) {
+        public int size() {
+            return matchedRule.length;
+        }
+    }
+
+    /**
+     * IPv4 int 배열 일괄 판정.
+     * @param snapshot 규칙 스냅샷
+     * @param ips      IPv4 int 값 배열
+     * @param pool     작업 풀
+     * @return 결과
+     */
+    public static Result evaluate(RuleSnapshot snapshot, int[] ips, ForkJoinPool pool) {
+        return evaluate(snapshot, ips, ips.length, pool);
+    }
+
+    /**
+     * IPv4 int 배열의 앞 {@code length}개 일괄 판정 (버퍼 재사용용).
+     */
+    public static Result evaluate(RuleSnapshot snapshot, int[] ips, int length, ForkJoinPool pool) {
+        return evaluate(BatchMatcher.of(snapshot.matcher()), snapshot.matcher().rules(), ips, length, pool);
+    }
+
+    private static Result evaluate(BatchMatcher matcher, List<Rule> rules, int[] ips, int length, ForkJoinPool pool) {
+        long[] words = new long[(length + 63) >>> 6];
+        int[] matched = new int[length];
+        boolean[] allows = new boolean[rules.size()];
+        for (Rule r : rules) allows[r.id()] = r.allows();
+        pool.invoke(new Task(matcher, allows, ips, 0, length, words, matched));
+
+        long[] hits = new long[rules.size()];
+        long allowedCount = 0;
+        for (int id : matched) {
+            if (id >= 0) {
+                hits[id]++;
+                if (rules.get(id).allows()) allowedCount++;
+            }
+        }
+        return new Result(BitSet.valueOf(words), matched, hits, allowedCount);
+    }
+
+    /**
+     * 줄 단위 집계 결과.
+     * @param lines    읽은 줄 수(빈 줄 제외)
+     * @param invalid  IPv4/IPv6 리터럴이 아닌 줄 수(온라인 필터에서도 불허)
+     * @param allowed  허용 줄 수
+     * @param ruleHits 규칙 id별 적중 수
+     */
+    public record Summary(long lines, long invalid, long allowed, long[] ruleHits) {
+        public long denied() {
+            return lines - allowed;
+        }
+    }
+
+    /**
+     * 한 줄에 주소 하나인 입력을 끝까지 읽어 집계. 메모리는 청크 하나 크기만 쓴다.
+     * @param snapshot 규칙 스냅샷
+     * @param reader   입력 (앞뒤 공백 허용)
+     * @param pool     작업 풀
+     * @return 집계
+     */
+    public static Summary evaluateLines(RuleSnapshot snapshot, BufferedReader reader, ForkJoinPool pool)
+            throws IOException {
+        int[] buf = new int[CHUNK];
+        BatchMatcher matcher = BatchMatcher.of(snapshot.matcher());
+        List<Rule> rules = snapshot.matcher().rules();
+        long[] hits = new long[rules.size()];
+        long lines = 0, invalid = 0, allowed = 0;
+        long[] v6 = new long[2];
+        int n = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            lines++;
+            long v = Ipv4.parse(line);
+            if (v == Ipv4.INVALID) {
+                // IPv6(소수)는 한 줄씩 바로 판정
+                if (!Ipv6.parse(line, v6)) {
+                    invalid++;
+                    continue;
+                }
+                Rule hit = snapshot.match(line);
+                if (hit != null) {
+                    hits[hit.id()]++;
+                    if (hit.allows()) allowed++;
+                }
+                continue;
+            }
+            buf[n++] = (int) v;
+            if (n == CHUNK) {
+                allowed += accumulate(evaluate(matcher, rules, buf, n, pool), hits);
+                n = 0;
+            }
+        }
+        if (n > 0) allowed += accumulate(evaluate(matcher, rules, buf, n, pool), hits);
+        return new Summary(lines, invalid, allowed, hits);
+    }
+
+    private static long accumulate(Result r, long[] hits) {
+        long[] h = r.ruleHits();
+        for (int i = 0; i < h.length; i++) hits[i] += h[i];
+        return r.allowedCount();
+    }
+
+    /** [from, to) 구간 판정. 구간 경계가 64의 배수라서 words 쓰기가 작업끼리 겹치지 않는다. */
+    private static final class Task extends RecursiveAction {
+        private final BatchMatcher matcher;
+        private final boolean[] allows;
+        private final int[] ips;
+        private final int from;
+        private final int to;
+        private final long[] words;
+        private final int[] matched;
+
+        Task(BatchMatcher matcher, boolean[] allows, int[] ips, int from, int to, long[] words, int[] matched) {
+            this.matcher = matcher;
+            this.allows = allows;
+            this.ips = ips;
+            this.from = from;
+            this.to = to;
+            this.words = words;
+            this.matched = matched;
+        }
+
+        @Override
+        protected void compute() {
+            int n = to - from;
+            if (n > LEAF) {
+                int mid = from + ((n >>> 1) & ~63);
+                invokeAll(new Task(matcher, allows, ips, from, mid, words, matched),
+                        new Task(matcher, allows, ips, mid, to, words, matched));
+                return;
+            }
+            matcher.match(ips, from, to, matched);
+            for (int i = from; i < to; i++) {
+                int id = matched[i];
+                if (id >= 0 && allows[id]) words[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * 많은 IPv4 주소를 같은 구간 테이블에 한꺼번에 대보는 배치 조회기 (감사/캐시 예열용).
+ *
+ * <p>{@link RuleMatcher#forEachSegment}로 평탄화한 서로소 구간(시작/끝/규칙 id 배열)을
+ * <b>분기 없는 이진 탐색</b>으로 찾는다. 시작 배열을 2의 거듭제곱 길이로 채워 두고
+ * 단계마다 "비교 결과만큼 더하기"만 하므로 예측 실패가 없고, 여러 주소를 레인에 나눠 담기 좋다.</p>
+ *
+ * <ul>
+ *   <li>{@code jdk.incubator.vector} 모듈이 있으면({@code --add-modules jdk.incubator.vector})
+ *       {@code VectorBatchMatcher}가 레인 단위로 비교/수집(gather)한다.</li>
+ *   <li>모듈이 없으면 같은 탐색을 주소 하나씩 도는 스칼라 구현으로 돌아간다. 결과는 항상 같다.</li>
+ *   <li>결과는 {@link RuleMatcher#match(int)}와 같은 규칙 id(없으면 -1)다.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * BatchMatcher bm = BatchMatcher.of(snapshot.matcher());
+ * bm.match(ips, 0, ips.length, ruleIds);
+ * }</pre>
+ */
+public abstract class BatchMatcher {
+    private static final Logger log = LoggerFactory.getLogger(BatchMatcher.class);
+
+    static final int BIAS = Integer.MIN_VALUE;
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+
+    /** 구간 수 */
+    final int size;
+    /** 시작(부호 비트 뒤집음), 길이 2^k, 남는 칸은 {@code Integer.MAX_VALUE} */
+    final int[] starts;
+    /** 끝(부호 비트 뒤집음), 길이 max(size, 1) */
+    final int[] ends;
+    /** 구간의 규칙 id, 길이 max(size, 1) */
+    final int[] ids;
+    /** 첫 탐색 보폭 (= starts.length / 2) */
+    final int top;
+
+    BatchMatcher(BatchMatcher table) {
+        this.size = table.size;
+        this.starts = table.starts;
+        this.ends = table.ends;
+        this.ids = table.ids;
+        this.top = table.top;
+    }
+
+    private BatchMatcher(int size, int[] starts, int[] ends, int[] ids) {
+        this.size = size;
+        this.starts = starts;
+        this.ends = ends;
+        this.ids = ids;
+        this.top = starts.length >>> 1;
+    }
+
+    /**
+     * 조회기 만들기. Vector API를 쓸 수 있으면 벡터 구현, 아니면 스칼라 구현.
+     * @param matcher 컴파일된 규칙
+     */
+    public static BatchMatcher of(RuleMatcher matcher) {
+        BatchMatcher scalar = scalar(matcher);
+        if (!VECTOR_AVAILABLE) return scalar;
+        try {
+            return (BatchMatcher) Class.forName("com.rule.VectorBatchMatcher")
+                    .getDeclaredConstructor(BatchMatcher.class).newInstance(scalar);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("vector batch matcher unavailable, using scalar fallback", e);
+            return scalar;
+        }
+    }
+
+    /** 스칼라 구현 (벡터 구현과 결과 비교/벤치마크용) */
+    public static BatchMatcher scalar(RuleMatcher matcher) {
+        int[][] seg = {new int[64], new int[64], new int[64]};
+        int[] n = {0};
+        matcher.forEachSegment((start, end, id) -> {
+            if (n[0] == seg[0].length) {
+                for (int k = 0; k < 3; k++) seg[k] = Arrays.copyOf(seg[k], n[0] * 2);
+            }
+            seg[0][n[0]] = (int) start ^ BIAS;
+            seg[1][n[0]] = (int) end ^ BIAS;
+            seg[2][n[0]] = id;
+            n[0]++;
+        });
+        int size = n[0];
+        int padded = Integer.highestOneBit(size) << 1; // size + 1 이상인 2의 거듭제곱
+        int[] starts = Arrays.copyOf(seg[0], padded);
+        Arrays.fill(starts, size, padded, Integer.MAX_VALUE);
+        return new Scalar(size, starts, Arrays.copyOf(seg[1], Math.max(size, 1)), Arrays.copyOf(seg[2], Math.max(size, 1)));
+    }
+
+    /**
+     * {@code ips[from, to)}를 판정해 {@code out[from, to)}에 규칙 id(없으면 -1)를 쓴다.
+     */
+    public abstract void match(int[] ips, int from, int to, int[] out);
+
+    /** 주소 하나 판정 */
+    public final int match(int ip) {
+        int key = ip ^ BIAS;
+        int pos = 0;
+        // pos = key 이하인 시작 수. 채운 칸(MAX_VALUE)은 key가 최댓값일 때만 걸리므로 size로 자른다
+        for (int step = top; step > 0; step >>>= 1) {
+            pos += starts[pos + step - 1] <= key ? step : 0;
+        }
+        pos = Math.min(pos, size);
+        int i = Math.max(pos - 1, 0);
+        return pos > 0 && key <= ends[i] ? ids[i] : -1;
+    }
+
+    /** 벡터 구현인지 */
+    public abstract boolean vectorized();
+
+    /** 구간 수 */
+    public int size() {
+        return size;
+    }
+
+    private static final class Scalar extends BatchMatcher {
+        Scalar(int size, int[] starts, int[] ends, int[] ids) {
+            super(size, starts, ends, ids);
+        }
+
+        @Override
+        public void match(int[] ips, int from, int to, int[] out) {
+            for (int i = from; i < to; i++) out[i] = match(ips[i]);
+        }
+
+        @Override
+        public boolean vectorized() {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[segments=" + size + ", vectorized=" + vectorized() + "]";
+    }
+}
@@ -0,0 +1,176 @@
+package com.rule;
+
+import com.config.EnvConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * 프록시 뒤의 실제 클라이언트 주소 찾기.
+ *
+ * <p>소켓 주소가 신뢰 프록시일 때만 {@code X-Forwarded-For}를 <b>오른쪽에서 왼쪽으로</b> 훑으며
+ * 신뢰 프록시에 걸리는 홉을 건너뛰고, 처음 만나는 신뢰하지 않는 홉을 클라이언트로 본다.
+ * 왼쪽 끝은 클라이언트가 마음대로 써 넣을 수 있으므로 첫 토큰을 믿지 않는다.</p>
+ *
+ * <ul>
+ *   <li>신뢰 프록시 목록은 allow 규칙과 같은 형식으로 한 번 컴파일한다({@link PrefixTrie}, IPv6 포함).</li>
+ *   <li>헤더는 {@code split} 없이 제자리에서 훑는다. 홉마다 앞뒤 공백, {@code [IPv6]}, {@code :포트}를 무시한다.</li>
+ *   <li>소켓 주소가 신뢰 프록시가 아니면 헤더를 보지 않는다.</li>
+ *   <li>XFF가 비어 있으면 {@code X-Real-IP}, 모든 홉이 신뢰 프록시면 가장 왼쪽 홉.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * ClientAddress proxies = ClientAddress.fromEnv();
+ * String ip = proxies.resolve(req.getRemoteAddr(),
+ *         req.getHeader(HeaderKeys.FORWARDED_FOR.getKey()), req.getHeader(HeaderKeys.REAL_IP.getKey()));
+ * }</pre>
+ */
+public final class ClientAddress {
+    private static final Logger log = LoggerFactory.getLogger(ClientAddress.class);
+
+    /** 신뢰 프록시 목록 환경변수 (없으면 {@link #DEFAULT_TRUSTED}) */
+    public static final String TRUSTED_PROXIES_ENV = "IP_TRUSTED_PROXIES";
+    /**
+     * 기본 신뢰 프록시: 루프백만. 사설망은 {@code DEFAULT_IP}가 허용하는 대역이라 기본으로 믿으면
+     * 내부 클라이언트가 XFF를 바꿔 가며 요청 제한/자동 차단을 피하거나 다른 주소를 차단시킬 수 있다.
+     * 사설망의 프록시는 {@value #TRUSTED_PROXIES_ENV}에 적는다.
+     */
+    public static final String DEFAULT_TRUSTED = "127.0.0.0/8,::1";
+
+    private static final ClientAddress DEFAULTS = new ClientAddress(PrefixTrie.compile(DEFAULT_TRUSTED, null), null);
+
+    private final RuleMatcher trusted;
+    private final String loopbackAs;
+
+    private ClientAddress(RuleMatcher trusted, String loopbackAs) {
+        this.trusted = trusted;
+        this.loopbackAs = loopbackAs;
+    }
+
+    /** 기본 신뢰 프록시({@link #DEFAULT_TRUSTED}) */
+    public static ClientAddress defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * 신뢰 프록시 규칙으로 생성.
+     * @param trustedRules allow 규칙 형식 (예: {@code 10.0.0.0/8,203.0.113.10})
+     */
+    public static ClientAddress of(String trustedRules) {
+        return new ClientAddress(PrefixTrie.compile(trustedRules, null), null);
+    }
+
+    /**
+     * {@value #TRUSTED_PROXIES_ENV}(없으면 기본값)로 생성하고, 루프백 요청은 이 호스트 주소로 바꾼다.
+     * 호스트 주소는 여기서 한 번만 조회한다(요청마다 {@code getLocalHost}를 부르지 않는다).
+     */
+    public static ClientAddress fromEnv() {
+        String rules = EnvConfig.env(TRUSTED_PROXIES_ENV);
+        RuleMatcher matcher = rules == null ? DEFAULTS.trusted : PrefixTrie.compile(EnvConfig.normalizeRules(rules), null);
+        return new ClientAddress(matcher, localHostAddress());
+    }
+
+    /** 이 호스트의 주소 (조회 실패 시 {@code 127.0.0.1}). 루프백 요청은 {@link #fromEnv()}에서 이 주소가 된다 */
+    public static String localHostAddress() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            log.warn("local host address lookup failed, loopback requests keep 127.0.0.1", e);
+            return "127.0.0.1";
+        }
+    }
+
+    /**
+     * 클라이언트 주소 찾기.
+     * @param remoteAddr 소켓 주소
+     * @param xff        {@code X-Forwarded-For} 헤더 (null 허용)
+     * @param xRealIp    {@code X-Real-IP} 헤더 (null 허용)
+     * @return 클라이언트 주소 (정규화하지 않은 원래 표기)
+     */
+    public String resolve(String remoteAddr, String xff, String xRealIp) {
+        String ip = resolveProxied(remoteAddr, xff, xRealIp);
+        return loopbackAs != null && isLoopback(ip) ? loopbackAs : ip;
+    }
+
+    private String resolveProxied(String remoteAddr, String xff, String xRealIp) {
+        if (remoteAddr == null || !isTrusted(remoteAddr, 0, remoteAddr.length())) return remoteAddr;
+
+        if (xff != null) {
+            int end = xff.length();
+            int leftFrom = -1, leftTo = -1;
+            while (true) {
+                int comma = xff.lastIndexOf(',', end - 1);
+                int from = comma + 1;
+                int to = end;
+                while (from < to && xff.charAt(from) <= ' ') from++;
+                while (to > from && xff.charAt(to - 1) <= ' ') to--;
+                if (from < to) {
+                    if (!isTrusted(xff, from, to)) return hop(xff, from, to);
+                    leftFrom = from;
+                    leftTo = to;
+                }
+                if (comma < 0) break;
+                end = comma;
+            }
+            // 모든 홉이 신뢰 프록시 → 가장 왼쪽 홉
+            if (leftFrom >= 0) return hop(xff, leftFrom, leftTo);
+        }
+        if (xRealIp != null && !xRealIp.isBlank()) return xRealIp.trim();
+        return remoteAddr;
+    }
+
+    /**
+     * {@code s[from, to)} 주소가 신뢰 프록시인지. 주소가 아니면 false.
+     */
+    public boolean isTrusted(CharSequence s, int from, int to) {
+        int f = addressFrom(s, from, to);
+        int t = addressTo(s, from, to);
+        long v4 = Ipv4.parse(s, f, t);
+        if (v4 != Ipv4.INVALID) return allows(trusted.match((int) v4));
+        long[] v6 = Ipv6.scratch();
+        if (!Ipv6.parse(s, f, t, v6)) return false;
+        return allows(Ipv6.isMappedIpv4(v6[0], v6[1]) ? trusted.match((int) v6[1]) : trusted.match6(v6[0], v6[1]));
+    }
+
+    private static boolean allows(Rule r) {
+        return r != null && r.allows();
+    }
+
+    /** 홉 문자열 (대괄호/포트 제거) */
+    private static String hop(String s, int from, int to) {
+        return s.substring(addressFrom(s, from, to), addressTo(s, from, to));
+    }
+
+    /** {@code [v6]:포트}, {@code [v6]}, {@code v4:포트}에서 주소 부분의 시작 */
+    private static int addressFrom(CharSequence s, int from, int to) {
+        return to - from > 1 && s.charAt(from) == '[' ? from + 1 : from;
+    }
+
+    /** {@code [v6]:포트}, {@code [v6]}, {@code v4:포트}에서 주소 부분의 끝(미포함) */
+    private static int addressTo(CharSequence s, int from, int to) {
+        if (to - from > 1 && s.charAt(from) == '[') {
+            for (int i = from + 1; i < to; i++) {
+                if (s.charAt(i) == ']') return i;
+            }
+            return to;
+        }
+        int colon = -1;
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == ':') {
+                if (colon >= 0) return to; // 콜론 두 개 이상 = IPv6
+                colon = i;
+            }
+        }
+        return colon < 0 ? to : colon;
+    }
+
+    private static boolean isLoopback(String ip) {
+        if (ip == null) return false;
+        long v4 = Ipv4.parse(ip);
+        if (v4 != Ipv4.INVALID) return (v4 >>> 24) == 127;
+        long[] v6 = Ipv6.scratch();
+        return Ipv6.parse(ip, v6) && v6[0] == 0 && v6[1] == 1;
+    }
+}
@@ -0,0 +1,272 @@
+package com.rule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 컴파일된 규칙의 바이너리 파일 형식. {@link FileChannel#map}으로 열어 힙에 복사하지 않고 바로 조회한다.
+ *
+ * <h2>형식 (빅엔디언)</h2>
+ * <pre>
+ *  0  int   MAGIC "IPRB"
+ *  4  int   FORMAT_VERSION
+ *  8  long  원본 allow 파일 크기   (-1: 파일 없음)
+ * 16  long  원본 allow 파일 수정 시각(ms)
+ * 24  int   DEFAULT_IP 규칙 문자열 CRC32
+ * 28  int   구간 수 n
+ * 32  int   규칙 수 m
+ * 36  int   본문 CRC32
+ * 40  int   IPv6 구간 수 k
+ * 44  본문: int starts[n], int ends[n], int ruleIds[n]   (starts/ends는 부호 비트 뒤집은 값)
+ *           long startHi[k], startLo[k], endHi[k], endLo[k], int ruleIds[k]
+ *           규칙 m개: byte 출처, int 길이, UTF-8 토큰
+ * </pre>
+ *
+ * <p>구간은 {@link PrefixTrie#forEachSegment}로 만든 "최우선 규칙별로 칠한" 서로소 구간이라
+ * 조회 결과(규칙/사유)가 트라이와 같다. 규칙 표(토큰 문자열)만 열 때 힙으로 읽는다.</p>
+ *
+ * <p>원본 크기/수정 시각/DEFAULT_IP CRC가 현재 값과 다르면 {@link #isFresh}가 false가 되고,
+ * {@link RuleStore}는 텍스트 규칙으로 돌아간다.</p>
+ */
+public final class CompiledRuleFile implements RuleMatcher {
+
+    private static final int MAGIC = 0x49505242; // "IPRB"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER = 44;
+    private static final int BIAS = Integer.MIN_VALUE;
+
+    /**
+     * 컴파일 당시 원본 상태 (신선도 확인용).
+     * @param size        allow 파일 크기(없으면 -1)
+     * @param mtimeMillis allow 파일 수정 시각(없으면 0)
+     * @param defaultsCrc DEFAULT_IP 규칙 문자열 CRC32
+     */
+    public record Source(long size, long mtimeMillis, int defaultsCrc) {
+
+        /** 현재 원본 상태 읽기 */
+        public static Source of(Path allowFile, String defaultRules) throws IOException {
+            CRC32 crc = new CRC32();
+            if (defaultRules != null) crc.update(defaultRules.getBytes(StandardCharsets.UTF_8));
+            if (allowFile == null || !Files.isRegularFile(allowFile)) {
+                return new Source(-1, 0, (int) crc.getValue());
+            }
+            return new Source(Files.size(allowFile),
+                    Files.getLastModifiedTime(allowFile).toMillis(), (int) crc.getValue());
+        }
+    }
+
+    private final Source source;
+    private final IntBuffer starts;
+    private final IntBuffer ends;
+    private final IntBuffer ruleIds;
+    private final Ipv6Table v6;
+    private final List<Rule> rules;
+
+    private CompiledRuleFile(Source source, IntBuffer starts, IntBuffer ends, IntBuffer ruleIds,
+                             Ipv6Table v6, List<Rule> rules) {
+        this.source = source;
+        this.starts = starts;
+        this.ends = ends;
+        this.ruleIds = ruleIds;
+        this.v6 = v6;
+        this.rules = rules;
+    }
+
+    /**
+     * 트라이를 바이너리 파일로 저장 (임시 파일에 쓴 뒤 교체하므로 읽는 쪽이 반쯤 쓴 파일을 보지 않는다).
+     * @param trie   컴파일된 트라이
+     * @param source 컴파일에 쓴 원본 상태
+     * @param target 저장 경로
+     */
+    public static void write(PrefixTrie trie, Source source, Path target) throws IOException {
+        IntList starts = new IntList(), ends = new IntList(), ids = new IntList();
+        trie.forEachSegment((start, end, id) -> {
+            starts.add((int) start ^ BIAS);
+            ends.add((int) end ^ BIAS);
+            ids.add(id);
+        });
+
+        List<Rule> rules = trie.rules();
+        List<byte[]> tokens = new ArrayList<>(rules.size());
+        int ruleBytes = 0;
+        for (Rule r : rules) {
+            byte[] b = r.token().getBytes(StandardCharsets.UTF_8);
+            tokens.add(b);
+            ruleBytes += 1 + 4 + b.length;
+        }
+
+        int n = starts.size;
+        Ipv6Table v6 = trie.ipv6();
+        int k = v6.size();
+        ByteBuffer body = ByteBuffer.allocate(n * 12 + k * 36 + ruleBytes);
+        body.asIntBuffer().put(starts.data, 0, n).put(ends.data, 0, n).put(ids.data, 0, n);
+        body.position(n * 12);
+        for (int i = 0; i < k; i++) body.putLong(v6.startHi(i));
+        for (int i = 0; i < k; i++) body.putLong(v6.startLo(i));
+        for (int i = 0; i < k; i++) body.putLong(v6.endHi(i));
+        for (int i = 0; i < k; i++) body.putLong(v6.endLo(i));
+        for (int i = 0; i < k; i++) body.putInt(v6.label(i));
+        for (int i = 0; i < rules.size(); i++) {
+            body.put((byte) rules.get(i).source().ordinal());
+            body.putInt(tokens.get(i).length);
+            body.put(tokens.get(i));
+        }
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER)
+                .putInt(MAGIC).putInt(FORMAT_VERSION)
+                .putLong(source.size()).putLong(source.mtimeMillis()).putInt(source.defaultsCrc())
+                .putInt(n).putInt(rules.size()).putInt((int) crc.getValue()).putInt(k)
+                .flip();
+
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) ch.write(header);
+            while (body.hasRemaining()) ch.write(body);
+            ch.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 바이너리 파일 열기 (매핑 + 헤더/CRC 검증).
+     * @param file 파일 경로
+     * @return 조회기
+     * @throws IOException 읽기 실패, 형식/버전 불일치, CRC 불일치
+     */
+    public static CompiledRuleFile open(Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER) throw new IOException("compiled rules too short: " + file);
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (map.getInt(0) != MAGIC) throw new IOException("not a compiled rule file: " + file);
+        if (map.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("unsupported compiled rule format " + map.getInt(4) + ": " + file);
+        }
+        Source source = new Source(map.getLong(8), map.getLong(16), map.getInt(24));
+        int n = map.getInt(28);
+        int m = map.getInt(32);
+        int k = map.getInt(40);
+        if (n < 0 || m < 0 || k < 0 || HEADER + (long) n * 12 + (long) k * 36 > map.capacity()) {
+            throw new IOException("corrupt compiled rule header: " + file);
+        }
+
+        ByteBuffer body = map.slice(HEADER, map.capacity() - HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != map.getInt(36)) throw new IOException("compiled rule checksum mismatch: " + file);
+
+        IntBuffer starts = body.slice(0, n * 4).asIntBuffer();
+        IntBuffer ends = body.slice(n * 4, n * 4).asIntBuffer();
+        IntBuffer ids = body.slice(n * 8, n * 4).asIntBuffer();
+        int p = n * 12;
+        Ipv6Table v6 = Ipv6Table.wrap(
+                body.slice(p, k * 8).asLongBuffer(),
+                body.slice(p + k * 8, k * 8).asLongBuffer(),
+                body.slice(p + k * 16, k * 8).asLongBuffer(),
+                body.slice(p + k * 24, k * 8).asLongBuffer(),
+                body.slice(p + k * 32, k * 4).asIntBuffer());
+
+        RuleSource[] sources = RuleSource.values();
+        List<Rule> rules = new ArrayList<>(m);
+        int tableAt = p + k * 36;
+        ByteBuffer table = body.slice(tableAt, body.capacity() - tableAt);
+        try {
+            for (int id = 0; id < m; id++) {
+                RuleSource src = sources[table.get()];
+                byte[] token = new byte[table.getInt()];
+                table.get(token);
+                rules.add(new Rule(id, new String(token, StandardCharsets.UTF_8), src));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("corrupt compiled rule table: " + file, e);
+        }
+        return new CompiledRuleFile(source, starts, ends, ids, v6, List.copyOf(rules));
+    }
+
+    /** 컴파일 당시 원본 상태 */
+    public Source source() {
+        return source;
+    }
+
+    /**
+     * 현재 원본과 같은 상태에서 컴파일된 파일인지.
+     * @param allowFile    현재 allow 파일(없으면 null)
+     * @param defaultRules 현재 DEFAULT_IP 규칙(정규화 완료)
+     */
+    public boolean isFresh(Path allowFile, String defaultRules) throws IOException {
+        return source.equals(Source.of(allowFile, defaultRules));
+    }
+
+    /** 구간 수 */
+    public int segments() {
+        return starts.limit();
+    }
+
+    @Override
+    public Rule match(int ip) {
+        int key = ip ^ BIAS;
+        int lo = 0;
+        int hi = starts.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts.get(mid) <= key) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi >= 0 && key <= ends.get(hi) ? rules.get(ruleIds.get(hi)) : null;
+    }
+
+    @Override
+    public Rule match6(long hi, long lo) {
+        int id = v6.labelOf(hi, lo);
+        return id < 0 ? null : rules.get(id);
+    }
+
+    @Override
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    @Override
+    public void forEachSegment(PrefixTrie.SegmentSink sink) {
+        for (int i = 0; i < starts.limit(); i++) {
+            sink.accept((starts.get(i) ^ BIAS) & 0xFFFFFFFFL, (ends.get(i) ^ BIAS) & 0xFFFFFFFFL, ruleIds.get(i));
+        }
+    }
+
+    @Override
+    public Ipv6Table ipv6Segments() {
+        return v6;
+    }
+
+    /** 박싱 없는 int 버퍼 */
+    private static final class IntList {
+        int[] data = new int[64];
+        int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+    }
+}
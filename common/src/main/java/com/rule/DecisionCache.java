@@ -0,0 +1,141 @@
+package com.rule;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 클라이언트 IPv4별 판정 결과 캐시 (크기 제한, 박싱 없음).
+ *
+ * <p>트래픽 대부분이 소수의 클라이언트에서 오므로, 같은 IP의 판정(걸린 규칙 id)을 기억해 둔다.</p>
+ *
+ * <h2>구조</h2>
+ * <ul>
+ *   <li>오픈 어드레싱 {@code long} 배열. 슬롯 하나 = {@code [IPv4 32비트 | 세대 10비트 | 값 22비트]}.
+ *       슬롯 전체를 한 번에 읽고 쓰므로 락 없이도 찢어진 값을 보지 않는다.</li>
+ *   <li>값은 규칙 id + 1 (0 = 매칭 없음). id가 22비트를 넘는 규칙은 캐시하지 않는다.</li>
+ *   <li>세대는 {@link RuleSnapshot#version()}의 하위 10비트. 규칙이 바뀌어 버전이 오르면
+ *       이전 세대 슬롯은 자동으로 무효가 된다(O(1) 무효화).</li>
+ *   <li>세대가 한 바퀴 돌면(버전 상위 비트 {@code version >>> 10}이 바뀌면) 새 스냅샷을 보이기 전에 전체를 비운다.
+ *       건너뛴 버전이 있어도 상위 비트로 비교하므로 비우기를 놓치지 않는다.
+ *       비우기와 겹친 이전 바퀴의 저장은 쓴 뒤 바퀴를 다시 확인해 되돌린다.</li>
+ *   <li>탐색 창(8칸) 안에 빈 칸/무효 칸이 없으면 IP 해시로 고른 한 칸을 덮어쓴다(무작위 교체).</li>
+ * </ul>
+ */
+public final class DecisionCache {
+
+    /** 캐시에 없음 */
+    public static final int MISS = Integer.MIN_VALUE;
+    /** 캐시됨: 매칭 규칙 없음 */
+    public static final int NO_MATCH = -1;
+
+    private static final int PROBE = 8;
+    private static final int GEN_BITS = 10;
+    private static final int VALUE_BITS = 22;
+    private static final int GEN_MASK = (1 << GEN_BITS) - 1;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    /** 마지막으로 비운 바퀴 ({@code version >>> 10}) */
+    private volatile long epoch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity 최대 항목 수(2의 거듭제곱으로 올림, 최소 {@value #PROBE})
+     */
+    public DecisionCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(PROBE, capacity) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /** 스냅샷 버전 → 세대 값 */
+    static int generationOf(long version) {
+        return (int) (version & GEN_MASK);
+    }
+
+    /**
+     * 캐시 조회.
+     * @param ip      IPv4 int 값
+     * @param version 조회하는 스냅샷 버전
+     * @return 규칙 id, {@link #NO_MATCH}, 또는 {@link #MISS}
+     */
+    public int get(int ip, long version) {
+        int generation = generationOf(version);
+        int h = hash(ip);
+        for (int i = 0; i < PROBE; i++) {
+            long e = slots.getOpaque((h + i) & mask);
+            if (e == 0L) break;
+            if ((int) (e >>> 32) == ip && genOf(e) == generation) {
+                hits.increment();
+                return ((int) e & VALUE_MASK) - 1;
+            }
+        }
+        misses.increment();
+        return MISS;
+    }
+
+    /**
+     * 판정 결과 저장.
+     * @param ip      IPv4 int 값
+     * @param version 결과를 계산한 스냅샷 버전 (이미 지난 바퀴의 버전이면 저장하지 않는다)
+     * @param ruleId  규칙 id 또는 {@link #NO_MATCH}
+     */
+    public void put(int ip, long version, int ruleId) {
+        if (ruleId + 1 > VALUE_MASK || ruleId < NO_MATCH) return;
+        long round = version >>> GEN_BITS;
+        if (round != epoch) return;
+        int generation = generationOf(version);
+        long entry = ((long) ip << 32) | ((long) generation << VALUE_BITS) | (ruleId + 1);
+        int h = hash(ip);
+        int idx = -1;
+        for (int i = 0; i < PROBE && idx < 0; i++) {
+            long e = slots.getOpaque((h + i) & mask);
+            if (e == 0L || (int) (e >>> 32) == ip || genOf(e) != generation) idx = (h + i) & mask;
+        }
+        // 창이 가득 참 → IP의 두 번째 해시로 창 안의 한 칸을 골라 교체
+        if (idx < 0) idx = (h + ((ip * 0x85EBCA6B) >>> 29)) & mask;
+        slots.set(idx, entry);
+        // 쓰는 사이 비우기가 지나갔으면 되돌린다 (비우기: 바퀴 기록 → 슬롯 0, 여기: 슬롯 기록 → 바퀴 확인)
+        if (round != epoch) slots.compareAndSet(idx, entry, 0L);
+    }
+
+    /**
+     * 새 스냅샷을 보이기 직전에 부른다. 바퀴({@code version >>> 10})가 바뀌었으면 전체를 비운다.
+     * @param version 곧 설치할 스냅샷 버전
+     */
+    public void onNewVersion(long version) {
+        long round = version >>> GEN_BITS;
+        if (round == epoch) return;
+        epoch = round;
+        for (int i = 0; i < slots.length(); i++) slots.set(i, 0L);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    private static int genOf(long e) {
+        return (int) (e >>> VALUE_BITS) & GEN_MASK;
+    }
+
+    private int hash(int ip) {
+        return (ip * 0x9E3779B9) >>> 7 & mask;
+    }
+
+    @Override
+    public String toString() {
+        long h = hits(), m = misses();
+        return String.format("DecisionCache[capacity=%d, hits=%d, misses=%d, hitRatio=%.3f]",
+                capacity(), h, m, (h + m) == 0 ? 0.0 : (double) h / (h + m));
+    }
+}
@@ -0,0 +1,217 @@
+package com.rule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 호스트 이름 규칙의 주소를 백그라운드에서 풀어 두고 TTL마다 갱신한다.
+ *
+ * <ul>
+ *   <li>컴파일 단계는 {@link #addresses(String)}로 캐시만 읽는다. DNS 조회는 데몬 스레드 하나에서만 한다.</li>
+ *   <li>조회 결과의 TTL({@value #MIN_TTL_MILLIS}ms ~ 1일로 자름)이 지나면 다시 조회한다.</li>
+ *   <li>실패하면 마지막 주소를 유지하고 {@value #RETRY_MILLIS}ms 뒤 다시 시도한다.</li>
+ *   <li>주소 집합이 바뀌면 {@link #generation()}을 올리고, 잠깐 모았다가 변경 콜백을 한 번 부른다
+ *       ({@link RuleStore}는 여기서 스냅샷을 다시 만든다).</li>
+ * </ul>
+ */
+public final class HostRefresher implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(HostRefresher.class);
+
+    /** 새 이름의 첫 조회를 기다리는 최대 시간(ms) */
+    public static final long INITIAL_WAIT_MILLIS = 2_000;
+    /** TTL 하한(ms) */
+    static final long MIN_TTL_MILLIS = 1_000;
+    /** TTL 상한(ms) */
+    static final long MAX_TTL_MILLIS = 86_400_000;
+    /** 조회 실패 후 재시도 간격(ms) */
+    static final long RETRY_MILLIS = 30_000;
+    /** 변경 알림을 모으는 시간(ms) */
+    private static final long COALESCE_MILLIS = 100;
+
+    private static final class Entry {
+        final String host;
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        volatile List<String> addresses = List.of();
+        volatile ScheduledFuture<?> next;
+
+        Entry(String host) {
+            this.host = host;
+        }
+    }
+
+    private final HostResolver resolver;
+    private final Runnable onChange;
+    private final Map<String, Entry> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean changePending = new AtomicBoolean();
+
+    private volatile ScheduledExecutorService executor;
+    private volatile Thread worker;
+
+    /**
+     * @param resolver 주소 조회기
+     * @param onChange 주소 집합이 바뀌었을 때 부를 콜백 (조회 스레드에서 실행)
+     */
+    public HostRefresher(HostResolver resolver, Runnable onChange) {
+        this.resolver = resolver;
+        this.onChange = onChange;
+    }
+
+    /**
+     * 추적할 이름 목록 교체. 새 이름은 바로 조회하고 첫 결과를 최대 {@code waitMillis} 기다린다
+     * (조회 스레드에서 불렸으면 기다리지 않는다). 목록에서 빠진 이름은 갱신을 멈춘다.
+     * @param names      호스트 이름(소문자)
+     * @param waitMillis 첫 조회 대기 시간(ms)
+     */
+    public void track(Set<String> names, long waitMillis) {
+        for (Entry e : hosts.values()) {
+            if (!names.contains(e.host) && hosts.remove(e.host, e)) {
+                ScheduledFuture<?> f = e.next;
+                if (f != null) f.cancel(false);
+            }
+        }
+        if (names.isEmpty()) return;
+
+        List<CompletableFuture<Void>> fresh = new ArrayList<>();
+        ScheduledExecutorService ex = executor();
+        for (String name : names) {
+            Entry e = new Entry(name);
+            if (hosts.putIfAbsent(name, e) != null) continue;
+            fresh.add(e.first);
+            e.next = ex.schedule(() -> refresh(e), 0, TimeUnit.MILLISECONDS);
+        }
+        if (fresh.isEmpty() || waitMillis <= 0 || Thread.currentThread() == worker) return;
+        try {
+            CompletableFuture.allOf(fresh.toArray(CompletableFuture[]::new)).get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.info("host rules still resolving after {}ms, compiling with what is known", waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 캐시된 주소 (I/O 없음).
+     * @param host 호스트 이름(소문자)
+     * @return 정규화된 IPv4/IPv6 리터럴, 아직 모르면 빈 목록
+     */
+    public List<String> addresses(String host) {
+        Entry e = hosts.get(host);
+        return e == null ? List.of() : e.addresses;
+    }
+
+    /** 주소 집합이 바뀔 때마다 1씩 증가 */
+    public long generation() {
+        return generation.get();
+    }
+
+    /** 추적 중인 이름 */
+    public Set<String> hosts() {
+        return Set.copyOf(hosts.keySet());
+    }
+
+    private void refresh(Entry e) {
+        if (hosts.get(e.host) != e) return;
+        long delay;
+        try {
+            HostResolver.Answer answer = resolver.resolve(e.host);
+            List<String> next = normalize(answer.addresses());
+            delay = Math.max(MIN_TTL_MILLIS, Math.min(MAX_TTL_MILLIS, answer.ttlMillis()));
+            if (!next.equals(e.addresses)) {
+                log.info("host rule {} resolved to {}", e.host, next);
+                e.addresses = next;
+                generation.incrementAndGet();
+                changed();
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("host rule lookup failed for {}, keeping {} - {}", e.host, e.addresses, ex.toString());
+            delay = RETRY_MILLIS;
+        }
+        e.first.complete(null);
+        if (hosts.get(e.host) == e) e.next = schedule(() -> refresh(e), delay);
+    }
+
+    /** 변경 알림을 잠깐 모아 한 번만 보낸다 */
+    private void changed() {
+        if (!changePending.compareAndSet(false, true)) return;
+        schedule(() -> {
+            changePending.set(false);
+            try {
+                onChange.run();
+            } catch (RuntimeException ex) {
+                log.warn("host rule change handler failed", ex);
+            }
+        }, COALESCE_MILLIS);
+    }
+
+    /** 닫힌 뒤에는 예약하지 않는다(null) */
+    private ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        ScheduledExecutorService ex = executor;
+        if (ex == null) return null;
+        try {
+            return ex.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException closed) {
+            return null;
+        }
+    }
+
+    /** 리터럴 정규화(스코프 제거, IPv4-mapped → IPv4), 중복 제거 + 정렬 */
+    static List<String> normalize(List<String> addresses) {
+        long[] v6 = new long[2];
+        List<String> out = new ArrayList<>(addresses.size());
+        for (String raw : addresses) {
+            String a = raw.trim();
+            int scope = a.indexOf('%');
+            if (scope >= 0) a = a.substring(0, scope);
+            long v4 = Ipv4.parse(a);
+            String lit;
+            if (v4 != Ipv4.INVALID) {
+                lit = Ipv4.format((int) v4);
+            } else if (Ipv6.parse(a, v6)) {
+                lit = Ipv6.isMappedIpv4(v6[0], v6[1]) ? Ipv4.format((int) v6[1]) : Ipv6.format(v6[0], v6[1]);
+            } else {
+                continue;
+            }
+            if (!out.contains(lit)) out.add(lit);
+        }
+        out.sort(null);
+        return List.copyOf(out);
+    }
+
+    private synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ip-host-resolver");
+                t.setDaemon(true);
+                worker = t;
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    /** 갱신 중지 */
+    @Override
+    public synchronized void close() {
+        hosts.clear();
+        if (executor != null) executor.shutdownNow();
+        executor = null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.rule;
+
+import com.config.EnvConfig;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 호스트 이름 규칙({@code host:...})의 주소 조회기.
+ *
+ * <p>{@link HostRefresher}가 백그라운드 스레드에서만 부른다(요청 스레드는 DNS를 기다리지 않는다).
+ * 테스트에서는 고정 응답을 돌려주는 스텁을 넘긴다.</p>
+ */
+@FunctionalInterface
+public interface HostResolver {
+
+    /** 시스템 리졸버 TTL 환경변수(초) */
+    String TTL_ENV = "IP_HOST_TTL_SECONDS";
+    /** 시스템 리졸버 기본 TTL(초) */
+    long DEFAULT_TTL_SECONDS = 60;
+
+    /**
+     * 조회 결과.
+     * @param addresses IPv4/IPv6 리터럴
+     * @param ttlMillis 이 결과를 쓸 시간(ms), 지나면 다시 조회
+     */
+    record Answer(List<String> addresses, long ttlMillis) {}
+
+    /**
+     * @param host 소문자 호스트 이름
+     * @return 조회 결과
+     * @throws IOException 조회 실패(이름 없음 포함)
+     */
+    Answer resolve(String host) throws IOException;
+
+    /**
+     * {@link InetAddress} 기반 시스템 리졸버. JDK는 레코드 TTL을 알려 주지 않으므로 고정 TTL을 쓴다.
+     * @param ttlMillis 결과마다 붙일 TTL(ms)
+     */
+    static HostResolver system(long ttlMillis) {
+        return host -> {
+            InetAddress[] all = InetAddress.getAllByName(host);
+            List<String> out = new ArrayList<>(all.length);
+            for (InetAddress a : all) out.add(a.getHostAddress());
+            return new Answer(out, ttlMillis);
+        };
+    }
+
+    /** {@value #TTL_ENV}(없으면 {@value #DEFAULT_TTL_SECONDS}초) TTL의 시스템 리졸버 */
+    static HostResolver fromEnv() {
+        String ttl = EnvConfig.env(TTL_ENV);
+        long seconds = DEFAULT_TTL_SECONDS;
+        if (ttl != null) {
+            try {
+                seconds = Long.parseLong(ttl.trim());
+            } catch (NumberFormatException e) {
+                LoggerFactory.getLogger(HostResolver.class).warn("{} is not a number: {}", TTL_ENV, ttl);
+            }
+        }
+        return system(seconds * 1_000);
+    }
+}
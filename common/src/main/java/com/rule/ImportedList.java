@@ -0,0 +1,96 @@
+package com.rule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ListImporter}로 읽어 컴파일한 외부 목록 하나 (불변).
+ *
+ * <p>목록 전체가 규칙 하나({@link RuleSource#IMPORT}, 토큰 {@code @파일명} / {@code !@파일명})로 취급된다.
+ * 거부 목록은 모든 텍스트 규칙보다 먼저, 허용 목록은 모든 텍스트 규칙 다음에 본다({@link LayeredMatcher}).</p>
+ *
+ * @param source      목록 위치와 종류
+ * @param size        읽을 당시 파일 크기
+ * @param mtimeMillis 읽을 당시 파일 수정 시각(ms)
+ * @param ipv4        IPv4 구간(병합 완료)
+ * @param ipv6        IPv6 구간(라벨 0)
+ * @param stats       읽기 결과
+ */
+public record ImportedList(Source source, long size, long mtimeMillis,
+                           IntervalTable ipv4, Ipv6Table ipv6, ListImporter.Stats stats) {
+    private static final Logger log = LoggerFactory.getLogger(ImportedList.class);
+
+    /** 가져올 목록 환경변수 (예: {@code deny:/data/drop.txt;allow:/data/aws-ranges.csv}, 접두사가 없으면 허용) */
+    public static final String ENV = "IP_IMPORT_LISTS";
+
+    /**
+     * 가져올 목록 하나.
+     * @param file 목록 파일
+     * @param deny 거부 목록이면 true
+     */
+    public record Source(Path file, boolean deny) {
+        /** 규칙 토큰 ({@code @파일명}, 거부 목록은 {@code !@파일명}) */
+        public String token() {
+            return (deny ? String.valueOf(RuleTokens.DENY_PREFIX) : "") + "@" + file.getFileName();
+        }
+    }
+
+    /**
+     * {@value #ENV} 해석: {@code [allow:|deny:]경로}를 {@code ;} 또는 {@code ,}로 구분.
+     * @param spec 설정 값 (null 허용)
+     */
+    public static List<Source> sources(String spec) {
+        if (spec == null || spec.isBlank()) return List.of();
+        List<Source> out = new ArrayList<>();
+        for (String entry : spec.split("[;,]")) {
+            String e = entry.trim();
+            if (e.isEmpty()) continue;
+            boolean deny = e.startsWith("deny:");
+            if (deny || e.startsWith("allow:")) e = e.substring(e.indexOf(':') + 1).trim();
+            if (e.isEmpty()) {
+                log.warn("{} entry ignored: [{}]", ENV, entry);
+                continue;
+            }
+            out.add(new Source(Path.of(e).toAbsolutePath().normalize(), deny));
+        }
+        return List.copyOf(out);
+    }
+
+    /**
+     * 목록 파일을 끝까지 읽어 컴파일.
+     * @param source 목록
+     */
+    public static ImportedList load(Source source) throws IOException {
+        Path file = source.file();
+        long size = Files.size(file);
+        long mtime = Files.getLastModifiedTime(file).toMillis();
+        long started = System.nanoTime();
+
+        IntervalTable.Builder v4 = IntervalTable.builder();
+        List<Ipv6Table.Span> v6 = new ArrayList<>();
+        ListImporter.Stats stats = ListImporter.read(file, v4,
+                (sHi, sLo, eHi, eLo) -> v6.add(new Ipv6Table.Span(sHi, sLo, eHi, eLo, 0)));
+        ImportedList list = new ImportedList(source, size, mtime, v4.build(), Ipv6Table.paint(v6), stats);
+
+        log.info("IP list imported - file={}, deny={}, lines={}, ipv4={}, ipv6={}, skipped={}, segments={}, took={}ms",
+                file, source.deny(), stats.lines(), stats.ipv4(), stats.ipv6(), stats.skipped(),
+                list.ipv4().size() + list.ipv6().size(), (System.nanoTime() - started) / 1_000_000);
+        return list;
+    }
+
+    /** 파일 크기/수정 시각이 읽을 당시와 같은지 (다시 읽을 필요가 없는지) */
+    public boolean isFresh() {
+        try {
+            Path file = source.file();
+            return Files.size(file) == size && Files.getLastModifiedTime(file).toMillis() == mtimeMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
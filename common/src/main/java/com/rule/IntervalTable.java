@@ -0,0 +1,178 @@
+package com.rule;
+
+import java.util.Arrays;
+
+/**
+ * 컴파일된 IPv4 허용 구간 테이블.
+ *
+ * <p>규칙 토큰(CIDR / 범위 / 와일드카드 / 단일 IP)을 {@code [start,end]} 구간으로 펼친 뒤
+ * 정렬 + 병합(겹치거나 맞닿은 구간은 하나로)해 두 개의 {@code int[]}에 보관한다.
+ * 조회는 이진 탐색 한 번이며 객체를 만들지 않는다.</p>
+ *
+ * <h2>저장 방식</h2>
+ * <ul>
+ *   <li>IPv4는 부호 없는 32비트지만 자바 {@code int}는 부호가 있으므로,
+ *       최상위 비트를 뒤집은 값({@code ip ^ 0x80000000})을 저장해 일반 비교로 정렬 순서를 맞춘다.</li>
+ *   <li>{@code starts[i] <= ends[i] < starts[i+1]} 이 항상 성립한다(병합 완료 상태).</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * IntervalTable t = RuleTokens.compile("10.0.0.0/8|192.168.1.*");
+ * t.contains(0x0A010203); // 10.1.2.3 → true
+ * }</pre>
+ */
+public final class IntervalTable {
+
+    /** 부호 비트 뒤집기용 값 */
+    private static final int BIAS = Integer.MIN_VALUE;
+
+    /** 비어 있는 테이블(모두 불허) */
+    public static final IntervalTable EMPTY = new IntervalTable(new int[0], new int[0]);
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private IntervalTable(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * IPv4(네트워크 바이트 순서의 int)가 어느 구간에 포함되는지 검사.
+     * @param ip IPv4 int 값 (예: 10.0.0.1 → {@code 0x0A000001})
+     * @return 포함되면 true
+     */
+    public boolean contains(int ip) {
+        int key = ip ^ BIAS;
+        int lo = 0;
+        int hi = starts.length - 1;
+        // key 이하인 start 중 가장 오른쪽 위치 탐색
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= key) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi >= 0 && key <= ends[hi];
+    }
+
+    /** 병합 후 구간 개수 */
+    public int size() {
+        return starts.length;
+    }
+
+    /** i번째 구간 시작(부호 없는 값) */
+    public long start(int i) {
+        return (starts[i] ^ BIAS) & 0xFFFFFFFFL;
+    }
+
+    /** i번째 구간 끝(부호 없는 값, 포함) */
+    public long end(int i) {
+        return (ends[i] ^ BIAS) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * 합집합. 두 테이블 모두 병합 상태이므로 한 번 훑어 끝난다.
+     * @param other 다른 테이블
+     * @return 둘 중 하나에라도 속하는 주소의 테이블
+     */
+    public IntervalTable union(IntervalTable other) {
+        if (other.size() == 0) return this;
+        if (size() == 0) return other;
+        Builder b = new Builder();
+        for (int i = 0; i < size(); i++) b.accept(start(i), end(i));
+        for (int i = 0; i < other.size(); i++) b.accept(other.start(i), other.end(i));
+        return b.build();
+    }
+
+    /**
+     * 차집합. 두 포인터로 한 번 훑어 {@code this}의 각 구간에서 {@code other} 구간을 잘라낸다.
+     * @param other 뺄 테이블
+     * @return {@code this}에는 있고 {@code other}에는 없는 주소의 테이블
+     */
+    public IntervalTable difference(IntervalTable other) {
+        if (other.size() == 0 || size() == 0) return this;
+        int[] s = new int[size() + other.size()];
+        int[] e = new int[s.length];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < size(); i++) {
+            long cur = start(i);
+            long end = end(i);
+            while (j < other.size() && other.end(j) < cur) j++;
+            // other 구간이 [cur, end]와 겹치는 동안 앞부분을 내보내고 cur를 뒤로 민다
+            int k = j;
+            while (cur <= end && k < other.size() && other.start(k) <= end) {
+                if (other.start(k) > cur) {
+                    s[n] = (int) cur ^ BIAS;
+                    e[n] = (int) (other.start(k) - 1) ^ BIAS;
+                    n++;
+                }
+                cur = Math.max(cur, other.end(k) + 1);
+                k++;
+            }
+            if (cur <= end) {
+                s[n] = (int) cur ^ BIAS;
+                e[n] = (int) end ^ BIAS;
+                n++;
+            }
+        }
+        return n == 0 ? EMPTY : new IntervalTable(Arrays.copyOf(s, n), Arrays.copyOf(e, n));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public String toString() {
+        return "IntervalTable[size=" + starts.length + "]";
+    }
+
+    /**
+     * 구간을 모아 정렬/병합하는 빌더.
+     * <p>구간 하나를 {@code long} 하나(상위 32비트 = 시작, 하위 32비트 = 끝)로 보관해
+     * {@link Arrays#sort(long[])} 한 번으로 시작 → 끝 순 정렬을 끝낸다.</p>
+     */
+    public static final class Builder implements RuleTokens.IntervalSink {
+        private long[] packed = new long[16];
+        private int count;
+
+        private Builder() {}
+
+        /**
+         * 구간 추가. 시작/끝이 뒤집혀 있으면 바로잡는다.
+         * @param start 시작 IPv4(0 ~ 2^32-1)
+         * @param end   끝 IPv4(포함, 0 ~ 2^32-1)
+         */
+        @Override
+        public void accept(long start, long end) {
+            long lo = Math.min(start, end);
+            long hi = Math.max(start, end);
+            if (count == packed.length) packed = Arrays.copyOf(packed, count << 1);
+            packed[count++] = ((long) ((int) lo ^ BIAS) << 32) | (hi & 0xFFFFFFFFL);
+        }
+
+        /** 정렬 + 병합해 불변 테이블 생성 */
+        public IntervalTable build() {
+            if (count == 0) return EMPTY;
+            Arrays.sort(packed, 0, count);
+
+            int[] s = new int[count];
+            int[] e = new int[count];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int start = (int) (packed[i] >> 32);
+                int end = (int) packed[i] ^ BIAS;
+                // 겹치거나 바로 이어지면(end + 1 == start) 병합
+                if (n > 0 && ((long) start) <= ((long) e[n - 1]) + 1) {
+                    if (end > e[n - 1]) e[n - 1] = end;
+                } else {
+                    s[n] = start;
+                    e[n] = end;
+                    n++;
+                }
+            }
+            return new IntervalTable(Arrays.copyOf(s, n), Arrays.copyOf(e, n));
+        }
+    }
+}
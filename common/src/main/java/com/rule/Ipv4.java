@@ -0,0 +1,72 @@
+package com.rule;
+
+/**
+ * 점 4개 IPv4 리터럴 파서.
+ *
+ * <p>{@code InetAddress.getByName}은 리터럴이 아니면 DNS 조회까지 하고, 매번 객체를 만든다.
+ * 여기서는 문자를 직접 훑어 int로 바꾸며 객체를 만들지 않는다.
+ * 헤더 값 일부(예: {@code "a.b.c.d, e.f.g.h"}의 앞부분)처럼 구간만 넘겨 파싱할 수도 있다.</p>
+ *
+ * <h2>검증 규칙</h2>
+ * <ul>
+ *   <li>옥텟은 정확히 4개, 점 3개.</li>
+ *   <li>옥텟은 숫자 1~3자리, 값 0~255 (앞자리 0은 10진수로 본다: {@code 010} → 10).</li>
+ *   <li>부호, 공백, 그 밖의 문자는 모두 실패.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * long v = Ipv4.parse("192.168.0.1");   // 0xC0A80001L
+ * if (v != Ipv4.INVALID) table.contains((int) v);
+ * }</pre>
+ */
+public final class Ipv4 {
+    private Ipv4() {}
+
+    /** 파싱 실패 값 */
+    public static final long INVALID = -1L;
+
+    /**
+     * 전체 문자열 파싱.
+     * @param s IPv4 문자열(null 허용)
+     * @return 0 ~ 2^32-1 값, 실패 시 {@link #INVALID}
+     */
+    public static long parse(CharSequence s) {
+        return s == null ? INVALID : parse(s, 0, s.length());
+    }
+
+    /**
+     * {@code s[from, to)} 구간 파싱.
+     * @param s    원본 문자열
+     * @param from 시작 인덱스(포함)
+     * @param to   끝 인덱스(미포함)
+     * @return 0 ~ 2^32-1 값, 실패 시 {@link #INVALID}
+     */
+    public static long parse(CharSequence s, int from, int to) {
+        if (s == null || from < 0 || to > s.length() || to - from < 7 || to - from > 15) return INVALID;
+        long value = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) return INVALID;
+                octet = octet * 10 + (c - '0');
+            } else if (c == '.') {
+                if (digits == 0 || octet > 255 || ++dots > 3) return INVALID;
+                value = (value << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return INVALID;
+            }
+        }
+        if (dots != 3 || digits == 0 || octet > 255) return INVALID;
+        return (value << 8) | octet;
+    }
+
+    /** IPv4 int 값 → 점 4개 문자열 */
+    public static String format(int ip) {
+        return ((ip >>> 24) & 0xFF) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+    }
+}
@@ -0,0 +1,185 @@
+package com.rule;
+
+/**
+ * IPv6 리터럴 파서 (128비트 = 상위/하위 {@code long} 두 개).
+ *
+ * <p>{@link Ipv4}처럼 문자를 직접 훑으며 객체를 만들지 않는다. 결과는 호출자가 준 {@code long[2]}에 쓴다.
+ * 요청 경로처럼 호출마다 버퍼를 만들 수 없는 곳은 스레드별 {@link #scratch()}를 쓴다.</p>
+ *
+ * <h2>검증 규칙</h2>
+ * <ul>
+ *   <li>16진수 그룹(1~4자리, 대소문자 무관) 8개, 또는 {@code ::} 한 번으로 0 그룹 생략.</li>
+ *   <li>마지막 두 그룹 자리에 점 4개 IPv4 허용 (예: {@code ::ffff:192.0.2.1}, {@code 64:ff9b::1.2.3.4}).</li>
+ *   <li>{@code %} 뒤의 zone id(예: {@code fe80::1%eth0})는 무시한다.</li>
+ *   <li>대괄호, 접두 길이, 공백 등은 실패.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * long[] v = new long[2];
+ * if (Ipv6.parse("2001:db8::1", v)) table.indexOf(v[0], v[1]);
+ * }</pre>
+ */
+public final class Ipv6 {
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    private Ipv6() {}
+
+    /**
+     * 이 스레드의 결과 버퍼 {@code long[2]}. 다음 {@code parse(..., scratch())} 전까지만 유효하므로
+     * 값은 파싱 직후 읽고, 버퍼를 붙잡아 두거나 다른 스레드로 넘기지 않는다.
+     */
+    public static long[] scratch() {
+        return SCRATCH.get();
+    }
+
+    /**
+     * 전체 문자열 파싱.
+     * @param s   IPv6 문자열(null 허용)
+     * @param out 결과 {@code [상위 64비트, 하위 64비트]} (실패 시 내용 미정)
+     * @return 성공하면 true
+     */
+    public static boolean parse(CharSequence s, long[] out) {
+        return s != null && parse(s, 0, s.length(), out);
+    }
+
+    /**
+     * {@code s[from, to)} 구간 파싱.
+     * @param s    원본 문자열
+     * @param from 시작 인덱스(포함)
+     * @param to   끝 인덱스(미포함)
+     * @param out  결과 {@code [상위 64비트, 하위 64비트]} (실패 시 내용 미정)
+     * @return 성공하면 true
+     */
+    public static boolean parse(CharSequence s, int from, int to, long[] out) {
+        if (s == null || from < 0 || to > s.length()) return false;
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '%') {
+                to = i;
+                break;
+            }
+        }
+        if (to - from < 2 || to - from > 45) return false;
+
+        // :: 앞 그룹(head)과 뒤 그룹(tail)을 따로 모은 뒤 head를 빈 자리만큼 밀어 합친다
+        long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+        int headN = 0, tailN = 0;
+        boolean compressed = false;
+        int i = from;
+        if (s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':') return false;
+            compressed = true;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            int group = 0;
+            int digits = 0;
+            while (i < to) {
+                int d = hex(s.charAt(i));
+                if (d < 0) break;
+                if (++digits > 4) return false;
+                group = (group << 4) | d;
+                i++;
+            }
+            if (i < to && s.charAt(i) == '.') {
+                // 내장 IPv4: 마지막 그룹 자리에만 올 수 있다
+                long v4 = Ipv4.parse(s, start, to);
+                if (v4 == Ipv4.INVALID || headN + tailN > 6) return false;
+                if (compressed) {
+                    tailHi = (tailHi << 32) | (tailLo >>> 32);
+                    tailLo = (tailLo << 32) | v4;
+                    tailN += 2;
+                } else {
+                    headHi = (headHi << 32) | (headLo >>> 32);
+                    headLo = (headLo << 32) | v4;
+                    headN += 2;
+                }
+                i = to;
+                break;
+            }
+            if (digits == 0 || headN + tailN == 8) return false;
+            if (compressed) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | group;
+                tailN++;
+            } else {
+                headHi = (headHi << 16) | (headLo >>> 48);
+                headLo = (headLo << 16) | group;
+                headN++;
+            }
+            if (i == to) break;
+            if (s.charAt(i) != ':') return false;
+            i++;
+            if (i < to && s.charAt(i) == ':') {
+                if (compressed) return false;
+                compressed = true;
+                i++;
+            } else if (i == to) {
+                return false; // 끝의 콜론 하나
+            }
+        }
+        int groups = headN + tailN;
+        if (compressed ? groups > 7 : groups != 8) return false;
+
+        int shift = 16 * (8 - headN);
+        if (shift == 128) {
+            headHi = 0;
+            headLo = 0;
+        } else if (shift >= 64) {
+            headHi = headLo << (shift - 64);
+            headLo = 0;
+        } else if (shift > 0) {
+            headHi = (headHi << shift) | (headLo >>> (64 - shift));
+            headLo <<= shift;
+        }
+        out[0] = headHi | tailHi;
+        out[1] = headLo | tailLo;
+        return true;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    /** IPv4-mapped 주소({@code ::ffff:a.b.c.d})인지 */
+    public static boolean isMappedIpv4(long hi, long lo) {
+        return hi == 0 && (lo >>> 32) == 0xFFFFL;
+    }
+
+    /** 128비트 값 → RFC 5952 표기 (가장 긴 0 그룹 연속 구간을 {@code ::}로 줄임, 소문자) */
+    public static String format(long hi, long lo) {
+        int[] g = new int[8];
+        for (int k = 0; k < 4; k++) {
+            g[k] = (int) (hi >>> (48 - 16 * k)) & 0xFFFF;
+            g[k + 4] = (int) (lo >>> (48 - 16 * k)) & 0xFFFF;
+        }
+        int bestStart = -1, bestLen = 1;
+        for (int k = 0; k < 8; ) {
+            if (g[k] != 0) {
+                k++;
+                continue;
+            }
+            int j = k;
+            while (j < 8 && g[j] == 0) j++;
+            if (j - k > bestLen) {
+                bestStart = k;
+                bestLen = j - k;
+            }
+            k = j;
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int k = 0; k < 8; k++) {
+            if (k == bestStart) {
+                sb.append("::");
+                k += bestLen - 1;
+                continue;
+            }
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':') sb.append(':');
+            sb.append(Integer.toHexString(g[k]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.rule;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 128비트 IPv6 구간 테이블. 서로소 구간마다 정수 라벨(규칙 id 등)을 하나씩 단다.
+ *
+ * <p>경계는 {@code long} 두 개(상위/하위 64비트, 부호 없는 비교)로 보관하고
+ * IPv4 {@link IntervalTable}과 같은 방식으로 이진 탐색 한 번에 조회한다.
+ * 버퍼는 힙 배열을 감싼 것일 수도, {@link CompiledRuleFile}의 매핑 영역일 수도 있다.</p>
+ *
+ * <h2>칠하기(paint)</h2>
+ * <p>겹치는 구간이 있으면 라벨이 가장 작은 쪽이 이긴다(규칙 id = 우선순위).
+ * 라벨을 거부 0 / 허용 1로 주면 "허용 합집합 − 거부 합집합"과 같다.
+ * 이웃한 구간의 라벨이 같으면 하나로 합친다.</p>
+ */
+public final class Ipv6Table {
+
+    /** 비어 있는 테이블 */
+    public static final Ipv6Table EMPTY = new Ipv6Table(LongBuffer.allocate(0), LongBuffer.allocate(0),
+            LongBuffer.allocate(0), LongBuffer.allocate(0), IntBuffer.allocate(0));
+
+    /** 구간 하나를 받는 콜백 (경계는 부호 없는 128비트) */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(long startHi, long startLo, long endHi, long endLo);
+    }
+
+    /** 칠하기 입력 구간 */
+    public record Span(long startHi, long startLo, long endHi, long endLo, int label) {}
+
+    private final LongBuffer startHi;
+    private final LongBuffer startLo;
+    private final LongBuffer endHi;
+    private final LongBuffer endLo;
+    private final IntBuffer labels;
+
+    /** 이미 정렬/서로소인 버퍼를 감싼다 (매핑 파일용) */
+    static Ipv6Table wrap(LongBuffer startHi, LongBuffer startLo, LongBuffer endHi, LongBuffer endLo, IntBuffer labels) {
+        return labels.limit() == 0 ? EMPTY : new Ipv6Table(startHi, startLo, endHi, endLo, labels);
+    }
+
+    private Ipv6Table(LongBuffer startHi, LongBuffer startLo, LongBuffer endHi, LongBuffer endLo, IntBuffer labels) {
+        this.startHi = startHi;
+        this.startLo = startLo;
+        this.endHi = endHi;
+        this.endLo = endLo;
+        this.labels = labels;
+    }
+
+    /**
+     * 주소가 속한 구간 번호.
+     * @param hi 상위 64비트
+     * @param lo 하위 64비트
+     * @return 구간 번호, 없으면 -1
+     */
+    public int indexOf(long hi, long lo) {
+        int left = 0;
+        int right = labels.limit() - 1;
+        // 주소 이하인 start 중 가장 오른쪽 위치 탐색
+        while (left <= right) {
+            int mid = (left + right) >>> 1;
+            if (compare(startHi.get(mid), startLo.get(mid), hi, lo) <= 0) left = mid + 1;
+            else right = mid - 1;
+        }
+        return right >= 0 && compare(hi, lo, endHi.get(right), endLo.get(right)) <= 0 ? right : -1;
+    }
+
+    /**
+     * 주소의 라벨.
+     * @return 라벨, 속한 구간이 없으면 -1
+     */
+    public int labelOf(long hi, long lo) {
+        int i = indexOf(hi, lo);
+        return i < 0 ? -1 : labels.get(i);
+    }
+
+    public int size() {
+        return labels.limit();
+    }
+
+    public long startHi(int i) { return startHi.get(i); }
+
+    public long startLo(int i) { return startLo.get(i); }
+
+    public long endHi(int i) { return endHi.get(i); }
+
+    public long endLo(int i) { return endLo.get(i); }
+
+    public int label(int i) { return labels.get(i); }
+
+    /** 부호 없는 128비트 비교 */
+    static int compare(long aHi, long aLo, long bHi, long bLo) {
+        int c = Long.compareUnsigned(aHi, bHi);
+        return c != 0 ? c : Long.compareUnsigned(aLo, bLo);
+    }
+
+    /**
+     * 겹치는 구간을 라벨 우선순위로 칠해 테이블 생성 (컴파일 단계용).
+     * @param spans 입력 구간 (순서 무관, 시작/끝이 뒤집혀 있으면 바로잡는다)
+     * @return 서로소 구간 테이블
+     */
+    public static Ipv6Table paint(List<Span> spans) {
+        if (spans.isEmpty()) return EMPTY;
+
+        // 시작 지점에서 라벨 추가, 끝+1 지점에서 라벨 제거
+        record Event(long hi, long lo, int label, boolean add) {}
+        List<Event> events = new ArrayList<>(spans.size() * 2);
+        for (Span s : spans) {
+            boolean swap = compare(s.startHi(), s.startLo(), s.endHi(), s.endLo()) > 0;
+            long sHi = swap ? s.endHi() : s.startHi(), sLo = swap ? s.endLo() : s.startLo();
+            long eHi = swap ? s.startHi() : s.endHi(), eLo = swap ? s.startLo() : s.endLo();
+            events.add(new Event(sHi, sLo, s.label(), true));
+            if (eHi != -1L || eLo != -1L) {
+                long nLo = eLo + 1;
+                events.add(new Event(nLo == 0 ? eHi + 1 : eHi, nLo, s.label(), false));
+            }
+        }
+        events.sort(Comparator.comparing(Event::hi, Long::compareUnsigned).thenComparing(Event::lo, Long::compareUnsigned));
+
+        Builder out = new Builder();
+        TreeMap<Integer, Integer> active = new TreeMap<>();
+        int i = 0;
+        while (i < events.size()) {
+            long hi = events.get(i).hi(), lo = events.get(i).lo();
+            for (; i < events.size() && events.get(i).hi() == hi && events.get(i).lo() == lo; i++) {
+                Event e = events.get(i);
+                if (e.add()) active.merge(e.label(), 1, Integer::sum);
+                else active.computeIfPresent(e.label(), (k, c) -> c == 1 ? null : c - 1);
+            }
+            if (active.isEmpty()) continue;
+            // 다음 이벤트 직전까지(없으면 주소 공간 끝까지) 현재 최소 라벨로 칠한다
+            long endHi = -1L, endLo = -1L;
+            if (i < events.size()) {
+                endLo = events.get(i).lo() - 1;
+                endHi = events.get(i).lo() == 0 ? events.get(i).hi() - 1 : events.get(i).hi();
+            }
+            out.add(hi, lo, endHi, endLo, active.firstKey());
+        }
+        return out.build();
+    }
+
+    /** 정렬된 서로소 구간을 차례로 받아 이웃한 같은 라벨은 합친다 */
+    private static final class Builder {
+        private final List<long[]> bounds = new ArrayList<>();
+        private final List<Integer> labels = new ArrayList<>();
+
+        void add(long sHi, long sLo, long eHi, long eLo, int label) {
+            int n = labels.size();
+            if (n > 0 && labels.get(n - 1) == label) {
+                long[] prev = bounds.get(n - 1);
+                long nextLo = prev[3] + 1;
+                long nextHi = nextLo == 0 ? prev[2] + 1 : prev[2];
+                if (nextHi == sHi && nextLo == sLo) {
+                    prev[2] = eHi;
+                    prev[3] = eLo;
+                    return;
+                }
+            }
+            bounds.add(new long[]{sHi, sLo, eHi, eLo});
+            labels.add(label);
+        }
+
+        Ipv6Table build() {
+            int n = labels.size();
+            if (n == 0) return EMPTY;
+            long[] sHi = new long[n], sLo = new long[n], eHi = new long[n], eLo = new long[n];
+            int[] l = new int[n];
+            for (int i = 0; i < n; i++) {
+                long[] b = bounds.get(i);
+                sHi[i] = b[0];
+                sLo[i] = b[1];
+                eHi[i] = b[2];
+                eLo[i] = b[3];
+                l[i] = labels.get(i);
+            }
+            return new Ipv6Table(LongBuffer.wrap(sHi), LongBuffer.wrap(sLo),
+                    LongBuffer.wrap(eHi), LongBuffer.wrap(eLo), IntBuffer.wrap(l));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Ipv6Table[size=" + size() + "]";
+    }
+}
@@ -0,0 +1,234 @@
+package com.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 컴파일된 규칙 조회기 앞뒤에 가져온 목록({@link ImportedList})을 겹친 조회기.
+ *
+ * <p>우선순위: 거부 목록(설정 순서) → 기본 조회기(user → default) → 허용 목록(설정 순서).
+ * 목록은 트라이에 넣지 않고 각자의 {@link IntervalTable}/{@link Ipv6Table}에서 이진 탐색하므로
+ * 수백만 항목이어도 컴파일은 정렬 한 번이다.</p>
+ *
+ * <p>규칙 id는 기본 조회기 규칙 뒤에 거부 목록, 허용 목록 순으로 이어 붙인다.
+ * 그래서 목록 규칙의 id는 우선순위를 뜻하지 않는다({@link #forEachSegment}가 위 순서로 칠한다).</p>
+ */
+final class LayeredMatcher implements RuleMatcher {
+
+    private static final long MAX = 0xFFFFFFFFL;
+
+    private final RuleMatcher base;
+    private final List<ImportedList> lists;
+    private final ImportedList[] deny;
+    private final Rule[] denyRules;
+    private final ImportedList[] allow;
+    private final Rule[] allowRules;
+    private final List<Rule> rules;
+
+    private LayeredMatcher(RuleMatcher base, List<ImportedList> lists) {
+        this.base = base;
+        this.lists = List.copyOf(lists);
+        this.deny = lists.stream().filter(l -> l.source().deny()).toArray(ImportedList[]::new);
+        this.allow = lists.stream().filter(l -> !l.source().deny()).toArray(ImportedList[]::new);
+        List<Rule> all = new ArrayList<>(base.rules());
+        this.denyRules = addRules(all, deny);
+        this.allowRules = addRules(all, allow);
+        this.rules = List.copyOf(all);
+    }
+
+    /**
+     * @param base  기본 조회기
+     * @param lists 가져온 목록 (비어 있으면 base 그대로)
+     */
+    static RuleMatcher of(RuleMatcher base, List<ImportedList> lists) {
+        return lists.isEmpty() ? base : new LayeredMatcher(base, lists);
+    }
+
+    private static Rule[] addRules(List<Rule> all, ImportedList[] lists) {
+        Rule[] out = new Rule[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            out[i] = new Rule(all.size(), lists[i].source().token(), RuleSource.IMPORT);
+            all.add(out[i]);
+        }
+        return out;
+    }
+
+    /** 기본 조회기 */
+    RuleMatcher base() {
+        return base;
+    }
+
+    /** 가져온 목록 (설정 순서) */
+    List<ImportedList> lists() {
+        return lists;
+    }
+
+    @Override
+    public Rule match(int ip) {
+        for (int i = 0; i < deny.length; i++) {
+            if (deny[i].ipv4().contains(ip)) return denyRules[i];
+        }
+        Rule hit = base.match(ip);
+        if (hit != null) return hit;
+        for (int i = 0; i < allow.length; i++) {
+            if (allow[i].ipv4().contains(ip)) return allowRules[i];
+        }
+        return null;
+    }
+
+    @Override
+    public Rule match6(long hi, long lo) {
+        for (int i = 0; i < deny.length; i++) {
+            if (deny[i].ipv6().indexOf(hi, lo) >= 0) return denyRules[i];
+        }
+        Rule hit = base.match6(hi, lo);
+        if (hit != null) return hit;
+        for (int i = 0; i < allow.length; i++) {
+            if (allow[i].ipv6().indexOf(hi, lo) >= 0) return allowRules[i];
+        }
+        return null;
+    }
+
+    @Override
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * 층마다 서로소 구간을 하나의 커서로 훑으며, 현재 위치를 덮는 가장 높은 층의 구간을 내보낸다.
+     * 구간 끝은 그 구간의 끝과 더 높은 층의 다음 시작 중 앞선 쪽이다. 층 수를 k라 하면 경계 하나에 O(k)다.
+     */
+    @Override
+    public void forEachSegment(PrefixTrie.SegmentSink sink) {
+        Layer[] layers = new Layer[deny.length + 1 + allow.length];
+        int k = 0;
+        for (int i = 0; i < deny.length; i++) layers[k++] = new Layer(deny[i].ipv4(), denyRules[i].id());
+        layers[k++] = Layer.of(base);
+        for (int i = 0; i < allow.length; i++) layers[k++] = new Layer(allow[i].ipv4(), allowRules[i].id());
+
+        int[] cur = new int[layers.length];
+        long[] pending = {-1, -1, -1}; // start, end, ruleId
+        long pos = 0;
+        while (pos <= MAX) {
+            int winner = -1;
+            long end = MAX;
+            for (int s = 0; s < layers.length && winner < 0; s++) {
+                Layer l = layers[s];
+                int c = cur[s];
+                while (c < l.size && l.end(c) < pos) c++;
+                cur[s] = c;
+                if (c == l.size) continue;
+                long start = l.start(c);
+                if (start <= pos) {
+                    winner = s;
+                    end = Math.min(end, l.end(c));
+                } else {
+                    end = Math.min(end, start - 1);
+                }
+            }
+            if (winner >= 0) {
+                int id = layers[winner].id(cur[winner]);
+                if (pending[2] == id && pending[1] + 1 == pos) {
+                    pending[1] = end;
+                } else {
+                    if (pending[2] >= 0) sink.accept(pending[0], pending[1], (int) pending[2]);
+                    pending[0] = pos;
+                    pending[1] = end;
+                    pending[2] = id;
+                }
+            }
+            pos = end + 1;
+        }
+        if (pending[2] >= 0) sink.accept(pending[0], pending[1], (int) pending[2]);
+    }
+
+    /**
+     * 층 순서를 라벨로 삼아 칠한 뒤(작을수록 우선) 라벨을 규칙 id로 되돌린다.
+     * 거부 목록 i → i, 기본 규칙 id r → 거부 목록 수 + r, 허용 목록 j → 그 뒤.
+     */
+    @Override
+    public Ipv6Table ipv6Segments() {
+        int baseRules = base.rules().size();
+        int[] ruleOf = new int[deny.length + baseRules + allow.length];
+        List<Ipv6Table.Span> spans = new ArrayList<>();
+        int p = 0;
+        for (int i = 0; i < deny.length; i++, p++) {
+            ruleOf[p] = denyRules[i].id();
+            addSpans(spans, deny[i].ipv6(), p, false);
+        }
+        for (int r = 0; r < baseRules; r++) ruleOf[p + r] = r;
+        addSpans(spans, base.ipv6Segments(), p, true);
+        p += baseRules;
+        for (int i = 0; i < allow.length; i++, p++) {
+            ruleOf[p] = allowRules[i].id();
+            addSpans(spans, allow[i].ipv6(), p, false);
+        }
+        Ipv6Table painted = Ipv6Table.paint(spans);
+        List<Ipv6Table.Span> out = new ArrayList<>(painted.size());
+        for (int i = 0; i < painted.size(); i++) {
+            out.add(new Ipv6Table.Span(painted.startHi(i), painted.startLo(i), painted.endHi(i), painted.endLo(i),
+                    ruleOf[painted.label(i)]));
+        }
+        return Ipv6Table.paint(out);
+    }
+
+    /** 테이블 구간을 라벨 {@code offset}(keepLabels면 {@code offset + 원래 라벨})으로 추가 */
+    private static void addSpans(List<Ipv6Table.Span> spans, Ipv6Table t, int offset, boolean keepLabels) {
+        for (int i = 0; i < t.size(); i++) {
+            int label = keepLabels ? offset + t.label(i) : offset;
+            spans.add(new Ipv6Table.Span(t.startHi(i), t.startLo(i), t.endHi(i), t.endLo(i), label));
+        }
+    }
+
+    /** 한 층의 서로소 구간 (가져온 목록 테이블 또는 기본 조회기를 펼친 배열) */
+    private static final class Layer {
+        final IntervalTable table;
+        final int tableId;
+        long[] starts;
+        long[] ends;
+        int[] ids;
+        int size;
+
+        Layer(IntervalTable table, int id) {
+            this.table = table;
+            this.tableId = id;
+            this.size = table.size();
+        }
+
+        static Layer of(RuleMatcher matcher) {
+            Layer l = new Layer(IntervalTable.EMPTY, -1);
+            l.starts = new long[64];
+            l.ends = new long[64];
+            l.ids = new int[64];
+            matcher.forEachSegment((start, end, id) -> {
+                if (l.size == l.starts.length) {
+                    l.starts = Arrays.copyOf(l.starts, l.size * 2);
+                    l.ends = Arrays.copyOf(l.ends, l.size * 2);
+                    l.ids = Arrays.copyOf(l.ids, l.size * 2);
+                }
+                l.starts[l.size] = start;
+                l.ends[l.size] = end;
+                l.ids[l.size++] = id;
+            });
+            return l;
+        }
+
+        long start(int i) {
+            return ids == null ? table.start(i) : starts[i];
+        }
+
+        long end(int i) {
+            return ids == null ? table.end(i) : ends[i];
+        }
+
+        int id(int i) {
+            return ids == null ? tableId : ids[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LayeredMatcher[base=" + base + ", deny=" + deny.length + ", allow=" + allow.length + "]";
+    }
+}
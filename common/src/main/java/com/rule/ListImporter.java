@@ -0,0 +1,297 @@
+package com.rule;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 외부 대량 IP 목록(클라우드 CIDR 덤프, CSV 시작/끝 범위, ipset save 파일)을 줄 단위로 읽어 구간으로 내보낸다.
+ *
+ * <p>{@code EnvConfig.readStringSafe} + {@code normalizeRules}처럼 파일 전체를 문자열로 올리고 정규식을 돌리지 않는다.
+ * 한 줄씩 읽어 {@link Ipv4}/{@link Ipv6} 파서로 바로 검증하고, 구간을 {@link RuleTokens.IntervalSink}
+ * (예: {@link IntervalTable#builder()})와 {@link Ipv6Table.Sink}에 그대로 넘긴다.
+ * 읽는 쪽 메모리는 줄 하나 크기뿐이다.</p>
+ *
+ * <h2>줄 형식 (줄마다 자동 판별)</h2>
+ * <ul>
+ *   <li>{@code #} 또는 {@code ;} 뒤는 주석, 빈 줄은 무시</li>
+ *   <li>단일 주소 / CIDR / {@code 시작-끝} 범위 (IPv4, IPv6), 뒤따르는 공백 구분 열은 무시
+ *       (예: {@code 192.0.2.0/24 SBL123})</li>
+ *   <li>CSV: 앞 두 열이 같은 계열 주소(또는 IPv4 정수)면 시작/끝 범위, 아니면 첫 열을 위 형식으로 해석.
+ *       따옴표는 벗긴다. 헤더 줄은 건너뛴 줄로 센다.</li>
+ *   <li>ipset save: {@code create ...}는 무시, {@code add 세트 항목 [옵션]}의 항목({@code ,포트} 제외)</li>
+ *   <li>JSON 덤프(예: {@code "ip_prefix": "3.5.140.0/22",}): 따옴표 문자열 중 처음으로 해석되는 것</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * IntervalTable.Builder v4 = IntervalTable.builder();
+ * ListImporter.Stats s = ListImporter.read(Path.of("/data/aws-ranges.csv"), v4, (sHi, sLo, eHi, eLo) -> {});
+ * IntervalTable table = v4.build();
+ * }</pre>
+ */
+public final class ListImporter {
+    private ListImporter() {}
+
+    /**
+     * 읽기 결과.
+     * @param lines    읽은 줄 수(빈 줄/주석 포함)
+     * @param ipv4     IPv4 항목 수
+     * @param ipv6     IPv6 항목 수
+     * @param skipped  내용이 있지만 주소로 해석하지 못한 줄 수(헤더, JSON 구조 줄 포함)
+     */
+    public record Stats(long lines, long ipv4, long ipv6, long skipped) {
+        /** 가져온 항목 수 */
+        public long imported() {
+            return ipv4 + ipv6;
+        }
+    }
+
+    /**
+     * 파일 읽기 (UTF-8).
+     * @param file 목록 파일
+     * @param v4   IPv4 구간 수신자
+     * @param v6   IPv6 구간 수신자
+     * @return 읽기 결과
+     */
+    public static Stats read(Path file, RuleTokens.IntervalSink v4, Ipv6Table.Sink v6) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, v4, v6);
+        }
+    }
+
+    /**
+     * 입력을 끝까지 읽는다. 닫지는 않는다.
+     */
+    public static Stats read(BufferedReader reader, RuleTokens.IntervalSink v4, Ipv6Table.Sink v6) throws IOException {
+        Counter c = new Counter(v4, v6);
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines++;
+            int to = commentStart(line);
+            int from = skipSpace(line, 0, to);
+            to = trimEnd(line, from, to);
+            if (from == to) continue;
+            if (!parseLine(line, from, to, c)) c.skipped++;
+        }
+        return new Stats(lines, c.ipv4, c.ipv6, c.skipped);
+    }
+
+    /** 항목 하나 이상을 내보냈으면 true */
+    private static boolean parseLine(String s, int from, int to, Counter c) {
+        if (startsWithWord(s, from, to, "create")) return true;
+        if (startsWithWord(s, from, to, "add")) {
+            // add <세트> <항목>[,포트] [옵션...]
+            int set = skipSpace(s, from + 3, to);
+            int entry = skipSpace(s, wordEnd(s, set, to), to);
+            int end = wordEnd(s, entry, to);
+            int comma = indexOf(s, ',', entry, end);
+            return token(s, entry, comma < 0 ? end : comma, c);
+        }
+        int comma = indexOf(s, ',', from, to);
+        if (comma >= 0) {
+            int f0 = comma;
+            int next = indexOf(s, ',', comma + 1, to);
+            int f1 = next < 0 ? to : next;
+            if (range(s, from, f0, comma + 1, f1, c) || field(s, from, f0, c)) return true;
+        } else if (token(s, from, to, c) || token(s, from, wordEnd(s, from, to), c)) {
+            return true;
+        }
+        return indexOf(s, '"', from, to) >= 0 && quoted(s, from, to, c);
+    }
+
+    /** CSV 두 열이 시작/끝 주소(또는 IPv4 정수)면 범위 하나 */
+    private static boolean range(String s, int aFrom, int aTo, int bFrom, int bTo, Counter c) {
+        aFrom = unquoteFrom(s, aFrom, aTo);
+        aTo = unquoteTo(s, aFrom, aTo);
+        bFrom = unquoteFrom(s, bFrom, bTo);
+        bTo = unquoteTo(s, bFrom, bTo);
+        long a = v4OrNumber(s, aFrom, aTo);
+        long b = a == Ipv4.INVALID ? Ipv4.INVALID : v4OrNumber(s, bFrom, bTo);
+        if (b != Ipv4.INVALID) {
+            c.v4(a, b);
+            return true;
+        }
+        long[] x = c.a, y = c.b;
+        if (Ipv6.parse(s, aFrom, aTo, x) && Ipv6.parse(s, bFrom, bTo, y)) {
+            c.v6(x[0], x[1], y[0], y[1]);
+            return true;
+        }
+        return false;
+    }
+
+    /** CSV 첫 열 하나 */
+    private static boolean field(String s, int from, int to, Counter c) {
+        from = unquoteFrom(s, from, to);
+        return token(s, from, unquoteTo(s, from, to), c);
+    }
+
+    /** 따옴표 문자열을 차례로 시도 */
+    private static boolean quoted(String s, int from, int to, Counter c) {
+        int open = indexOf(s, '"', from, to);
+        while (open >= 0) {
+            int close = indexOf(s, '"', open + 1, to);
+            if (close < 0) return false;
+            if (token(s, open + 1, close, c)) return true;
+            open = indexOf(s, '"', close + 1, to);
+        }
+        return false;
+    }
+
+    /**
+     * 주소 / CIDR / {@code 시작-끝} 토큰 하나. 정규식 없이 {@link Ipv4}/{@link Ipv6} 파서로 바로 검증한다.
+     */
+    private static boolean token(String s, int from, int to, Counter c) {
+        from = skipSpace(s, from, to);
+        to = trimEnd(s, from, to);
+        if (from == to) return false;
+
+        int slash = indexOf(s, '/', from, to);
+        if (slash >= 0) {
+            int prefix = digits(s, slash + 1, to);
+            if (prefix < 0) return false;
+            long v = Ipv4.parse(s, from, slash);
+            if (v != Ipv4.INVALID) {
+                if (prefix > 32) return false;
+                long size = 1L << (32 - prefix);
+                long net = v & ~(size - 1);
+                c.v4(net, net + size - 1);
+                return true;
+            }
+            long[] a = c.a;
+            if (prefix > 128 || !Ipv6.parse(s, from, slash, a)) return false;
+            long maskHi = prefix >= 64 ? -1L : prefix == 0 ? 0L : -1L << (64 - prefix);
+            long maskLo = prefix <= 64 ? 0L : prefix == 128 ? -1L : -1L << (128 - prefix);
+            c.v6(a[0] & maskHi, a[1] & maskLo, a[0] | ~maskHi, a[1] | ~maskLo);
+            return true;
+        }
+
+        int dash = indexOf(s, '-', from, to);
+        if (dash >= 0) {
+            int aTo = trimEnd(s, from, dash);
+            int bFrom = skipSpace(s, dash + 1, to);
+            long a = Ipv4.parse(s, from, aTo);
+            long b = a == Ipv4.INVALID ? Ipv4.INVALID : Ipv4.parse(s, bFrom, to);
+            if (b != Ipv4.INVALID) {
+                c.v4(a, b);
+                return true;
+            }
+            long[] x = c.a, y = c.b;
+            if (Ipv6.parse(s, from, aTo, x) && Ipv6.parse(s, bFrom, to, y)) {
+                c.v6(x[0], x[1], y[0], y[1]);
+                return true;
+            }
+            return false;
+        }
+
+        long v = Ipv4.parse(s, from, to);
+        if (v != Ipv4.INVALID) {
+            c.v4(v, v);
+            return true;
+        }
+        long[] a = c.a;
+        if (!Ipv6.parse(s, from, to, a)) return false;
+        c.v6(a[0], a[1], a[0], a[1]);
+        return true;
+    }
+
+    /** 점 표기 IPv4 또는 0 ~ 2^32-1 정수 */
+    private static long v4OrNumber(String s, int from, int to) {
+        long v = Ipv4.parse(s, from, to);
+        if (v != Ipv4.INVALID || from == to || to - from > 10) return v;
+        long n = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') return Ipv4.INVALID;
+            n = n * 10 + (ch - '0');
+        }
+        return n <= 0xFFFFFFFFL ? n : Ipv4.INVALID;
+    }
+
+    /** 0 ~ 128 범위 10진수, 아니면 -1 */
+    private static int digits(String s, int from, int to) {
+        if (from == to || to - from > 3) return -1;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') return -1;
+            n = n * 10 + (ch - '0');
+        }
+        return n;
+    }
+
+    private static int commentStart(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '#' || ch == ';') return i;
+        }
+        return s.length();
+    }
+
+    private static boolean startsWithWord(String s, int from, int to, String word) {
+        int end = from + word.length();
+        return end < to && s.startsWith(word, from) && s.charAt(end) <= ' ';
+    }
+
+    private static int indexOf(String s, char ch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == ch) return i;
+        }
+        return -1;
+    }
+
+    private static int skipSpace(String s, int from, int to) {
+        while (from < to && s.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(String s, int from, int to) {
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        return to;
+    }
+
+    private static int wordEnd(String s, int from, int to) {
+        while (from < to && s.charAt(from) > ' ') from++;
+        return from;
+    }
+
+    private static int unquoteFrom(String s, int from, int to) {
+        from = skipSpace(s, from, to);
+        return from < to && s.charAt(from) == '"' ? from + 1 : from;
+    }
+
+    private static int unquoteTo(String s, int from, int to) {
+        to = trimEnd(s, from, to);
+        return to > from && s.charAt(to - 1) == '"' ? to - 1 : to;
+    }
+
+    /** 수신자 + 항목 수 + 파싱용 버퍼 (줄마다 새로 만들지 않는다) */
+    private static final class Counter {
+        final RuleTokens.IntervalSink v4Sink;
+        final Ipv6Table.Sink v6Sink;
+        final long[] a = new long[2];
+        final long[] b = new long[2];
+        long ipv4, ipv6, skipped;
+
+        Counter(RuleTokens.IntervalSink v4Sink, Ipv6Table.Sink v6Sink) {
+            this.v4Sink = v4Sink;
+            this.v6Sink = v6Sink;
+        }
+
+        void v4(long start, long end) {
+            v4Sink.accept(start, end);
+            ipv4++;
+        }
+
+        void v6(long sHi, long sLo, long eHi, long eLo) {
+            if (Ipv6Table.compare(sHi, sLo, eHi, eLo) > 0) {
+                v6Sink.accept(eHi, eLo, sHi, sLo);
+            } else {
+                v6Sink.accept(sHi, sLo, eHi, eLo);
+            }
+            ipv6++;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.constant.RegexConst.RULE_SEP;
+
+/**
+ * IPv4 접두사(prefix) 이진 트라이.
+ *
+ * <p>user 규칙과 default 규칙을 한 번에 컴파일해 두고, 조회 한 번으로
+ * <b>허용 여부 + 걸린 규칙 + 출처</b>를 함께 돌려준다.
+ * IPv6 규칙은 같은 id 체계로 {@link Ipv6Table}에 칠해 두고 {@link #match6}로 조회한다.</p>
+ *
+ * <h2>컴파일</h2>
+ * <ul>
+ *   <li>토큰은 {@link RuleTokens#expand}로 구간이 되고, 구간은 다시 CIDR 접두사 묶음으로 쪼개진다
+ *       (예: {@code 10.0.0.1-10.0.0.6} → {@code .1/32, .2/31, .4/31, .6/32}).</li>
+ *   <li>각 접두사의 끝 노드에 {@link Rule}을 단다. 규칙은 거부(user → default) → 허용(user → default),
+ *       각각 작성 순서대로 넣고 이미 규칙이 달린 노드는 덮어쓰지 않는다(겹친 규칙은 노드에 따로 남긴다).</li>
+ * </ul>
+ *
+ * <h2>실행 중 변경</h2>
+ * <p>트라이는 불변이다. {@link #plus}/{@link #minus}는 바뀌는 접두사 경로(최대 32단계)의 노드만 복사하고
+ * 나머지 노드는 원래 트라이와 공유한 새 트라이를 돌려준다. 더한 규칙은 맨 뒤 id를 받고, 지운 규칙은
+ * id 자리만 남은 채 아무것도 매칭하지 않는다(id = 목록 인덱스 유지). IPv6 구간은 기존 구간 위에 새 구간만 다시 칠한다.</p>
+ *
+ * <h2>조회</h2>
+ * <p>최상위 비트부터 최대 32단계 내려가며 경로 위의 규칙 중 우선순위가 가장 높은 것({@link Rule#outranks})을 고른다.
+ * 가장 깊은(가장 긴) 접두사가 아니라 우선순위로 고르는 이유는,
+ * 기존 "user 규칙 → default 규칙 순서로 처음 맞는 토큰" 사유와 결과를 같게 하기 위해서다.
+ * 거부 규칙은 id가 모두 허용 규칙보다 작으므로 겹치면 항상 거부가 이긴다.
+ * 걸린 규칙이 거부인지는 {@link Rule#deny()}로 확인한다.</p>
+ */
+public final class PrefixTrie implements RuleMatcher {
+
+    /** 매칭 실패 시 사유 */
+    public static final String REASON_NO_MATCH = "denied:no-match";
+
+    private static final class Node {
+        Node zero;
+        Node one;
+        Rule rule;
+        /** 같은 접두사에 겹친 나머지 규칙 (대부분 null, 규칙을 지울 때 다음 순위를 올린다) */
+        Rule[] more;
+
+        Node copy() {
+            Node n = new Node();
+            n.zero = zero;
+            n.one = one;
+            n.rule = rule;
+            n.more = more;
+            return n;
+        }
+    }
+
+    /** 접두사 하나를 받는 콜백 */
+    @FunctionalInterface
+    private interface PrefixSink {
+        void accept(int network, int prefixLen);
+    }
+
+    private final Node root;
+    private final Ipv6Table v6;
+    private final List<Rule> rules;
+    /** 지운 규칙 id ({@link #minus}) */
+    private final BitSet removed;
+
+    private PrefixTrie(Node root, Ipv6Table v6, List<Rule> rules, BitSet removed) {
+        this.root = root;
+        this.v6 = v6;
+        this.rules = rules;
+        this.removed = removed;
+    }
+
+    /**
+     * user/default 규칙 문자열을 컴파일.
+     * @param userRules    allow-ip.txt 규칙(정규화 완료, null 허용)
+     * @param defaultRules DEFAULT_IP 규칙(정규화 완료, null 허용)
+     * @return 컴파일된 트라이
+     */
+    public static PrefixTrie compile(String userRules, String defaultRules) {
+        return compile(userRules, defaultRules, host -> List.of());
+    }
+
+    /**
+     * user/default 규칙 문자열을 컴파일. {@code host:} 규칙은 {@code hosts}가 돌려준 주소로 펼친다
+     * (주소를 아직 모르면 규칙만 등록되고 아무것도 매칭하지 않는다).
+     * @param userRules    allow-ip.txt 규칙(정규화 완료, null 허용)
+     * @param defaultRules DEFAULT_IP 규칙(정규화 완료, null 허용)
+     * @param hosts        호스트 이름 → IPv4/IPv6 리터럴 (I/O 없이 캐시만 읽어야 한다, 예: {@link HostRefresher#addresses})
+     * @return 컴파일된 트라이
+     */
+    public static PrefixTrie compile(String userRules, String defaultRules, Function<String, List<String>> hosts) {
+        Node root = new Node();
+        List<Ipv6Table.Span> spans = new ArrayList<>();
+        List<Rule> rules = new ArrayList<>();
+        // 거부 규칙을 먼저 넣어 id를 앞당긴다 → 경로상 최소 id 선택만으로 "거부 우선"이 된다
+        addAll(root, spans, rules, hosts, userRules, RuleSource.USER, true);
+        addAll(root, spans, rules, hosts, defaultRules, RuleSource.DEFAULT, true);
+        addAll(root, spans, rules, hosts, userRules, RuleSource.USER, false);
+        addAll(root, spans, rules, hosts, defaultRules, RuleSource.DEFAULT, false);
+        return new PrefixTrie(root, Ipv6Table.paint(spans), List.copyOf(rules), new BitSet());
+    }
+
+    private static void addAll(Node root, List<Ipv6Table.Span> spans, List<Rule> rules,
+                               Function<String, List<String>> hosts, String raw, RuleSource source, boolean deny) {
+        if (raw == null || raw.isBlank()) return;
+        for (String part : RULE_SEP.split(raw)) {
+            String token = part == null ? "" : part.trim();
+            if (token.isEmpty() || RuleTokens.isDeny(token) != deny) continue;
+            Rule rule = new Rule(rules.size(), token, source);
+            String body = RuleTokens.body(token);
+            boolean ok;
+            if (RuleTokens.isHostToken(body)) {
+                String host = RuleTokens.hostName(body);
+                ok = host != null;
+                if (ok) {
+                    for (String address : hosts.apply(host)) add(root, spans, address, rule);
+                }
+            } else {
+                ok = add(root, spans, body, rule);
+            }
+            if (ok) rules.add(rule);
+        }
+    }
+
+    private static boolean add(Node root, List<Ipv6Table.Span> spans, String body, Rule rule) {
+        return RuleTokens.isIpv6Token(body)
+                ? RuleTokens.expand6(body, (sHi, sLo, eHi, eLo) ->
+                        spans.add(new Ipv6Table.Span(sHi, sLo, eHi, eLo, rule.id())))
+                : RuleTokens.expand(body, (start, end) ->
+                        forEachPrefix(start, end, (network, len) -> place(descend(root, network, len, null), rule)));
+    }
+
+    /** [start,end] 구간을 최소 개수의 CIDR 접두사로 나눈다 */
+    private static void forEachPrefix(long start, long end, PrefixSink sink) {
+        long cur = start;
+        while (cur <= end) {
+            // cur 정렬 기준으로 가능한 가장 큰 블록, 단 end를 넘지 않게
+            int size = (cur == 0) ? 32 : Long.numberOfTrailingZeros(cur);
+            while (size > 0 && cur + (1L << size) - 1 > end) size--;
+            sink.accept((int) cur, 32 - size);
+            cur += 1L << size;
+        }
+    }
+
+    /**
+     * 접두사의 끝 노드까지 내려간다(없는 노드는 만든다).
+     * @param fresh null이 아니면 경로 위의 노드 중 여기 없는 것은 복사해 갈아 끼운다(경로 복사). root는 이미 복사본이어야 한다.
+     */
+    private static Node descend(Node root, int network, int prefixLen, Set<Node> fresh) {
+        Node node = root;
+        for (int i = 0; i < prefixLen; i++) {
+            boolean bit = ((network >>> (31 - i)) & 1) != 0;
+            Node next = bit ? node.one : node.zero;
+            if (next == null || (fresh != null && !fresh.contains(next))) {
+                next = next == null ? new Node() : next.copy();
+                if (fresh != null) fresh.add(next);
+                if (bit) node.one = next;
+                else node.zero = next;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /** 노드에 규칙을 단다. 우선순위가 더 높은 규칙이 대표, 나머지는 {@code more}에 남긴다 */
+    private static void place(Node node, Rule rule) {
+        if (node.rule == null) {
+            node.rule = rule;
+            return;
+        }
+        Rule keep = node.rule;
+        if (rule.outranks(keep)) {
+            node.rule = rule;
+            rule = keep;
+        }
+        node.more = node.more == null ? new Rule[]{rule} : append(node.more, rule);
+    }
+
+    /** 노드에서 규칙을 뗀다. 대표였으면 남은 규칙 중 최우선을 올린다 */
+    private static void drop(Node node, Rule rule) {
+        Rule[] more = node.more;
+        if (more == null) {
+            if (node.rule == rule) node.rule = null;
+            return;
+        }
+        Rule out = rule;
+        if (node.rule == rule) {
+            int best = 0;
+            for (int i = 1; i < more.length; i++) if (more[i].outranks(more[best])) best = i;
+            node.rule = more[best];
+            out = more[best];
+        }
+        Rule taken = out;
+        Rule[] rest = Arrays.stream(more).filter(r -> r != taken).toArray(Rule[]::new);
+        node.more = rest.length == 0 ? null : rest;
+    }
+
+    private static Rule[] append(Rule[] a, Rule r) {
+        Rule[] out = Arrays.copyOf(a, a.length + 1);
+        out[a.length] = r;
+        return out;
+    }
+
+    /**
+     * 규칙 하나를 더한 새 트라이. 이 트라이는 그대로다.
+     * {@code host:}/시간대 토큰은 받지 않는다(주소/시각이 바뀌면 다시 컴파일해야 한다).
+     * @param token  규칙 토큰 (예: {@code !203.0.113.7}, {@code 2001:db8::/48})
+     * @param source 출처
+     * @return 새 트라이, 토큰 형식이 틀렸으면 null
+     */
+    PrefixTrie plus(String token, RuleSource source) {
+        String body = RuleTokens.body(token);
+        if (RuleTokens.isHostToken(body) || RuleSchedule.hasWindows(token)) return null;
+        Rule rule = new Rule(rules.size(), token, source);
+        List<Rule> nextRules = new ArrayList<>(rules.size() + 1);
+        nextRules.addAll(rules);
+        nextRules.add(rule);
+
+        if (RuleTokens.isIpv6Token(body)) {
+            List<Ipv6Table.Span> spans = new ArrayList<>();
+            for (int i = 0; i < v6.size(); i++) {
+                spans.add(new Ipv6Table.Span(v6.startHi(i), v6.startLo(i), v6.endHi(i), v6.endLo(i), v6.label(i)));
+            }
+            if (!RuleTokens.expand6(body, (sHi, sLo, eHi, eLo) ->
+                    spans.add(new Ipv6Table.Span(sHi, sLo, eHi, eLo, rule.id())))) return null;
+            // 기존 구간의 라벨은 이미 그 구간의 최우선 규칙이다 → 새 구간과만 겨루면 된다
+            return new PrefixTrie(root, paint6(spans, nextRules), List.copyOf(nextRules), removed);
+        }
+
+        Node nextRoot = root.copy();
+        Set<Node> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+        fresh.add(nextRoot);
+        boolean ok = RuleTokens.expand(body, (start, end) ->
+                forEachPrefix(start, end, (network, len) -> place(descend(nextRoot, network, len, fresh), rule)));
+        return ok ? new PrefixTrie(nextRoot, v6, List.copyOf(nextRules), removed) : null;
+    }
+
+    /**
+     * 규칙들을 뗀 새 트라이. 이 트라이는 그대로다. 뗀 규칙은 id 자리만 남는다.
+     * IPv4 규칙은 그 접두사 경로만 복사하고, IPv6 규칙이 있으면 남은 IPv6 규칙으로 구간을 다시 칠한다.
+     * @param gone  뗄 규칙 ({@link #rules()}의 원소, {@code host:}/시간대 규칙 제외)
+     * @param hosts {@code host:} 규칙의 주소 (IPv6 다시 칠하기용, 캐시 조회만)
+     * @return 새 트라이
+     */
+    PrefixTrie minus(Collection<Rule> gone, Function<String, List<String>> hosts) {
+        BitSet nextRemoved = (BitSet) removed.clone();
+        Node nextRoot = root.copy();
+        Set<Node> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+        fresh.add(nextRoot);
+        boolean v4 = false;
+        boolean repaint = false;
+        for (Rule rule : gone) {
+            nextRemoved.set(rule.id());
+            String body = RuleTokens.body(rule.token());
+            if (RuleTokens.isIpv6Token(body)) {
+                repaint = true;
+                continue;
+            }
+            v4 = true;
+            RuleTokens.expand(body, (start, end) ->
+                    forEachPrefix(start, end, (network, len) -> drop(descend(nextRoot, network, len, fresh), rule)));
+        }
+        Ipv6Table nextV6 = v6;
+        if (repaint) {
+            List<Ipv6Table.Span> spans = new ArrayList<>();
+            for (Rule r : rules) {
+                if (!nextRemoved.get(r.id())) spans6(spans, r, hosts);
+            }
+            nextV6 = paint6(spans, rules);
+        }
+        return new PrefixTrie(v4 ? nextRoot : root, nextV6, rules, nextRemoved);
+    }
+
+    /** 규칙의 IPv6 구간 (host: 규칙은 IPv6 주소만) */
+    private static void spans6(List<Ipv6Table.Span> spans, Rule rule, Function<String, List<String>> hosts) {
+        String body = RuleTokens.body(rule.token());
+        Ipv6Table.Sink sink = (sHi, sLo, eHi, eLo) -> spans.add(new Ipv6Table.Span(sHi, sLo, eHi, eLo, rule.id()));
+        if (RuleTokens.isHostToken(body)) {
+            String host = RuleTokens.hostName(body);
+            if (host == null) return;
+            for (String address : hosts.apply(host)) {
+                if (RuleTokens.isIpv6Token(address)) RuleTokens.expand6(address, sink);
+            }
+        } else if (RuleTokens.isIpv6Token(body)) {
+            RuleTokens.expand6(body, sink);
+        }
+    }
+
+    /**
+     * 라벨(규칙 id)이 붙은 구간을 {@link Rule#outranks} 순서로 칠한다.
+     * 거부 규칙 id r → r, 허용 규칙 id r → 규칙 수 + r 로 바꿔 칠한 뒤 되돌린다.
+     */
+    private static Ipv6Table paint6(List<Ipv6Table.Span> spans, List<Rule> rules) {
+        int n = rules.size();
+        List<Ipv6Table.Span> ranked = new ArrayList<>(spans.size());
+        for (Ipv6Table.Span s : spans) {
+            int rank = rules.get(s.label()).deny() ? s.label() : n + s.label();
+            ranked.add(new Ipv6Table.Span(s.startHi(), s.startLo(), s.endHi(), s.endLo(), rank));
+        }
+        Ipv6Table painted = Ipv6Table.paint(ranked);
+        List<Ipv6Table.Span> out = new ArrayList<>(painted.size());
+        for (int i = 0; i < painted.size(); i++) {
+            int rank = painted.label(i);
+            out.add(new Ipv6Table.Span(painted.startHi(i), painted.startLo(i), painted.endHi(i), painted.endLo(i),
+                    rank >= n ? rank - n : rank));
+        }
+        return Ipv6Table.paint(out);
+    }
+
+    /** 지운 규칙인지 ({@link #minus}) */
+    boolean isRemoved(Rule rule) {
+        return removed.get(rule.id());
+    }
+
+    /** 지운 규칙 수 (id 자리만 남은 것) */
+    int removedCount() {
+        return removed.cardinality();
+    }
+
+    @Override
+    public Rule match(int ip) {
+        Node node = root;
+        Rule best = node.rule;
+        for (int i = 31; i >= 0 && node != null; i--) {
+            node = ((ip >>> i) & 1) != 0 ? node.one : node.zero;
+            if (node != null && node.rule != null && (best == null || node.rule.outranks(best))) {
+                best = node.rule;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public Rule match6(long hi, long lo) {
+        int id = v6.labelOf(hi, lo);
+        return id < 0 ? null : rules.get(id);
+    }
+
+    @Override
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /** IPv6 규칙 구간 테이블 (라벨 = 최우선 규칙 id) */
+    public Ipv6Table ipv6() {
+        return v6;
+    }
+
+    @Override
+    public Ipv6Table ipv6Segments() {
+        return v6;
+    }
+
+    /** 구간 하나와 그 구간의 최우선 규칙 id를 받는 콜백 */
+    @FunctionalInterface
+    public interface SegmentSink {
+        void accept(long start, long end, int ruleId);
+    }
+
+    /**
+     * 주소 공간을 "최우선 규칙이 같은 구간"으로 칠해 오름차순으로 내보낸다(매칭 없는 구간은 생략).
+     * 이웃한 구간의 규칙이 같으면 하나로 합친다. 결과로 이진 탐색 테이블을 만들면 {@link #match(int)}와 같은 답을 낸다.
+     * @param sink 구간 수신자
+     */
+    @Override
+    public void forEachSegment(SegmentSink sink) {
+        long[] pending = {-1, -1, -1}; // start, end, ruleId
+        walk(root, 0L, 32, null, (start, end, id) -> {
+            if (pending[2] == id && pending[1] + 1 == start) {
+                pending[1] = end;
+                return;
+            }
+            if (pending[2] >= 0) sink.accept(pending[0], pending[1], (int) pending[2]);
+            pending[0] = start;
+            pending[1] = end;
+            pending[2] = id;
+        });
+        if (pending[2] >= 0) sink.accept(pending[0], pending[1], (int) pending[2]);
+    }
+
+    /** node가 덮는 [base, base + 2^bits) 를 경로상 최우선 규칙(best)으로 칠한다 */
+    private static void walk(Node node, long base, int bits, Rule best, SegmentSink out) {
+        if (node == null) {
+            if (best != null) out.accept(base, base + (1L << bits) - 1, best.id());
+            return;
+        }
+        if (node.rule != null && (best == null || node.rule.outranks(best))) best = node.rule;
+        if (bits == 0 || (node.zero == null && node.one == null)) {
+            if (best != null) out.accept(base, base + (1L << bits) - 1, best.id());
+            return;
+        }
+        long half = 1L << (bits - 1);
+        walk(node.zero, base, bits - 1, best, out);
+        walk(node.one, base + half, bits - 1, best, out);
+    }
+}
@@ -0,0 +1,34 @@
+package com.rule;
+
+/**
+ * 컴파일된 규칙 하나.
+ *
+ * @param id     우선순위 겸 식별자(작을수록 우선, user → default, 각 출처 안에서는 작성 순서).
+ *               가져온 목록({@link RuleSource#IMPORT})과 실행 중 더한 규칙은 예외로 맨 뒤 번호를 받는다.
+ * @param token  원본 토큰 (예: {@code 10.0.0.0/8}, 거부 규칙은 {@code !10.1.2.3})
+ * @param source 출처
+ * @param deny   거부 규칙이면 true (걸리면 불허)
+ * @param reason 매칭 시 그대로 쓰는 사유 문자열 (예: {@code allowed:user(10.0.0.0/8)},
+ *               {@code denied:user(!10.1.2.3)}), 컴파일 시 한 번 생성
+ */
+public record Rule(int id, String token, RuleSource source, boolean deny, String reason) {
+
+    /** 거부 여부와 사유는 토큰에서 정한다 */
+    public Rule(int id, String token, RuleSource source) {
+        this(id, token, source, RuleTokens.isDeny(token),
+                (RuleTokens.isDeny(token) ? "denied:" : "allowed:") + source.label() + "(" + token + ")");
+    }
+
+    /**
+     * 이 규칙이 {@code other}보다 우선인지: 거부가 허용보다, 같은 종류면 id가 작은 쪽.
+     * 컴파일 결과는 거부 id가 모두 앞이라 id 비교와 같고, 실행 중 맨 뒤 id로 더한 거부 규칙도 허용 규칙을 이긴다.
+     */
+    public boolean outranks(Rule other) {
+        return deny != other.deny ? deny : id < other.id;
+    }
+
+    /** 걸렸을 때 허용인지 */
+    public boolean allows() {
+        return !deny;
+    }
+}
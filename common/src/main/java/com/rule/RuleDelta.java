@@ -0,0 +1,315 @@
+package com.rule;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 두 {@link RuleImage} 사이의 바이너리 델타 (추가/삭제된 구간 + 바뀐 규칙 표 구간).
+ *
+ * <p>규칙 파일 한 줄을 고치면 규칙 id가 그 뒤로 밀리므로, 규칙 표는 "앞부분 유지, 가운데 교체, 뒷부분 유지"로 보내고
+ * 받는 쪽이 예전 id를 새 id로 옮긴다. 구간은 옮긴 뒤에도 같은 것은 보내지 않고, 삭제는 시작 주소만 보낸다.
+ * 수십만 항목 목록에서 한 줄을 고쳐도 메시지는 바뀐 구간 몇 개 크기다. 기준이 없으면({@code fromVersion = 0})
+ * {@link RuleImage#EMPTY}와의 델타 = 전체 전송이다.</p>
+ *
+ * <h2>형식 (빅엔디언)</h2>
+ * <pre>
+ * int   MAGIC "IPRD", int FORMAT_VERSION
+ * long  epoch, long fromVersion, long toVersion, int 결과 이미지 CRC32
+ * int   유지할 앞 규칙 수 p, int 버릴 규칙 수 d, int 새 규칙 수 a, 새 규칙 a개: byte 출처, int 길이, UTF-8 토큰
+ * int   삭제 IPv4 구간 수, 시작[]          int 추가 IPv4 구간 수, (시작, 끝, 규칙 id)[]
+ * int   삭제 IPv6 구간 수, (시작 hi, lo)[]  int 추가 IPv6 구간 수, (시작 hi, lo, 끝 hi, lo, 규칙 id)[]
+ * </pre>
+ * <p>IPv4 값은 {@link RuleImage}처럼 부호 비트를 뒤집은 값이다. 구간 목록은 모두 시작 주소 오름차순.</p>
+ */
+public final class RuleDelta {
+    private RuleDelta() {}
+
+    private static final int MAGIC = 0x49505244; // "IPRD"
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * 메시지 머리.
+     * @param epoch       보내는 쪽 프로세스 식별값 (재시작하면 바뀐다)
+     * @param fromVersion 기준 버전 (0 = 전체)
+     * @param toVersion   결과 버전
+     * @param crc         결과 이미지 {@link RuleImage#crc()}
+     */
+    public record Header(long epoch, long fromVersion, long toVersion, int crc) {}
+
+    /**
+     * 델타 만들기.
+     * @param from 기준 이미지 ({@code fromVersion}이 0이면 무시하고 {@link RuleImage#EMPTY})
+     * @param to   결과 이미지
+     */
+    public static byte[] encode(long epoch, long fromVersion, RuleImage from, long toVersion, RuleImage to) {
+        RuleImage base = fromVersion == 0 ? RuleImage.EMPTY : from;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(epoch);
+            out.writeLong(fromVersion);
+            out.writeLong(toVersion);
+            out.writeInt(to.crc());
+
+            List<Rule> oldRules = base.rules(), newRules = to.rules();
+            int p = 0;
+            while (p < oldRules.size() && p < newRules.size() && sameRule(oldRules.get(p), newRules.get(p))) p++;
+            int s = 0;
+            while (s < oldRules.size() - p && s < newRules.size() - p
+                    && sameRule(oldRules.get(oldRules.size() - 1 - s), newRules.get(newRules.size() - 1 - s))) s++;
+            int dropped = oldRules.size() - p - s;
+            int added = newRules.size() - p - s;
+            out.writeInt(p);
+            out.writeInt(dropped);
+            out.writeInt(added);
+            for (Rule r : newRules.subList(p, p + added)) {
+                byte[] token = r.token().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(r.source().ordinal());
+                out.writeInt(token.length);
+                out.write(token);
+            }
+            IdMap map = new IdMap(p, dropped, added, oldRules.size());
+            diff4(base, to, map, out);
+            diff6(base, to, map, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // 메모리 스트림이라 일어나지 않는다
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 머리만 읽기.
+     * @throws IOException 형식/버전이 다를 때
+     */
+    public static Header header(byte[] message) throws IOException {
+        return header(new DataInputStream(new ByteArrayInputStream(message)));
+    }
+
+    private static Header header(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not a rule delta");
+        int format = in.readInt();
+        if (format != FORMAT_VERSION) throw new IOException("unsupported rule delta format " + format);
+        return new Header(in.readLong(), in.readLong(), in.readLong(), in.readInt());
+    }
+
+    /**
+     * 델타 적용.
+     * @param base    기준 이미지 (머리의 {@code fromVersion}이 0이면 무시)
+     * @param message {@link #encode}가 만든 메시지
+     * @return 결과 이미지 (CRC 확인 완료)
+     * @throws IOException 형식이 깨졌거나 기준이 달라 결과 CRC가 맞지 않을 때 (전체를 다시 받으면 된다)
+     */
+    public static RuleImage apply(RuleImage base, byte[] message) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+        Header h = header(in);
+        RuleImage from = h.fromVersion() == 0 ? RuleImage.EMPTY : base;
+        try {
+            int p = in.readInt(), dropped = in.readInt(), added = in.readInt();
+            List<Rule> oldRules = from.rules();
+            if (p < 0 || dropped < 0 || added < 0 || p + dropped > oldRules.size()) {
+                throw new IOException("rule delta does not fit base (" + oldRules.size() + " rules)");
+            }
+            RuleSource[] sources = RuleSource.values();
+            List<Rule> rules = new ArrayList<>(oldRules.size() - dropped + added);
+            rules.addAll(oldRules.subList(0, p));
+            for (int i = 0; i < added; i++) {
+                RuleSource src = sources[in.readUnsignedByte()];
+                byte[] token = new byte[in.readInt()];
+                in.readFully(token);
+                rules.add(new Rule(rules.size(), new String(token, StandardCharsets.UTF_8), src));
+            }
+            for (Rule r : oldRules.subList(p + dropped, oldRules.size())) {
+                rules.add(new Rule(rules.size(), r.token(), r.source()));
+            }
+            IdMap map = new IdMap(p, dropped, added, oldRules.size());
+
+            int[][] v4 = apply4(from, map, in, rules.size());
+            long[][] v6 = new long[4][];
+            int[] labels = apply6(from, map, in, rules.size(), v6);
+            RuleImage next = new RuleImage(v4[0], v4[1], v4[2], v6[0], v6[1], v6[2], v6[3], labels, rules);
+            if (next.crc() != h.crc()) throw new IOException("rule delta result checksum mismatch");
+            return next;
+        } catch (RuntimeException e) {
+            throw new IOException("corrupt rule delta", e);
+        }
+    }
+
+    private static boolean sameRule(Rule a, Rule b) {
+        return a.source() == b.source() && a.token().equals(b.token());
+    }
+
+    /** 예전 규칙 id → 새 id (버린 규칙이면 -1) */
+    private record IdMap(int prefix, int dropped, int added, int oldSize) {
+        int map(int id) {
+            if (id < prefix) return id;
+            if (id < prefix + dropped) return -1;
+            if (id >= oldSize) return -1;
+            return id - dropped + added;
+        }
+    }
+
+    private static void diff4(RuleImage a, RuleImage b, IdMap map, DataOutputStream out) throws IOException {
+        int[] removed = new int[a.starts.length];
+        int[] addedAt = new int[b.starts.length];
+        int r = 0, n = 0;
+        int i = 0, j = 0;
+        while (i < a.starts.length || j < b.starts.length) {
+            if (i < a.starts.length && j < b.starts.length && a.starts[i] == b.starts[j]) {
+                if (a.ends[i] != b.ends[j] || map.map(a.ids[i]) != b.ids[j]) {
+                    removed[r++] = a.starts[i];
+                    addedAt[n++] = j;
+                }
+                i++;
+                j++;
+            } else if (j == b.starts.length || (i < a.starts.length && a.starts[i] < b.starts[j])) {
+                removed[r++] = a.starts[i++];
+            } else {
+                addedAt[n++] = j++;
+            }
+        }
+        out.writeInt(r);
+        for (int k = 0; k < r; k++) out.writeInt(removed[k]);
+        out.writeInt(n);
+        for (int k = 0; k < n; k++) {
+            int x = addedAt[k];
+            out.writeInt(b.starts[x]);
+            out.writeInt(b.ends[x]);
+            out.writeInt(b.ids[x]);
+        }
+    }
+
+    private static int[][] apply4(RuleImage a, IdMap map, DataInputStream in, int ruleCount) throws IOException {
+        int r = in.readInt();
+        int[] removed = new int[r];
+        for (int k = 0; k < r; k++) removed[k] = in.readInt();
+        int n = in.readInt();
+        int[] addS = new int[n], addE = new int[n], addI = new int[n];
+        for (int k = 0; k < n; k++) {
+            addS[k] = in.readInt();
+            addE[k] = in.readInt();
+            addI[k] = in.readInt();
+        }
+        int size = a.starts.length - r + n;
+        if (size < 0) throw new IOException("rule delta removes more IPv4 segments than the base has");
+        int[] s = new int[size], e = new int[size], ids = new int[size];
+        int o = 0, ri = 0, ai = 0;
+        for (int i = 0; i <= a.starts.length; i++) {
+            boolean end = i == a.starts.length;
+            while (ai < n && (end || addS[ai] <= a.starts[i])) {
+                s[o] = addS[ai];
+                e[o] = addE[ai];
+                ids[o++] = addI[ai++];
+            }
+            if (end) break;
+            if (ri < r && removed[ri] == a.starts[i]) {
+                ri++;
+                continue;
+            }
+            s[o] = a.starts[i];
+            e[o] = a.ends[i];
+            ids[o++] = map.map(a.ids[i]);
+        }
+        if (ri != r || o != size) throw new IOException("rule delta IPv4 segments do not match base");
+        for (int k = 0; k < size; k++) {
+            if (s[k] > e[k] || (k > 0 && e[k - 1] >= s[k]) || ids[k] < 0 || ids[k] >= ruleCount) {
+                throw new IOException("rule delta produced invalid IPv4 segment at " + k);
+            }
+        }
+        return new int[][]{s, e, ids};
+    }
+
+    private static void diff6(RuleImage a, RuleImage b, IdMap map, DataOutputStream out) throws IOException {
+        int na = a.labels.length, nb = b.labels.length;
+        int[] removedAt = new int[na];
+        int[] addedAt = new int[nb];
+        int r = 0, n = 0;
+        int i = 0, j = 0;
+        while (i < na || j < nb) {
+            int c = i == na ? 1 : j == nb ? -1 : Ipv6Table.compare(a.startHi[i], a.startLo[i], b.startHi[j], b.startLo[j]);
+            if (c == 0) {
+                if (a.endHi[i] != b.endHi[j] || a.endLo[i] != b.endLo[j] || map.map(a.labels[i]) != b.labels[j]) {
+                    removedAt[r++] = i;
+                    addedAt[n++] = j;
+                }
+                i++;
+                j++;
+            } else if (c < 0) {
+                removedAt[r++] = i++;
+            } else {
+                addedAt[n++] = j++;
+            }
+        }
+        out.writeInt(r);
+        for (int k = 0; k < r; k++) {
+            out.writeLong(a.startHi[removedAt[k]]);
+            out.writeLong(a.startLo[removedAt[k]]);
+        }
+        out.writeInt(n);
+        for (int k = 0; k < n; k++) {
+            int x = addedAt[k];
+            out.writeLong(b.startHi[x]);
+            out.writeLong(b.startLo[x]);
+            out.writeLong(b.endHi[x]);
+            out.writeLong(b.endLo[x]);
+            out.writeInt(b.labels[x]);
+        }
+    }
+
+    /** @param bounds 결과 {@code [startHi, startLo, endHi, endLo]}를 채운다 */
+    private static int[] apply6(RuleImage a, IdMap map, DataInputStream in, int ruleCount, long[][] bounds)
+            throws IOException {
+        int r = in.readInt();
+        long[] remHi = new long[r], remLo = new long[r];
+        for (int k = 0; k < r; k++) {
+            remHi[k] = in.readLong();
+            remLo[k] = in.readLong();
+        }
+        int n = in.readInt();
+        long[][] add = new long[4][n];
+        int[] addL = new int[n];
+        for (int k = 0; k < n; k++) {
+            for (int f = 0; f < 4; f++) add[f][k] = in.readLong();
+            addL[k] = in.readInt();
+        }
+        int na = a.labels.length;
+        int size = na - r + n;
+        if (size < 0) throw new IOException("rule delta removes more IPv6 segments than the base has");
+        long[][] out = new long[4][size];
+        int[] labels = new int[size];
+        int o = 0, ri = 0, ai = 0;
+        for (int i = 0; i <= na; i++) {
+            boolean end = i == na;
+            while (ai < n && (end || Ipv6Table.compare(add[0][ai], add[1][ai], a.startHi[i], a.startLo[i]) <= 0)) {
+                for (int f = 0; f < 4; f++) out[f][o] = add[f][ai];
+                labels[o++] = addL[ai++];
+            }
+            if (end) break;
+            if (ri < r && remHi[ri] == a.startHi[i] && remLo[ri] == a.startLo[i]) {
+                ri++;
+                continue;
+            }
+            out[0][o] = a.startHi[i];
+            out[1][o] = a.startLo[i];
+            out[2][o] = a.endHi[i];
+            out[3][o] = a.endLo[i];
+            labels[o++] = map.map(a.labels[i]);
+        }
+        if (ri != r || o != size) throw new IOException("rule delta IPv6 segments do not match base");
+        for (int k = 0; k < size; k++) {
+            boolean bad = Ipv6Table.compare(out[0][k], out[1][k], out[2][k], out[3][k]) > 0
+                    || (k > 0 && Ipv6Table.compare(out[2][k - 1], out[3][k - 1], out[0][k], out[1][k]) >= 0)
+                    || labels[k] < 0 || labels[k] >= ruleCount;
+            if (bad) throw new IOException("rule delta produced invalid IPv6 segment at " + k);
+        }
+        System.arraycopy(out, 0, bounds, 0, 4);
+        return labels;
+    }
+}
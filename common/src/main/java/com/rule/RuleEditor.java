@@ -0,0 +1,292 @@
+package com.rule;
+
+import com.config.EnvConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+import static com.constant.RegexConst.RULE_SEP;
+
+/**
+ * {@link RuleStore}의 실행 중 규칙 편집과 allow 파일 쓰기.
+ *
+ * <ul>
+ *   <li>트라이는 바뀌는 접두사 경로만 복사한 새 조회기({@link PrefixTrie#plus}/{@link PrefixTrie#minus})로 만들어
+ *       스냅샷 교체 한 번으로 끼운다. 요청은 반쯤 바뀐 규칙을 보지 않는다.</li>
+ *   <li>파일은 다시 만들지 않고 <b>원래 줄을 고친다</b>. 추가는 맨 끝에 한 줄, 삭제는 그 토큰만 빼고(혼자 있던 줄은 줄째로)
+ *       나머지 줄의 표기({@code ~}, 구분자, 줄바꿈)는 그대로 둔다. 스냅샷의 규칙 문자열은 고친 파일을 정규화한 것이다.</li>
+ *   <li>마지막으로 읽거나 쓴 뒤에 파일이 바뀌었으면(운영자가 직접 고침) 편집을 거절하고({@link IllegalStateException})
+ *       밀린 쓰기도 버린다. 감시자가 그 파일을 다시 읽으면 다시 편집할 수 있다.</li>
+ *   <li>쓰기는 백그라운드 스레드 하나가 임시 파일 + 이름 바꾸기로 한다. 밀린 쓰기는 마지막 내용 하나로 합친다.</li>
+ * </ul>
+ *
+ * <p>편집({@link #add}/{@link #remove})은 {@link RuleStore}가 리로드 잠금 안에서 부른다.</p>
+ */
+final class RuleEditor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RuleEditor.class);
+
+    /** 실행 중 지운 규칙 자리가 이만큼 쌓이면 변경 대신 한 번 다시 컴파일해 id를 정리한다 */
+    static final int COMPACT_REMOVED = 256;
+
+    private final RuleStore store;
+    private final Function<String, List<String>> hosts;
+
+    /** 디스크에 있다고 아는 파일 내용 (마지막으로 읽었거나 쓴 것, 모르면 null) */
+    private String onDisk;
+    /** 편집을 반영한 파일 내용 (아직 안 썼을 수 있다, 모르면 null) */
+    private String base;
+    /** 아직 쓰지 않은 내용 */
+    private String unsaved;
+    /** 이 편집기가 마지막으로 쓴 내용 (감시자가 이 내용이면 다시 컴파일하지 않는다) */
+    private String written;
+    private ExecutorService persister;
+
+    /**
+     * @param store 편집할 보관소
+     * @param hosts {@code host:} 규칙 주소 조회 (다시 컴파일할 때)
+     */
+    RuleEditor(RuleStore store, Function<String, List<String>> hosts) {
+        this.store = store;
+        this.hosts = hosts;
+    }
+
+    /**
+     * 파일에서 스냅샷을 새로 읽었다. 파일 내용이 그 스냅샷의 규칙과 맞으면 편집 기준으로 삼는다.
+     * @param file      allow 파일 (없으면 null)
+     * @param userRules 스냅샷의 allow 파일 규칙
+     */
+    synchronized void loaded(Path file, String userRules) {
+        unsaved = null;
+        String raw = file == null || userRules == null ? null : EnvConfig.readStringSafe(file);
+        // 읽는 사이에 또 바뀌었으면 모른다고 두고 다음 리로드를 기다린다
+        onDisk = raw != null && Objects.equals(EnvConfig.normalizeRules(raw), userRules) ? raw : null;
+        base = onDisk;
+    }
+
+    /**
+     * 규칙 하나 추가 (리로드 잠금 안에서).
+     * @see RuleStore#addRule(String)
+     */
+    boolean add(String token) {
+        String t = ruleToken(token);
+        RuleSnapshot snap = store.current();
+        PrefixTrie trie = editableTrie(snap);
+        if (!userRules(trie, t).isEmpty()) return false;
+        PrefixTrie next = trie.plus(t, RuleSource.USER);
+        if (next == null) throw new IllegalArgumentException("unsupported rule: " + t);
+        String text = snap.userRules().isBlank() ? t : snap.userRules() + "\n" + t;
+        RuleSnapshot s = commit(snap, next, text, raw -> withToken(raw, token.trim()));
+        log.info("IP rule added - token={}, version={}", t, s.version());
+        return true;
+    }
+
+    /**
+     * allow 파일 규칙 빼기 (리로드 잠금 안에서).
+     * @see RuleStore#removeRule(String)
+     */
+    boolean remove(String token) {
+        String t = ruleToken(token);
+        RuleSnapshot snap = store.current();
+        PrefixTrie trie = editableTrie(snap);
+        List<Rule> gone = userRules(trie, t);
+        if (gone.isEmpty()) return false;
+        RuleSnapshot s = commit(snap, trie.minus(gone, hosts), RuleTokens.withoutToken(snap.userRules(), t),
+                raw -> withoutToken(raw, t));
+        log.info("IP rule removed - token={}, version={}", t, s.version());
+        return true;
+    }
+
+    /** 규칙 토큰 하나로 정규화 */
+    private static String ruleToken(String token) {
+        String t = token == null ? "" : EnvConfig.normalizeRules(token.trim());
+        if (t.isEmpty() || RULE_SEP.matcher(t).find()) throw new IllegalArgumentException("one rule expected: " + token);
+        if (RuleTokens.isHostToken(RuleTokens.body(t)) || RuleSchedule.hasWindows(t)) {
+            throw new IllegalArgumentException("host: and time-window rules are edited in the rule file: " + t);
+        }
+        return t;
+    }
+
+    /** 실행 중 변경할 트라이 (텍스트에서 컴파일한 트라이일 때만) */
+    private PrefixTrie editableTrie(RuleSnapshot snap) {
+        store.checkEditable();
+        RuleMatcher m = snap.matcher() instanceof LayeredMatcher layered ? layered.base() : snap.matcher();
+        if (m instanceof PrefixTrie trie && snap.userRules() != null) return trie;
+        throw new IllegalStateException("compiled rule file in use, edit the rule file");
+    }
+
+    /** 트라이의 살아 있는 allow 파일 규칙 중 토큰이 같은 것 */
+    private static List<Rule> userRules(PrefixTrie trie, String token) {
+        return trie.rules().stream()
+                .filter(r -> r.source() == RuleSource.USER && r.token().equals(token) && !trie.isRemoved(r))
+                .toList();
+    }
+
+    /**
+     * 바뀐 트라이로 스냅샷 교체 + 파일 쓰기 예약.
+     * @param userRules 파일이 없을 때 쓸 규칙 문자열
+     * @param patch     원래 파일 내용 → 고친 내용
+     */
+    private RuleSnapshot commit(RuleSnapshot snap, PrefixTrie trie, String userRules, Function<String, String> patch) {
+        Path file = snap.allowFile();
+        String patched = null;
+        if (file != null) {
+            synchronized (this) {
+                String disk = EnvConfig.readStringSafe(file);
+                if (base == null || !disk.equals(onDisk)) {
+                    throw new IllegalStateException("rule file changed on disk since it was loaded, reload before editing");
+                }
+                patched = patch.apply(base);
+            }
+            userRules = EnvConfig.normalizeRules(patched);
+        }
+        List<ImportedList> imports = snap.matcher() instanceof LayeredMatcher layered ? layered.lists() : List.of();
+        long version = store.nextVersion();
+        RuleSnapshot next = trie.removedCount() >= COMPACT_REMOVED
+                ? RuleSnapshot.compile(version, userRules, snap.defaultRules(), file, imports, hosts)
+                : new RuleSnapshot(version, userRules, snap.defaultRules(), file, LayeredMatcher.of(trie, imports));
+        store.swap(next);
+        if (file == null) {
+            log.warn("IP rules file not found, runtime rule change kept in memory only");
+        } else {
+            persist(file, patched);
+        }
+        return next;
+    }
+
+    /** 파일 쓰기 예약 */
+    private synchronized void persist(Path file, String text) {
+        base = text;
+        boolean idle = unsaved == null;
+        unsaved = text;
+        if (idle) persister().execute(() -> write(file));
+    }
+
+    /** 밀린 내용을 임시 파일에 쓰고 이름을 바꿔 끼운다 (읽는 쪽은 반쯤 쓴 파일을 보지 않는다) */
+    private synchronized void write(Path file) {
+        String text = unsaved;
+        unsaved = null;
+        if (text == null) return;
+        try {
+            if (!EnvConfig.readStringSafe(file).equals(onDisk)) {
+                log.warn("IP rules file {} was edited by hand, runtime changes not written (the watcher reloads it)", file);
+                base = onDisk = null;
+                return;
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, text);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            onDisk = written = text;
+        } catch (IOException | RuntimeException e) {
+            log.warn("IP rules file write failed, change kept in memory only - {}", e.toString());
+        }
+    }
+
+    /**
+     * 파일 내용이 이 편집기가 마지막으로 쓴 것이고 현재 스냅샷과 같은지 (감시자가 다시 읽을지 정할 때).
+     * @param file      allow 파일
+     * @param userRules 현재 스냅샷의 allow 파일 규칙
+     */
+    synchronized boolean selfWritten(Path file, String userRules) {
+        if (written == null || file == null) return false;
+        try {
+            String raw = EnvConfig.readStringSafe(file);
+            return raw.equals(written) && EnvConfig.normalizeRules(raw).equals(userRules);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** 예약된 파일 쓰기가 끝날 때까지 기다린다 */
+    void flush() throws Exception {
+        persister().submit(() -> {}).get(10, TimeUnit.SECONDS);
+    }
+
+    private synchronized ExecutorService persister() {
+        if (persister == null) {
+            persister = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "ip-rules-persist");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return persister;
+    }
+
+    /** 밀린 파일 쓰기는 마치고 스레드를 멈춘다 */
+    @Override
+    public synchronized void close() {
+        if (persister != null) persister.shutdown();
+        persister = null;
+    }
+
+    /** 맨 끝에 한 줄 추가 (파일의 줄바꿈 방식을 따른다) */
+    static String withToken(String raw, String token) {
+        String nl = raw.contains("\r\n") ? "\r\n" : "\n";
+        if (raw.isEmpty()) return token + nl;
+        return raw + (raw.endsWith("\n") ? "" : nl) + token + nl;
+    }
+
+    /** 정규화하면 {@code token}인 토큰을 모두 뺀다. 다른 줄과 남은 토큰의 표기는 그대로 */
+    static String withoutToken(String raw, String token) {
+        StringBuilder out = new StringBuilder(raw.length());
+        int pos = 0;
+        while (pos < raw.length()) {
+            int nl = raw.indexOf('\n', pos);
+            int end = nl < 0 ? raw.length() : nl + 1;
+            int content = nl < 0 ? end : (nl > pos && raw.charAt(nl - 1) == '\r' ? nl - 1 : nl);
+            String line = raw.substring(pos, content);
+            String kept = withoutTokenInLine(line, token);
+            if (kept.equals(line)) {
+                out.append(raw, pos, end);
+            } else if (!kept.isBlank()) {
+                out.append(kept).append(raw, content, end);
+            } // 그 토큰만 있던 줄은 줄째로 뺀다
+            pos = end;
+        }
+        return out.toString();
+    }
+
+    /** 한 줄에서 토큰 빼기: 남는 토큰 사이에는 원래 구분자를 쓴다 (변화가 없으면 같은 문자열) */
+    private static String withoutTokenInLine(String line, String token) {
+        List<String[]> kept = new ArrayList<>(); // {토큰, 그 뒤 구분자}
+        boolean removed = false;
+        Matcher sep = RULE_SEP.matcher(line);
+        int pos = 0;
+        while (true) {
+            boolean found = sep.find(pos);
+            String piece = line.substring(pos, found ? sep.start() : line.length());
+            if (token.equals(EnvConfig.normalizeRules(piece.trim()))) {
+                removed = true;
+            } else {
+                kept.add(new String[]{piece, found ? sep.group() : ""});
+            }
+            if (!found) break;
+            pos = sep.end();
+        }
+        if (!removed) return line;
+        StringBuilder out = new StringBuilder(line.length());
+        for (int i = 0; i < kept.size(); i++) {
+            out.append(kept.get(i)[0]);
+            if (i + 1 < kept.size()) out.append(kept.get(i)[1]);
+        }
+        // 첫 토큰이 빠지면 다음 토큰 앞의 공백이 줄 맨 앞에 온다
+        return !line.isEmpty() && Character.isWhitespace(line.charAt(0)) ? out.toString() : out.toString().stripLeading();
+    }
+}
@@ -0,0 +1,213 @@
+package com.rule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * 규칙 복제의 보내는 쪽. {@link RuleStore}의 스냅샷을 버전별 {@link RuleImage}로 펼쳐 두고,
+ * 받는 쪽이 가진 버전에서 현재 버전까지의 {@link RuleDelta}를 만든다.
+ *
+ * <ul>
+ *   <li>받는 쪽이 최신이면 새 버전이 나올 때까지(최대 {@code waitMillis}) 기다린다(롱 폴링). 기다리는 동안 스레드를
+ *       잡지 않는다: 대기는 목록에 올려 두고 {@link RuleStore#addVersionListener}로 깨우거나 예약한 시각에 끝낸다.
+ *       콜백은 피드 스레드({@code ip-rule-feed}) 하나에서 돈다(바로 답할 수 있으면 부른 스레드에서).</li>
+ *   <li>최근 {@value #HISTORY}개 버전의 이미지만 들고 있다. 그보다 오래됐거나 {@link #epoch()}가 다르면
+ *       (이 프로세스가 재시작됨) 전체를 보낸다.</li>
+ *   <li>같은 (기준, 결과) 버전의 델타는 한 번만 만든다.</li>
+ * </ul>
+ */
+public final class RuleFeed implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RuleFeed.class);
+
+    /** 델타 기준으로 남겨 두는 버전 수 */
+    public static final int HISTORY = 4;
+    /** 한 번에 기다리는 최대 시간(ms) */
+    public static final long MAX_WAIT_MILLIS = 30_000;
+
+    private final RuleStore store;
+    private final long epoch;
+    private final Map<Long, RuleImage> images = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, RuleImage> eldest) {
+            return size() > HISTORY;
+        }
+    };
+    /** 마지막으로 만든 델타 (같은 요청이 잇따르면 다시 쓴다) */
+    private long lastFrom = -1;
+    private long lastTo = -1;
+    private byte[] lastMessage;
+    /** 새 버전을 기다리는 요청 (목록에서 먼저 빼는 쪽이 답한다) */
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ip-rule-feed");
+        t.setDaemon(true);
+        return t;
+    });
+    /** 새 버전이면 피드 스레드에서 대기를 깨운다 (닫을 때 뗀다) */
+    private final LongConsumer onVersion = v -> {
+        if (waiters.isEmpty()) return;
+        try {
+            timer.execute(this::wake);
+        } catch (RejectedExecutionException e) {
+            // 닫히는 중: close가 남은 대기에 답한다
+        }
+    };
+
+    /** 기다리는 요청 하나 */
+    private static final class Waiter {
+        final long epoch;
+        final long version;
+        final Consumer<byte[]> done;
+        volatile ScheduledFuture<?> timeout;
+
+        Waiter(long epoch, long version, Consumer<byte[]> done) {
+            this.epoch = epoch;
+            this.version = version;
+            this.done = done;
+        }
+    }
+
+    /** @param store 복제할 규칙 보관소 */
+    public RuleFeed(RuleStore store) {
+        this.store = store;
+        long e;
+        do {
+            e = new SecureRandom().nextLong();
+        } while (e == 0);
+        this.epoch = e;
+        store.addVersionListener(onVersion);
+    }
+
+    /** 이 프로세스의 복제 식별값 (0이 아니다) */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * 받는 쪽 버전에서 현재 버전까지의 메시지를 {@code done}으로 넘긴다. 기다리는 동안 부른 스레드를 잡지 않는다.
+     * @param epoch      받는 쪽이 아는 식별값 (처음이면 0)
+     * @param version    받는 쪽이 가진 버전 (처음이면 0)
+     * @param waitMillis 새 버전이 없을 때 기다릴 시간(ms, {@value #MAX_WAIT_MILLIS}로 자름)
+     * @param done       {@link RuleDelta} 메시지, 기다려도 새 버전이 없거나 피드가 닫히면 null. 꼭 한 번 불린다
+     */
+    public void poll(long epoch, long version, long waitMillis, Consumer<byte[]> done) {
+        byte[] now = poll(epoch, version);
+        long wait = Math.max(0, Math.min(waitMillis, MAX_WAIT_MILLIS));
+        if (now != null || wait == 0) {
+            done.accept(now);
+            return;
+        }
+        Waiter w = new Waiter(epoch, version, done);
+        waiters.add(w);
+        try {
+            w.timeout = timer.schedule(() -> finish(w, null), wait, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            finish(w, null); // 닫힌 피드
+            return;
+        }
+        // 목록에 올리기 전에 새 버전이 들어왔으면 리스너가 이 대기를 못 봤다
+        if (store.current().version() != version && waiters.remove(w)) answer(w);
+    }
+
+    /**
+     * 받는 쪽 버전에서 현재 버전까지의 메시지 (기다리지 않는다).
+     * @param epoch   받는 쪽이 아는 식별값 (처음이면 0)
+     * @param version 받는 쪽이 가진 버전 (처음이면 0)
+     * @return {@link RuleDelta} 메시지, 받는 쪽이 최신이면 null
+     */
+    public byte[] poll(long epoch, long version) {
+        boolean known = epoch == this.epoch && version > 0;
+        RuleSnapshot snap = store.current();
+        if (known && snap.version() == version) return null;
+
+        RuleImage to = image(snap);
+        RuleImage from = known ? cached(version) : null;
+        long fromVersion = from == null ? 0 : version;
+        synchronized (this) {
+            if (lastFrom == fromVersion && lastTo == snap.version()) return lastMessage;
+        }
+        byte[] message = RuleDelta.encode(this.epoch, fromVersion, from, snap.version(), to);
+        synchronized (this) {
+            lastFrom = fromVersion;
+            lastTo = snap.version();
+            lastMessage = message;
+        }
+        log.info("IP rules feed - from={}, to={}, segments={}, bytes={}", fromVersion, snap.version(),
+                to.segments() + to.segments6(), message.length);
+        return message;
+    }
+
+    /** 기다리는 요청 수 */
+    public int waiting() {
+        return waiters.size();
+    }
+
+    /** 보관소 리스너를 떼고, 기다리는 요청에 빈 답(null)을 주고 피드 스레드를 멈춘다 */
+    @Override
+    public void close() {
+        store.removeVersionListener(onVersion);
+        timer.shutdownNow();
+        for (Waiter w : waiters) finish(w, null);
+    }
+
+    /** 새 버전: 기다리던 요청 모두에 답한다 (피드 스레드) */
+    private void wake() {
+        long current = store.current().version();
+        for (Waiter w : waiters) {
+            if (w.version != current && waiters.remove(w)) answer(w);
+        }
+    }
+
+    private void answer(Waiter w) {
+        ScheduledFuture<?> t = w.timeout;
+        if (t != null) t.cancel(false);
+        byte[] message;
+        try {
+            message = poll(w.epoch, w.version);
+        } catch (RuntimeException e) {
+            log.warn("IP rules feed encode failed - version={}", w.version, e);
+            message = null;
+        }
+        deliver(w, message);
+    }
+
+    /** 아직 목록에 있으면 빼고 {@code message}로 답한다 */
+    private void finish(Waiter w, byte[] message) {
+        if (waiters.remove(w)) deliver(w, message);
+    }
+
+    private static void deliver(Waiter w, byte[] message) {
+        try {
+            w.done.accept(message);
+        } catch (RuntimeException e) {
+            log.warn("IP rules feed callback failed", e);
+        }
+    }
+
+    private synchronized RuleImage cached(long version) {
+        return images.get(version);
+    }
+
+    private RuleImage image(RuleSnapshot snap) {
+        RuleImage cached = cached(snap.version());
+        if (cached != null) return cached;
+        RuleImage image = RuleImage.of(snap.matcher());
+        synchronized (this) {
+            images.put(snap.version(), image);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,171 @@
+package com.rule;
+
+import com.config.EnvConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * 규칙 복제의 받는 쪽. 상위 서버의 {@link RuleFeed} 엔드포인트를 롱 폴링해 델타를 적용하고
+ * {@link RuleStore#publish}로 끼운다.
+ *
+ * <ul>
+ *   <li>요청: {@code GET 주소?epoch=E&version=V&wait=초}. 200 = {@link RuleDelta} 메시지, 304 = 그사이 변경 없음.</li>
+ *   <li>델타를 적용한 결과의 CRC가 맞지 않거나 기준 버전이 다르면 버전을 잊고 전체를 다시 받는다.</li>
+ *   <li>상위 서버에 닿지 않으면 마지막으로 받은 규칙(처음이면 로컬 규칙)을 그대로 쓰고
+ *       {@value #RETRY_MILLIS}ms 뒤 다시 시도한다.</li>
+ * </ul>
+ *
+ * <p>{@value #ENV}에 상위 서버의 피드 주소(예: {@code http://server1:8081/rules/feed})를 주면
+ * {@code Launcher}가 기본 규칙 보관소에 붙인다. 요청에는 {@code Authorization: Bearer <}{@value #TOKEN_ENV}{@code >}를
+ * 싣는다(상위 서버와 같은 값).</p>
+ */
+public final class RuleFollower implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RuleFollower.class);
+
+    /** 상위 피드 주소 환경변수 */
+    public static final String ENV = "IP_RULES_UPSTREAM";
+    /** 피드 인증 토큰 환경변수 (보내는 쪽과 받는 쪽이 같은 값을 쓴다) */
+    public static final String TOKEN_ENV = "IP_RULES_FEED_TOKEN";
+    /** 한 번에 기다리는 시간(초) */
+    static final int WAIT_SECONDS = 25;
+    /** 실패 후 재시도 간격(ms) */
+    static final long RETRY_MILLIS = 5_000;
+
+    private final URI upstream;
+    private final RuleStore store;
+    /** 피드 인증 토큰 (null = 보내지 않음) */
+    private final String token;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private long epoch;
+    private long version;
+    private RuleImage image = RuleImage.EMPTY;
+    private volatile Thread worker;
+
+    /**
+     * @param upstream 상위 피드 주소
+     * @param store    받은 규칙을 끼울 보관소
+     */
+    public RuleFollower(URI upstream, RuleStore store) {
+        this(upstream, store, null);
+    }
+
+    /**
+     * @param upstream 상위 피드 주소
+     * @param store    받은 규칙을 끼울 보관소
+     * @param token    피드 인증 토큰 (null = 보내지 않음)
+     */
+    public RuleFollower(URI upstream, RuleStore store, String token) {
+        this.upstream = upstream;
+        this.store = store;
+        this.token = token == null || token.isBlank() ? null : token.trim();
+    }
+
+    /**
+     * {@value #ENV} + {@value #TOKEN_ENV}로 생성.
+     * @return 설정이 없으면 null
+     */
+    public static RuleFollower fromEnv(RuleStore store) {
+        String url = EnvConfig.env(ENV);
+        if (url == null) return null;
+        String token = EnvConfig.env(TOKEN_ENV);
+        if (token == null) log.warn("{} is set but {} is not, the upstream feed will refuse us", ENV, TOKEN_ENV);
+        return new RuleFollower(URI.create(url.trim()), store, token);
+    }
+
+    /** 받은 버전 (상위 서버 기준, 아직 없으면 0) */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * 한 번 당겨 온다.
+     * @param waitSeconds 상위 서버가 새 버전을 기다릴 시간(초)
+     * @return 새 규칙을 끼웠으면 true
+     * @throws IOException 연결 실패, 응답 오류, 델타 적용 실패
+     */
+    public boolean pollOnce(int waitSeconds) throws IOException, InterruptedException {
+        long e, v;
+        synchronized (this) {
+            e = epoch;
+            v = version;
+        }
+        URI uri = URI.create(upstream + (upstream.getRawQuery() == null ? "?" : "&")
+                + "epoch=" + e + "&version=" + v + "&wait=" + waitSeconds);
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(waitSeconds + 10L)).GET();
+        if (token != null) b.header("Authorization", "Bearer " + token);
+        HttpRequest req = b.build();
+        HttpResponse<byte[]> res = client.send(req, HttpResponse.BodyHandlers.ofByteArray());
+        if (res.statusCode() == 304) return false;
+        if (res.statusCode() != 200) throw new IOException("rule feed answered " + res.statusCode() + ": " + uri);
+
+        byte[] body = res.body();
+        RuleDelta.Header h = RuleDelta.header(body);
+        if (h.fromVersion() != 0 && (h.epoch() != e || h.fromVersion() != v)) {
+            forget();
+            throw new IOException("rule feed sent a delta from " + h.fromVersion() + ", have " + v);
+        }
+        RuleImage next;
+        try {
+            next = RuleDelta.apply(image, body);
+        } catch (IOException ex) {
+            forget();
+            throw ex;
+        }
+        synchronized (this) {
+            image = next;
+            epoch = h.epoch();
+            version = h.toVersion();
+        }
+        RuleSnapshot snap = store.publish(next);
+        log.info("IP rules replicated - upstream={}, from={}, to={}, bytes={}, local={}",
+                upstream.getHost(), h.fromVersion(), h.toVersion(), body.length, snap.version());
+        return true;
+    }
+
+    /** 다음 요청은 전체를 받는다 */
+    private synchronized void forget() {
+        epoch = 0;
+        version = 0;
+    }
+
+    /** 백그라운드 롱 폴링 시작 (이미 시작했으면 무시) */
+    public synchronized void start() {
+        if (worker != null) return;
+        worker = new Thread(this::loop, "ip-rules-follower");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("IP rules following {}", upstream);
+    }
+
+    private void loop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                pollOnce(WAIT_SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                log.warn("IP rules replication failed, keeping version {} - {}", version(), e.toString());
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /** 폴링 중지 */
+    @Override
+    public synchronized void close() {
+        if (worker != null) worker.interrupt();
+        worker = null;
+    }
+}
@@ -0,0 +1,170 @@
+package com.rule;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 스냅샷 조회기를 평평하게 펼친 힙 이미지 (복제용).
+ *
+ * <p>IPv4는 {@link RuleMatcher#forEachSegment}, IPv6는 {@link RuleMatcher#ipv6Segments()}로 얻은
+ * "최우선 규칙별로 칠한" 서로소 구간 + 규칙 표다. {@link CompiledRuleFile}과 같은 내용을 배열로 들고 있어
+ * 조회 결과(규칙/사유)가 원래 조회기와 같다. 버전 사이 차이는 {@link RuleDelta}로 주고받는다.</p>
+ *
+ * <p>{@link #crc()}는 구간과 규칙 표의 CRC32로, 받는 쪽이 델타를 적용한 결과가 보낸 쪽과 같은지 확인한다.</p>
+ */
+public final class RuleImage implements RuleMatcher {
+
+    /** 비어 있는 이미지 (전체 전송의 기준) */
+    public static final RuleImage EMPTY = new RuleImage(new int[0], new int[0], new int[0],
+            new long[0], new long[0], new long[0], new long[0], new int[0], List.of());
+
+    private static final int BIAS = Integer.MIN_VALUE;
+
+    /** IPv4 구간 (부호 비트 뒤집은 값, {@link CompiledRuleFile}과 같다) */
+    final int[] starts;
+    final int[] ends;
+    final int[] ids;
+    /** IPv6 구간 */
+    final long[] startHi;
+    final long[] startLo;
+    final long[] endHi;
+    final long[] endLo;
+    final int[] labels;
+    private final List<Rule> rules;
+    private final Ipv6Table v6;
+    private final int crc;
+
+    RuleImage(int[] starts, int[] ends, int[] ids, long[] startHi, long[] startLo, long[] endHi, long[] endLo,
+              int[] labels, List<Rule> rules) {
+        this.starts = starts;
+        this.ends = ends;
+        this.ids = ids;
+        this.startHi = startHi;
+        this.startLo = startLo;
+        this.endHi = endHi;
+        this.endLo = endLo;
+        this.labels = labels;
+        this.rules = List.copyOf(rules);
+        this.v6 = Ipv6Table.wrap(LongBuffer.wrap(startHi), LongBuffer.wrap(startLo),
+                LongBuffer.wrap(endHi), LongBuffer.wrap(endLo), IntBuffer.wrap(labels));
+        this.crc = checksum();
+    }
+
+    /**
+     * 조회기를 펼친다.
+     * @param matcher 스냅샷 조회기
+     */
+    public static RuleImage of(RuleMatcher matcher) {
+        if (matcher instanceof RuleImage image) return image;
+        int[][] v4 = {new int[64], new int[64], new int[64]};
+        int[] n = {0};
+        matcher.forEachSegment((start, end, id) -> {
+            if (n[0] == v4[0].length) {
+                for (int k = 0; k < 3; k++) v4[k] = Arrays.copyOf(v4[k], n[0] * 2);
+            }
+            v4[0][n[0]] = (int) start ^ BIAS;
+            v4[1][n[0]] = (int) end ^ BIAS;
+            v4[2][n[0]++] = id;
+        });
+        Ipv6Table t = matcher.ipv6Segments();
+        int k = t.size();
+        long[] sHi = new long[k], sLo = new long[k], eHi = new long[k], eLo = new long[k];
+        int[] l = new int[k];
+        for (int i = 0; i < k; i++) {
+            sHi[i] = t.startHi(i);
+            sLo[i] = t.startLo(i);
+            eHi[i] = t.endHi(i);
+            eLo[i] = t.endLo(i);
+            l[i] = t.label(i);
+        }
+        return new RuleImage(Arrays.copyOf(v4[0], n[0]), Arrays.copyOf(v4[1], n[0]), Arrays.copyOf(v4[2], n[0]),
+                sHi, sLo, eHi, eLo, l, matcher.rules());
+    }
+
+    /** 구간 + 규칙 표 CRC32 */
+    public int crc() {
+        return crc;
+    }
+
+    /** IPv4 구간 수 */
+    public int segments() {
+        return starts.length;
+    }
+
+    /** IPv6 구간 수 */
+    public int segments6() {
+        return labels.length;
+    }
+
+    @Override
+    public Rule match(int ip) {
+        int key = ip ^ BIAS;
+        int lo = 0;
+        int hi = starts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= key) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi >= 0 && key <= ends[hi] ? rules.get(ids[hi]) : null;
+    }
+
+    @Override
+    public Rule match6(long hi, long lo) {
+        int id = v6.labelOf(hi, lo);
+        return id < 0 ? null : rules.get(id);
+    }
+
+    @Override
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    @Override
+    public void forEachSegment(PrefixTrie.SegmentSink sink) {
+        for (int i = 0; i < starts.length; i++) {
+            sink.accept((starts[i] ^ BIAS) & 0xFFFFFFFFL, (ends[i] ^ BIAS) & 0xFFFFFFFFL, ids[i]);
+        }
+    }
+
+    @Override
+    public Ipv6Table ipv6Segments() {
+        return v6;
+    }
+
+    private int checksum() {
+        CRC32 c = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        for (int i = 0; i < starts.length; i++) {
+            if (buf.remaining() < 12) flush(c, buf);
+            buf.putInt(starts[i]).putInt(ends[i]).putInt(ids[i]);
+        }
+        for (int i = 0; i < labels.length; i++) {
+            if (buf.remaining() < 36) flush(c, buf);
+            buf.putLong(startHi[i]).putLong(startLo[i]).putLong(endHi[i]).putLong(endLo[i]).putInt(labels[i]);
+        }
+        flush(c, buf);
+        for (Rule r : rules) {
+            c.update(r.source().ordinal());
+            c.update(r.token().getBytes(StandardCharsets.UTF_8));
+            c.update(0);
+        }
+        return (int) c.getValue();
+    }
+
+    private static void flush(CRC32 c, ByteBuffer buf) {
+        buf.flip();
+        c.update(buf);
+        buf.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "RuleImage[segments=" + starts.length + ", segments6=" + labels.length + ", rules=" + rules.size() + "]";
+    }
+}
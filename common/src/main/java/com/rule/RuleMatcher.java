@@ -0,0 +1,53 @@
+package com.rule;
+
+import java.util.List;
+
+/**
+ * 컴파일된 규칙 조회기. 메모리 트라이({@link PrefixTrie})와 매핑 파일({@link CompiledRuleFile})이 구현한다.
+ */
+public interface RuleMatcher {
+
+    /**
+     * IPv4 int 값에 걸리는 최우선 규칙 (거부 규칙일 수 있으니 {@link Rule#allows()}로 판정).
+     * @param ip IPv4 int 값
+     * @return 규칙, 없으면 null
+     */
+    Rule match(int ip);
+
+    /**
+     * IPv6 128비트 값에 걸리는 최우선 규칙.
+     * @param hi 상위 64비트
+     * @param lo 하위 64비트
+     * @return 규칙, 없으면 null
+     */
+    Rule match6(long hi, long lo);
+
+    /**
+     * IPv4/IPv6 문자열에 걸리는 최우선 규칙. IPv4-mapped IPv6는 IPv4 규칙으로 조회한다.
+     * @param ip IPv4 또는 IPv6 문자열
+     * @return 규칙, 형식이 틀리거나 매칭이 없으면 null
+     */
+    default Rule match(String ip) {
+        if (ip == null) return null;
+        long v = Ipv4.parse(ip);
+        if (v != Ipv4.INVALID) return match((int) v);
+        long[] v6 = Ipv6.scratch();
+        if (!Ipv6.parse(ip, v6)) return null;
+        return Ipv6.isMappedIpv4(v6[0], v6[1]) ? match((int) v6[1]) : match6(v6[0], v6[1]);
+    }
+
+    /** 컴파일된 규칙 목록 (id 순, 인덱스 = id) */
+    List<Rule> rules();
+
+    /**
+     * IPv4 주소 공간을 최우선 규칙별로 칠한 서로소 구간을 오름차순으로 내보낸다(매칭 없는 구간은 생략).
+     * @param sink 구간 수신자 (경계는 0 ~ 2^32-1)
+     */
+    void forEachSegment(PrefixTrie.SegmentSink sink);
+
+    /**
+     * IPv6 주소 공간을 최우선 규칙별로 칠한 서로소 구간 ({@link #forEachSegment}의 IPv6판).
+     * @return 라벨 = 규칙 id 인 구간 테이블
+     */
+    Ipv6Table ipv6Segments();
+}
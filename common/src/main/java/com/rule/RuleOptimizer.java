@@ -0,0 +1,189 @@
+package com.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.constant.RegexConst.RULE_SEP;
+
+/**
+ * 규칙 정리(최적화) 단계: 중복/겹침 토큰을 찾아 보고하고 병합된 구간 테이블을 만든다.
+ *
+ * <p>토큰을 입력 순서대로 {@link RuleTokens#expand}로 펼치면서 지금까지의 합집합(서로소 구간 맵)에 넣는다.
+ * 펼친 구간이 모두 이미 합집합 안에 있으면 그 토큰은 <b>가려진(shadowed)</b> 토큰이다.
+ * 앞선 토큰들만 기준으로 보므로, 가려진 토큰을 모두 지워도 허용 범위는 변하지 않는다.</p>
+ *
+ * <ul>
+ *   <li>거부 토큰({@code !...})은 거부 토큰끼리만 비교한다. 거부는 순서와 상관없이 이기므로
+ *       허용 토큰의 가려짐 여부에는 영향이 없다. 테이블은 허용 합집합 − 거부 합집합.</li>
+ *   <li>형식은 맞지만 구간이 없는 토큰(예: {@code /33}, {@code 07.*.*.*})도 가려진 것으로 본다.</li>
+ *   <li>지원하지 않는 형식은 {@link Report#invalid()}에 따로 모은다(예외를 던지지 않음).</li>
+ *   <li>토큰당 O(구간 수 · log n) 이므로 백만 단위 토큰도 수 초 안에 끝난다.
+ *       단, {@code *.*.*.1} 처럼 앞쪽이 와일드카드인 토큰은 구간 수가 많아 느리다.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * RuleOptimizer.Report r = RuleOptimizer.analyze("10.0.0.0/8|10.1.0.0/16|10.0.0.0/8");
+ * r.shadowed();     // [10.1.0.0/16 (#1), 10.0.0.0/8 (#2)]
+ * r.prunedRules();  // "10.0.0.0/8"
+ * }</pre>
+ */
+public final class RuleOptimizer {
+    private RuleOptimizer() {}
+
+    /**
+     * 가려진 토큰.
+     * @param index 입력에서의 토큰 순번(0부터, 빈 토큰 제외)
+     * @param token 토큰 원문
+     */
+    public record Shadowed(int index, String token) {
+        @Override
+        public String toString() {
+            return token + " (#" + index + ")";
+        }
+    }
+
+    /**
+     * 정리 결과.
+     * @param tokens       입력 토큰 수
+     * @param rawIntervals 펼친 구간 수(병합 전)
+     * @param table        병합된 구간 테이블
+     * @param kept         남길 토큰(입력 순서)
+     * @param shadowed     앞선 토큰들에 완전히 가려진 토큰
+     * @param invalid      지원하지 않는 형식의 토큰
+     */
+    public record Report(int tokens, long rawIntervals, IntervalTable table,
+                         List<String> kept, List<Shadowed> shadowed, List<String> invalid) {
+
+        /** 가려진/잘못된 토큰을 뺀 규칙 (allow 파일 형식, 한 줄에 하나) */
+        public String prunedRules() {
+            return String.join("\n", kept);
+        }
+
+        @Override
+        public String toString() {
+            return "tokens=" + tokens + ", intervals=" + rawIntervals + " -> " + table.size()
+                    + ", shadowed=" + shadowed.size() + ", invalid=" + invalid.size();
+        }
+    }
+
+    /**
+     * 규칙 문자열 분석.
+     * @param rules 구분자 혼합 규칙 문자열(null/blank 허용)
+     * @return 정리 결과
+     */
+    public static Report analyze(String rules) {
+        List<String> tokens = new ArrayList<>();
+        if (rules != null && !rules.isBlank()) {
+            for (String raw : RULE_SEP.split(rules)) {
+                String token = raw == null ? "" : raw.trim();
+                if (!token.isEmpty()) tokens.add(token);
+            }
+        }
+        return analyze(tokens);
+    }
+
+    /**
+     * 토큰 목록 분석 (입력 순서가 우선순위).
+     * @param tokens 공백 제거된 토큰 목록
+     * @return 정리 결과
+     */
+    public static Report analyze(List<String> tokens) {
+        Coverage allowCoverage = new Coverage();
+        Coverage denyCoverage = new Coverage();
+        IntervalTable.Builder allow = IntervalTable.builder();
+        IntervalTable.Builder deny = IntervalTable.builder();
+        Pairs pairs = new Pairs();
+        List<String> kept = new ArrayList<>();
+        List<Shadowed> shadowed = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        long raw = 0;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            boolean isDeny = RuleTokens.isDeny(token);
+            Coverage coverage = isDeny ? denyCoverage : allowCoverage;
+            IntervalTable.Builder builder = isDeny ? deny : allow;
+            pairs.clear();
+            if (RuleSchedule.hasWindows(token)) {
+                // 시간대 규칙은 켜질 때만 유효하므로 다른 토큰을 가리거나 가려지지 않는다
+                kept.add(token);
+                continue;
+            }
+            if (!RuleTokens.expand(RuleTokens.body(token), pairs)) {
+                invalid.add(token);
+                continue;
+            }
+            raw += pairs.size;
+
+            boolean covered = true;
+            for (int k = 0; k < pairs.size && covered; k++) {
+                covered = coverage.covers(pairs.start(k), pairs.end(k));
+            }
+            if (covered) {
+                shadowed.add(new Shadowed(i, token));
+                continue;
+            }
+            kept.add(token);
+            for (int k = 0; k < pairs.size; k++) {
+                coverage.add(pairs.start(k), pairs.end(k));
+                builder.accept(pairs.start(k), pairs.end(k));
+            }
+        }
+        return new Report(tokens.size(), raw, allow.build().difference(deny.build()),
+                List.copyOf(kept), List.copyOf(shadowed), List.copyOf(invalid));
+    }
+
+    /** 토큰 하나의 구간 버퍼 (재사용) */
+    private static final class Pairs implements RuleTokens.IntervalSink {
+        private long[] data = new long[16];
+        private int size;
+
+        @Override
+        public void accept(long start, long end) {
+            if (size * 2 == data.length) data = Arrays.copyOf(data, data.length * 2);
+            data[size * 2] = start;
+            data[size * 2 + 1] = end;
+            size++;
+        }
+
+        long start(int i) {
+            return data[i * 2];
+        }
+
+        long end(int i) {
+            return data[i * 2 + 1];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /** 서로소 + 맞닿은 구간 병합 상태의 합집합 (start → end) */
+    private static final class Coverage {
+        private final TreeMap<Long, Long> map = new TreeMap<>();
+
+        boolean covers(long start, long end) {
+            Map.Entry<Long, Long> e = map.floorEntry(start);
+            return e != null && e.getValue() >= end;
+        }
+
+        void add(long start, long end) {
+            Map.Entry<Long, Long> left = map.floorEntry(start);
+            if (left != null && left.getValue() >= start - 1) {
+                if (left.getValue() >= end) return;
+                start = left.getKey();
+            }
+            // start 이후로 겹치거나 맞닿은 구간 흡수
+            Map.Entry<Long, Long> next;
+            while ((next = map.ceilingEntry(start)) != null && next.getKey() <= end + 1) {
+                end = Math.max(end, next.getValue());
+                map.remove(next.getKey());
+            }
+            map.put(start, end);
+        }
+    }
+}
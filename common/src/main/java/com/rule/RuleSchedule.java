@@ -0,0 +1,257 @@
+package com.rule;
+
+import com.config.EnvConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+import static com.constant.RegexConst.RULE_SEP;
+
+/**
+ * 시간대 규칙(예: 점검 시간, 업무 시간)을 "구간별 규칙 문자열" 목록으로 미리 펼친다.
+ *
+ * <p>토큰 뒤에 {@code @요일 HH:MM-HH:MM}를 붙이면 그 시간에만 켜진다.</p>
+ * <ul>
+ *   <li>{@code 10.20.0.0/16@mon-fri 09:00-18:00} : 평일 업무 시간</li>
+ *   <li>{@code !0.0.0.0/0@sun 02:00-04:00} : 일요일 점검 시간 전체 거부</li>
+ *   <li>{@code 192.0.2.0/24@22:00-02:00} : 매일 밤(자정을 넘기면 시작한 날의 요일 기준)</li>
+ *   <li>{@code 198.51.100.0/24@sat+sun} : 주말 하루 종일. 요일은 {@code mon-fri}(범위), {@code sat+sun}(나열)</li>
+ * </ul>
+ *
+ * <p>조회 때 시계를 보지 않는다. 경계 시각마다 켜진 토큰 집합이 바뀌므로, 기간을 경계로 잘라
+ * 구간마다 켜진 토큰만 남긴 규칙 문자열({@link Epoch})을 만들어 두고, 소비자가 그대로 컴파일해
+ * 경계에서 교체한다({@link RuleStore}). 시간대는 {@value #ZONE_ENV}(없으면 시스템 기본값).</p>
+ */
+public final class RuleSchedule {
+    private RuleSchedule() {}
+
+    private static final Logger log = LoggerFactory.getLogger(RuleSchedule.class);
+
+    /** 규칙 시간대 환경변수 (예: {@code Asia/Seoul}) */
+    public static final String ZONE_ENV = "IP_RULE_TIMEZONE";
+    /** 시간대 표기 시작 문자 */
+    public static final char WINDOW_PREFIX = '@';
+
+    private static final int DAY_MINUTES = 24 * 60;
+    private static final int ALL_DAYS = 0x7F;
+    private static final String[] DAY_NAMES = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+    /** 표기가 틀린 창: 한 번도 켜지지 않는다 */
+    private static final Window NEVER = new Window(0, 0, 0);
+
+    /**
+     * 켜지는 시간.
+     * @param days  요일 비트(월요일 = bit 0)
+     * @param start 시작(자정부터 분, 포함)
+     * @param end   끝(자정부터 분, 미포함, 1440 = 자정). {@code end <= start}면 다음 날로 넘어간다
+     */
+    public record Window(int days, int start, int end) {
+
+        /** 시각이 창 안인지 */
+        public boolean contains(ZonedDateTime t) {
+            int day = t.getDayOfWeek().getValue() - 1;
+            int minute = t.getHour() * 60 + t.getMinute();
+            if (start < end) return on(day) && minute >= start && minute < end;
+            // 자정을 넘기는 창: 시작한 날의 저녁 또는 다음 날 새벽
+            return (on(day) && minute >= start) || (on((day + 6) % 7) && minute < end);
+        }
+
+        private boolean on(int day) {
+            return (days & (1 << day)) != 0;
+        }
+    }
+
+    /**
+     * 한 구간의 규칙.
+     * @param start        구간 시작(포함)
+     * @param end          구간 끝(미포함)
+     * @param userRules    켜진 user 토큰만 남긴 규칙 (원래 null이면 null)
+     * @param defaultRules 켜진 default 토큰만 남긴 규칙 (원래 null이면 null)
+     */
+    public record Epoch(Instant start, Instant end, String userRules, String defaultRules) {}
+
+    /** 설정된 시간대 */
+    public static ZoneId zoneFromEnv() {
+        String zone = EnvConfig.env(ZONE_ENV);
+        if (zone == null) return ZoneId.systemDefault();
+        try {
+            return ZoneId.of(zone.trim());
+        } catch (DateTimeException e) {
+            log.warn("{} is not a time zone: {}, using {}", ZONE_ENV, zone, ZoneId.systemDefault());
+            return ZoneId.systemDefault();
+        }
+    }
+
+    /** 시간대 규칙이 하나라도 있는지 */
+    public static boolean hasWindows(String rules) {
+        return rules != null && rules.indexOf(WINDOW_PREFIX) >= 0;
+    }
+
+    /**
+     * 토큰의 시간대 부분 해석.
+     * @param token 토큰 ({@code !} 포함 가능)
+     * @return 창, 시간대가 없으면 null
+     * @throws IllegalArgumentException 시간대 표기가 틀렸을 때
+     */
+    public static Window window(String token) {
+        int at = token.indexOf(WINDOW_PREFIX);
+        if (at < 0) return null;
+        String spec = token.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+        int days = 0;
+        int start = 0, end = DAY_MINUTES;
+        boolean time = false;
+        for (String part : spec.split("\\s+")) {
+            if (part.isEmpty()) continue;
+            if (part.indexOf(':') >= 0) {
+                if (time) throw new IllegalArgumentException("two time ranges: " + token);
+                int dash = part.indexOf('-');
+                if (dash < 0) throw new IllegalArgumentException("time range needs HH:MM-HH:MM: " + token);
+                start = minuteOf(part.substring(0, dash), token);
+                end = minuteOf(part.substring(dash + 1), token);
+                if (start == DAY_MINUTES) throw new IllegalArgumentException("start must be before 24:00: " + token);
+                time = true;
+            } else {
+                if (days != 0) throw new IllegalArgumentException("two day lists: " + token);
+                days = daysOf(part, token);
+            }
+        }
+        if (days == 0 && !time) throw new IllegalArgumentException("empty time window: " + token);
+        return new Window(days == 0 ? ALL_DAYS : days, start, end);
+    }
+
+    /**
+     * {@code [from, from + horizon)}을 경계 시각으로 잘라 구간마다 켜진 토큰만 남긴 규칙을 만든다.
+     * 켜진 토큰 집합이 같은 이웃 구간은 하나로 합친다. 시간대 규칙이 없으면 구간 하나.
+     * 표기가 틀린 시간대 토큰은 경고 후 항상 꺼진 것으로 본다(검증은 {@link #window(String)}).
+     * @param userRules    user 규칙(정규화 완료, null 허용)
+     * @param defaultRules default 규칙(정규화 완료, null 허용)
+     * @param zone         요일/시각 기준 시간대
+     * @param from         시작 시각
+     * @param horizon      펼칠 기간 (예: 7일)
+     */
+    public static List<Epoch> epochs(String userRules, String defaultRules, ZoneId zone, Instant from, Duration horizon) {
+        Instant until = from.plus(horizon);
+        List<String> user = tokens(userRules);
+        List<String> def = tokens(defaultRules);
+        List<Window> windows = new ArrayList<>();
+        for (String t : user) windows.add(windowOrNever(t));
+        for (String t : def) windows.add(windowOrNever(t));
+
+        // 경계: 창마다 하루씩 시작/끝 시각 (하루 전부터 봐야 자정을 넘긴 창의 끝이 잡힌다)
+        TreeSet<Instant> bounds = new TreeSet<>();
+        LocalDate last = until.atZone(zone).toLocalDate();
+        for (LocalDate d = from.atZone(zone).toLocalDate().minusDays(1); !d.isAfter(last); d = d.plusDays(1)) {
+            for (Window w : windows) {
+                if (w == null || !w.on(d.getDayOfWeek().getValue() - 1)) continue;
+                bounds.add(at(d, w.start(), zone));
+                bounds.add(at(w.end() > w.start() ? d : d.plusDays(1), w.end(), zone));
+            }
+        }
+        List<Instant> cuts = new ArrayList<>();
+        cuts.add(from);
+        cuts.addAll(bounds.subSet(from, false, until, false));
+        cuts.add(until);
+
+        List<Epoch> out = new ArrayList<>();
+        BitSet prev = null;
+        for (int i = 0; i + 1 < cuts.size(); i++) {
+            ZonedDateTime t = cuts.get(i).atZone(zone);
+            BitSet on = new BitSet(windows.size());
+            for (int k = 0; k < windows.size(); k++) {
+                Window w = windows.get(k);
+                if (w == null || w.contains(t)) on.set(k);
+            }
+            if (on.equals(prev)) {
+                Epoch p = out.remove(out.size() - 1);
+                out.add(new Epoch(p.start(), cuts.get(i + 1), p.userRules(), p.defaultRules()));
+                continue;
+            }
+            out.add(new Epoch(cuts.get(i), cuts.get(i + 1),
+                    userRules == null ? null : join(user, on, 0), defaultRules == null ? null : join(def, on, user.size())));
+            prev = on;
+        }
+        return out;
+    }
+
+    private static Window windowOrNever(String token) {
+        try {
+            return window(token);
+        } catch (IllegalArgumentException e) {
+            log.warn("time window ignored, rule stays off - {}", e.getMessage());
+            return NEVER;
+        }
+    }
+
+    private static Instant at(LocalDate day, int minute, ZoneId zone) {
+        LocalDate d = minute == DAY_MINUTES ? day.plusDays(1) : day;
+        return ZonedDateTime.of(d, LocalTime.of((minute % DAY_MINUTES) / 60, minute % 60), zone).toInstant();
+    }
+
+    private static List<String> tokens(String rules) {
+        List<String> out = new ArrayList<>();
+        if (rules == null || rules.isBlank()) return out;
+        for (String raw : RULE_SEP.split(rules)) {
+            String t = raw == null ? "" : raw.trim();
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    private static String join(List<String> tokens, BitSet on, int offset) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!on.get(offset + i)) continue;
+            if (!sb.isEmpty()) sb.append(',');
+            sb.append(tokens.get(i));
+        }
+        return sb.toString();
+    }
+
+    private static int minuteOf(String hhmm, String token) {
+        int colon = hhmm.indexOf(':');
+        try {
+            int h = Integer.parseInt(hhmm.substring(0, colon));
+            int m = Integer.parseInt(hhmm.substring(colon + 1));
+            if (colon > 0 && h >= 0 && m >= 0 && m < 60 && (h < 24 || (h == 24 && m == 0))) return h * 60 + m;
+        } catch (RuntimeException ignored) {
+            // 아래에서 한 번에 처리
+        }
+        throw new IllegalArgumentException("bad time " + hhmm + ": " + token);
+    }
+
+    private static int daysOf(String spec, String token) {
+        int mask = 0;
+        for (String part : spec.split("\\+")) {
+            int dash = part.indexOf('-');
+            if (dash < 0) {
+                mask |= 1 << dayOf(part, token);
+                continue;
+            }
+            int from = dayOf(part.substring(0, dash), token);
+            int to = dayOf(part.substring(dash + 1), token);
+            for (int d = from; ; d = (d + 1) % 7) {
+                mask |= 1 << d;
+                if (d == to) break;
+            }
+        }
+        return mask;
+    }
+
+    private static int dayOf(String name, String token) {
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            if (DAY_NAMES[i].equals(name)) return i;
+        }
+        throw new IllegalArgumentException("bad day " + name + " (mon..sun): " + token);
+    }
+}
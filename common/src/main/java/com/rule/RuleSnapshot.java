@@ -0,0 +1,46 @@
+package com.rule;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 한 시점의 컴파일된 규칙 묶음(불변).
+ *
+ * <p>요청 스레드는 {@link RuleStore#current()}로 스냅샷 하나를 잡고 그 안에서만 조회하므로,
+ * 조회 도중 규칙이 바뀌어도 반쯤 바뀐 상태를 보지 않는다.</p>
+ *
+ * @param version     스냅샷 버전(교체될 때마다 1씩 증가)
+ * @param userRules   allow-ip.txt 규칙(정규화 완료, 컴파일 파일에서 읽었으면 null)
+ * @param defaultRules DEFAULT_IP 규칙(정규화 완료)
+ * @param allowFile   규칙 파일 경로(없으면 null)
+ * @param matcher     user → default 우선순위로 컴파일된 조회기 (가져온 목록이 있으면 그 앞뒤로 겹친 조회기)
+ */
+public record RuleSnapshot(long version, String userRules, String defaultRules, Path allowFile, RuleMatcher matcher) {
+
+    /** 규칙 문자열을 컴파일해 스냅샷 생성 */
+    public static RuleSnapshot compile(long version, String userRules, String defaultRules, Path allowFile) {
+        return compile(version, userRules, defaultRules, allowFile, List.of(), host -> List.of());
+    }
+
+    /**
+     * 규칙 문자열을 컴파일하고 가져온 목록을 겹쳐 스냅샷 생성.
+     * @param imports 가져온 목록
+     * @param hosts   {@code host:} 규칙의 주소 (캐시 조회만, 예: {@link HostRefresher#addresses})
+     */
+    public static RuleSnapshot compile(long version, String userRules, String defaultRules, Path allowFile,
+                                       List<ImportedList> imports, Function<String, List<String>> hosts) {
+        return new RuleSnapshot(version, userRules, defaultRules, allowFile,
+                LayeredMatcher.of(PrefixTrie.compile(userRules, defaultRules, hosts), imports));
+    }
+
+    /** IPv4 int 값에 걸리는 규칙(없으면 null) */
+    public Rule match(int ip) {
+        return matcher.match(ip);
+    }
+
+    /** IPv4/IPv6 문자열에 걸리는 규칙(형식 오류/미매칭이면 null) */
+    public Rule match(String ip) {
+        return matcher.match(ip);
+    }
+}
@@ -0,0 +1,23 @@
+package com.rule;
+
+/**
+ * 규칙 출처.
+ * 같은 IP에 여러 규칙이 걸리면 {@link #USER}(allow-ip.txt)가 {@link #DEFAULT}(DEFAULT_IP)보다 우선한다.
+ * {@link #IMPORT}(외부 대량 목록)는 거부 목록이면 모든 규칙보다 앞, 허용 목록이면 모든 규칙보다 뒤다.
+ */
+public enum RuleSource {
+    USER("user"),
+    DEFAULT("default"),
+    IMPORT("import");
+
+    private final String label;
+
+    RuleSource(String label) {
+        this.label = label;
+    }
+
+    /** reason 문자열에 쓰이는 이름 */
+    public String label() {
+        return label;
+    }
+}
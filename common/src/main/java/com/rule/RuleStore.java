@@ -0,0 +1,597 @@
+package com.rule;
+
+import com.config.EnvConfig;
+import com.config.IpConfig;
+import com.exception.AppException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 컴파일된 {@link RuleSnapshot}을 들고 있다가, 규칙 파일이 바뀌면 백그라운드에서 다시 만들어 교체한다.
+ *
+ * <ul>
+ *   <li>요청 경로는 {@link #current()} 한 번(volatile 읽기)뿐이다. 파일 탐색/읽기는 하지 않는다.</li>
+ *   <li>{@link #startWatching()} 이후 {@code WatchService}가 규칙 파일 폴더를 감시한다.</li>
+ *   <li>편집기가 여러 번 저장 이벤트를 내도 {@code debounceMillis} 동안 조용해질 때까지 모아서 한 번만 다시 읽는다.</li>
+ *   <li>새 규칙은 {@link IpConfig#assertValidRules(String)}를 통과해야 교체된다.
+ *       잘못된 편집은 로그만 남기고 기존 스냅샷을 유지한다.</li>
+ *   <li>{@code IP_RULES_BINARY}가 가리키는 {@link CompiledRuleFile}이 현재 원본과 같은 상태면
+ *       텍스트 파싱 없이 매핑 파일을 그대로 쓴다. 없거나 오래됐으면 텍스트 규칙으로 돌아간다.</li>
+ *   <li>{@code IP_DECISION_CACHE_SIZE}가 있으면 {@link DecisionCache}를 앞에 둔다.
+ *       캐시 항목은 스냅샷 버전(세대)으로 태깅되므로 교체 즉시 무효가 된다.</li>
+ *   <li>{@code IP_IMPORT_LISTS}의 외부 목록({@link ImportedList})은 스냅샷을 만들 때마다 겹친다.
+ *       크기/수정 시각이 그대로인 목록은 이전 스냅샷의 것을 다시 쓴다(감시 대상은 아니다).</li>
+ *   <li>{@code host:} 규칙의 주소는 {@link HostRefresher}가 백그라운드에서 TTL마다 갱신하고,
+ *       주소가 바뀌면 스냅샷을 다시 만든다. 컴파일은 캐시만 읽으므로 요청 스레드는 DNS를 기다리지 않는다.</li>
+ *   <li>시간대 규칙({@code @mon-fri 09:00-18:00})이 있으면 {@link RuleSchedule}로 앞으로 {@link #SCHEDULE_HORIZON}
+ *       동안의 구간별 스냅샷을 미리 컴파일하고, 경계 시각마다 데몬 스레드가 스냅샷을 바꿔 끼운다.
+ *       교체는 리로드와 같아서(버전 증가) 조회 경로는 시계를 보지 않는다.</li>
+ *   <li>{@link #addRule}/{@link #removeRule}은 실행 중에 allow 파일 규칙 하나를 더하거나 뺀다({@link RuleEditor}).
+ *       스냅샷 교체 한 번으로 끼우고, 파일은 원래 줄을 고쳐 백그라운드에서 쓴다. 감시자는 자기가 쓴 내용이면 다시 컴파일하지 않는다.</li>
+ *   <li>버전은 교체마다 1씩 오른다. {@link RuleFeed}는 {@link #addVersionListener}로 다음 버전을 통보받아 복제 델타를 보내고,
+ *       받는 쪽은 {@link #publish}로 복제된 조회기를 끼운다(그 뒤로는 로컬 원본을 다시 읽지 않는다).</li>
+ * </ul>
+ */
+public final class RuleStore implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RuleStore.class);
+
+    /** 기본 디바운스 시간(ms) */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+    /** 시간대 규칙을 미리 펼치는 기간 (끝나면 다시 읽어 다음 기간을 펼친다) */
+    public static final Duration SCHEDULE_HORIZON = Duration.ofDays(7);
+
+    /** 규칙 원본을 읽어오는 방법 */
+    public interface Loader {
+        /** allow 파일 규칙(정규화 완료) */
+        String userRules();
+
+        /** DEFAULT_IP 규칙(정규화 완료) */
+        String defaultRules();
+
+        /** 감시할 규칙 파일(없으면 null) */
+        Path allowFile();
+
+        /** 미리 컴파일된 바이너리 규칙 파일(없으면 null) */
+        default Path compiledFile() {
+            return null;
+        }
+
+        /** 겹칠 외부 목록(없으면 빈 목록) */
+        default List<ImportedList.Source> importLists() {
+            return List.of();
+        }
+
+        /** 환경변수 기반 기본 로더 ({@link EnvConfig}) */
+        static Loader fromEnv() {
+            return new Loader() {
+                @Override public String userRules() { return EnvConfig.loadAllowFileRulesNormalized(); }
+                @Override public String defaultRules() { return EnvConfig.defaultIpRules(); }
+                @Override public Path allowFile() { return EnvConfig.actualAllowFilePath(); }
+                @Override public Path compiledFile() {
+                    String bin = EnvConfig.env("IP_RULES_BINARY");
+                    return bin == null ? null : Path.of(bin);
+                }
+                @Override public List<ImportedList.Source> importLists() {
+                    return ImportedList.sources(EnvConfig.env(ImportedList.ENV));
+                }
+            };
+        }
+
+        /** 고정 규칙 문자열 로더 (감시할 파일 없음, 테스트/벤치마크용) */
+        static Loader of(String userRules, String defaultRules) {
+            return of(() -> userRules, defaultRules);
+        }
+
+        /** 읽을 때마다 {@code userRules}를 다시 부르는 로더 (감시할 파일 없음, {@link RuleStore#reload()}로 바꿔 끼운다) */
+        static Loader of(Supplier<String> userRules, String defaultRules) {
+            return new Loader() {
+                @Override public String userRules() { return userRules.get(); }
+                @Override public String defaultRules() { return defaultRules; }
+                @Override public Path allowFile() { return null; }
+            };
+        }
+
+        /** 규칙 파일 하나만 쓰는 로더 (DEFAULT_IP 미포함, 경로별 규칙용) */
+        static Loader ofFile(Path file) {
+            return new Loader() {
+                @Override public String userRules() { return EnvConfig.normalizeRules(EnvConfig.readStringSafe(file)); }
+                @Override public String defaultRules() { return null; }
+                @Override public Path allowFile() { return file; }
+            };
+        }
+    }
+
+    private final Loader loader;
+    private final long debounceMillis;
+    private final DecisionCache cache;
+    private final HostRefresher hosts;
+    /** 마지막으로 설치한 버전 (실패한 리로드는 번호를 쓰지 않는다) */
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicReference<RuleSnapshot> current = new AtomicReference<>();
+    private final Object reloadLock = new Object();
+    /** 새 스냅샷을 끼울 때마다 부르는 쪽 ({@link #addVersionListener}) */
+    private final List<LongConsumer> versionListeners = new CopyOnWriteArrayList<>();
+    /** 상위 서버에서 복제받는 중이면 true (로컬 원본 리로드 무시) */
+    private volatile boolean replicated;
+    /** 현재 스냅샷을 만들 때 본 {@link HostRefresher#generation()} */
+    private volatile long hostGeneration;
+    /** 시간대 규칙의 다음 교체들 (리로드되면 새 목록으로 바뀌고 예전 예약은 무시된다) */
+    private volatile List<Step> steps = List.of();
+    private ScheduledExecutorService scheduler;
+    /** 실행 중 편집 + 파일 쓰기 */
+    private final RuleEditor editor;
+
+    /**
+     * 예약된 스냅샷 교체 한 번.
+     * @param at      교체 시각
+     * @param matcher 미리 컴파일한 조회기 (null이면 기간 끝 → 다시 읽기)
+     */
+    private record Step(Instant at, String userRules, String defaultRules, Path allowFile, RuleMatcher matcher) {}
+
+    /** 첫 스냅샷 + 이후 예약 교체 */
+    private record Loaded(RuleSnapshot snapshot, List<Step> steps) {}
+
+    private WatchService watchService;
+    private Thread watcher;
+
+    /** 환경변수 기반 규칙으로 생성 (첫 스냅샷은 즉시 컴파일) */
+    public RuleStore() {
+        this(Loader.fromEnv(), DEFAULT_DEBOUNCE_MILLIS, cacheFromEnv());
+    }
+
+    /**
+     * @param loader         규칙 원본 로더
+     * @param debounceMillis 파일 변경 후 다시 읽기까지 기다릴 조용한 시간(ms)
+     */
+    public RuleStore(Loader loader, long debounceMillis) {
+        this(loader, debounceMillis, null);
+    }
+
+    /**
+     * @param loader         규칙 원본 로더
+     * @param debounceMillis 파일 변경 후 다시 읽기까지 기다릴 조용한 시간(ms)
+     * @param cache          판정 캐시(null이면 사용 안 함)
+     */
+    public RuleStore(Loader loader, long debounceMillis, DecisionCache cache) {
+        this(loader, debounceMillis, cache, HostResolver.fromEnv());
+    }
+
+    /**
+     * @param loader         규칙 원본 로더
+     * @param debounceMillis 파일 변경 후 다시 읽기까지 기다릴 조용한 시간(ms)
+     * @param cache          판정 캐시(null이면 사용 안 함)
+     * @param resolver       {@code host:} 규칙 주소 조회기
+     */
+    public RuleStore(Loader loader, long debounceMillis, DecisionCache cache, HostResolver resolver) {
+        this.loader = loader;
+        this.debounceMillis = debounceMillis;
+        this.cache = cache;
+        this.hosts = new HostRefresher(resolver, this::onHostsChanged);
+        this.editor = new RuleEditor(this, hosts::addresses);
+        install(load(nextVersion(), false));
+    }
+
+    /** 현재 스냅샷 (요청 경로용, I/O 없음) */
+    public RuleSnapshot current() {
+        return current.get();
+    }
+
+    /** 판정 캐시 (없으면 null) */
+    public DecisionCache cache() {
+        return cache;
+    }
+
+    /**
+     * 현재 스냅샷 기준으로 IPv4에 걸리는 규칙 조회 (캐시가 있으면 캐시 우선).
+     * @param ip IPv4 int 값
+     * @return 규칙, 없으면 null
+     */
+    public Rule match(int ip) {
+        return match(current.get(), ip);
+    }
+
+    /**
+     * 주어진 스냅샷 기준으로 조회. 판정과 버전을 같은 스냅샷에서 얻어야 할 때 쓴다(캐시는 그 스냅샷의 버전으로 본다).
+     * @param snap {@link #current()}로 읽은 스냅샷
+     * @param ip   IPv4 int 값
+     * @return 규칙, 없으면 null
+     */
+    public Rule match(RuleSnapshot snap, int ip) {
+        if (cache == null) return snap.match(ip);
+
+        int cached = cache.get(ip, snap.version());
+        if (cached != DecisionCache.MISS) {
+            return cached == DecisionCache.NO_MATCH ? null : snap.matcher().rules().get(cached);
+        }
+        Rule hit = snap.match(ip);
+        cache.put(ip, snap.version(), hit == null ? DecisionCache.NO_MATCH : hit.id());
+        return hit;
+    }
+
+    /** IPv4/IPv6 문자열 버전 (형식 오류면 null, IPv6는 캐시하지 않음) */
+    public Rule match(String ip) {
+        return match(current.get(), ip);
+    }
+
+    /** 주어진 스냅샷 기준 문자열 버전 ({@link #match(RuleSnapshot, int)} 참고) */
+    public Rule match(RuleSnapshot snap, String ip) {
+        long v = Ipv4.parse(ip);
+        if (v != Ipv4.INVALID) return match(snap, (int) v);
+        long[] v6 = Ipv6.scratch();
+        return Ipv6.parse(ip, v6) ? match(snap, v6[0], v6[1]) : null;
+    }
+
+    /**
+     * 주어진 스냅샷 기준 IPv6 조회 (이미 파싱한 값, IPv4-mapped는 IPv4로 캐시 조회).
+     * @param hi 상위 64비트
+     * @param lo 하위 64비트
+     */
+    public Rule match(RuleSnapshot snap, long hi, long lo) {
+        return Ipv6.isMappedIpv4(hi, lo) ? match(snap, (int) lo) : snap.matcher().match6(hi, lo);
+    }
+
+    /**
+     * 규칙을 다시 읽어 검증 후 교체.
+     * @return 교체했으면 true, 검증 실패 등으로 기존 스냅샷을 유지했으면 false
+     */
+    public boolean reload() {
+        if (replicated) {
+            log.debug("IP rules follow an upstream feed, local reload skipped");
+            return false;
+        }
+        try {
+            synchronized (reloadLock) {
+                RuleSnapshot next = install(load(nextVersion(), true));
+                log.info("IP rules reloaded - version={}, rules={}, file={}",
+                        next.version(), next.matcher().rules().size(), next.allowFile());
+            }
+            return true;
+        } catch (AppException e) {
+            log.warn("IP rules reload rejected, keeping version {} - {}", current().version(), e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("IP rules reload failed, keeping version {}", current().version(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 스냅샷 만들기: 신선한 컴파일 파일이 있으면 매핑, 아니면 텍스트 컴파일.
+     * @param validate 텍스트 규칙을 {@link IpConfig#assertValidRules(String)}로 검증할지
+     */
+    private Loaded load(long version, boolean validate) {
+        String defaultRules = loader.defaultRules();
+        Path allowFile = loader.allowFile();
+        List<ImportedList> imports = loadImports(validate);
+        Path bin = loader.compiledFile();
+        if (bin != null && Files.isRegularFile(bin)) {
+            try {
+                CompiledRuleFile compiled = CompiledRuleFile.open(bin);
+                // host: 규칙은 주소가 계속 바뀌므로 매핑 파일에 굳혀 둘 수 없다
+                // 시간대 규칙은 구간마다 다른 조회기가 필요하다
+                boolean dynamic = compiled.rules().stream().anyMatch(r ->
+                        RuleTokens.isHostToken(RuleTokens.body(r.token())) || RuleSchedule.hasWindows(r.token()));
+                if (!dynamic && compiled.isFresh(allowFile, defaultRules)) {
+                    hosts.track(Set.of(), 0);
+                    return new Loaded(new RuleSnapshot(version, null, defaultRules, allowFile,
+                            LayeredMatcher.of(compiled, imports)), List.of());
+                }
+                log.info("Compiled IP rules {} are stale, using text rules", bin);
+            } catch (IOException e) {
+                log.warn("Compiled IP rules {} unusable, using text rules - {}", bin, e.getMessage());
+            }
+        }
+        String userRules = loader.userRules();
+        if (validate) IpConfig.assertValidRules(userRules);
+        Set<String> names = new LinkedHashSet<>(RuleTokens.hostNames(userRules));
+        names.addAll(RuleTokens.hostNames(defaultRules));
+        hosts.track(names, HostRefresher.INITIAL_WAIT_MILLIS);
+        hostGeneration = hosts.generation();
+        if (!RuleSchedule.hasWindows(userRules) && !RuleSchedule.hasWindows(defaultRules)) {
+            return new Loaded(RuleSnapshot.compile(version, userRules, defaultRules, allowFile, imports, hosts::addresses),
+                    List.of());
+        }
+
+        // 시간대 규칙: 구간마다 켜진 토큰만 남겨 컴파일 (같은 규칙 조합은 한 번만)
+        ZoneId zone = RuleSchedule.zoneFromEnv();
+        List<RuleSchedule.Epoch> epochs = RuleSchedule.epochs(userRules, defaultRules, zone, Instant.now(), SCHEDULE_HORIZON);
+        Map<List<String>, RuleSnapshot> compiled = new HashMap<>();
+        List<Step> steps = new ArrayList<>(epochs.size());
+        for (RuleSchedule.Epoch e : epochs) {
+            RuleSnapshot s = compiled.computeIfAbsent(Arrays.asList(e.userRules(), e.defaultRules()),
+                    k -> RuleSnapshot.compile(version, e.userRules(), e.defaultRules(), allowFile, imports, hosts::addresses));
+            steps.add(new Step(e.start(), e.userRules(), e.defaultRules(), allowFile, s.matcher()));
+        }
+        steps.add(new Step(epochs.get(epochs.size() - 1).end(), null, null, allowFile, null));
+        log.info("IP rule schedule - {} windows over {}, {} distinct rule sets, zone={}",
+                epochs.size(), SCHEDULE_HORIZON, compiled.size(), zone);
+        Step first = steps.get(0);
+        return new Loaded(new RuleSnapshot(version, first.userRules(), first.defaultRules(), allowFile, first.matcher()),
+                steps.subList(1, steps.size()));
+    }
+
+    /** 스냅샷 교체 + 예약 교체 등록 */
+    private RuleSnapshot install(Loaded loaded) {
+        RuleSnapshot next = loaded.snapshot();
+        swap(next);
+        editor.loaded(next.allowFile(), next.userRules());
+        List<Step> plan = List.copyOf(loaded.steps());
+        steps = plan;
+        arm(plan, 0);
+        return next;
+    }
+
+    private void arm(List<Step> plan, int i) {
+        if (i >= plan.size()) return;
+        long delay = Math.max(0, Duration.between(Instant.now(), plan.get(i).at()).toMillis());
+        scheduler().schedule(() -> advance(plan, i), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** 경계 시각: 다음 구간 스냅샷으로 교체, 기간 끝이면 다시 읽기 */
+    private void advance(List<Step> plan, int i) {
+        Step step = plan.get(i);
+        if (Instant.now().isBefore(step.at())) {
+            arm(plan, i); // 벽시계가 늦게 가면 다시 기다린다
+            return;
+        }
+        if (step.matcher() == null) {
+            if (steps == plan) reload();
+            return;
+        }
+        synchronized (reloadLock) {
+            if (steps != plan) return; // 그새 리로드됨
+            RuleSnapshot next = new RuleSnapshot(nextVersion(), step.userRules(), step.defaultRules(),
+                    step.allowFile(), step.matcher());
+            swap(next);
+            log.info("IP rule window switched - version={}, at={}", next.version(), step.at());
+        }
+        arm(plan, i + 1);
+    }
+
+    /** 다음 스냅샷 버전 (번호는 {@link #swap}에서 설치할 때만 쓴다, reloadLock 안에서) */
+    long nextVersion() {
+        return versions.get() + 1;
+    }
+
+    /** 스냅샷 교체 공통: 버전 확정 + 캐시 세대 교체(보이기 전에) + 리스너 통보 */
+    void swap(RuleSnapshot next) {
+        versions.set(next.version());
+        if (cache != null) cache.onNewVersion(next.version());
+        current.set(next);
+        for (LongConsumer l : versionListeners) {
+            try {
+                l.accept(next.version());
+            } catch (RuntimeException e) {
+                log.warn("IP rules version listener failed - version={}", next.version(), e);
+            }
+        }
+    }
+
+    /**
+     * 실행 중 규칙 하나 추가 (allow 파일 규칙, 맨 뒤 우선순위). 거부 규칙은 그래도 모든 허용 규칙을 이긴다.
+     * @param token 규칙 토큰 (예: {@code !203.0.113.7}, {@code 198.51.100.0/24}, {@code 2001:db8::/48})
+     * @return 추가했으면 true, 같은 규칙이 이미 있으면 false
+     * @throws IllegalArgumentException 토큰 형식이 틀렸거나 {@code host:}/시간대 규칙일 때 (파일로만 편집)
+     * @throws IllegalStateException    실행 중 변경을 못 하는 상태 (컴파일 파일/시간대 규칙 사용 중, 복제받는 중,
+     *                                  읽은 뒤 파일이 손으로 고쳐짐)
+     */
+    public boolean addRule(String token) {
+        synchronized (reloadLock) {
+            return editor.add(token);
+        }
+    }
+
+    /**
+     * 실행 중 allow 파일 규칙 빼기 (같은 토큰이 여러 번 있으면 모두).
+     * @param token 규칙 토큰
+     * @return 뺐으면 true, 그런 규칙이 없으면 false
+     * @throws IllegalArgumentException 토큰 형식이 틀렸거나 {@code host:}/시간대 규칙일 때
+     * @throws IllegalStateException    실행 중 변경을 못 하는 상태
+     */
+    public boolean removeRule(String token) {
+        synchronized (reloadLock) {
+            return editor.remove(token);
+        }
+    }
+
+    /** 실행 중 변경을 받을 수 있는지 (복제/시간대 규칙이면 {@link IllegalStateException}) */
+    void checkEditable() {
+        if (replicated) throw new IllegalStateException("rules follow an upstream feed");
+        if (!steps.isEmpty()) throw new IllegalStateException("time-window rules are active, edit the rule file");
+    }
+
+    /** 예약된 파일 쓰기가 끝날 때까지 기다린다 */
+    void flush() throws Exception {
+        editor.flush();
+    }
+
+    /**
+     * 복제받은 조회기로 교체 ({@link RuleFollower}). 이후 파일/호스트/시간대 리로드는 하지 않는다
+     * (상위 서버가 이미 반영해 새 버전으로 보낸다).
+     * @param matcher 복제된 조회기
+     * @return 새 스냅샷
+     */
+    public RuleSnapshot publish(RuleMatcher matcher) {
+        synchronized (reloadLock) {
+            replicated = true;
+            steps = List.of();
+            RuleSnapshot next = new RuleSnapshot(nextVersion(), null, null, null, matcher);
+            swap(next);
+            return next;
+        }
+    }
+
+    /**
+     * 새 스냅샷을 끼울 때마다 그 버전으로 부른다 (롱 폴링 깨우기용).
+     * 교체하는 스레드에서 바로 부르므로 오래 걸리는 일은 다른 스레드로 넘긴다.
+     */
+    public void addVersionListener(LongConsumer listener) {
+        versionListeners.add(listener);
+    }
+
+    /** {@link #addVersionListener}로 건 리스너를 뗀다 (건 쪽이 닫힐 때) */
+    public void removeVersionListener(LongConsumer listener) {
+        versionListeners.remove(listener);
+    }
+
+    /** 걸린 리스너 수 (테스트용) */
+    int versionListenerCount() {
+        return versionListeners.size();
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ip-rules-schedule");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return scheduler;
+    }
+
+    /** 호스트 주소가 바뀌었고 현재 스냅샷이 그 전에 만들어졌으면 다시 만든다 */
+    private void onHostsChanged() {
+        if (hosts.generation() != hostGeneration) reload();
+    }
+
+    /**
+     * 외부 목록 읽기. 바뀌지 않은 목록은 현재 스냅샷의 것을 다시 쓴다.
+     * @param strict true(리로드)면 읽기 실패 시 예외 → 기존 스냅샷 유지, false(첫 로드)면 경고 후 그 목록만 뺀다
+     */
+    private List<ImportedList> loadImports(boolean strict) {
+        List<ImportedList.Source> sources = loader.importLists();
+        if (sources.isEmpty()) return List.of();
+        RuleSnapshot prev = current.get();
+        List<ImportedList> previous = prev != null && prev.matcher() instanceof LayeredMatcher layered
+                ? layered.lists() : List.of();
+        List<ImportedList> out = new ArrayList<>(sources.size());
+        for (ImportedList.Source src : sources) {
+            ImportedList reuse = previous.stream()
+                    .filter(l -> l.source().equals(src) && l.isFresh()).findFirst().orElse(null);
+            if (reuse != null) {
+                out.add(reuse);
+                continue;
+            }
+            try {
+                out.add(ImportedList.load(src));
+            } catch (IOException e) {
+                if (strict) throw new UncheckedIOException("IP list import failed: " + src.file(), e);
+                log.warn("IP list import failed, skipping {} - {}", src.file(), e.toString());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 규칙 파일 감시 시작(데몬 스레드). 파일이 없으면 감시하지 않는다.
+     * 여러 번 호출해도 한 번만 시작된다.
+     */
+    public synchronized void startWatching() {
+        if (watcher != null) return;
+        Path file = current().allowFile();
+        if (file == null || file.getParent() == null) {
+            log.info("IP rules file not found, hot reload disabled");
+            return;
+        }
+        Path dir = file.getParent();
+        Path name = file.getFileName();
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException e) {
+            log.warn("IP rules watch failed for {}", dir, e);
+            return;
+        }
+        WatchService ws = watchService;
+        watcher = new Thread(() -> watchLoop(ws, name), "ip-rules-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("IP rules watching {}", file);
+    }
+
+    private void watchLoop(WatchService ws, Path name) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!drain(ws.take(), name)) continue;
+                // 디바운스: 추가 이벤트가 멈출 때까지 모은다
+                WatchKey more;
+                while ((more = ws.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    drain(more, name);
+                }
+                RuleSnapshot snap = current.get();
+                if (editor.selfWritten(snap.allowFile(), snap.userRules())) continue; // 실행 중 변경을 파일에 쓴 것 → 이미 반영됨
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // close() 호출로 종료
+        }
+    }
+
+    /** 키의 이벤트를 비우고, 규칙 파일 관련 이벤트가 있었는지 반환 */
+    private static boolean drain(WatchKey key, Path name) {
+        boolean hit = false;
+        for (WatchEvent<?> ev : key.pollEvents()) {
+            if (ev.kind() == OVERFLOW || name.equals(ev.context())) hit = true;
+        }
+        key.reset();
+        return hit;
+    }
+
+    private static DecisionCache cacheFromEnv() {
+        String size = EnvConfig.env("IP_DECISION_CACHE_SIZE");
+        if (size == null) return null;
+        try {
+            int n = Integer.parseInt(size);
+            return n > 0 ? new DecisionCache(n) : null;
+        } catch (NumberFormatException e) {
+            log.warn("IP_DECISION_CACHE_SIZE is not a number: {}", size);
+            return null;
+        }
+    }
+
+    /** 감시 중지 */
+    @Override
+    public synchronized void close() {
+        if (cache != null) log.info("IP decision cache stats - {}", cache);
+        hosts.close();
+        steps = List.of();
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+        editor.close(); // 밀린 파일 쓰기는 마친다
+        if (watcher != null) watcher.interrupt();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {}
+        }
+        watcher = null;
+        watchService = null;
+    }
+}
@@ -0,0 +1,302 @@
+package com.rule;
+
+import com.constant.IPRegex;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.constant.RegexConst.RULE_SEP;
+
+/**
+ * 규칙 토큰을 IPv4 구간으로 펼치는 컴파일 단계 유틸.
+ *
+ * <p>토큰 판별 순서와 의미는 기존 {@code IpConfig} 선형 매칭과 동일하게 맞춘다.</p>
+ * <ul>
+ *   <li>CIDR: {@code 10.0.0.0/8} → 네트워크 주소 ~ 브로드캐스트 주소. 접두 길이 32 초과는 무시.</li>
+ *   <li>범위: {@code 10.0.0.1-10.0.0.9} → 시작/끝이 뒤집혀 있어도 허용.</li>
+ *   <li>와일드카드: {@code 172.30.*.*} → {@code *}는 0~255. 숫자 옥텟은 문자열 그대로 비교되던
+ *       기존 동작에 맞춰 정규 표기(앞자리 0 없음, 0~255)만 인정.</li>
+ *   <li>단일 IPv4: {@code 203.0.113.7} → 길이 1 구간.</li>
+ *   <li>IPv6({@code :} 포함 토큰): {@code 2001:db8::/32}, {@code 2001:db8::1-2001:db8::ff}, {@code 2001:db8::1}
+ *       → {@link #expand6}로 128비트 구간. 와일드카드는 지원하지 않는다.</li>
+ * </ul>
+ * <p>토큰 앞에 {@code !}를 붙이면 거부 규칙이다(예: {@code !10.1.2.3}). 거부는 순서와 상관없이 허용보다 우선한다.</p>
+ * <p>{@code host:partner.example.com}은 호스트 이름 규칙이다. 여기서는 펼치지 않고,
+ * {@link PrefixTrie}가 {@link HostRefresher}에 미리 풀어 둔 주소로 컴파일한다.</p>
+ * <p>{@code @요일 HH:MM-HH:MM} 꼬리는 시간대 규칙이다. 여기서는 떼고 펼치므로(항상 켜짐),
+ * 시간 구간별로 켜진 토큰만 고르는 일은 {@link RuleSchedule}이 먼저 한다.</p>
+ * <p>요청마다 호출되는 경로가 아니므로 정규식/할당을 허용한다.</p>
+ */
+public final class RuleTokens {
+    private RuleTokens() {}
+
+    /** 문자열 앞뒤의 구분자/공백 */
+    private static final Pattern EDGE_SEP = Pattern.compile("^(?:,|\\||;|\\s)+|(?:,|\\||;|\\s)+$");
+
+    /** 거부 규칙 접두사 */
+    public static final char DENY_PREFIX = '!';
+
+    /** 호스트 이름 규칙 접두사 */
+    public static final String HOST_PREFIX = "host:";
+
+    /** {@link #compile6} 라벨: 거부(작을수록 우선) */
+    public static final int V6_DENY = 0;
+    /** {@link #compile6} 라벨: 허용 */
+    public static final int V6_ALLOW = 1;
+
+    /** 구간을 받는 콜백 (시작/끝은 0 ~ 2^32-1 의 부호 없는 값) */
+    @FunctionalInterface
+    public interface IntervalSink {
+        void accept(long start, long end);
+    }
+
+    /**
+     * 규칙 문자열 전체를 구간 테이블로 컴파일 (허용 합집합 − 거부 합집합).
+     * @param rules 구분자 혼합 규칙 문자열(null/blank 허용)
+     * @return 컴파일된 테이블, 규칙이 없으면 {@link IntervalTable#EMPTY}
+     */
+    public static IntervalTable compile(String rules) {
+        if (rules == null || rules.isBlank()) return IntervalTable.EMPTY;
+        IntervalTable.Builder allow = IntervalTable.builder();
+        IntervalTable.Builder deny = IntervalTable.builder();
+        for (String raw : RULE_SEP.split(rules)) {
+            String token = raw == null ? "" : raw.trim();
+            if (token.isEmpty()) continue;
+            if (isDeny(token)) expand(body(token), deny);
+            else expand(body(token), allow);
+        }
+        return allow.build().difference(deny.build());
+    }
+
+    /**
+     * 규칙 문자열의 IPv6 토큰을 128비트 테이블로 컴파일. 라벨은 {@link #V6_DENY} / {@link #V6_ALLOW}.
+     * @param rules 구분자 혼합 규칙 문자열(null/blank 허용)
+     * @return 컴파일된 테이블
+     */
+    public static Ipv6Table compile6(String rules) {
+        if (rules == null || rules.isBlank()) return Ipv6Table.EMPTY;
+        List<Ipv6Table.Span> spans = new ArrayList<>();
+        for (String raw : RULE_SEP.split(rules)) {
+            String token = raw == null ? "" : raw.trim();
+            if (token.isEmpty()) continue;
+            int label = isDeny(token) ? V6_DENY : V6_ALLOW;
+            expand6(body(token), (sHi, sLo, eHi, eLo) -> spans.add(new Ipv6Table.Span(sHi, sLo, eHi, eLo, label)));
+        }
+        return Ipv6Table.paint(spans);
+    }
+
+    /** IPv6 토큰인지 ({@code :} 포함) */
+    public static boolean isIpv6Token(String token) {
+        return token.indexOf(':') >= 0;
+    }
+
+    /**
+     * IPv6 토큰 하나를 128비트 구간으로 펼친다.
+     * @param token 공백 제거된 토큰({@code !} 접두사 제외)
+     * @param sink  구간 수신자
+     * @return 지원하는 형식이면 true
+     */
+    public static boolean expand6(String token, Ipv6Table.Sink sink) {
+        if (!isIpv6Token(token)) return false;
+        long[] a = new long[2];
+        int slash = token.indexOf('/');
+        if (slash >= 0) {
+            int prefix;
+            try {
+                prefix = Integer.parseInt(token.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (prefix < 0 || prefix > 128 || !Ipv6.parse(token, 0, slash, a)) return false;
+            long maskHi = prefix >= 64 ? -1L : prefix == 0 ? 0L : -1L << (64 - prefix);
+            long maskLo = prefix <= 64 ? 0L : prefix == 128 ? -1L : -1L << (128 - prefix);
+            sink.accept(a[0] & maskHi, a[1] & maskLo, a[0] | ~maskHi, a[1] | ~maskLo);
+            return true;
+        }
+        int dash = token.indexOf('-');
+        if (dash >= 0) {
+            long[] b = new long[2];
+            if (!Ipv6.parse(token, 0, dash, a) || !Ipv6.parse(token, dash + 1, token.length(), b)) {
+                // 범위 양끝 공백 허용
+                String left = token.substring(0, dash).trim(), right = token.substring(dash + 1).trim();
+                if (!Ipv6.parse(left, a) || !Ipv6.parse(right, b)) return false;
+            }
+            sink.accept(a[0], a[1], b[0], b[1]);
+            return true;
+        }
+        if (!Ipv6.parse(token, a)) return false;
+        sink.accept(a[0], a[1], a[0], a[1]);
+        return true;
+    }
+
+    /** 호스트 이름 토큰인지 ({@code host:}로 시작, 대소문자 무시) */
+    public static boolean isHostToken(String token) {
+        return token.regionMatches(true, 0, HOST_PREFIX, 0, HOST_PREFIX.length());
+    }
+
+    /**
+     * 호스트 이름 토큰의 이름 부분 (소문자, 끝의 {@code .} 제거).
+     * 라벨은 영문/숫자/{@code -} 1~63자, 전체 253자 이하여야 한다.
+     * @param token {@code !}를 뗀 토큰
+     * @return 이름, 형식이 틀리면 null
+     */
+    public static String hostName(String token) {
+        if (!isHostToken(token)) return null;
+        String name = token.substring(HOST_PREFIX.length()).trim().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".")) name = name.substring(0, name.length() - 1);
+        if (name.isEmpty() || name.length() > 253) return null;
+        int label = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.') {
+                if (label == 0 || name.charAt(i - 1) == '-') return null;
+                label = 0;
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (c == '-' && label > 0)) {
+                if (++label > 63) return null;
+            } else {
+                return null;
+            }
+        }
+        return name.charAt(name.length() - 1) == '-' ? null : name;
+    }
+
+    /**
+     * 규칙 문자열에서 토큰 하나를 모두 뺀다. 나머지 토큰과 구분자는 원래 모양 그대로 둔다.
+     * @param rules 구분자 혼합 규칙 문자열(null 허용)
+     * @param token 뺄 토큰 (공백 제거된 값과 비교)
+     * @return 뺀 문자열 (앞뒤 공백/구분자 정리)
+     */
+    public static String withoutToken(String rules, String token) {
+        if (rules == null || rules.isBlank()) return rules;
+        StringBuilder out = new StringBuilder(rules.length());
+        Matcher sep = RULE_SEP.matcher(rules);
+        int pos = 0;
+        while (pos <= rules.length()) {
+            boolean found = sep.find(pos);
+            int end = found ? sep.start() : rules.length();
+            int next = found ? sep.end() : rules.length() + 1;
+            if (!rules.substring(pos, end).trim().equals(token)) {
+                out.append(rules, pos, found ? sep.end() : end);
+            }
+            pos = next;
+        }
+        return EDGE_SEP.matcher(out).replaceAll("");
+    }
+
+    /**
+     * 규칙 문자열에 나오는 호스트 이름 모으기 (거부 규칙 포함, 등장 순서).
+     * @param rules 구분자 혼합 규칙 문자열(null 허용)
+     */
+    public static Set<String> hostNames(String rules) {
+        Set<String> out = new LinkedHashSet<>();
+        if (rules == null || rules.isBlank()) return out;
+        for (String raw : RULE_SEP.split(rules)) {
+            String name = hostName(body(raw == null ? "" : raw.trim()));
+            if (name != null) out.add(name);
+        }
+        return out;
+    }
+
+    /** 거부 규칙 토큰인지 ({@code !}로 시작) */
+    public static boolean isDeny(String token) {
+        return !token.isEmpty() && token.charAt(0) == DENY_PREFIX;
+    }
+
+    /** {@code !}와 시간대({@code @...}, {@link RuleSchedule})를 뗀 주소 부분 */
+    public static String body(String token) {
+        String b = isDeny(token) ? token.substring(1).trim() : token;
+        int at = b.indexOf(RuleSchedule.WINDOW_PREFIX);
+        return at < 0 ? b : b.substring(0, at).trim();
+    }
+
+    /**
+     * 토큰 하나를 구간으로 펼친다.
+     * @param token 공백 제거된 토큰({@code !} 접두사 제외)
+     * @param sink  구간 수신자
+     * @return 지원하는 형식이면 true (형식은 맞지만 값이 범위를 벗어나 구간이 없을 수도 있음)
+     */
+    public static boolean expand(String token, IntervalSink sink) {
+        if (IPRegex.CIDR.matches(token)) {
+            expandCidr(token, sink);
+        } else if (IPRegex.RANGE.matches(token)) {
+            expandRange(token, sink);
+        } else if (IPRegex.WILDCARD.matches(token)) {
+            expandWildcard(token, sink);
+        } else if (IPRegex.IPV4.matches(token)) {
+            long ip = Ipv4.parse(token);
+            if (ip != Ipv4.INVALID) sink.accept(ip, ip);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void expandCidr(String token, IntervalSink sink) {
+        int slash = token.indexOf('/');
+        int prefix = Integer.parseInt(token.substring(slash + 1));
+        if (prefix > 32) return;
+        long net = Ipv4.parse(token, 0, slash);
+        if (net == Ipv4.INVALID) return;
+        long size = 1L << (32 - prefix);
+        long start = net & ~(size - 1) & 0xFFFFFFFFL;
+        sink.accept(start, start + size - 1);
+    }
+
+    private static void expandRange(String token, IntervalSink sink) {
+        String[] parts = token.split("[-~]");
+        if (parts.length != 2) return;
+        long a = Ipv4.parse(parts[0].trim());
+        long b = Ipv4.parse(parts[1].trim());
+        if (a == Ipv4.INVALID || b == Ipv4.INVALID) return;
+        sink.accept(Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * 와일드카드는 연속 구간이 아닐 수 있다(예: {@code 10.*.0.1}).
+     * 마지막 숫자 옥텟까지는 조합을 펼치고, 그 뒤의 {@code *}는 한 블록으로 묶는다.
+     */
+    private static void expandWildcard(String token, IntervalSink sink) {
+        String[] parts = token.split("\\.");
+        int[] fixed = new int[4];
+        int last = -1;
+        for (int i = 0; i < 4; i++) {
+            if ("*".equals(parts[i])) {
+                fixed[i] = -1;
+            } else {
+                fixed[i] = canonicalOctet(parts[i]);
+                if (fixed[i] < 0) return; // 어떤 IPv4 문자열과도 일치할 수 없는 옥텟
+                last = i;
+            }
+        }
+        long blockSize = 1L << (8 * (3 - last));
+        expandWildcard(fixed, 0, last, 0L, blockSize, sink);
+    }
+
+    private static void expandWildcard(int[] fixed, int idx, int last, long base, long blockSize, IntervalSink sink) {
+        if (idx > last) {
+            long start = base << (8 * (3 - last));
+            sink.accept(start, start + blockSize - 1);
+            return;
+        }
+        if (fixed[idx] >= 0) {
+            expandWildcard(fixed, idx + 1, last, (base << 8) | fixed[idx], blockSize, sink);
+        } else {
+            for (int v = 0; v < 256; v++) {
+                expandWildcard(fixed, idx + 1, last, (base << 8) | v, blockSize, sink);
+            }
+        }
+    }
+
+    /** 정규 표기 옥텟이면 값, 아니면 -1 (예: "7" → 7, "07" → -1, "300" → -1) */
+    private static int canonicalOctet(String s) {
+        if (s.isEmpty() || s.length() > 3) return -1;
+        if (s.length() > 1 && s.charAt(0) == '0') return -1;
+        int v = Integer.parseInt(s);
+        return v <= 255 ? v : -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.servlet;
+
+import com.config.EnvConfig;
+import com.constant.AttributeKeys;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 관리/복제 엔드포인트 공통 인증 ({@code /admin/rules}, {@code /admin/bans}는 {@value #TOKEN_ENV},
+ * {@code /rules/feed}는 {@code IP_RULES_FEED_TOKEN}).
+ *
+ * <ul>
+ *   <li>가드가 허용한 요청({@link AttributeKeys#ALLOWED})이 아니면 {@code 403}.</li>
+ *   <li>토큰 설정이 없으면 엔드포인트가 없는 것으로 보고 {@code 404}.</li>
+ *   <li>{@code Authorization: Bearer <토큰>}이 다르면 {@code 401} (상수 시간 비교).</li>
+ * </ul>
+ *
+ * <p>허용 주소만으로는 열지 않는다. 같은 대역의 아무 클라이언트나 규칙/차단을 바꿀 수 있기 때문이다.</p>
+ */
+public final class AdminAuth {
+    private static final Logger log = LoggerFactory.getLogger(AdminAuth.class);
+
+    /** 관리 토큰 환경변수 */
+    public static final String TOKEN_ENV = "IP_ADMIN_TOKEN";
+    private static final String BEARER = "Bearer ";
+
+    private final String name;
+    private final String env;
+    private final byte[] token;
+
+    /**
+     * @param name  로그/응답에 쓸 엔드포인트 이름 (예: {@code "rule admin"})
+     * @param token 관리 토큰 (null/공백 = 꺼짐)
+     */
+    public AdminAuth(String name, String token) {
+        this(name, TOKEN_ENV, token);
+    }
+
+    /**
+     * @param name  로그/응답에 쓸 엔드포인트 이름
+     * @param env   토큰 환경변수 이름 (꺼졌을 때 응답에 알려 준다)
+     * @param token 토큰 (null/공백 = 꺼짐)
+     */
+    public AdminAuth(String name, String env, String token) {
+        this.name = name;
+        this.env = env;
+        this.token = token == null || token.isBlank() ? null : token.trim().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** {@value #TOKEN_ENV} 환경변수의 토큰으로 생성 */
+    public static AdminAuth fromEnv(String name) {
+        return fromEnv(name, TOKEN_ENV);
+    }
+
+    /** {@code env} 환경변수의 토큰으로 생성 */
+    public static AdminAuth fromEnv(String name, String env) {
+        return new AdminAuth(name, env, EnvConfig.env(env));
+    }
+
+    /** 토큰이 설정되어 있는지 */
+    public boolean enabled() {
+        return token != null;
+    }
+
+    /**
+     * 가드가 허용했고 관리 토큰이 맞는지. 아니면 {@code 403}/{@code 404}/{@code 401} 응답까지 쓴다.
+     * @return 계속 처리해도 되면 true
+     */
+    public boolean permit(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!Boolean.TRUE.equals(req.getAttribute(AttributeKeys.ALLOWED.getKey()))) {
+            plainText(res, 403, "forbidden\n");
+            return false;
+        }
+        if (token == null) {
+            plainText(res, 404, name + " is off (" + env + ")\n");
+            return false;
+        }
+        String auth = req.getHeader("Authorization");
+        byte[] given = auth != null && auth.startsWith(BEARER)
+                ? auth.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (!MessageDigest.isEqual(token, given)) {
+            log.warn("IP {} auth failed - client={}", name, req.getAttribute(AttributeKeys.CLIENT.getKey()));
+            res.setHeader("WWW-Authenticate", "Bearer");
+            plainText(res, 401, "unauthorized\n");
+            return false;
+        }
+        return true;
+    }
+
+    private static void plainText(HttpServletResponse res, int status, String body) throws IOException {
+        res.setStatus(status);
+        res.setCharacterEncoding("UTF-8");
+        res.setContentType("text/plain; charset=UTF-8");
+        try (OutputStream out = res.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.servlet;
+
+import com.constant.AttributeKeys;
+import com.filter.RuleRegistry;
+import com.rule.RuleSnapshot;
+import com.rule.RuleStore;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.constant.RegexConst.RULE_SEP;
+
+/**
+ * 실행 중 규칙 편집 엔드포인트. 두 서버 모두 {@code /admin/rules}에 건다.
+ *
+ * <ul>
+ *   <li><b>GET</b> {@code /admin/rules}: 현재 allow 파일 규칙. 첫 줄 {@code # version=N}, 이후 한 줄에 토큰 하나.</li>
+ *   <li><b>POST</b> {@code /admin/rules?rule=!203.0.113.7}: 규칙 추가 ({@code 201}, 이미 있으면 {@code 200}).</li>
+ *   <li><b>DELETE</b> {@code /admin/rules?rule=...}: 규칙 삭제 ({@code 200}, 없으면 {@code 404}).</li>
+ *   <li>{@code path=/files}를 주면 그 경로의 규칙 묶음({@value RuleRegistry#PATH_RULES_ENV})을 편집한다.</li>
+ * </ul>
+ *
+ * <p>변경은 {@link RuleStore#addRule}/{@link RuleStore#removeRule}로 바로 반영되고 파일에는 백그라운드에서 쓴다.
+ * 형식 오류/{@code host:}/시간대 규칙은 {@code 400}, 컴파일 파일·시간대 규칙·복제 중이거나
+ * 마지막으로 읽은 뒤 파일이 손으로 고쳐져 바꿀 수 없으면 {@code 409}.</p>
+ *
+ * <p>인증은 {@link AdminAuth}: 가드가 허용한 요청이면서 {@code Authorization: Bearer <토큰>}이
+ * {@value AdminAuth#TOKEN_ENV}와 같아야 한다. 토큰 설정이 없으면 {@code 404}.</p>
+ */
+public class RuleAdminServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(RuleAdminServlet.class);
+
+    private static final String NAME = "rule admin";
+
+    private final transient RuleRegistry rules;
+    private final transient AdminAuth auth;
+
+    /** {@value AdminAuth#TOKEN_ENV} 환경변수의 토큰으로 생성 */
+    public RuleAdminServlet(RuleRegistry rules) {
+        this(rules, AdminAuth.fromEnv(NAME));
+    }
+
+    /**
+     * @param rules 규칙 레지스트리
+     * @param token 관리 토큰 (null = 꺼짐)
+     */
+    public RuleAdminServlet(RuleRegistry rules, String token) {
+        this(rules, new AdminAuth(NAME, token));
+    }
+
+    private RuleAdminServlet(RuleRegistry rules, AdminAuth auth) {
+        this.rules = rules;
+        this.auth = auth;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!auth.permit(req, res)) return;
+        RuleSnapshot snap = store(req).current();
+        StringBuilder sb = new StringBuilder("# version=").append(snap.version()).append('\n');
+        if (snap.userRules() != null && !snap.userRules().isBlank()) {
+            for (String part : RULE_SEP.split(snap.userRules())) {
+                if (!part.isBlank()) sb.append(part.trim()).append('\n');
+            }
+        }
+        plainText(res, 200, sb.toString());
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!auth.permit(req, res)) return;
+        edit(req, res, true);
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!auth.permit(req, res)) return;
+        edit(req, res, false);
+    }
+
+    private void edit(HttpServletRequest req, HttpServletResponse res, boolean add) throws IOException {
+        String rule = req.getParameter("rule");
+        if (rule == null || rule.isBlank()) {
+            plainText(res, 400, "rule is required\n");
+            return;
+        }
+        RuleStore store = store(req);
+        boolean changed;
+        try {
+            changed = add ? store.addRule(rule) : store.removeRule(rule);
+        } catch (IllegalArgumentException e) {
+            plainText(res, 400, e.getMessage() + "\n");
+            return;
+        } catch (IllegalStateException e) {
+            plainText(res, 409, e.getMessage() + "\n");
+            return;
+        }
+        long version = store.current().version();
+        log.info("IP rule {} by {} - rule={}, changed={}, version={}", add ? "add" : "remove",
+                req.getAttribute(AttributeKeys.CLIENT.getKey()), rule.trim(), changed, version);
+        if (add) {
+            plainText(res, changed ? 201 : 200, (changed ? "added " : "exists ") + rule.trim() + "\n");
+        } else {
+            plainText(res, changed ? 200 : 404, (changed ? "removed " : "not found: ") + rule.trim() + "\n");
+        }
+    }
+
+    /** {@code path} 파라미터의 규칙 보관소 (없으면 기본) */
+    private RuleStore store(HttpServletRequest req) {
+        String path = req.getParameter("path");
+        return path == null || path.isBlank() ? rules.defaults() : rules.route(path.trim());
+    }
+
+    private static void plainText(HttpServletResponse res, int status, String body) throws IOException {
+        res.setStatus(status);
+        res.setCharacterEncoding("UTF-8");
+        res.setContentType("text/plain; charset=UTF-8");
+        try (OutputStream out = res.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -8,8 +8,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 
-import java.lang.reflect.Constructor;
-import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
@@ -17,11 +19,8 @@ import static org.mockito.Mockito.when;
 
 class IpConfigTest {
 
-    // --- 리플렉션으로 private 생성자 호출해 mergedRules 주입 ---
-    private static IpConfig newWithRules(String mergedRules) throws Exception {
-        Constructor<IpConfig> ctor = IpConfig.class.getDeclaredConstructor(String.class, Path.class);
-        ctor.setAccessible(true);
-        return ctor.newInstance(mergedRules, null);
+    private static IpConfig newWithRules(String mergedRules) {
+        return IpConfig.of(mergedRules);
     }
 
     // ============ 1) 규칙 유효성 사전 검증(assertValidRules) ============
@@ -66,6 +65,44 @@ class IpConfigTest {
         assertFalse(cfg.isAllowed("172.30.1.21"));
     }
 
+    @Test
+    void isAllowed_compiled_table_agrees_with_legacy_scan() throws Exception {
+        String rules = String.join("|",
+                "10.0.0.0/8",
+                "172.16.0.0-172.31.255.255",
+                "192.168.*.1",
+                "198.51.100.200-198.51.100.100",
+                "203.0.113.7",
+                "100.64.0.0/10",
+                "1.2.3.0/33",                // 접두 길이 초과 → 무시
+                "!10.1.0.0/16",              // 거부: 허용 /8 안의 구멍
+                "!172.20.5.*"
+        );
+        IpConfig cfg = newWithRules(rules);
+
+        Random rnd = new Random(42);
+        int[] firstOctets = {1, 10, 100, 172, 192, 198, 203};
+        for (int i = 0; i < 20_000; i++) {
+            String ip = firstOctets[rnd.nextInt(firstOctets.length)] + "."
+                    + rnd.nextInt(256) + "." + rnd.nextInt(256) + "." + rnd.nextInt(256);
+            assertEquals(IpConfig.isValidIP(ip, rules), cfg.isAllowed(ip), ip);
+        }
+    }
+
+    @Test
+    void isAllowed_ipv6_rules_with_deny() throws Exception {
+        IpConfig cfg = newWithRules("10.0.0.0/8|2001:db8::/32|!2001:db8:bad::/48|fd00::1-fd00::ff");
+
+        assertTrue(cfg.isAllowed("2001:db8::1"));
+        assertTrue(cfg.isAllowed("fd00::80"));
+        assertTrue(cfg.isAllowed("::ffff:10.0.0.1"));   // IPv4-mapped → IPv4 규칙
+        assertFalse(cfg.isAllowed("2001:db8:bad::1"));
+        assertFalse(cfg.isAllowed("fd00::100"));
+        assertFalse(cfg.isAllowed("2001:db8::zz"));
+        assertDoesNotThrow(() -> IpConfig.assertValidRules("2001:db8::/32|!fe80::/10|::1"));
+        assertThrows(AppException.class, () -> IpConfig.assertValidRules("2001:db8::/129"));
+    }
+
     // ============ 3) toIPv4IfPossible() ============
     @Test
     void toIPv4IfPossible_handles_ipv6_mapped_and_loopback() {
@@ -84,9 +121,9 @@ class IpConfigTest {
     }
 
     @Test
-    void clientIPv4_trustProxyHeaders_uses_xff_first_token() {
+    void clientIPv4_trustProxyHeaders_skips_trusted_hops_from_the_right() {
         HttpServletRequest req = mock(HttpServletRequest.class);
-        when(req.getHeader("X-Forwarded-For")).thenReturn("203.0.113.60, 10.0.0.5");
+        when(req.getHeader("X-Forwarded-For")).thenReturn("203.0.113.60, 127.0.0.1");
         when(req.getHeader("X-Real-IP")).thenReturn(null);
         when(req.getRemoteAddr()).thenReturn("127.0.0.1");
 
@@ -125,4 +162,48 @@ class IpConfigTest {
         assertNotNull(cfg);
         assertNotNull(cfg.mergedRules()); // 빈 문자열일 수도 있으나 NPE는 없어야 함
     }
+
+    @Test
+    void windowed_rules_switch_tables_at_the_scheduled_boundary() {
+        AtomicLong now = new AtomicLong(Instant.parse("2026-10-12T08:59:00Z").toEpochMilli()); // 월요일
+        IpConfig cfg = new IpConfig("10.0.0.0/8@mon-fri 09:00-18:00,192.0.2.1", null, ZoneOffset.UTC, now::get);
+        assertFalse(cfg.isAllowed("10.1.1.1"));
+        assertTrue(cfg.isAllowed("192.0.2.1"));
+
+        // 조회는 시계를 보지 않는다: 경계를 넘어도 예약 교체 전까지는 이전 테이블
+        now.set(Instant.parse("2026-10-12T09:00:00Z").toEpochMilli());
+        assertFalse(cfg.isAllowed("10.1.1.1"));
+        cfg.switchIfDue();
+        assertTrue(cfg.isAllowed("10.1.1.1"));
+        assertTrue(cfg.isAllowed(0x0A010101));
+        var businessHours = cfg.table();
+
+        // 일찍 깨면 그대로 두고 남은 시간만큼 다시 예약
+        now.set(Instant.parse("2026-10-12T17:59:00Z").toEpochMilli());
+        cfg.switchIfDue();
+        assertTrue(cfg.isAllowed("10.1.1.1"));
+
+        now.set(Instant.parse("2026-10-12T18:00:00Z").toEpochMilli());
+        cfg.switchIfDue();
+        assertFalse(cfg.isAllowed("10.1.1.1"));
+
+        // 같은 규칙 상태로 돌아오면 다시 컴파일하지 않고 그때 테이블을 쓴다
+        now.set(Instant.parse("2026-10-13T12:00:00Z").toEpochMilli());
+        cfg.switchIfDue();
+        assertTrue(cfg.isAllowed("10.1.1.1"));
+        assertSame(businessHours, cfg.table());
+    }
+
+    @Test
+    void windowed_rules_switch_on_the_scheduler_thread() throws Exception {
+        AtomicLong now = new AtomicLong(Instant.parse("2026-10-12T08:59:59.950Z").toEpochMilli());
+        IpConfig cfg = new IpConfig("10.0.0.0/8@mon-fri 09:00-18:00", null, ZoneOffset.UTC, now::get);
+        assertFalse(cfg.isAllowed("10.1.1.1"));
+
+        // 50ms 뒤 예약 작업이 깨어나 시계를 보고 바꾼다 (일찍 깨면 남은 시간만큼 다시 예약)
+        now.set(Instant.parse("2026-10-12T09:00:00Z").toEpochMilli());
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!cfg.isAllowed("10.1.1.1") && System.nanoTime() < deadline) Thread.sleep(10);
+        assertTrue(cfg.isAllowed("10.1.1.1"));
+    }
 }
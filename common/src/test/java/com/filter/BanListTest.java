@@ -0,0 +1,125 @@
+package com.filter;
+
+import com.constant.AttributeKeys;
+import com.rule.ClientAddress;
+import com.rule.RuleStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BanListTest {
+
+    private static RuleStore store(String rules) {
+        return new RuleStore(RuleStore.Loader.of(rules, null), 50);
+    }
+
+    @Test
+    void errors_in_one_window_ban_until_the_wheel_expires_it() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        BanList bans = new BanList(BanList.Policy.parse("errors=3;window=10;ban=60;status=404"), now::get);
+
+        assertFalse(bans.record("203.0.113.7", 404));
+        assertFalse(bans.record("203.0.113.7", 200));           // 세지 않는 상태
+        assertFalse(bans.record("203.0.113.7", 400));
+        now.addAndGet(11_000);                                  // 창이 지나 새로 센다
+        assertFalse(bans.record("203.0.113.7", 404));
+        assertFalse(bans.record("203.0.113.7", 404));
+        assertNull(bans.banned("203.0.113.7"));
+        assertTrue(bans.record("::ffff:203.0.113.7", 404));     // 같은 주소의 다른 표기
+
+        BanList.Ban ban = bans.banned("203.0.113.7");
+        assertNotNull(ban);
+        assertEquals(now.get() + 60_000, ban.untilMillis());
+        assertEquals(3, ban.errors());
+        assertNull(bans.banned("203.0.113.8"));
+
+        now.addAndGet(59_999);
+        bans.expire();
+        assertNotNull(bans.banned("203.0.113.7"));
+        now.addAndGet(1 + BanList.TICK_MILLIS);
+        bans.expire();
+        assertNull(bans.banned("203.0.113.7"));
+        assertTrue(bans.bans().isEmpty());
+        assertEquals(0, bans.pending());
+    }
+
+    @Test
+    void policy_parsing_keeps_defaults_for_bad_entries_and_skips_exempt_clients() {
+        BanList.Policy p = BanList.Policy.parse("errors=x;window=5;status=999;bogus;exempt=10.0.0.0/8,!10.9.9.9");
+        assertEquals(BanList.Policy.DEFAULT.errors(), p.errors());
+        assertEquals(5_000, p.windowMillis());
+        assertEquals(BanList.Policy.DEFAULT.statuses(), p.statuses());
+
+        BanList bans = new BanList(BanList.Policy.parse("errors=1;exempt=10.0.0.0/8,!10.9.9.9"), () -> 0L);
+        assertFalse(bans.record("10.1.2.3", 404));
+        assertTrue(bans.record("10.9.9.9", 404));
+        assertTrue(bans.record("2001:DB8::1", 400));
+        assertEquals("2001:db8::1", bans.clear("2001:db8:0::1").ip());
+        assertNull(bans.clear("2001:db8::1"));
+        assertEquals(1, bans.clearAll());
+    }
+
+    @Test
+    void loopback_and_this_host_are_not_counted_unless_asked() {
+        BanList bans = new BanList(BanList.Policy.parse("errors=1"), () -> 0L);
+        assertTrue(bans.policy().exemptLocal());
+        assertFalse(bans.record("127.0.0.1", 404));
+        assertFalse(bans.record("::1", 404));
+        assertFalse(bans.record(ClientAddress.localHostAddress(), 404)); // 루프백 요청이 바뀌는 주소
+        assertTrue(bans.bans().isEmpty());
+
+        BanList counting = new BanList(BanList.Policy.parse("errors=1;local=count"), () -> 0L);
+        assertTrue(counting.record("127.0.0.1", 404));
+
+        // 운영자 규칙의 거부 토큰은 로컬 예외보다 우선
+        BanList strict = new BanList(BanList.Policy.parse("errors=1;exempt=!127.0.0.9"), () -> 0L);
+        assertTrue(strict.record("127.0.0.9", 404));
+        assertFalse(strict.record("127.0.0.1", 404));
+    }
+
+    @Test
+    void filter_blocks_banned_clients_and_feeds_response_status_once() throws Exception {
+        AtomicLong now = new AtomicLong(0);
+        BanList bans = new BanList(BanList.Policy.parse("errors=2;window=10;ban=60"), now::get);
+        IpGuardFilter filter = new IpGuardFilter(new RuleRegistry(store("203.0.113.0/24"), Map.of(), bans));
+
+        Map<String, Object> attrs = new HashMap<>();
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getRemoteAddr()).thenReturn("203.0.113.7");
+        when(req.getServletPath()).thenReturn("/files");
+        when(req.getAttribute(anyString())).thenAnswer(a -> attrs.get(a.<String>getArgument(0)));
+        doAnswer(a -> attrs.put(a.getArgument(0), a.getArgument(1))).when(req).setAttribute(anyString(), any());
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getStatus()).thenReturn(404);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(req, res, chain);
+        attrs.clear();
+        filter.doFilter(req, res, chain);
+        verify(chain, times(2)).doFilter(req, res);
+        assertNotNull(bans.banned("203.0.113.7"));
+
+        attrs.clear();
+        filter.doFilter(req, res, chain);
+        verify(chain, times(2)).doFilter(req, res);
+        verify(res).sendError(403);
+        verify(res).setHeader("X-Ip-Reason", BanList.REASON);
+        assertEquals(Boolean.FALSE, attrs.get(AttributeKeys.ALLOWED.getKey()));
+
+        // Valve가 이미 센 요청은 필터가 다시 세지 않는다
+        bans.clearAll();
+        attrs.put(AttributeKeys.BAN_TRACKED.getKey(), Boolean.TRUE);
+        filter.doFilter(req, res, chain);
+        filter.doFilter(req, res, chain);
+        assertNull(bans.banned("203.0.113.7"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.filter;
+
+import com.constant.AttributeKeys;
+import com.constant.HeaderKeys;
+import com.rule.RuleStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DecisionTokenTest {
+
+    private static final byte[] KEY = "0123456789abcdef-shared".getBytes(StandardCharsets.UTF_8);
+
+    private static RuleStore store(String rules) {
+        return new RuleStore(RuleStore.Loader.of(rules, null), 50);
+    }
+
+    @Test
+    void issued_token_verifies_until_it_expires_and_rejects_tampering() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        DecisionToken tokens = new DecisionToken(KEY, now::get);
+
+        String token = tokens.issue("2001:db8::7", true, "allowed:user(2001:db8::/32)", 42);
+        assertTrue(token.length() < 120, token);
+        DecisionToken.Decision d = tokens.verify(token);
+        assertEquals(new DecisionToken.Decision("2001:db8::7", true, "allowed:user(2001:db8::/32)", 42,
+                now.get() + DecisionToken.TTL_MILLIS), d);
+
+        // 본문 한 글자, 다른 키, 망가진 형식
+        char c = token.charAt(3);
+        assertNull(tokens.verify(token.substring(0, 3) + (c == 'A' ? 'B' : 'A') + token.substring(4)));
+        assertNull(new DecisionToken("another-key-0123456".getBytes(StandardCharsets.UTF_8), now::get).verify(token));
+        assertNull(tokens.verify("not-a-token"));
+        assertNull(tokens.verify("@@@.###"));
+        assertNull(tokens.verify(null));
+
+        now.addAndGet(DecisionToken.TTL_MILLIS - 1);
+        assertNotNull(tokens.verify(token));
+        now.incrementAndGet();
+        assertNull(tokens.verify(token));
+
+        assertThrows(IllegalArgumentException.class, () -> new DecisionToken(new byte[8], now::get));
+    }
+
+    @Test
+    void filter_trusts_a_signed_decision_instead_of_the_socket_address() throws Exception {
+        DecisionToken tokens = new DecisionToken(KEY, System::currentTimeMillis);
+        // 서버2 규칙은 내부 호출 주소만 안다 → 토큰 없이는 서버1의 판정과 다르게 나온다
+        RuleStore rules = spy(store("127.0.0.1"));
+        IpGuardFilter filter = new IpGuardFilter(new RuleRegistry(rules, Map.of(), null, tokens));
+
+        Map<String, Object> attrs = new HashMap<>();
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getRemoteAddr()).thenReturn("127.0.0.1");
+        when(req.getServletPath()).thenReturn("/files");
+        when(req.getAttribute(anyString())).thenAnswer(a -> attrs.get(a.<String>getArgument(0)));
+        doAnswer(a -> attrs.put(a.getArgument(0), a.getArgument(1))).when(req).setAttribute(anyString(), any());
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        when(req.getHeader(HeaderKeys.DECISION.getKey()))
+                .thenReturn(tokens.issue("198.51.100.9", false, "denied:no-match", 7));
+        filter.doFilter(req, res, chain);
+        assertEquals("198.51.100.9", attrs.get(AttributeKeys.CLIENT.getKey()));
+        assertEquals(Boolean.FALSE, attrs.get(AttributeKeys.ALLOWED.getKey()));
+        assertEquals("denied:no-match", attrs.get(AttributeKeys.REASON.getKey()));
+        assertEquals(7L, attrs.get(AttributeKeys.RULE_VERSION.getKey()));
+        verify(rules, never()).match(anyString());
+
+        // 위조/평문 헤더는 무시하고 소켓 주소로 직접 판정
+        attrs.clear();
+        when(req.getHeader(HeaderKeys.DECISION.getKey())).thenReturn("forged.token");
+        when(req.getHeader("X-Client-IP")).thenReturn("198.51.100.9");
+        filter.doFilter(req, res, chain);
+        assertEquals("127.0.0.1", attrs.get(AttributeKeys.CLIENT.getKey()));
+        assertEquals(Boolean.TRUE, attrs.get(AttributeKeys.ALLOWED.getKey()));
+        assertEquals("allowed:user(127.0.0.1)", attrs.get(AttributeKeys.REASON.getKey()));
+        assertEquals(rules.current().version(), attrs.get(AttributeKeys.RULE_VERSION.getKey()));
+        verify(chain, times(2)).doFilter(req, res);
+    }
+}
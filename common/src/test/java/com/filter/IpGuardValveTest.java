@@ -0,0 +1,88 @@
+package com.filter;
+
+import com.rule.RuleStore;
+import jakarta.servlet.ServletOutputStream;
+import org.apache.catalina.Valve;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IpGuardValveTest {
+
+    private static RuleStore store(String rules) {
+        return new RuleStore(RuleStore.Loader.of(rules, null), 50);
+    }
+
+    private static Request request(String ip, String uri) {
+        Request req = mock(Request.class);
+        when(req.getRemoteAddr()).thenReturn(ip);
+        when(req.getDecodedRequestURI()).thenReturn(uri);
+        when(req.getContextPath()).thenReturn("");
+        return req;
+    }
+
+    @Test
+    void denied_request_gets_prebuilt_403_and_never_reaches_next_valve() throws Exception {
+        IpGuardValve valve = new IpGuardValve(store("10.0.0.0/8,!10.9.9.9"), Map.of(), null);
+        Valve next = mock(Valve.class);
+        valve.setNext(next);
+
+        Response res = mock(Response.class);
+        ServletOutputStream out = mock(ServletOutputStream.class);
+        when(res.getOutputStream()).thenReturn(out);
+
+        valve.invoke(request("10.9.9.9", "/transfer"), res);
+        valve.invoke(request("8.8.8.8", "/transfer"), res);
+
+        verify(res, times(2)).setStatus(403);
+        verify(out, times(2)).write(any(byte[].class));
+        verify(res, never()).sendError(anyInt());
+        verifyNoInteractions(next);
+        assertEquals(2, valve.denied());
+    }
+
+    @Test
+    void allowed_request_passes_with_attributes() throws Exception {
+        IpGuardValve valve = new IpGuardValve(store("10.0.0.0/8"), Map.of(), null);
+        Valve next = mock(Valve.class);
+        valve.setNext(next);
+
+        Request req = request("10.1.2.3", "/files");
+        Response res = mock(Response.class);
+        valve.invoke(req, res);
+
+        verify(next).invoke(req, res);
+        verify(req).setAttribute(anyString(), eq("allowed:user(10.0.0.0/8)"));
+        verify(res, never()).setStatus(anyInt());
+    }
+
+    @Test
+    void path_rules_and_rate_limit_apply_before_servlets() throws Exception {
+        RateLimiter limiter = RateLimiter.parse("*=1/1", 64, () -> 0L);
+        IpGuardValve valve = new IpGuardValve(store("10.0.0.0/8"),
+                Map.of("/transfer", store("192.168.0.0/16")), limiter);
+        Valve next = mock(Valve.class);
+        valve.setNext(next);
+
+        Response res = mock(Response.class);
+        when(res.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+
+        valve.invoke(request("10.1.2.3", "/transfer/a"), res);      // 경로별 규칙에 없음
+        verify(res).setStatus(403);
+
+        Request ok = request("192.168.1.1", "/transfer");
+        valve.invoke(ok, res);
+        verify(next).invoke(ok, res);
+
+        valve.invoke(request("192.168.1.1", "/transfer"), res);
+        verify(res).setStatus(429);
+        verify(res).setHeader("Retry-After", "1");
+        assertEquals(1, valve.limited());
+    }
+}
@@ -0,0 +1,42 @@
+package com.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathRouterTest {
+
+    private final PathRouter<String> router = new PathRouter<>(Map.of(
+            "/files", "files",
+            "/files/private/", "private",
+            "transfer", "transfer"));
+
+    @Test
+    void route_picks_longest_prefix_on_segment_boundary() {
+        assertEquals("files", router.route("/files"));
+        assertEquals("files", router.route("/files/a.txt"));
+        assertEquals("private", router.route("/files/private"));
+        assertEquals("private", router.route("/files/private/x"));
+        assertEquals("transfer", router.route("/transfer"));
+        assertEquals(3, router.size());
+    }
+
+    @Test
+    void route_returns_null_when_nothing_matches() {
+        assertNull(router.route("/filesystem"));
+        assertNull(router.route("/"));
+        assertNull(router.route(""));
+        assertNull(router.route(null));
+        assertNull(new PathRouter<String>(Map.of()).route("/files"));
+    }
+
+    @Test
+    void root_prefix_matches_everything() {
+        PathRouter<String> r = new PathRouter<>(Map.of("/", "all", "/ops", "ops"));
+        assertEquals("ops", r.route("/ops/x"));
+        assertEquals("all", r.route("/anything"));
+        assertEquals("all", r.route(""));
+    }
+}
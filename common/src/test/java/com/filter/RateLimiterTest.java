@@ -0,0 +1,149 @@
+package com.filter;
+
+import com.constant.AttributeKeys;
+import com.rule.RuleStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RateLimiterTest {
+
+    private static final int IP = 0xCB007107; // 203.0.113.7
+
+    @Test
+    void burst_then_reject_until_lazy_refill() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        RateLimiter limiter = RateLimiter.parse("*=2/3", 64, now::get);
+
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire(IP));
+        assertEquals(500, limiter.tryAcquire(IP));     // 초당 2개 → 토큰 하나에 500ms
+        assertEquals(1, limiter.rejected());
+
+        now.addAndGet(499);
+        assertEquals(1, limiter.tryAcquire(IP));
+        now.addAndGet(1);
+        assertEquals(0, limiter.tryAcquire(IP));
+        assertTrue(limiter.tryAcquire(IP) > 0);
+
+        // 오래 쉬어도 버스트까지만 찬다
+        now.addAndGet(60_000);
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire(IP));
+        assertTrue(limiter.tryAcquire(IP) > 0);
+    }
+
+    @Test
+    void limits_per_subnet_first_entry_wins() {
+        RateLimiter limiter = RateLimiter.parse("10.0.0.0/8=off; 203.0.113.0/24=5/10; 203.0.0.0/8=1; *=20/40",
+                64, () -> 0L);
+
+        assertNull(limiter.limitOf(0x0A010203));
+        assertEquals(new RateLimiter.Limit(5, 10), limiter.limitOf(IP));
+        assertEquals(new RateLimiter.Limit(1, 1), limiter.limitOf(0xCB000001));
+        assertEquals(new RateLimiter.Limit(20, 40), limiter.limitOf(0x08080808));
+
+        for (int i = 0; i < 1_000; i++) assertEquals(0, limiter.tryAcquire(0x0A010203));
+    }
+
+    @Test
+    void without_fallback_unlisted_clients_are_unlimited_and_bad_entries_are_skipped() {
+        RateLimiter limiter = RateLimiter.parse("203.0.113.7=1;bogus;192.0.2.1=0;*=x", 64, () -> 0L);
+
+        assertNull(limiter.limitOf(0x08080808));
+        assertNull(limiter.limitOf(0xC0000201));
+        assertEquals(0, limiter.tryAcquire(IP));
+        assertEquals(1_000, limiter.tryAcquire(IP));
+    }
+
+    @Test
+    void idle_buckets_are_reused_when_the_table_is_full() {
+        AtomicLong now = new AtomicLong();
+        RateLimiter limiter = RateLimiter.parse("*=1/1", 8, now::get);
+        assertEquals(8, limiter.capacity());
+
+        for (int ip = 1; ip <= 8; ip++) assertEquals(0, limiter.tryAcquire(ip));
+        for (int ip = 1; ip <= 8; ip++) assertTrue(limiter.tryAcquire(ip) > 0);
+
+        // 버킷이 다 찰 만큼 쉰 뒤에는 새 클라이언트가 자리를 넘겨받고, 예전 클라이언트도 손해가 없다
+        now.addAndGet(1_000);
+        for (int ip = 100; ip < 108; ip++) assertEquals(0, limiter.tryAcquire(ip));
+        for (int ip = 100; ip < 108; ip++) assertTrue(limiter.tryAcquire(ip) > 0);
+        now.addAndGet(1_000);
+        for (int ip = 1; ip <= 8; ip++) assertEquals(0, limiter.tryAcquire(ip));
+    }
+
+    @Test
+    void concurrent_clients_never_exceed_the_burst() throws Exception {
+        RateLimiter limiter = RateLimiter.parse("*=1/1000", 1024, () -> 0L);
+        AtomicInteger passed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (limiter.tryAcquire(IP) == 0) passed.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1_000, passed.get());
+        assertEquals(7_000, limiter.rejected());
+    }
+
+    @Test
+    void filter_rejects_with_429_and_retry_after() throws Exception {
+        RuleStore store = new RuleStore(RuleStore.Loader.of("", "0.0.0.0/0"), 50);
+        IpGuardFilter filter = new IpGuardFilter(store, Map.of(), RateLimiter.parse("*=0.5/1", 64, () -> 0L));
+
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getRemoteAddr()).thenReturn("203.0.113.7");
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(req, res, chain);
+        verify(chain).doFilter(req, res);
+
+        filter.doFilter(req, res, chain);
+        verify(res).setHeader("Retry-After", "2");
+        verify(res).sendError(429);
+        verify(chain, times(1)).doFilter(req, res);
+    }
+
+    @Test
+    void servers_sharing_a_registry_share_one_bucket_and_checked_requests_are_not_charged_twice() throws Exception {
+        RuleStore store = new RuleStore(RuleStore.Loader.of("", "0.0.0.0/0"), 50);
+        RateLimiter limiter = RateLimiter.parse("*=0.5/1", 64, () -> 0L);
+        RuleRegistry shared = new RuleRegistry(store, Map.of(), null, null, limiter, null);
+        IpGuardFilter server1 = new IpGuardFilter(shared);
+        IpGuardFilter server2 = new IpGuardFilter(shared);
+        assertSame(limiter, shared.limiter());
+
+        // Valve가 이미 차감한 요청은 필터가 다시 세지 않는다
+        HttpServletRequest checked = mock(HttpServletRequest.class);
+        when(checked.getRemoteAddr()).thenReturn("203.0.113.7");
+        when(checked.getAttribute(AttributeKeys.RATE_CHECKED.getKey())).thenReturn(Boolean.TRUE);
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+        server1.doFilter(checked, res, chain);
+        verify(chain).doFilter(checked, res);
+
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getRemoteAddr()).thenReturn("203.0.113.7");
+        server1.doFilter(req, res, chain);
+        verify(chain).doFilter(req, res);
+
+        server2.doFilter(req, res, chain);  // 서버2가 따로 버킷을 만들었다면 통과했을 요청
+        verify(res).sendError(429);
+        verify(chain, times(1)).doFilter(req, res);
+    }
+}
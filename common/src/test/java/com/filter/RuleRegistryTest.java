@@ -0,0 +1,69 @@
+package com.filter;
+
+import com.rule.RuleStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RuleRegistryTest {
+
+    private static RuleStore store(AtomicReference<String> rules) {
+        return new RuleStore(RuleStore.Loader.of(rules::get, null), 50);
+    }
+
+    @Test
+    void routes_by_prefix_and_lists_each_store_once() {
+        RuleStore defaults = store(new AtomicReference<>("10.0.0.0/8"));
+        RuleStore ops = store(new AtomicReference<>("192.168.0.0/16"));
+        RuleRegistry registry = new RuleRegistry(defaults, Map.of("/transfer", ops, "/admin", ops));
+
+        assertSame(ops, registry.route("/transfer/a"));
+        assertSame(ops, registry.route("/admin"));
+        assertSame(defaults, registry.route("/files"));
+        assertSame(defaults, registry.route(null));
+        assertEquals(List.of(defaults, ops), registry.stores());
+    }
+
+    @Test
+    void filters_sharing_a_registry_see_one_reload_and_do_not_close_it() throws Exception {
+        AtomicReference<String> rules = new AtomicReference<>("10.0.0.0/8");
+        RuleStore defaults = store(rules);
+        RuleRegistry registry = new RuleRegistry(defaults, Map.of());
+        IpGuardFilter server1 = new IpGuardFilter(registry);
+        IpGuardFilter server2 = new IpGuardFilter(registry);
+
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getRemoteAddr()).thenReturn("203.0.113.7");
+        HttpServletResponse res1 = mock(HttpServletResponse.class);
+        HttpServletResponse res2 = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        server1.doFilter(req, res1, chain);
+        server2.doFilter(req, res2, chain);
+        verify(res1).setHeader("X-Ip-Allowed", "false");
+        verify(res2).setHeader("X-Ip-Allowed", "false");
+
+        // 한 번 리로드 → 두 필터 모두 새 버전
+        long version = defaults.current().version();
+        rules.set("203.0.113.0/24");
+        assertTrue(defaults.reload());
+        server1.doFilter(req, res1, chain);
+        server2.doFilter(req, res2, chain);
+        verify(res1).setHeader("X-Ip-Allowed", "true");
+        verify(res2).setHeader("X-Ip-Allowed", "true");
+        assertEquals(version + 1, defaults.current().version());
+
+        // 빌려 쓴 레지스트리는 필터가 닫지 않는다
+        server1.destroy();
+        server2.doFilter(req, res2, chain);
+        verify(res2, times(2)).setHeader("X-Ip-Allowed", "true");
+    }
+}
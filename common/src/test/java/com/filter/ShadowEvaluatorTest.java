@@ -0,0 +1,86 @@
+package com.filter;
+
+import com.constant.AttributeKeys;
+import com.rule.PrefixTrie;
+import com.rule.RuleSnapshot;
+import com.rule.RuleStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShadowEvaluatorTest {
+
+    private static RuleStore store(String user, String defaults) {
+        return new RuleStore(RuleStore.Loader.of(user, defaults), 50);
+    }
+
+    @Test
+    void both_engines_agree_on_the_same_rule_text() {
+        RuleSnapshot snap = store("10.0.0.0/8,!10.1.2.3,192.168.0.*,10.9.0.1 - 10.9.0.9", "172.16.0.0/12,10.0.0.0/8")
+                .current();
+        ShadowEvaluator shadow = new ShadowEvaluator(1.0);
+        List<String> ips = List.of("10.1.2.3", "10.1.2.4", "192.168.0.77", "10.9.0.5", "172.16.3.4", "8.8.8.8",
+                "2001:db8::1");
+        ips.forEach(ip -> shadow.sample(ip, snap));
+
+        assertEquals(ips.size(), shadow.drain());
+        ShadowEvaluator.Stats s = shadow.stats();
+        assertEquals(ips.size(), s.sampled());
+        assertEquals(ips.size() - 1, s.compared());
+        assertEquals(1, s.skipped()); // 레거시는 IPv6를 모른다
+        assertEquals(0, s.divergences(), shadow.divergences().toString());
+        assertTrue(s.legacyNanos() > 0 && s.compiledNanos() > 0);
+    }
+
+    @Test
+    void divergences_are_recorded_with_both_results_and_full_queue_drops() {
+        // 컴파일 조회기만 /9로 잘못 만든 스냅샷
+        RuleSnapshot broken = new RuleSnapshot(3, "10.0.0.0/8,!10.0.0.7", null, null,
+                PrefixTrie.compile("10.0.0.0/9,!10.0.0.7", null));
+        ShadowEvaluator shadow = new ShadowEvaluator(1.0);
+        shadow.sample("10.200.0.1", broken);
+        shadow.sample("10.0.0.7", broken);
+        shadow.drain();
+
+        assertEquals(List.of(new ShadowEvaluator.Divergence("10.200.0.1", 3, "decision",
+                false, null, true, "10.0.0.0/8")), shadow.divergences());
+
+        // 규칙 문자열이 없는 스냅샷(컴파일 파일)은 비교하지 않는다
+        shadow.sample("10.0.0.1", new RuleSnapshot(4, null, null, null, PrefixTrie.compile("10.0.0.0/8", null)));
+        shadow.drain();
+        assertEquals(1, shadow.stats().skipped());
+
+        for (int i = 0; i < ShadowEvaluator.QUEUE + 5; i++) shadow.sample("10.0.0.1", broken);
+        assertEquals(5, shadow.stats().dropped());
+        assertEquals(ShadowEvaluator.QUEUE, shadow.drain());
+        assertThrows(IllegalArgumentException.class, () -> new ShadowEvaluator(0));
+    }
+
+    @Test
+    void filter_queues_samples_without_changing_the_decision() throws Exception {
+        RuleStore rules = store("10.0.0.0/8", null);
+        ShadowEvaluator shadow = new ShadowEvaluator(1.0);
+        IpGuardFilter filter = new IpGuardFilter(new RuleRegistry(rules, Map.of(), null, null, null, shadow));
+
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getRemoteAddr()).thenReturn("10.1.1.1");
+        when(req.getServletPath()).thenReturn("/files");
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+        filter.doFilter(req, res, chain);
+
+        verify(req).setAttribute(AttributeKeys.ALLOWED.getKey(), true);
+        verify(chain).doFilter(req, res);
+        assertEquals(1, shadow.stats().sampled());
+        assertEquals(0, shadow.stats().compared()); // 평가는 요청 스레드가 아니라 섀도 스레드에서
+        assertEquals(1, shadow.drain());
+        assertEquals(0, shadow.stats().divergences());
+    }
+}
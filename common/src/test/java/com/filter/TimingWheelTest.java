@@ -0,0 +1,59 @@
+package com.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void tasks_fire_on_their_tick_across_all_levels() {
+        TimingWheel wheel = new TimingWheel(10, 1_000);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add("now"), 500);             // 이미 지남 → 다음 틱
+        wheel.schedule(() -> fired.add("tick5"), 1_045);          // 올림 → 5틱
+        wheel.schedule(() -> fired.add("level1"), 1_000 + 10 * 100);
+        wheel.schedule(() -> fired.add("level2"), 1_000 + 10 * 5_000);
+        wheel.schedule(() -> fired.add("far"), 1_000 + 10 * (1L << 25)); // 맨 윗단 범위 밖
+
+        assertEquals(1, wheel.advance(1_010));
+        assertEquals(List.of("now"), fired);
+        assertEquals(0, wheel.advance(1_049));
+        assertEquals(1, wheel.advance(1_050));
+        assertEquals(0, wheel.advance(1_000 + 10 * 99));
+        assertEquals(1, wheel.advance(1_000 + 10 * 100));
+        assertEquals(0, wheel.advance(1_000 + 10 * 4_999));
+        assertEquals(1, wheel.advance(1_000 + 10 * 5_000));
+        assertEquals(List.of("now", "tick5", "level1", "level2"), fired);
+
+        assertEquals(0, wheel.advance(1_000 + 10 * ((1L << 25) - 1)));
+        assertEquals(1, wheel.advance(1_000 + 10 * (1L << 25)));
+        assertEquals("far", fired.get(4));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void random_deadlines_never_fire_early_or_late() {
+        Random rnd = new Random(7);
+        TimingWheel wheel = new TimingWheel(1, 0);
+        long[] firedAt = new long[5_000];
+        long[] deadline = new long[firedAt.length];
+        long[] now = {0};
+        for (int i = 0; i < firedAt.length; i++) {
+            int k = i;
+            deadline[i] = 1 + rnd.nextInt(300_000);
+            wheel.schedule(() -> firedAt[k] = now[0], deadline[i]);
+        }
+        while (wheel.size() > 0) {
+            now[0] += 1 + rnd.nextInt(3);
+            wheel.advance(now[0]);
+        }
+        for (int i = 0; i < firedAt.length; i++) {
+            assertTrue(firedAt[i] >= deadline[i] && firedAt[i] <= deadline[i] + 2, "task " + i);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchEvaluatorTest {
+
+    private static final RuleSnapshot SNAPSHOT = RuleSnapshot.compile(1,
+            "10.0.0.0/8|172.16.0.1-172.16.3.255|192.168.*.1|203.0.113.7",
+            "192.168.0.0-192.168.255.255", null);
+
+    @Test
+    void evaluate_agrees_with_single_lookup() {
+        SplittableRandom rnd = new SplittableRandom(42);
+        int[] ips = new int[300_001];   // 여러 작업으로 나뉘고 64로 나누어떨어지지 않는 크기
+        for (int i = 0; i < ips.length; i++) {
+            // 규칙 근처 주소가 자주 나오도록 상위 8비트를 몇 개로 제한
+            int top = new int[]{10, 172, 192, 203, 8}[rnd.nextInt(5)];
+            ips[i] = (top << 24) | rnd.nextInt(1 << 24);
+        }
+
+        BatchEvaluator.Result r = BatchEvaluator.evaluate(SNAPSHOT, ips, new ForkJoinPool(4));
+
+        long allowed = 0;
+        long[] hits = new long[r.ruleHits().length];
+        for (int i = 0; i < ips.length; i++) {
+            Rule expected = SNAPSHOT.match(ips[i]);
+            assertEquals(expected != null, r.allowed().get(i), "index " + i);
+            assertEquals(expected == null ? -1 : expected.id(), r.matchedRule()[i]);
+            if (expected != null) {
+                allowed++;
+                hits[expected.id()]++;
+            }
+        }
+        assertEquals(allowed, r.allowedCount());
+        assertArrayEquals(hits, r.ruleHits());
+    }
+
+    @Test
+    void evaluateLines_counts_unparseable_lines_as_invalid() throws Exception {
+        String input = "10.1.2.3\n  203.0.113.7 \n\n8.8.8.8\nnot-an-ip\n::1\n192.168.5.1\n::ffff:10.9.9.9\n";
+        BatchEvaluator.Summary s = BatchEvaluator.evaluateLines(SNAPSHOT,
+                new BufferedReader(new StringReader(input)), ForkJoinPool.commonPool());
+
+        assertEquals(7, s.lines());
+        assertEquals(1, s.invalid());
+        assertEquals(4, s.allowed());                 // IPv4-mapped IPv6도 IPv4 규칙으로 판정
+        assertEquals(3, s.denied());
+        assertEquals(2, s.ruleHits()[SNAPSHOT.match("10.1.2.3").id()]);
+        assertEquals(1, s.ruleHits()[SNAPSHOT.match("192.168.5.1").id()]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchMatcherTest {
+
+    private static final PrefixTrie TRIE = PrefixTrie.compile(
+            "10.0.0.0/8|!10.1.2.3|172.16.0.1-172.16.3.255|192.168.*.1|203.0.113.7|255.255.255.255",
+            "192.168.0.0-192.168.255.255|0.0.0.0");
+
+    /** 규칙 경계 근처와 양 끝 주소를 섞은 입력 (레인 수로 나누어떨어지지 않는 길이) */
+    private static int[] inputs() {
+        SplittableRandom rnd = new SplittableRandom(7);
+        int[] ips = new int[100_003];
+        for (int i = 0; i < ips.length; i++) {
+            int top = new int[]{10, 172, 192, 203, 8, 0, 255}[rnd.nextInt(7)];
+            ips[i] = (top << 24) | rnd.nextInt(1 << 24);
+        }
+        int[] edges = {0, 1, -1, -2, 0x0A000000, 0x09FFFFFF, 0x0AFFFFFF, 0x0B000000, 0x0A010203, 0xCB007107, 0xCB007108};
+        System.arraycopy(edges, 0, ips, 0, edges.length);
+        return ips;
+    }
+
+    private static void assertAgreesWithMatcher(BatchMatcher bm, RuleMatcher matcher, int[] ips) {
+        int[] out = new int[ips.length];
+        bm.match(ips, 0, ips.length, out);
+        for (int i = 0; i < ips.length; i++) {
+            Rule expected = matcher.match(ips[i]);
+            assertEquals(expected == null ? -1 : expected.id(), out[i], "ip " + Ipv4.format(ips[i]));
+            assertEquals(out[i], bm.match(ips[i]));
+        }
+    }
+
+    @Test
+    void scalar_and_vector_agree_with_trie() {
+        int[] ips = inputs();
+        assertAgreesWithMatcher(BatchMatcher.scalar(TRIE), TRIE, ips);
+
+        BatchMatcher bm = BatchMatcher.of(TRIE);
+        assertTrue(bm.vectorized(), "tests run with --add-modules jdk.incubator.vector");
+        assertAgreesWithMatcher(bm, TRIE, ips);
+    }
+
+    @Test
+    void partial_ranges_and_empty_table() {
+        int[] ips = inputs();
+        int[] out = new int[ips.length];
+        Arrays.fill(out, 99);
+        BatchMatcher.of(TRIE).match(ips, 5, 37, out);
+        assertEquals(99, out[4]);
+        assertEquals(99, out[37]);
+        for (int i = 5; i < 37; i++) {
+            Rule r = TRIE.match(ips[i]);
+            assertEquals(r == null ? -1 : r.id(), out[i]);
+        }
+
+        BatchMatcher empty = BatchMatcher.of(PrefixTrie.compile(null, null));
+        assertEquals(0, empty.size());
+        empty.match(ips, 0, ips.length, out);
+        for (int v : out) assertEquals(-1, v);
+    }
+
+    @Test
+    void compiled_file_segments_give_the_same_answers(@TempDir Path dir) throws Exception {
+        Path bin = dir.resolve("rules.bin");
+        CompiledRuleFile.write(TRIE, new CompiledRuleFile.Source(-1, 0, 0), bin);
+        CompiledRuleFile file = CompiledRuleFile.open(bin);
+        assertAgreesWithMatcher(BatchMatcher.of(file), TRIE, inputs());
+    }
+}
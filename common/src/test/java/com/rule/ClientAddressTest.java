@@ -0,0 +1,65 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientAddressTest {
+
+    private final ClientAddress proxies = ClientAddress.of("10.0.0.0/8,203.0.113.10,2001:db8:ffff::/48");
+
+    @Test
+    void untrusted_peer_ignores_headers() {
+        assertEquals("198.51.100.7", proxies.resolve("198.51.100.7", "1.2.3.4", "5.6.7.8"));
+    }
+
+    @Test
+    void walks_xff_right_to_left_skipping_trusted_hops() {
+        // 클라이언트가 왼쪽에 써 넣은 값(6.6.6.6)은 믿지 않는다
+        assertEquals("198.51.100.7",
+                proxies.resolve("10.0.0.2", "6.6.6.6, 198.51.100.7, 203.0.113.10,10.0.0.9", null));
+        assertEquals("198.51.100.7", proxies.resolve("10.0.0.2", " 198.51.100.7 ", null));
+    }
+
+    @Test
+    void all_trusted_hops_fall_back_to_leftmost_then_real_ip_then_peer() {
+        assertEquals("10.1.1.1", proxies.resolve("10.0.0.2", "10.1.1.1, 10.0.0.9", null));
+        assertEquals("198.51.100.9", proxies.resolve("10.0.0.2", " , ", "198.51.100.9"));
+        assertEquals("10.0.0.2", proxies.resolve("10.0.0.2", null, null));
+    }
+
+    @Test
+    void hops_may_carry_ports_brackets_and_ipv6() {
+        assertEquals("198.51.100.7", proxies.resolve("10.0.0.2", "198.51.100.7:5555, 203.0.113.10:443", null));
+        assertEquals("2001:db8::1", proxies.resolve("2001:db8:ffff::5", "[2001:db8::1]:443, [2001:db8:ffff::9]", null));
+        assertEquals("2001:db8::1", proxies.resolve("::ffff:10.0.0.2", "2001:db8::1", null));
+    }
+
+    @Test
+    void garbage_hop_is_treated_as_untrusted_client() {
+        assertEquals("unknown", proxies.resolve("10.0.0.2", "unknown, 10.0.0.9", null));
+    }
+
+    @Test
+    void default_set_trusts_loopback_only() {
+        ClientAddress d = ClientAddress.defaults();
+        assertEquals("203.0.113.60", d.resolve("127.0.0.1", "203.0.113.60, 127.0.0.1", null));
+        assertEquals("172.32.0.1", d.resolve("::1", "172.32.0.1", null));
+        // 사설망 홉도 클라이언트로 본다 (그 왼쪽은 믿지 않는다)
+        assertEquals("10.0.0.5", d.resolve("127.0.0.1", "203.0.113.60, 10.0.0.5", null));
+        assertFalse(d.isTrusted("fd00::1", 0, 7));
+        assertFalse(d.isTrusted("10.0.0.5", 0, 8));
+        assertFalse(d.isTrusted("8.8.8.8", 0, 7));
+    }
+
+    @Test
+    void untrusted_private_peer_cannot_forge_xff() {
+        // DEFAULT_IP가 허용하는 내부 클라이언트가 요청마다 주소를 바꿔 써도 소켓 주소로 판정
+        ClientAddress d = ClientAddress.defaults();
+        assertEquals("192.168.1.23", d.resolve("192.168.1.23", "198.51.100.1", "198.51.100.2"));
+        assertEquals("10.0.0.5", d.resolve("10.0.0.5", "203.0.113.99", null));
+        // 프록시로 등록한 사설망만 헤더를 믿는다
+        ClientAddress listed = ClientAddress.of(ClientAddress.DEFAULT_TRUSTED + ",10.0.0.0/8");
+        assertEquals("203.0.113.99", listed.resolve("10.0.0.5", "203.0.113.99", null));
+    }
+}
@@ -0,0 +1,90 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledRuleFileTest {
+
+    private static final String USER = "10.0.0.0/8|10.1.2.3|172.16.0.1-172.16.3.255|192.168.*.1|203.0.113.7|2001:db8::/32|!2001:db8::bad";
+    private static final String DEFAULTS = "192.168.0.0-192.168.255.255|10.0.0.0-10.255.255.255";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void mapped_file_answers_like_the_trie() throws IOException {
+        PrefixTrie trie = PrefixTrie.compile(USER, DEFAULTS);
+        Path bin = temp.resolve("rules.bin");
+        CompiledRuleFile.write(trie, CompiledRuleFile.Source.of(null, DEFAULTS), bin);
+
+        CompiledRuleFile mapped = CompiledRuleFile.open(bin);
+        assertEquals(trie.rules(), mapped.rules());
+
+        SplittableRandom rnd = new SplittableRandom(3);
+        for (int i = 0; i < 200_000; i++) {
+            int top = new int[]{10, 172, 192, 203, 0, 255}[rnd.nextInt(6)];
+            int ip = (top << 24) | rnd.nextInt(1 << 24);
+            assertEquals(trie.match(ip), mapped.match(ip), Ipv4.format(ip));
+        }
+        assertEquals("allowed:user(192.168.*.1)", mapped.match("192.168.77.1").reason());
+        assertEquals("allowed:default(192.168.0.0-192.168.255.255)", mapped.match("192.168.77.2").reason());
+        assertNull(mapped.match("8.8.8.8"));
+        assertEquals("allowed:user(2001:db8::/32)", mapped.match("2001:db8::1").reason());
+        assertEquals("denied:user(!2001:db8::bad)", mapped.match("2001:db8::bad").reason());
+        assertNull(mapped.match("2001:db9::1"));
+    }
+
+    @Test
+    void open_rejects_corrupted_file() throws IOException {
+        Path bin = temp.resolve("rules.bin");
+        CompiledRuleFile.write(PrefixTrie.compile(USER, DEFAULTS), CompiledRuleFile.Source.of(null, DEFAULTS), bin);
+
+        byte[] bytes = Files.readAllBytes(bin);
+        bytes[bytes.length - 2] ^= 0x01;
+        Files.write(bin, bytes);
+        assertThrows(IOException.class, () -> CompiledRuleFile.open(bin));
+
+        Files.writeString(bin, "10.0.0.0/8\n");
+        assertThrows(IOException.class, () -> CompiledRuleFile.open(bin));
+    }
+
+    @Test
+    void store_uses_fresh_binary_and_falls_back_to_text_when_stale() throws IOException {
+        Path allow = Files.writeString(temp.resolve("allow-ip.txt"), "10.0.0.0/8");
+        Path bin = temp.resolve("allow-ip.bin");
+        CompiledRuleFile.write(PrefixTrie.compile("10.0.0.0/8", DEFAULTS),
+                CompiledRuleFile.Source.of(allow, DEFAULTS), bin);
+
+        RuleStore.Loader loader = new RuleStore.Loader() {
+            @Override public String userRules() { return readUnchecked(allow); }
+            @Override public String defaultRules() { return DEFAULTS; }
+            @Override public Path allowFile() { return allow; }
+            @Override public Path compiledFile() { return bin; }
+        };
+
+        RuleStore store = new RuleStore(loader, 50);
+        assertInstanceOf(CompiledRuleFile.class, store.current().matcher());
+        assertNull(store.current().userRules());
+        assertEquals("allowed:user(10.0.0.0/8)", store.match("10.9.9.9").reason());
+
+        Files.writeString(allow, "10.0.0.0/8\n203.0.113.7");
+        assertTrue(store.reload());
+        assertInstanceOf(PrefixTrie.class, store.current().matcher());
+        assertNotNull(store.match("203.0.113.7"));
+    }
+
+    private static String readUnchecked(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionCacheTest {
+
+    @Test
+    void get_returns_cached_rule_or_no_match() {
+        DecisionCache cache = new DecisionCache(64);
+        assertEquals(DecisionCache.MISS, cache.get(0x0A000001, 1));
+
+        cache.put(0x0A000001, 1, 7);
+        cache.put(0x08080808, 1, DecisionCache.NO_MATCH);
+
+        assertEquals(7, cache.get(0x0A000001, 1));
+        assertEquals(DecisionCache.NO_MATCH, cache.get(0x08080808, 1));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void new_generation_invalidates_without_clearing() {
+        DecisionCache cache = new DecisionCache(64);
+        cache.put(0x0A000001, 1, 3);
+        assertEquals(DecisionCache.MISS, cache.get(0x0A000001, 2));
+
+        cache.put(0x0A000001, 2, 4);
+        assertEquals(4, cache.get(0x0A000001, 2));
+    }
+
+    @Test
+    void wrapped_generation_is_cleared_even_when_generation_zero_is_skipped() {
+        DecisionCache cache = new DecisionCache(64);
+        cache.onNewVersion(1);
+        cache.put(0x0A000001, 1, 3);
+        assertEquals(3, cache.get(0x0A000001, 1));
+
+        // 1024(세대 0)는 설치되지 않고 1025(세대 1)로 넘어감 → 바퀴가 바뀌었으니 비워야 한다
+        cache.onNewVersion(1025);
+        assertEquals(DecisionCache.MISS, cache.get(0x0A000001, 1025));
+
+        // 비운 뒤 늦게 도착한 이전 바퀴의 저장은 남지 않는다
+        cache.put(0x0A000001, 1, 3);
+        assertEquals(DecisionCache.MISS, cache.get(0x0A000001, 1025));
+    }
+
+    @Test
+    void capacity_is_bounded_under_many_clients() {
+        DecisionCache cache = new DecisionCache(128);
+        for (int ip = 0; ip < 100_000; ip++) cache.put(ip, 1, ip & 0xFF);
+        assertEquals(128, cache.capacity());
+        // 최근에 넣은 값은 (교체되지 않았다면) 정확해야 함
+        for (int ip = 99_000; ip < 100_000; ip++) {
+            int v = cache.get(ip, 1);
+            assertTrue(v == DecisionCache.MISS || v == (ip & 0xFF));
+        }
+    }
+
+    @Test
+    void store_serves_from_cache_and_drops_entries_on_reload() {
+        AtomicReference<String> user = new AtomicReference<>("10.0.0.0/8");
+        RuleStore.Loader loader = RuleStore.Loader.of(user::get, null);
+        DecisionCache cache = new DecisionCache(1024);
+        RuleStore store = new RuleStore(loader, 50, cache);
+
+        assertEquals("10.0.0.0/8", store.match("10.1.2.3").token());
+        assertEquals("10.0.0.0/8", store.match("10.1.2.3").token());
+        assertEquals(1, cache.hits());
+
+        user.set("203.0.113.7");
+        assertTrue(store.reload());
+        assertNull(store.match("10.1.2.3"));          // 이전 세대 항목은 무시
+        assertEquals("203.0.113.7", store.match("203.0.113.7").token());
+
+        // 거부된 리로드는 버전 번호를 쓰지 않는다
+        long version = store.current().version();
+        user.set("not-an-ip");
+        assertFalse(store.reload());
+        user.set("203.0.113.8");
+        assertTrue(store.reload());
+        assertEquals(version + 1, store.current().version());
+    }
+
+    @Test
+    void match_against_a_held_snapshot_ignores_newer_versions() {
+        AtomicReference<String> user = new AtomicReference<>("10.0.0.0/8");
+        DecisionCache cache = new DecisionCache(1024);
+        RuleStore store = new RuleStore(RuleStore.Loader.of(user::get, null), 50, cache);
+
+        RuleSnapshot held = store.current();
+        user.set("203.0.113.7");
+        assertTrue(store.reload());
+
+        // 요청이 잡은 스냅샷으로 판정 (버전과 판정이 어긋나지 않는다)
+        assertEquals("10.0.0.0/8", store.match(held, "10.1.2.3").token());
+        assertNull(store.match("10.1.2.3"));
+        assertEquals("10.0.0.0/8", store.match(held, "10.1.2.3").token()); // 새 버전 항목과 섞이지 않는다
+        assertNull(store.match(store.current(), "10.1.2.3"));
+    }
+}
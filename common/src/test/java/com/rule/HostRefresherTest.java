@@ -0,0 +1,104 @@
+package com.rule;
+
+import com.config.IpConfig;
+import com.exception.AppException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostRefresherTest {
+
+    /** 이름별 응답을 바꿔 끼울 수 있는 스텁 (없는 이름은 조회 실패) */
+    private static final class StubResolver implements HostResolver {
+        final Map<String, List<String>> answers = new ConcurrentHashMap<>();
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Answer resolve(String host) throws IOException {
+            calls.incrementAndGet();
+            List<String> a = answers.get(host);
+            if (a == null) throw new UnknownHostException(host);
+            return new Answer(a, 0); // 최소 TTL마다 다시 조회
+        }
+    }
+
+    private static RuleStore store(String userRules, HostResolver resolver) {
+        return new RuleStore(RuleStore.Loader.of(userRules, null), 50, null, resolver);
+    }
+
+    private static void awaitVersion(RuleStore store, long version) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (store.current().version() < version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void host_names_are_validated_without_dns() {
+        assertEquals("partner.example.com", RuleTokens.hostName("HOST:Partner.Example.com."));
+        assertNull(RuleTokens.hostName("host:"));
+        assertNull(RuleTokens.hostName("host:-bad.example"));
+        assertNull(RuleTokens.hostName("host:bad..example"));
+        assertNull(RuleTokens.hostName("host:under_score.example"));
+        assertEquals(Set.of("a.example", "b.example"),
+                RuleTokens.hostNames("host:a.example,!host:B.example|10.0.0.0/8"));
+
+        IpConfig.assertValidRules("host:partner.example.com,!host:bad.example");
+        assertThrows(AppException.class, () -> IpConfig.assertValidRules("host:bad_name"));
+    }
+
+    @Test
+    void host_rules_compile_from_background_lookups_and_follow_changes() throws Exception {
+        StubResolver dns = new StubResolver();
+        dns.answers.put("partner.example.com", List.of("203.0.113.7", "2001:db8::7"));
+        dns.answers.put("bad.example", List.of("::ffff:198.51.100.1"));
+        RuleStore store = store("host:partner.example.com,!host:bad.example,198.51.100.0/24", dns);
+        try {
+            RuleSnapshot first = store.current();
+            assertEquals("allowed:user(host:partner.example.com)", first.match("203.0.113.7").reason());
+            assertEquals("allowed:user(host:partner.example.com)", first.match("2001:db8::7").reason());
+            assertEquals("denied:user(!host:bad.example)", first.match("198.51.100.1").reason());
+            assertEquals("allowed:user(198.51.100.0/24)", first.match("198.51.100.2").reason());
+
+            // 주소가 바뀌면 다음 갱신에서 새 스냅샷
+            dns.answers.put("partner.example.com", List.of("203.0.113.8"));
+            awaitVersion(store, first.version() + 1);
+            RuleSnapshot next = store.current();
+            assertTrue(next.version() > first.version());
+            assertNull(next.match("203.0.113.7"));
+            assertEquals("allowed:user(host:partner.example.com)", next.match("203.0.113.8").reason());
+
+            // 조회가 실패해도 마지막 주소 유지, 스냅샷도 그대로
+            dns.answers.remove("partner.example.com");
+            int calls = dns.calls.get();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (dns.calls.get() < calls + 2 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+            assertEquals(next.version(), store.current().version());
+            assertTrue(store.current().match("203.0.113.8").allows());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void unresolved_hosts_register_a_rule_that_matches_nothing() {
+        StubResolver dns = new StubResolver();
+        RuleStore store = store("host:missing.example,10.0.0.0/8", dns);
+        try {
+            RuleSnapshot snap = store.current();
+            assertEquals(2, snap.matcher().rules().size());
+            assertEquals("allowed:user(10.0.0.0/8)", snap.match("10.0.0.1").reason());
+            assertNull(snap.match("203.0.113.7"));
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTableTest {
+
+    private static int ip(int a, int b, int c, int d) {
+        return (a << 24) | (b << 16) | (c << 8) | d;
+    }
+
+    // ============ 1) 정렬 + 병합 ============
+    @Test
+    void build_sorts_and_coalesces_overlapping_and_adjacent() {
+        IntervalTable.Builder b = IntervalTable.builder();
+        b.accept(20, 30);
+        b.accept(0, 9);
+        b.accept(10, 15);   // 0~9와 맞닿음 → 병합
+        b.accept(25, 40);   // 20~30과 겹침 → 병합
+        b.accept(100, 100);
+        IntervalTable t = b.build();
+
+        assertEquals(3, t.size());
+        assertEquals(0, t.start(0));
+        assertEquals(15, t.end(0));
+        assertEquals(20, t.start(1));
+        assertEquals(40, t.end(1));
+        assertEquals(100, t.start(2));
+        assertEquals(100, t.end(2));
+    }
+
+    @Test
+    void contains_handles_unsigned_upper_half() {
+        // 128.0.0.0 이상은 int로 음수 → 부호 비트 보정 확인
+        IntervalTable t = RuleTokens.compile("192.168.0.0/16|255.255.255.255|0.0.0.0");
+
+        assertTrue(t.contains(ip(192, 168, 10, 1)));
+        assertTrue(t.contains(ip(255, 255, 255, 255)));
+        assertTrue(t.contains(0));
+        assertFalse(t.contains(ip(192, 169, 0, 0)));
+        assertFalse(t.contains(ip(10, 0, 0, 1)));
+        assertFalse(t.contains(ip(127, 255, 255, 255)));
+    }
+
+    @Test
+    void empty_table_allows_nothing() {
+        assertFalse(RuleTokens.compile(null).contains(0));
+        assertFalse(RuleTokens.compile("  ").contains(ip(10, 0, 0, 1)));
+        assertSame(IntervalTable.EMPTY, RuleTokens.compile("hello|999.1.1.1/8"));
+    }
+
+    // ============ 2) 토큰 펼치기 ============
+    @Test
+    void compile_expands_all_token_forms() {
+        IntervalTable t = RuleTokens.compile(String.join("|",
+                "10.0.0.0/8",
+                "172.30.1.20-172.30.1.10",   // 뒤집힌 범위
+                "203.0.113.7",
+                "192.168.*.1"                 // 비연속 와일드카드
+        ));
+
+        assertTrue(t.contains(ip(10, 255, 0, 1)));
+        assertTrue(t.contains(ip(172, 30, 1, 15)));
+        assertFalse(t.contains(ip(172, 30, 1, 21)));
+        assertTrue(t.contains(ip(203, 0, 113, 7)));
+        assertTrue(t.contains(ip(192, 168, 77, 1)));
+        assertFalse(t.contains(ip(192, 168, 77, 2)));
+    }
+
+    @Test
+    void compile_ignores_wildcard_with_non_canonical_octet() {
+        // 기존 매칭은 숫자 옥텟을 문자열로 비교했으므로 "01"/"300"은 어떤 IP와도 일치하지 않음
+        IntervalTable t = RuleTokens.compile("10.01.*.*|10.300.*.*");
+        assertEquals(0, t.size());
+    }
+
+    @Test
+    void compile_all_stars_covers_everything() {
+        IntervalTable t = RuleTokens.compile("*.*.*.*");
+        assertEquals(1, t.size());
+        assertEquals(0, t.start(0));
+        assertEquals(0xFFFFFFFFL, t.end(0));
+    }
+
+    // ============ 집합 연산 ============
+    private static IntervalTable table(long... bounds) {
+        IntervalTable.Builder b = IntervalTable.builder();
+        for (int i = 0; i < bounds.length; i += 2) b.accept(bounds[i], bounds[i + 1]);
+        return b.build();
+    }
+
+    private static void assertIntervals(IntervalTable t, long... bounds) {
+        assertEquals(bounds.length / 2, t.size());
+        for (int i = 0; i < t.size(); i++) {
+            assertEquals(bounds[2 * i], t.start(i), "start " + i);
+            assertEquals(bounds[2 * i + 1], t.end(i), "end " + i);
+        }
+    }
+
+    @Test
+    void difference_cuts_holes_and_trims_edges() {
+        IntervalTable allow = table(0, 100, 200, 300, 0xFFFFFF00L, 0xFFFFFFFFL);
+        IntervalTable deny = table(0, 9, 50, 50, 90, 210, 300, 300, 0xFFFFFFFFL, 0xFFFFFFFFL);
+
+        assertIntervals(allow.difference(deny), 10, 49, 51, 89, 211, 299, 0xFFFFFF00L, 0xFFFFFFFEL);
+        assertSame(allow, allow.difference(IntervalTable.EMPTY));
+        assertEquals(0, allow.difference(table(0, 0xFFFFFFFFL)).size());
+    }
+
+    @Test
+    void union_merges_overlapping_tables() {
+        assertIntervals(table(0, 10, 50, 60).union(table(11, 20, 55, 70, 100, 100)), 0, 20, 50, 70, 100, 100);
+    }
+
+    @Test
+    void compile_subtracts_deny_tokens_regardless_of_order() {
+        IntervalTable t = RuleTokens.compile("!10.1.2.3|10.0.0.0/8|!10.200.0.0/16");
+        assertFalse(t.contains(ip(10, 1, 2, 3)));
+        assertFalse(t.contains(ip(10, 200, 9, 9)));
+        assertTrue(t.contains(ip(10, 1, 2, 4)));
+        assertTrue(t.contains(ip(10, 199, 255, 255)));
+        assertEquals(3, t.size());
+    }
+}
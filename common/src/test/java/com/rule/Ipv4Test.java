@@ -0,0 +1,43 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Ipv4Test {
+
+    @Test
+    void parse_valid_literals() {
+        assertEquals(0xC0A80001L, Ipv4.parse("192.168.0.1"));
+        assertEquals(0L, Ipv4.parse("0.0.0.0"));
+        assertEquals(0xFFFFFFFFL, Ipv4.parse("255.255.255.255"));
+        // 앞자리 0은 10진수 (InetAddress와 동일)
+        assertEquals(0x0A010101L, Ipv4.parse("010.1.1.1"));
+    }
+
+    @Test
+    void parse_rejects_non_literals_without_dns() {
+        String[] bad = {
+                null, "", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1.2.3.1000", "1..2.3",
+                ".1.2.3", "1.2.3.", " 1.2.3.4", "1.2.3.4 ", "+1.2.3.4", "a.b.c.d",
+                "localhost", "2001:db8::1", "1.2.3.0004"
+        };
+        for (String s : bad) {
+            assertEquals(Ipv4.INVALID, Ipv4.parse(s), String.valueOf(s));
+        }
+    }
+
+    @Test
+    void parse_slice_of_header() {
+        String xff = "203.0.113.60, 10.0.0.5";
+        assertEquals(0xCB00713CL, Ipv4.parse(xff, 0, 12));
+        assertEquals(0x0A000005L, Ipv4.parse(xff, 14, xff.length()));
+        assertEquals(Ipv4.INVALID, Ipv4.parse(xff, 0, 13)); // 쉼표 포함
+    }
+
+    @Test
+    void format_roundTrip() {
+        assertEquals("203.0.113.7", Ipv4.format((int) Ipv4.parse("203.0.113.7")));
+        assertEquals("255.0.0.1", Ipv4.format((int) Ipv4.parse("255.0.0.1")));
+    }
+}
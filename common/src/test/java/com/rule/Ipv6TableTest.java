@@ -0,0 +1,63 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Ipv6TableTest {
+
+    private static long[] v6(String s) {
+        long[] v = new long[2];
+        assertTrue(Ipv6.parse(s, v), s);
+        return v;
+    }
+
+    private static int label(Ipv6Table t, String ip) {
+        long[] v = v6(ip);
+        return t.labelOf(v[0], v[1]);
+    }
+
+    @Test
+    void paint_lower_label_wins_and_neighbours_merge() {
+        long[] a = v6("2001:db8::"), b = v6("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff");
+        long[] c = v6("2001:db8::10"), d = v6("2001:db8::1f");
+        long[] e = v6("2001:db9::"), f = v6("2001:db9::ff");
+        Ipv6Table t = Ipv6Table.paint(List.of(
+                new Ipv6Table.Span(a[0], a[1], b[0], b[1], 5),
+                new Ipv6Table.Span(c[0], c[1], d[0], d[1], 2),
+                new Ipv6Table.Span(e[0], e[1], f[0], f[1], 5)));   // 앞 구간과 맞닿음 → 병합
+
+        assertEquals(3, t.size());
+        assertEquals(5, label(t, "2001:db8::f"));
+        assertEquals(2, label(t, "2001:db8::10"));
+        assertEquals(2, label(t, "2001:db8::1f"));
+        assertEquals(5, label(t, "2001:db8::20"));
+        assertEquals(5, label(t, "2001:db9::ff"));
+        assertEquals(-1, label(t, "2001:db9::100"));
+        assertEquals(-1, label(t, "2001:db7:ffff:ffff:ffff:ffff:ffff:ffff"));
+    }
+
+    @Test
+    void compile6_subtracts_deny_and_reaches_top_of_space() {
+        Ipv6Table t = RuleTokens.compile6("2001:db8::/32|!2001:db8:1::/48|ff00::/8|2001:db8::1-2001:db8::5|10.0.0.0/8");
+
+        assertEquals(RuleTokens.V6_ALLOW, label(t, "2001:db8::3"));
+        assertEquals(RuleTokens.V6_DENY, label(t, "2001:db8:1::7"));
+        assertEquals(RuleTokens.V6_ALLOW, label(t, "2001:db8:2::7"));
+        assertEquals(RuleTokens.V6_ALLOW, label(t, "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertEquals(-1, label(t, "2001:db9::"));
+    }
+
+    @Test
+    void trie_resolves_ipv6_rules_with_shared_ids() {
+        PrefixTrie trie = PrefixTrie.compile("2001:db8::/32|10.0.0.0/8", "!2001:db8:dead::/48|::/0");
+
+        assertEquals("allowed:user(2001:db8::/32)", trie.match("2001:db8::1").reason());
+        assertEquals("denied:default(!2001:db8:dead::/48)", trie.match("2001:db8:dead::1").reason());
+        assertEquals("allowed:default(::/0)", trie.match("2a00::1").reason());
+        assertEquals("allowed:user(10.0.0.0/8)", trie.match("::ffff:10.1.2.3").reason());  // IPv4-mapped
+        assertEquals(4, trie.rules().size());
+    }
+}
@@ -0,0 +1,83 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Ipv6Test {
+
+    private static long[] parse(String s) {
+        long[] v = new long[2];
+        assertTrue(Ipv6.parse(s, v), s);
+        return v;
+    }
+
+    @Test
+    void parse_full_and_compressed_forms() {
+        assertArrayEquals(new long[]{0x20010db800000000L, 1L}, parse("2001:db8::1"));
+        assertArrayEquals(new long[]{0x20010db800000000L, 1L}, parse("2001:0DB8:0000:0000:0000:0000:0000:0001"));
+        assertArrayEquals(new long[]{0L, 0L}, parse("::"));
+        assertArrayEquals(new long[]{0L, 1L}, parse("::1"));
+        assertArrayEquals(new long[]{0x0001000000000000L, 0L}, parse("1::"));
+        assertArrayEquals(new long[]{0xfe80000000000000L, 1L}, parse("fe80::1%eth0"));
+        assertArrayEquals(new long[]{0L, 0x0000ffffc0000201L}, parse("::ffff:192.0.2.1"));
+        assertArrayEquals(new long[]{0x0064ff9b00000000L, 0x01020304L}, parse("64:ff9b::1.2.3.4"));
+        assertTrue(Ipv6.isMappedIpv4(0L, 0x0000ffffc0000201L));
+    }
+
+    @Test
+    void parse_rejects_malformed() {
+        String[] bad = {
+                null, "", ":", ":::", "1:2", "1::2::3", ":1::", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7",
+                "12345::", "g::1", "1.2.3.4", "::1.2.3", "1:2:3:4:5:6:7:1.2.3.4", "[::1]", "2001:db8::/32",
+                " ::1", "1:"
+        };
+        long[] v = new long[2];
+        for (String s : bad) {
+            assertFalse(Ipv6.parse(s, v), String.valueOf(s));
+        }
+    }
+
+    @Test
+    void parse_and_format_agree_with_inet_address() throws Exception {
+        SplittableRandom rnd = new SplittableRandom(11);
+        for (int i = 0; i < 5_000; i++) {
+            long hi = rnd.nextLong();
+            long lo = rnd.nextInt(3) == 0 ? 0L : rnd.nextLong();   // 0 그룹 연속을 자주 만든다
+            if (rnd.nextBoolean()) hi &= 0xFFFF0000FFFFFFFFL;
+            String text = Ipv6.format(hi, lo);
+
+            byte[] bytes = InetAddress.getByName(text).getAddress();
+            ByteBuffer b = ByteBuffer.wrap(bytes);
+            assertEquals(hi, b.getLong(), text);
+            assertEquals(lo, b.getLong(), text);
+            assertArrayEquals(new long[]{hi, lo}, parse(text), text);
+        }
+    }
+
+    @Test
+    void format_uses_rfc5952_compression() {
+        assertEquals("2001:db8::1", Ipv6.format(0x20010db800000000L, 1L));
+        assertEquals("::", Ipv6.format(0L, 0L));
+        assertEquals("2001:0:0:1::1", Ipv6.format(0x2001000000000001L, 1L)); // 더 긴 쪽을 줄임
+        assertEquals("1:0:1:1:1:1:1:1", Ipv6.format(0x0001000000010001L, 0x0001000100010001L)); // 0 하나는 그대로
+    }
+
+    @Test
+    void scratch_is_reused_within_a_thread_and_not_shared_across_threads() throws Exception {
+        long[] mine = Ipv6.scratch();
+        assertSame(mine, Ipv6.scratch());
+        assertTrue(Ipv6.parse("2001:db8::1", mine));
+        assertArrayEquals(new long[]{0x20010db800000000L, 1L}, mine);
+
+        long[][] other = new long[1][];
+        Thread t = new Thread(() -> other[0] = Ipv6.scratch());
+        t.start();
+        t.join();
+        assertNotSame(mine, other[0]);
+    }
+}
@@ -0,0 +1,102 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListImporterTest {
+
+    @TempDir
+    Path temp;
+
+    private static final String MIXED = """
+            # cloud dump
+            3.5.140.0/22
+            192.0.2.10 - 192.0.2.20 ; spaced range
+            198.51.100.7 SBL123
+            start,end,owner
+            "203.0.113.0","203.0.113.127",example
+            16777216,16777471
+            2001:db8::/32,us-east-1
+            create blocklist hash:net family inet
+            add blocklist 100.64.0.0/10
+            add blocklist 100.128.0.1,tcp:80
+                "ip_prefix": "52.94.76.0/22",
+                "region": "us-west-2",
+            not-an-ip
+            10.0.0.0/33
+            """;
+
+    @Test
+    void parses_mixed_formats_line_by_line() throws Exception {
+        IntervalTable.Builder v4 = IntervalTable.builder();
+        List<long[]> v6 = new ArrayList<>();
+        ListImporter.Stats s = ListImporter.read(new BufferedReader(new StringReader(MIXED)), v4,
+                (sHi, sLo, eHi, eLo) -> v6.add(new long[]{sHi, sLo, eHi, eLo}));
+        IntervalTable t = v4.build();
+
+        assertEquals(15, s.lines());
+        assertEquals(8, s.ipv4());
+        assertEquals(1, s.ipv6());
+        assertEquals(4, s.skipped()); // CSV 헤더, JSON 구조 줄, 잘못된 주소 2개
+
+        assertTrue(t.contains(0x03058F01));  // 3.5.143.1
+        assertTrue(t.contains(0xC000020F));  // 192.0.2.15
+        assertFalse(t.contains(0xC0000215)); // 192.0.2.21
+        assertTrue(t.contains(0xC6336407));  // 198.51.100.7
+        assertTrue(t.contains(0xCB00717F));  // 203.0.113.127
+        assertFalse(t.contains(0xCB007180));
+        assertTrue(t.contains(0x010000FF));  // 1.0.0.255 (정수 범위)
+        assertTrue(t.contains(0x64400001));  // 100.64.0.1
+        assertTrue(t.contains(0x64800001));  // 100.128.0.1 (ipset 포트 제외)
+        assertTrue(t.contains(0x345E4C01));  // 52.94.76.1
+        assertFalse(t.contains(0x0A000001));
+        assertArrayEquals(new long[]{0x20010DB800000000L, 0, 0x20010DB8FFFFFFFFL, -1L}, v6.get(0));
+    }
+
+    @Test
+    void imported_lists_layer_around_text_rules() throws Exception {
+        Path drop = Files.writeString(temp.resolve("drop.txt"), "10.1.0.0/16\n2001:db8:bad::/48\n");
+        Path cloud = Files.writeString(temp.resolve("cloud.csv"), "172.16.0.0,172.31.255.255\n10.0.0.0/8\n");
+        RuleStore store = new RuleStore(new RuleStore.Loader() {
+            @Override public String userRules() { return "10.0.0.0/8,2001:db8::/32"; }
+            @Override public String defaultRules() { return "!172.20.0.1"; }
+            @Override public Path allowFile() { return null; }
+            @Override public List<ImportedList.Source> importLists() {
+                return ImportedList.sources("deny:" + drop + "; allow:" + cloud);
+            }
+        }, 50);
+        RuleSnapshot snap = store.current();
+
+        assertEquals("denied:import(!@drop.txt)", snap.match("10.1.2.3").reason());
+        assertEquals("denied:import(!@drop.txt)", snap.match("2001:db8:bad::1").reason());
+        assertEquals("allowed:user(10.0.0.0/8)", snap.match("10.2.0.1").reason());
+        assertEquals("allowed:user(2001:db8::/32)", snap.match("2001:db8:1::1").reason());
+        assertEquals("denied:default(!172.20.0.1)", snap.match("172.20.0.1").reason());
+        assertEquals("allowed:import(@cloud.csv)", snap.match("172.20.0.2").reason());
+        assertNull(snap.match("8.8.8.8"));
+
+        // 평탄화 구간(BatchMatcher, 캐시)도 같은 답
+        BatchMatcher batch = BatchMatcher.scalar(snap.matcher());
+        SplittableRandom rnd = new SplittableRandom(17);
+        for (int i = 0; i < 100_000; i++) {
+            int ip = (i & 1) == 0 ? rnd.nextInt() : 0x0A000000 | rnd.nextInt(1 << 24);
+            Rule r = snap.match(ip);
+            assertEquals(r == null ? -1 : r.id(), batch.match(ip), Ipv4.format(ip));
+        }
+
+        // 바뀌지 않은 목록은 다시 읽지 않는다
+        ImportedList before = ((LayeredMatcher) snap.matcher()).lists().get(0);
+        assertTrue(store.reload());
+        assertSame(before, ((LayeredMatcher) store.current().matcher()).lists().get(0));
+    }
+}
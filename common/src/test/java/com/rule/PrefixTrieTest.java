@@ -0,0 +1,123 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTest {
+
+    private static final String DEFAULT_RAW =
+            "10.0.0.0-10.255.255.255|172.16.0.0-172.31.255.255|192.168.0.0-192.168.255.255";
+
+    // ============ 1) 결정 + 규칙 + 출처를 한 번에 ============
+    @Test
+    void match_returns_rule_source_and_precomputed_reason() {
+        PrefixTrie trie = PrefixTrie.compile("172.30.1.10-173.30.1.45|174.30.1.*", DEFAULT_RAW);
+
+        Rule user = trie.match("172.30.1.20");
+        assertNotNull(user);
+        assertEquals(RuleSource.USER, user.source());
+        assertEquals("172.30.1.10-173.30.1.45", user.token());
+        assertEquals("allowed:user(172.30.1.10-173.30.1.45)", user.reason());
+        assertSame(user.reason(), trie.match("173.0.0.1").reason()); // 요청마다 새로 만들지 않음
+
+        Rule def = trie.match("192.168.1.10");
+        assertNotNull(def);
+        assertEquals(RuleSource.DEFAULT, def.source());
+        assertEquals("allowed:default(192.168.0.0-192.168.255.255)", def.reason());
+
+        assertNull(trie.match("8.8.8.8"));
+        assertNull(trie.match("2001:db8::1"));
+    }
+
+    // ============ 2) 우선순위: user → default, 같은 출처는 작성 순서 ============
+    @Test
+    void match_prefers_user_rules_even_when_default_prefix_is_longer() {
+        PrefixTrie trie = PrefixTrie.compile("10.0.0.0/8", "10.1.2.3|10.0.0.0/8");
+        Rule hit = trie.match("10.1.2.3");
+        assertEquals(RuleSource.USER, hit.source());
+        assertEquals("10.0.0.0/8", hit.token());
+    }
+
+    @Test
+    void match_prefers_earlier_token_within_same_source() {
+        PrefixTrie trie = PrefixTrie.compile("10.1.2.0/24|10.1.2.3|10.0.0.0/8", null);
+        assertEquals("10.1.2.0/24", trie.match("10.1.2.3").token());
+        assertEquals("10.0.0.0/8", trie.match("10.9.9.9").token());
+    }
+
+    // ============ 3) 범위 분해 경계 ============
+    @Test
+    void range_decomposition_keeps_exact_bounds() {
+        PrefixTrie trie = PrefixTrie.compile("10.0.0.1-10.0.0.6|0.0.0.0|255.255.255.255", null);
+        assertNull(trie.match("10.0.0.0"));
+        for (int i = 1; i <= 6; i++) assertNotNull(trie.match("10.0.0." + i));
+        assertNull(trie.match("10.0.0.7"));
+        assertNotNull(trie.match("0.0.0.0"));
+        assertNotNull(trie.match("255.255.255.255"));
+    }
+
+    @Test
+    void all_stars_matches_everything() {
+        PrefixTrie trie = PrefixTrie.compile("*.*.*.*", null);
+        assertEquals("*.*.*.*", trie.match("1.2.3.4").token());
+    }
+
+    @Test
+    void invalid_tokens_are_skipped() {
+        PrefixTrie trie = PrefixTrie.compile("hello|10.0.0.0/8", null);
+        assertEquals(1, trie.rules().size());
+        assertEquals(0, trie.match("10.0.0.1").id());
+    }
+
+    @Test
+    void deny_rule_wins_over_any_allow_rule() {
+        PrefixTrie trie = PrefixTrie.compile("10.0.0.0/8|10.1.2.3", "!10.1.2.0/24");
+
+        Rule hit = trie.match("10.1.2.3");
+        assertTrue(hit.deny());
+        assertFalse(hit.allows());
+        assertEquals("denied:default(!10.1.2.0/24)", hit.reason());
+        assertTrue(trie.match("10.1.3.1").allows());
+        assertEquals("allowed:user(10.0.0.0/8)", trie.match("10.1.3.1").reason());
+    }
+
+    @Test
+    void plus_and_minus_copy_only_the_changed_paths_and_agree_with_a_full_compile() {
+        PrefixTrie base = PrefixTrie.compile("10.0.0.0/8|10.1.2.0/24|2001:db8::/32|!2001:db8:1::/48", "10.0.0.0/8");
+
+        PrefixTrie added = base.plus("!10.1.2.3", RuleSource.USER).plus("!2001:db8::5", RuleSource.USER);
+        assertEquals("denied:user(!10.1.2.3)", added.match("10.1.2.3").reason());       // 맨 뒤 id여도 거부가 이긴다
+        assertEquals("denied:user(!2001:db8::5)", added.match("2001:db8::5").reason());
+        assertEquals("allowed:user(10.0.0.0/8)", added.match("10.1.2.4").reason());
+        assertEquals("allowed:user(10.0.0.0/8)", base.match("10.1.2.3").reason());      // 원래 트라이는 그대로
+        assertNull(base.plus("not-an-ip", RuleSource.USER));
+        assertNull(base.plus("host:example.com", RuleSource.USER));
+
+        // 같은 접두사에 겹친 규칙(user/default 10.0.0.0/8)은 하나를 지우면 다음 것이 올라온다
+        Rule user8 = added.rules().get(1);
+        assertEquals("10.0.0.0/8", user8.token());
+        PrefixTrie removed = added.minus(List.of(user8, added.rules().get(0)), host -> List.of());
+        assertEquals("allowed:default(10.0.0.0/8)", removed.match("10.9.9.9").reason());
+        assertEquals("allowed:user(10.1.2.0/24)", removed.match("10.1.2.4").reason());
+        assertEquals("allowed:user(2001:db8::/32)", removed.match("2001:db8:1::1").reason());
+        assertTrue(removed.isRemoved(user8));
+        assertEquals(2, removed.removedCount());
+        assertEquals(added.rules().size(), removed.rules().size());                     // id 자리는 남는다
+
+        PrefixTrie full = PrefixTrie.compile("10.1.2.0/24|2001:db8::/32|!10.1.2.3|!2001:db8::5", "10.0.0.0/8");
+        SplittableRandom rnd = new SplittableRandom(7);
+        for (int k = 0; k < 20_000; k++) {
+            int ip = k < 10_000 ? (10 << 24) + rnd.nextInt(1 << 24) : rnd.nextInt();
+            Rule a = removed.match(ip), b = full.match(ip);
+            assertEquals(b == null ? null : b.reason(), a == null ? null : a.reason(), Ipv4.format(ip));
+        }
+        for (String ip : new String[]{"2001:db8::5", "2001:db8::6", "2001:db8:1::1", "2001:db9::1"}) {
+            Rule a = removed.match(ip), b = full.match(ip);
+            assertEquals(b == null ? null : b.reason(), a == null ? null : a.reason(), ip);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.rule;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleDeltaTest {
+
+    @TempDir
+    Path temp;
+
+    /** 서로 겹치지 않는 /24 n개 + 거부/IPv6 몇 개 */
+    private static StringBuilder bigList(int n) {
+        StringBuilder sb = new StringBuilder("!10.0.0.0/8,2001:db8::/32,!2001:db8:1::/48");
+        for (int i = 0; i < n; i++) {
+            sb.append(',').append(11 + i / 65536).append('.').append(i / 256 % 256).append('.').append(i % 256).append(".0/24");
+        }
+        return sb;
+    }
+
+    private static void assertSameAnswers(RuleMatcher expected, RuleMatcher actual) {
+        SplittableRandom rnd = new SplittableRandom(3);
+        for (int k = 0; k < 20_000; k++) {
+            int ip = k < 10_000 ? (11 << 24) + rnd.nextInt(1 << 20) : rnd.nextInt();
+            assertEquals(expected.match(ip), actual.match(ip), Ipv4.format(ip));
+        }
+        for (String ip : List.of("2001:db8::1", "2001:db8:1::5", "2001:db9::1", "::1")) {
+            assertEquals(expected.match(ip), actual.match(ip), ip);
+        }
+    }
+
+    @Test
+    void one_line_edit_in_a_large_list_sends_a_small_delta() throws Exception {
+        StringBuilder rules = bigList(100_000);
+        PrefixTrie v1 = PrefixTrie.compile(rules.toString(), "192.168.0.0/16");
+        // 한 줄 수정 + 거부 한 줄 추가 → 뒤의 규칙 id가 하나씩 밀려도 델타에는 다시 싣지 않는다
+        String edited = rules.toString().replace(",11.0.5.0/24,", ",11.0.5.0/25,!11.0.5.7,");
+        PrefixTrie v2 = PrefixTrie.compile(edited, "192.168.0.0/16");
+
+        byte[] fullMessage = RuleDelta.encode(42, 0, null, 1, RuleImage.of(v1));
+        RuleImage full = RuleDelta.apply(null, fullMessage);
+        assertSameAnswers(v1, full);
+
+        byte[] delta = RuleDelta.encode(42, 1, RuleImage.of(v1), 2, RuleImage.of(v2));
+        assertEquals(new RuleDelta.Header(42, 1, 2, RuleImage.of(v2).crc()), RuleDelta.header(delta));
+        // 규칙 표는 바뀐 구간(앞쪽 거부 규칙 삽입 ~ 수정한 줄)만, 구간은 바뀐 몇 개만 간다
+        assertTrue(delta.length < 1_000, "delta bytes " + delta.length);
+        assertTrue(delta.length * 1_000 < fullMessage.length, delta.length + " vs " + fullMessage.length);
+
+        RuleImage next = RuleDelta.apply(full, delta);
+        assertEquals(RuleImage.of(v2).crc(), next.crc());
+        assertSameAnswers(v2, next);
+        assertEquals("denied:user(!11.0.5.7)", next.match(0x0B000507).reason());
+        assertNull(next.match(0x0B000581));
+
+        // 다른 기준에 적용하면 CRC에서 걸린다
+        assertThrows(IOException.class, () -> RuleDelta.apply(RuleImage.of(v2), delta));
+        assertThrows(IOException.class, () -> RuleDelta.apply(full, new byte[]{1, 2, 3, 4}));
+    }
+
+    @Test
+    void imported_lists_replicate_with_the_same_priority() throws Exception {
+        Path drop = temp.resolve("drop.txt");
+        Files.writeString(drop, "192.168.1.0/24\n2001:db8::/64\n");
+        Path cloud = temp.resolve("cloud.txt");
+        Files.writeString(cloud, "172.16.0.0/12\n2001:db8:ffff::/48\n");
+        RuleMatcher layered = LayeredMatcher.of(PrefixTrie.compile("192.168.0.0/16,!2001:db8::/32", null),
+                List.of(ImportedList.load(new ImportedList.Source(drop, true)),
+                        ImportedList.load(new ImportedList.Source(cloud, false))));
+
+        RuleImage image = RuleDelta.apply(null, RuleDelta.encode(1, 0, null, 1, RuleImage.of(layered)));
+        for (String ip : List.of("192.168.1.1", "192.168.2.1", "172.16.0.1", "2001:db8::1", "2001:db8:ffff::1",
+                "2001:db8:1::1", "2001:db9::1")) {
+            assertEquals(layered.match(ip), image.match(ip), ip);
+        }
+        assertEquals("denied:import(!@drop.txt)", image.match("2001:db8::1").reason());
+        assertEquals("denied:user(!2001:db8::/32)", image.match("2001:db8:ffff::1").reason());
+    }
+
+    @Test
+    void follower_long_polls_the_feed_and_applies_deltas() throws Exception {
+        AtomicReference<String> rules = new AtomicReference<>("10.0.0.0/8");
+        RuleStore upstream = new RuleStore(RuleStore.Loader.of(rules::get, null), 50);
+        RuleStore local = new RuleStore(RuleStore.Loader.of("203.0.113.0/24", null), 50);
+        RuleFeed feed = new RuleFeed(upstream);
+        HttpServer http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        http.createContext("/rules/feed", ex -> {
+            Map<String, Long> q = new HashMap<>();
+            for (String kv : ex.getRequestURI().getQuery().split("&")) {
+                q.put(kv.substring(0, kv.indexOf('=')), Long.parseLong(kv.substring(kv.indexOf('=') + 1)));
+            }
+            CompletableFuture<byte[]> answer = new CompletableFuture<>();
+            feed.poll(q.get("epoch"), q.get("version"), q.get("wait") * 1_000, answer::complete);
+            byte[] body = answer.join();
+            ex.sendResponseHeaders(body == null ? 304 : 200, body == null ? -1 : body.length);
+            if (body != null) try (OutputStream out = ex.getResponseBody()) { out.write(body); }
+            ex.close();
+        });
+        http.start();
+        try {
+            RuleFollower follower = new RuleFollower(
+                    URI.create("http://127.0.0.1:" + http.getAddress().getPort() + "/rules/feed"), local);
+            assertTrue(follower.pollOnce(0));
+            assertEquals(upstream.current().version(), follower.version());
+            assertEquals("allowed:user(10.0.0.0/8)", local.match("10.1.2.3").reason());
+            assertNull(local.match("203.0.113.7"));
+
+            assertFalse(follower.pollOnce(0)); // 변경 없음 → 304
+
+            rules.set("10.0.0.0/8,!10.9.9.9");
+            assertTrue(upstream.reload());
+            assertTrue(follower.pollOnce(1));
+            assertEquals("denied:user(!10.9.9.9)", local.match("10.9.9.9").reason());
+
+            // 복제 중에는 로컬 원본을 다시 읽지 않는다
+            assertFalse(local.reload());
+            assertEquals("denied:user(!10.9.9.9)", local.match("10.9.9.9").reason());
+        } finally {
+            http.stop(0);
+            feed.close();
+            upstream.close();
+            local.close();
+        }
+    }
+
+    @Test
+    void feed_parks_up_to_date_polls_without_a_thread_until_a_new_version_or_the_deadline() throws Exception {
+        AtomicReference<String> rules = new AtomicReference<>("10.0.0.0/8");
+        RuleStore store = new RuleStore(RuleStore.Loader.of(rules::get, null), 50);
+        RuleFeed feed = new RuleFeed(store);
+        try {
+            long version = store.current().version();
+            CompletableFuture<byte[]> first = new CompletableFuture<>();
+            feed.poll(0, 0, 10_000, first::complete);
+            assertTrue(first.isDone()); // 처음이면 바로 전체
+
+            CompletableFuture<byte[]> parked = new CompletableFuture<>();
+            feed.poll(feed.epoch(), version, 10_000, parked::complete);
+            assertFalse(parked.isDone());
+            assertEquals(1, feed.waiting());
+
+            rules.set("10.0.0.0/8,!10.9.9.9");
+            assertTrue(store.reload());
+            RuleDelta.Header h = RuleDelta.header(parked.get(5, TimeUnit.SECONDS));
+            assertEquals(version, h.fromVersion());
+            assertEquals(0, feed.waiting());
+
+            CompletableFuture<byte[]> idle = new CompletableFuture<>();
+            feed.poll(feed.epoch(), store.current().version(), 50, idle::complete);
+            assertNull(idle.get(5, TimeUnit.SECONDS)); // 새 버전 없이 시간이 다 되면 null (304)
+
+            CompletableFuture<byte[]> closing = new CompletableFuture<>();
+            feed.poll(feed.epoch(), store.current().version(), 10_000, closing::complete);
+            assertEquals(1, store.versionListenerCount());
+            feed.close();
+            assertNull(closing.get(1, TimeUnit.SECONDS));
+            assertEquals(0, store.versionListenerCount()); // 닫힌 피드는 보관소에 남지 않는다
+            rules.set("10.0.0.0/8");
+            assertTrue(store.reload());
+        } finally {
+            feed.close();
+            store.close();
+        }
+    }
+}
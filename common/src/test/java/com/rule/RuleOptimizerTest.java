@@ -0,0 +1,59 @@
+package com.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleOptimizerTest {
+
+    @Test
+    void reports_duplicates_and_tokens_covered_by_earlier_union() {
+        RuleOptimizer.Report r = RuleOptimizer.analyze(
+                "10.0.0.0/9|10.128.0.0/9|10.1.2.3|10.0.0.0/8|192.168.1.*|192.168.1.7~192.168.1.9|203.0.113.7|bad-token");
+
+        assertEquals(8, r.tokens());
+        assertEquals(List.of("10.1.2.3", "10.0.0.0/8", "192.168.1.7~192.168.1.9"),
+                r.shadowed().stream().map(RuleOptimizer.Shadowed::token).toList());
+        assertEquals(List.of("bad-token"), r.invalid());
+        assertEquals("10.0.0.0/9\n10.128.0.0/9\n192.168.1.*\n203.0.113.7", r.prunedRules());
+        // 10.0.0.0/9 + 10.128.0.0/9 는 맞닿아 하나로 합쳐짐
+        assertEquals(3, r.table().size());
+    }
+
+    @Test
+    void partially_covered_token_is_kept() {
+        RuleOptimizer.Report r = RuleOptimizer.analyze("10.0.0.0/24|10.0.0.128-10.0.1.5|10.*.0.1");
+        assertTrue(r.shadowed().isEmpty());
+        assertEquals(3, r.kept().size());
+    }
+
+    @Test
+    void pruned_rules_allow_the_same_addresses() {
+        SplittableRandom rnd = new SplittableRandom(7);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            int a = 10 + rnd.nextInt(4), b = rnd.nextInt(256), c = rnd.nextInt(256);
+            tokens.add(switch (rnd.nextInt(4)) {
+                case 0 -> a + "." + b + ".0.0/" + (16 + rnd.nextInt(17));
+                case 1 -> a + "." + b + "." + c + ".0-" + a + "." + b + "." + c + "." + rnd.nextInt(256);
+                case 2 -> a + "." + b + "." + c + ".*";
+                default -> a + "." + b + "." + c + "." + rnd.nextInt(256);
+            });
+        }
+        RuleOptimizer.Report r = RuleOptimizer.analyze(tokens);
+        assertFalse(r.shadowed().isEmpty());
+
+        IntervalTable full = RuleTokens.compile(String.join("|", tokens));
+        IntervalTable pruned = RuleTokens.compile(r.prunedRules());
+        assertEquals(full.size(), pruned.size());
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(full.start(i), pruned.start(i));
+            assertEquals(full.end(i), pruned.end(i));
+        }
+        assertEquals(full.size(), r.table().size());
+    }
+}
@@ -0,0 +1,88 @@
+package com.rule;
+
+import com.config.IpConfig;
+import com.exception.AppException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.TextStyle;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleScheduleTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    /** 2026-10-12 = 월요일 */
+    private static final Instant MONDAY_8AM = Instant.parse("2026-10-12T08:00:00Z");
+
+    @Test
+    void parses_windows() {
+        assertEquals(new RuleSchedule.Window(0x1F, 540, 1080), RuleSchedule.window("10.0.0.0/8@mon-fri 09:00-18:00"));
+        assertEquals(new RuleSchedule.Window(0x7F, 1320, 120), RuleSchedule.window("!192.0.2.0/24@22:00-02:00"));
+        assertEquals(new RuleSchedule.Window(0x60, 0, 1440), RuleSchedule.window("198.51.100.0/24@SAT+sun"));
+        assertEquals(new RuleSchedule.Window(0x41, 0, 1440), RuleSchedule.window("host:a.example@sun-mon"));
+        assertNull(RuleSchedule.window("10.0.0.0/8"));
+        assertEquals("10.0.0.0/8", RuleTokens.body("!10.0.0.0/8@mon 09:00-10:00"));
+
+        assertThrows(IllegalArgumentException.class, () -> RuleSchedule.window("10.0.0.0/8@funday"));
+        assertThrows(IllegalArgumentException.class, () -> RuleSchedule.window("10.0.0.0/8@09:00-25:00"));
+        assertThrows(IllegalArgumentException.class, () -> RuleSchedule.window("10.0.0.0/8@"));
+        assertThrows(AppException.class, () -> IpConfig.assertValidRules("10.0.0.0/8@mon 9h-10h"));
+        IpConfig.assertValidRules("10.0.0.0/8@mon-fri 09:00-18:00,!192.0.2.1@sat+sun");
+    }
+
+    @Test
+    void splits_time_into_epochs_of_active_tokens() {
+        List<RuleSchedule.Epoch> e = RuleSchedule.epochs("10.0.0.0/8@mon-fri 09:00-18:00,192.168.0.0/16", null,
+                UTC, MONDAY_8AM, Duration.ofDays(1));
+
+        assertEquals(3, e.size());
+        assertEquals(MONDAY_8AM, e.get(0).start());
+        assertEquals("192.168.0.0/16", e.get(0).userRules());
+        assertNull(e.get(0).defaultRules());
+        assertEquals(Instant.parse("2026-10-12T09:00:00Z"), e.get(1).start());
+        assertEquals("10.0.0.0/8@mon-fri 09:00-18:00,192.168.0.0/16", e.get(1).userRules());
+        assertEquals(Instant.parse("2026-10-12T18:00:00Z"), e.get(2).start());
+        assertEquals("192.168.0.0/16", e.get(2).userRules());
+        assertEquals(MONDAY_8AM.plus(Duration.ofDays(1)), e.get(2).end());
+    }
+
+    @Test
+    void windows_crossing_midnight_belong_to_the_start_day() {
+        Instant sunday10pm = Instant.parse("2026-10-18T22:00:00Z");
+        List<RuleSchedule.Epoch> e = RuleSchedule.epochs(null, "!0.0.0.0/0@sun 23:00-01:00",
+                UTC, sunday10pm, Duration.ofDays(1));
+
+        assertEquals(3, e.size());
+        assertEquals("", e.get(0).defaultRules());
+        assertEquals(Instant.parse("2026-10-18T23:00:00Z"), e.get(1).start());
+        assertEquals("!0.0.0.0/0@sun 23:00-01:00", e.get(1).defaultRules());
+        assertEquals(Instant.parse("2026-10-19T01:00:00Z"), e.get(2).start());
+        assertEquals("", e.get(2).defaultRules());
+        // 월요일 23:00은 창이 아니므로 기간 끝까지 꺼진 채
+        assertEquals(Instant.parse("2026-10-19T22:00:00Z"), e.get(2).end());
+    }
+
+    @Test
+    void store_compiles_the_active_window_and_keeps_the_token_in_the_reason() {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+        String todayName = today.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.ENGLISH).toLowerCase(Locale.ROOT);
+        String tomorrow = today.plusDays(1).getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.ENGLISH)
+                .toLowerCase(Locale.ROOT);
+        String rules = "10.0.0.0/8@" + todayName + ",!10.1.0.0/16@" + tomorrow;
+        RuleStore store = new RuleStore(RuleStore.Loader.of(rules, null), 50);
+        try {
+            assertEquals("allowed:user(10.0.0.0/8@" + todayName + ")", store.match("10.1.2.3").reason());
+            assertEquals("10.0.0.0/8@" + todayName, store.current().userRules());
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.rule;
+
+import com.config.EnvConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleStoreTest {
+
+    @TempDir
+    Path temp;
+
+    /** temp 폴더의 allow-ip.txt를 읽는 로더 */
+    private RuleStore.Loader fileLoader(Path file) {
+        return new RuleStore.Loader() {
+            @Override public String userRules() { return EnvConfig.normalizeRules(EnvConfig.readStringSafe(file)); }
+            @Override public String defaultRules() { return "192.168.0.0-192.168.255.255"; }
+            @Override public Path allowFile() { return file; }
+        };
+    }
+
+    private static void awaitVersion(RuleStore store, long version) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (store.current().version() < version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void reload_swaps_snapshot_atomically() throws Exception {
+        Path file = Files.writeString(temp.resolve("allow-ip.txt"), "10.0.0.0/8");
+        RuleStore store = new RuleStore(fileLoader(file), 50);
+
+        RuleSnapshot first = store.current();
+        assertEquals("allowed:user(10.0.0.0/8)", first.match("10.1.1.1").reason());
+
+        Files.writeString(file, "172.30.1.0/24");
+        assertTrue(store.reload());
+
+        RuleSnapshot second = store.current();
+        assertTrue(second.version() > first.version());
+        assertNull(second.match("10.1.1.1"));
+        assertNotNull(second.match("172.30.1.9"));
+        // 이전 스냅샷은 그대로 (조회 중인 요청은 영향 없음)
+        assertNotNull(first.match("10.1.1.1"));
+    }
+
+    @Test
+    void reload_keeps_previous_snapshot_on_invalid_rules() throws Exception {
+        Path file = Files.writeString(temp.resolve("allow-ip.txt"), "10.0.0.0/8");
+        RuleStore store = new RuleStore(fileLoader(file), 50);
+        RuleSnapshot good = store.current();
+
+        Files.writeString(file, "10.0.0.0/8|not-an-ip");
+        assertFalse(store.reload());
+        assertSame(good, store.current());
+    }
+
+    @Test
+    void watcher_reloads_after_file_change() throws Exception {
+        Path file = Files.writeString(temp.resolve("allow-ip.txt"), "10.0.0.0/8");
+        try (RuleStore store = new RuleStore(fileLoader(file), 50)) {
+            long v = store.current().version();
+            store.startWatching();
+
+            Files.writeString(file, "10.0.0.0/8\n203.0.113.7");
+            awaitVersion(store, v + 1);
+
+            assertTrue(store.current().version() > v);
+            assertEquals("203.0.113.7", store.current().match("203.0.113.7").token());
+        }
+    }
+
+    @Test
+    void runtime_rule_edits_swap_in_at_once_and_are_written_back_to_the_file() throws Exception {
+        Path file = Files.writeString(temp.resolve("allow-ip.txt"), "10.0.0.0/8|172.30.1.0/24\n2001:db8::/32");
+        try (RuleStore store = new RuleStore(fileLoader(file), 50)) {
+            store.startWatching();
+            RuleSnapshot before = store.current();
+
+            assertTrue(store.addRule(" !10.1.2.3 "));
+            assertFalse(store.addRule("!10.1.2.3"));
+            assertEquals("denied:user(!10.1.2.3)", store.match("10.1.2.3").reason());
+            assertEquals("allowed:user(10.0.0.0/8)", before.match("10.1.2.3").reason());
+
+            assertTrue(store.removeRule("172.30.1.0/24"));
+            assertFalse(store.removeRule("172.30.1.0/24"));
+            assertNull(store.match("172.30.1.9"));
+            assertEquals(before.version() + 2, store.current().version());
+
+            assertThrows(IllegalArgumentException.class, () -> store.addRule("10.0.0.1|10.0.0.2"));
+            assertThrows(IllegalArgumentException.class, () -> store.addRule("host:example.com"));
+            assertThrows(IllegalArgumentException.class, () -> store.addRule("nope"));
+
+            store.flush();
+            assertEquals("10.0.0.0/8\n2001:db8::/32\n!10.1.2.3\n", Files.readString(file));
+
+            // 자기가 쓴 파일로는 다시 컴파일하지 않는다
+            long v = store.current().version();
+            Thread.sleep(500);
+            assertEquals(v, store.current().version());
+
+            // 다시 읽어도 판정은 같다
+            assertTrue(store.reload());
+            assertEquals("denied:user(!10.1.2.3)", store.match("10.1.2.3").reason());
+            assertNull(store.match("172.30.1.9"));
+        }
+    }
+
+    @Test
+    void runtime_edits_patch_the_original_lines_and_keep_their_notation() throws Exception {
+        Path file = Files.writeString(temp.resolve("allow-ip.txt"),
+                "10.0.0.1 ~ 10.0.0.9, 172.30.1.0/24\r\n192.0.2.7\r\n203.0.113.0/24;198.18.0.1\r\n");
+        try (RuleStore store = new RuleStore(fileLoader(file), 50)) {
+            assertTrue(store.addRule("198.51.100.1 ~ 198.51.100.9"));
+            assertTrue(store.removeRule("192.0.2.7"));
+            assertTrue(store.removeRule("10.0.0.1-10.0.0.9"));
+            assertTrue(store.removeRule("198.18.0.1"));
+            store.flush();
+
+            assertEquals("172.30.1.0/24\r\n203.0.113.0/24\r\n198.51.100.1 ~ 198.51.100.9\r\n", Files.readString(file));
+            assertEquals("172.30.1.0/24\r\n203.0.113.0/24\r\n198.51.100.1-198.51.100.9", store.current().userRules());
+            assertEquals("allowed:user(198.51.100.1-198.51.100.9)", store.match("198.51.100.5").reason());
+        }
+    }
+
+    @Test
+    void runtime_edits_are_refused_when_the_file_was_edited_by_hand_since_the_last_load() throws Exception {
+        Path file = Files.writeString(temp.resolve("allow-ip.txt"), "10.0.0.0/8\n");
+        try (RuleStore store = new RuleStore(fileLoader(file), 50)) {
+            Files.writeString(file, "10.0.0.0/8\n203.0.113.0 ~ 203.0.113.255\n"); // 운영자가 직접 고침
+
+            assertThrows(IllegalStateException.class, () -> store.addRule("!10.1.2.3"));
+            assertEquals("allowed:user(10.0.0.0/8)", store.match("10.1.2.3").reason());
+            assertEquals("10.0.0.0/8\n203.0.113.0 ~ 203.0.113.255\n", Files.readString(file));
+
+            // 다시 읽은 뒤에는 그 내용을 기준으로 고친다
+            assertTrue(store.reload());
+            assertTrue(store.addRule("!10.1.2.3"));
+            store.flush();
+            assertEquals("10.0.0.0/8\n203.0.113.0 ~ 203.0.113.255\n!10.1.2.3\n", Files.readString(file));
+        }
+    }
+}
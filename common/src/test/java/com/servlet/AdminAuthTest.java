@@ -0,0 +1,65 @@
+package com.servlet;
+
+import com.constant.AttributeKeys;
+import com.filter.RuleRegistry;
+import com.rule.RuleStore;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdminAuthTest {
+
+    private static HttpServletRequest request(boolean allowed, String authorization) {
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getAttribute(AttributeKeys.ALLOWED.getKey())).thenReturn(allowed);
+        when(req.getHeader("Authorization")).thenReturn(authorization);
+        return req;
+    }
+
+    private static HttpServletResponse response() throws Exception {
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        return res;
+    }
+
+    @Test
+    void allowed_client_without_the_token_cannot_edit_rules() throws Exception {
+        RuleStore store = new RuleStore(RuleStore.Loader.of("10.0.0.0/8", null), 50);
+        RuleAdminServlet servlet = new RuleAdminServlet(new RuleRegistry(store, Map.of()), "s3cret");
+
+        HttpServletRequest req = request(true, null);
+        when(req.getParameter("rule")).thenReturn("!10.0.0.7");
+        HttpServletResponse res = response();
+        servlet.doPost(req, res);
+
+        verify(res).setStatus(401);
+        verify(res).setHeader("WWW-Authenticate", "Bearer");
+        assertEquals("10.0.0.0/8", store.current().userRules());
+
+        HttpServletResponse wrong = response();
+        servlet.doPost(request(true, "Bearer s3cret-not"), wrong);
+        verify(wrong).setStatus(401);
+    }
+
+    @Test
+    void missing_token_setting_hides_the_endpoint_and_guard_comes_first() throws Exception {
+        HttpServletResponse off = response();
+        assertFalse(new AdminAuth("ban admin", " ").permit(request(true, "Bearer anything"), off));
+        verify(off).setStatus(404);
+
+        AdminAuth auth = new AdminAuth("ban admin", "s3cret");
+        HttpServletResponse denied = response();
+        assertFalse(auth.permit(request(false, "Bearer s3cret"), denied));
+        verify(denied).setStatus(403);
+
+        HttpServletResponse ok = response();
+        assertTrue(auth.permit(request(true, "Bearer s3cret"), ok));
+        verifyNoInteractions(ok);
+    }
+}
@@ -0,0 +1,53 @@
+package com.rule;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link BatchMatcher}의 Vector API 구현. 인큐베이터 모듈이 필요한 코드는 이 클래스뿐이라 {@code src/vector} 소스 세트에
+ * 따로 두고 그 컴파일에만 {@code --add-modules}를 준다(jar에는 함께 들어간다). {@code jdk.incubator.vector} 모듈이 있을 때만
+ * {@link BatchMatcher#of}가 리플렉션으로 만든다(모듈이 없으면 이 클래스는 로드되지 않는다).
+ *
+ * <p>주소 {@code L}개(레인 수, AVX2면 8)를 한 벡터에 담고, 스칼라 구현과 같은 분기 없는 이진 탐색을
+ * 레인마다 동시에 진행한다. 단계마다 탐색 위치로 시작 배열을 수집(gather)하고, 비교 마스크만큼 위치를 더한다.
+ * 끝에 한 번 더 수집해 끝 경계와 규칙 id를 고른다. 남는 꼬리는 스칼라로 처리한다.</p>
+ */
+final class VectorBatchMatcher extends BatchMatcher {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    VectorBatchMatcher(BatchMatcher table) {
+        super(table);
+    }
+
+    @Override
+    public void match(int[] ips, int from, int to, int[] out) {
+        int lanes = SPECIES.length();
+        int[] index = new int[lanes];
+        IntVector none = IntVector.broadcast(SPECIES, -1);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += lanes) {
+            IntVector key = IntVector.fromArray(SPECIES, ips, i).lanewise(VectorOperators.XOR, BIAS);
+            IntVector pos = IntVector.zero(SPECIES);
+            for (int step = top; step > 0; step >>>= 1) {
+                pos.add(step - 1).intoArray(index, 0);
+                IntVector probe = IntVector.fromArray(SPECIES, starts, 0, index, 0);
+                pos = pos.add(step, probe.compare(VectorOperators.LE, key));
+            }
+            pos = pos.min(size);
+            pos.sub(1).max(0).intoArray(index, 0);
+            IntVector end = IntVector.fromArray(SPECIES, ends, 0, index, 0);
+            IntVector id = IntVector.fromArray(SPECIES, ids, 0, index, 0);
+            VectorMask<Integer> hit = pos.compare(VectorOperators.GT, 0).and(key.compare(VectorOperators.LE, end));
+            none.blend(id, hit).intoArray(out, i);
+        }
+        for (; i < to; i++) out[i] = match(ips[i]);
+    }
+
+    @Override
+    public boolean vectorized() {
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com;
+
+import com.rule.BatchEvaluator;
+import com.rule.Rule;
+import com.rule.RuleSnapshot;
+import com.rule.RuleStore;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 주소 목록 감사 CLI. 한 줄에 IPv4 하나인 파일을 현재 규칙(필터와 같은 환경변수/allow 파일)으로 판정해 요약을 출력한다.
+ *
+ * <pre>
+ * gradle :launcher:audit -Pfile=access-ips.txt
+ * java -cp ... com.IpAudit access-ips.txt
+ * </pre>
+ */
+public final class IpAudit {
+    private IpAudit() {}
+
+    private static final int TOP = 20;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("usage: IpAudit <ip-list-file>");
+            System.exit(2);
+        }
+        RuleSnapshot snapshot = new RuleStore(RuleStore.Loader.fromEnv(), RuleStore.DEFAULT_DEBOUNCE_MILLIS).current();
+
+        long started = System.nanoTime();
+        BatchEvaluator.Summary s;
+        try (BufferedReader in = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            s = BatchEvaluator.evaluateLines(snapshot, in, ForkJoinPool.commonPool());
+        }
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.printf("lines=%d allowed=%d denied=%d (invalid=%d) in %d ms%n",
+                s.lines(), s.allowed(), s.denied(), s.invalid(), millis);
+
+        List<Rule> rules = snapshot.matcher().rules();
+        long[] hits = s.ruleHits();
+        IntStream.range(0, hits.length)
+                .filter(i -> hits[i] > 0)
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> hits[i]).reversed())
+                .limit(TOP)
+                .forEach(i -> System.out.printf("%12d  %s%n", hits[i], rules.get(i).reason()));
+    }
+}
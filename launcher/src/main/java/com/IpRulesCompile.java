@@ -0,0 +1,41 @@
+package com;
+
+import com.config.EnvConfig;
+import com.config.IpConfig;
+import com.rule.CompiledRuleFile;
+import com.rule.PrefixTrie;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 규칙 컴파일 CLI. 현재 allow 파일 + DEFAULT_IP를 바이너리 규칙 파일로 저장한다.
+ * 서버는 {@code IP_RULES_BINARY}로 이 파일을 가리키면 시작/재적재 때 텍스트 파싱을 건너뛴다.
+ *
+ * <pre>
+ * gradle :launcher:compileRules -Pout=/etc/ip/allow-ip.bin
+ * </pre>
+ */
+public final class IpRulesCompile {
+    private IpRulesCompile() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("usage: IpRulesCompile <output-file>");
+            System.exit(2);
+        }
+        Path allowFile = EnvConfig.actualAllowFilePath();
+        String defaults = EnvConfig.defaultIpRules();
+        // 원본 상태는 읽기 전에 잡아 둔다 (컴파일 중 수정되면 오래된 파일로 판정되도록)
+        CompiledRuleFile.Source source = CompiledRuleFile.Source.of(allowFile, defaults);
+        String user = EnvConfig.loadAllowFileRulesNormalized();
+        IpConfig.assertValidRules(user);
+
+        PrefixTrie trie = PrefixTrie.compile(user, defaults);
+        Path out = Path.of(args[0]);
+        CompiledRuleFile.write(trie, source, out);
+
+        System.out.printf("compiled %d rules (%d segments) from %s into %s (%d bytes)%n",
+                trie.rules().size(), CompiledRuleFile.open(out).segments(), allowFile, out, Files.size(out));
+    }
+}
@@ -0,0 +1,42 @@
+package com;
+
+import com.config.EnvConfig;
+import com.rule.RuleOptimizer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 규칙 정리 보고 CLI. 현재 규칙(allow 파일 → DEFAULT_IP, 판정 우선순위 순서)에서
+ * 앞선 토큰에 완전히 가려진 토큰과 잘못된 토큰을 출력한다. 저장 시에는 allow 파일 토큰만 정리해 쓴다.
+ *
+ * <pre>
+ * gradle :launcher:rulesReport                  # 보고만
+ * gradle :launcher:rulesReport -Pout=pruned.txt # 정리된 규칙 저장
+ * </pre>
+ */
+public final class IpRulesReport {
+    private IpRulesReport() {}
+
+    public static void main(String[] args) throws Exception {
+        String user = EnvConfig.loadAllowFileRulesNormalized();
+        String defaults = EnvConfig.defaultIpRules();
+        String merged = (user == null ? "" : user) + "|" + (defaults == null ? "" : defaults);
+
+        long started = System.nanoTime();
+        RuleOptimizer.Report r = RuleOptimizer.analyze(merged);
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.println(r + " in " + millis + " ms");
+        r.shadowed().forEach(s -> System.out.println("shadowed: " + s));
+        r.invalid().forEach(t -> System.out.println("invalid:  " + t));
+
+        if (args.length == 1) {
+            // 파일에는 allow 파일 토큰만 남긴다 (DEFAULT_IP는 환경변수 쪽에서 관리)
+            String pruned = RuleOptimizer.analyze(user).prunedRules();
+            Files.writeString(Path.of(args[0]), pruned + System.lineSeparator(), StandardCharsets.UTF_8);
+            System.out.println("pruned rules written to " + args[0]);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com;
 
 import com.config.EnvConfig;
+import com.filter.RuleRegistry;
+import com.rule.RuleFollower;
 import org.apache.catalina.startup.Tomcat;
 
 import java.net.*;
@@ -11,8 +13,15 @@ public final class Launcher {
         int p1 = EnvConfig.portOf(System.getenv("DEFAULT_SERVER1"), 8081);
         int p2 = EnvConfig.portOf(System.getenv("DEFAULT_SERVER2"), 8082);
 
-        Tomcat t1 = Server1.start(p1);
-        Tomcat t2 = Server2.start(p2);
+        // 규칙은 프로세스에 하나: 두 서버가 같은 스냅샷을 보고, 리로드도 한 번
+        RuleRegistry rules = RuleRegistry.fromEnv();
+        rules.start();
+        // 다른 호스트의 서버1을 따라가면 기본 규칙은 그쪽 피드에서 받는다 (첫 동기화 전까지는 로컬 규칙)
+        RuleFollower follower = RuleFollower.fromEnv(rules.defaults());
+        if (follower != null) follower.start();
+
+        Tomcat t1 = Server1.start(p1, rules);
+        Tomcat t2 = Server2.start(p2, rules);
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
@@ -21,6 +30,8 @@ public final class Launcher {
             try {
                 t2.stop();
             } catch (Exception ignored) {}
+            if (follower != null) follower.close();
+            rules.close();
         }));
 
         Thread.currentThread().join();
@@ -1,6 +1,11 @@
 package com;
 
 import com.filter.IpGuardFilter;
+import com.filter.IpGuardValve;
+import com.filter.RuleRegistry;
+import com.rule.RuleFeed;
+import com.servlet.RuleAdminServlet;
+import com.servlet.RuleFeedServlet;
 import com.servlet.TransferServlet;
 
 import org.apache.catalina.Context;
@@ -19,11 +24,12 @@ public class Server1 {
      * 주어진 포트에서 Tomcat 서버 인스턴스를 초기화하고 시작합니다.
      * 기본 설정 구성,특정 서블릿과 필터를 등록합니다.
      *
-     * @param port 서버 포트 번호
+     * @param port  서버 포트 번호
+     * @param rules 프로세스 공용 규칙 레지스트리 (시작/종료는 호출자가 관리)
      * @return Tomcat 인스턴스
      * @throws Exception Tomcat 시작 중 오류가 발생하면 예외가 발생합니다.
      */
-    public static Tomcat start(int port) throws Exception {
+    public static Tomcat start(int port, RuleRegistry rules) throws Exception {
         // Tomcat 인스턴스 초기화
         Tomcat tomcat = new Tomcat();
         // 포트 설정
@@ -40,10 +46,15 @@ public class Server1 {
         // 컨텍스트가 StandardContext 타입인 경우, 리로드 가능
         if (ctx instanceof StandardContext sc) sc.setReloadable(true);
 
+        // 차단 Valve: 거부 요청을 서블릿 처리 전에 403으로 끝냄 (IP_GUARD_VALVE=true)
+        if (IpGuardValve.enabled()) tomcat.getHost().getPipeline().addValve(new IpGuardValve(rules));
+
         // 필터 정의 : 필터 이름과 실제 필터 클래스 인스턴스 연결
         FilterDef def = new FilterDef();
         def.setFilterName("ipGuard");
-        def.setFilter(new IpGuardFilter());
+        def.setFilter(new IpGuardFilter(rules));
+        // 규칙 피드의 롱 폴링이 비동기라 앞의 필터도 비동기를 지원해야 한다
+        def.setAsyncSupported("true");
         ctx.addFilterDef(def);
 
         // 필터 맵핑 : 필터를 어떤 URL 패턴에 적용할지 정의
@@ -53,7 +64,7 @@ public class Server1 {
         ctx.addFilterMap(map);
 
         // TransferServlet 인스턴스를 "transferServlet" 이름으로 컨텍스트에 추가
-        Wrapper w = Tomcat.addServlet(ctx, "transferServlet", new TransferServlet());
+        Wrapper w = Tomcat.addServlet(ctx, "transferServlet", new TransferServlet(rules.tokens()));
         // 서버 시작 시 서블릿을 즉시 로드 (값이 1이면 서버 시작과 함께 로드)
         w.setLoadOnStartup(1);
         try {
@@ -63,6 +74,15 @@ public class Server1 {
         // 서블릿 맵핑을 공식적으로 추가: "/transfer" URL 패턴을 "transferServlet"에 맵핑
         ctx.addServletMappingDecoded("/transfer", "transferServlet");
 
+        // 규칙 복제 피드: 다른 호스트의 서버가 기본 규칙을 델타로 받아 간다 (IP_RULES_UPSTREAM, IP_RULES_FEED_TOKEN)
+        Wrapper feed = Tomcat.addServlet(ctx, "ruleFeedServlet", new RuleFeedServlet(new RuleFeed(rules.defaults())));
+        feed.setAsyncSupported(true);
+        ctx.addServletMappingDecoded("/rules/feed", "ruleFeedServlet");
+
+        // 실행 중 규칙 편집 (IP_ADMIN_TOKEN이 있을 때만, 변경은 두 서버가 같이 본다)
+        Tomcat.addServlet(ctx, "ruleAdminServlet", new RuleAdminServlet(rules));
+        ctx.addServletMappingDecoded("/admin/rules", "ruleAdminServlet");
+
         tomcat.start();
         return tomcat;
     }
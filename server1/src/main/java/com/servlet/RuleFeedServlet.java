@@ -0,0 +1,118 @@
+package com.servlet;
+
+import com.rule.RuleFeed;
+import com.rule.RuleFollower;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 규칙 복제 피드 엔드포인트. 다른 호스트의 서버가 {@code IP_RULES_UPSTREAM}으로 이 주소를 롱 폴링한다.
+ *
+ * <ul>
+ *   <li><b>GET</b> {@code /rules/feed?epoch=E&version=V&wait=초}: 가진 버전에서 현재 버전까지의 바이너리 델타
+ *       ({@code application/octet-stream}). 처음이면 {@code epoch=0&version=0} → 전체.</li>
+ *   <li>가진 버전이 최신이면 새 버전이 나올 때까지(최대 30초) 기다렸다가 보내고, 끝까지 없으면 {@code 304}.
+ *       기다리는 동안은 비동기({@link AsyncContext})라 요청 스레드를 돌려준다. 서블릿과 앞의 필터는
+ *       {@code asyncSupported}로 등록한다.</li>
+ * </ul>
+ *
+ * <p>인증은 {@link AdminAuth}: 가드가 허용한 요청이면서 {@code Authorization: Bearer <토큰>}이
+ * {@value RuleFollower#TOKEN_ENV}와 같아야 한다(토큰 설정이 없으면 404). 받는 쪽도 같은 환경변수로 토큰을 싣는다.</p>
+ */
+public class RuleFeedServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(RuleFeedServlet.class);
+
+    /** 피드가 늦어도 컨테이너가 끊는 시간(ms). 피드는 최대 대기 뒤 항상 먼저 답한다 */
+    private static final long ASYNC_TIMEOUT_MILLIS = RuleFeed.MAX_WAIT_MILLIS + 10_000;
+
+    private final transient RuleFeed feed;
+    private final transient AdminAuth auth;
+
+    /** {@value RuleFollower#TOKEN_ENV} 환경변수의 토큰으로 생성 */
+    public RuleFeedServlet(RuleFeed feed) {
+        this(feed, AdminAuth.fromEnv("rule feed", RuleFollower.TOKEN_ENV));
+    }
+
+    /**
+     * @param feed 복제할 규칙 피드
+     * @param auth 받는 쪽 인증
+     */
+    public RuleFeedServlet(RuleFeed feed, AdminAuth auth) {
+        this.feed = feed;
+        this.auth = auth;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!auth.permit(req, res)) return;
+        long epoch, version, waitSeconds;
+        try {
+            epoch = longParam(req, "epoch");
+            version = longParam(req, "version");
+            waitSeconds = longParam(req, "wait");
+        } catch (NumberFormatException e) {
+            plainText(res, 400, "epoch, version and wait must be numbers\n");
+            return;
+        }
+
+        AsyncContext async = req.startAsync();
+        async.setTimeout(ASYNC_TIMEOUT_MILLIS);
+        feed.poll(epoch, version, waitSeconds * 1_000, body -> {
+            try {
+                send((HttpServletResponse) async.getResponse(), body);
+            } catch (IOException | IllegalStateException e) {
+                // 받는 쪽이 끊었거나 컨테이너가 먼저 끝냈다. 다음 폴링에서 다시 받는다
+                log.debug("IP rules feed response dropped - version={}", version, e);
+            } finally {
+                try {
+                    async.complete();
+                } catch (IllegalStateException ignored) {
+                    // 이미 끝난 요청
+                }
+            }
+        });
+    }
+
+    /** 컨테이너가 내릴 때 피드를 닫는다: 기다리던 롱 폴링은 바로 {@code 304}, 피드 스레드와 보관소 리스너는 정리 */
+    @Override
+    public void destroy() {
+        feed.close();
+        super.destroy();
+    }
+
+    /** 델타를 쓰거나, 기다려도 새 버전이 없었으면(null) {@code 304} */
+    private static void send(HttpServletResponse res, byte[] body) throws IOException {
+        if (body == null) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        res.setStatus(200);
+        res.setContentType("application/octet-stream");
+        res.setContentLength(body.length);
+        try (OutputStream out = res.getOutputStream()) {
+            out.write(body);
+        }
+    }
+
+    private static long longParam(HttpServletRequest req, String name) {
+        String v = req.getParameter(name);
+        return v == null || v.isBlank() ? 0 : Long.parseLong(v.trim());
+    }
+
+    private static void plainText(HttpServletResponse res, int status, String body) throws IOException {
+        res.setStatus(status);
+        res.setCharacterEncoding("UTF-8");
+        res.setContentType("text/plain; charset=UTF-8");
+        try (OutputStream out = res.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.config.EnvConfig;
 import com.config.FileConfig;
 import com.config.IpConfig;
 import com.constant.AttributeKeys;
+import com.constant.HeaderKeys;
+import com.filter.DecisionToken;
 import jakarta.servlet.http.*;
 import jakarta.servlet.ServletException;
 import org.slf4j.Logger;
@@ -45,6 +47,8 @@ import java.nio.charset.StandardCharsets;
  * <ul>
  *   <li><b>경로 이탈 방지</b>: {@link FileConfig#sanitizeName(String)} + {@link FileConfig#isSafeUnder(Path, Path)} 사용.</li>
  *   <li><b>IP 허용/이유</b>: 필터가 넣은 요청 속성 {@link AttributeKeys} 우선 사용(필터 미적용 시 자체 계산).</li>
+ *   <li><b>판정 전달</b>: 서버2에는 위조 가능한 평문 헤더 대신 서명한 판정 토큰({@link DecisionToken}, {@link HeaderKeys#DECISION})을
+ *       보낸다. 서버2의 가드는 규칙을 다시 조회하지 않는다. 키({@value DecisionToken#ENV})가 없으면 토큰 없이 부르고 서버2가 직접 판정한다.</li>
  *   <li><b>응답 커밋 전 forward</b>: <code>forward</code> 전에 절대 바디를 쓰지 않는다(커밋되면 forward 불가).</li>
  *   <li><b>Thread interrupt</b>: 서버2 호출 중 인터럽트 시 <code>interrupt flag</code> 복구 후 메시지 반환.</li>
  * </ul>
@@ -54,6 +58,19 @@ public class TransferServlet extends HttpServlet {
     private static final HttpClient CLIENT = HttpClient.newHttpClient();
     private static final Logger log = LoggerFactory.getLogger(TransferServlet.class);
 
+    /** 서버2로 넘길 판정 서명 (null이면 토큰 없이 호출) */
+    private final transient DecisionToken tokens;
+
+    /** {@value DecisionToken#ENV} 환경변수의 키로 생성 */
+    public TransferServlet() {
+        this(DecisionToken.fromEnv());
+    }
+
+    /** @param tokens 판정 토큰 서명 (null = 토큰 없이 호출) */
+    public TransferServlet(DecisionToken tokens) {
+        this.tokens = tokens;
+    }
+
     /**
      * <h3>GET /transfer</h3>
      * 초기 폼을 보여준다.
@@ -98,7 +115,7 @@ public class TransferServlet extends HttpServlet {
      * <ol>
      *   <li>입력 폴더/파일명 정리(이름 정규화 및 기본값 보정).</li>
      *   <li>필터 요청 속성에서 IP/허용/이유를 우선 읽기(필터 미적용 시 자체 평가).</li>
-     *   <li>서버2 <code>/files?name=...</code> 호출(헤더로 IP/허용 전달).</li>
+     *   <li>서버2 <code>/files?name=...</code> 호출(서명한 판정 토큰 전달).</li>
      *   <li>200이면 저장 루트 + 대상 폴더에 파일 저장(폴더 자동 생성).</li>
      *   <li>상태/이유/허용여부/저장경로를 메시지로 구성해 JSP로 forward.</li>
      * </ol>
@@ -149,11 +166,14 @@ public class TransferServlet extends HttpServlet {
             code = 400;
         } else {
             try {
-                // 5) 서버2 호출
-                var httpReq = HttpRequest.newBuilder(uri)
-                        .header("X-Client-IP", clientIp)
-                        .header("X-Ip-Allowed", String.valueOf(allowed))
-                        .GET().build();
+                // 5) 서버2 호출 (판정은 서명해서 넘긴다 → 서버2는 다시 조회하지 않음)
+                var builder = HttpRequest.newBuilder(uri);
+                if (tokens != null && clientIp != null) {
+                    Long version = (Long) req.getAttribute(AttributeKeys.RULE_VERSION.getKey());
+                    builder.header(HeaderKeys.DECISION.getKey(),
+                            tokens.issue(clientIp, allowed, reason, version == null ? 0 : version));
+                }
+                var httpReq = builder.GET().build();
 
                 var httpRes = CLIENT.send(httpReq, HttpResponse.BodyHandlers.ofInputStream());
                 code = httpRes.statusCode();
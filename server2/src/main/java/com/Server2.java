@@ -1,7 +1,11 @@
 package com;
 
+import com.servlet.BanAdminServlet;
 import com.servlet.FileQueryServlet;
+import com.servlet.RuleAdminServlet;
 import com.filter.IpGuardFilter;
+import com.filter.IpGuardValve;
+import com.filter.RuleRegistry;
 
 import org.apache.catalina.Context;
 import org.apache.catalina.Wrapper;
@@ -12,7 +16,7 @@ import org.apache.tomcat.util.descriptor.web.FilterMap;
 import java.nio.file.Files;
 
 public class Server2 {
-    public static Tomcat start(int port) throws Exception {
+    public static Tomcat start(int port, RuleRegistry rules) throws Exception {
         Tomcat tomcat = new Tomcat();
         tomcat.setPort(port);
         tomcat.getConnector().setProperty("URIEncoding", "UTF-8");
@@ -20,9 +24,11 @@ public class Server2 {
         tomcat.setBaseDir(Files.createTempDirectory("s2-tomcat").toString());
         Context ctx = tomcat.addContext("", Files.createTempDirectory("s2-doc").toString());
 
+        if (IpGuardValve.enabled()) tomcat.getHost().getPipeline().addValve(new IpGuardValve(rules));
+
         FilterDef def = new FilterDef();
         def.setFilterName("ipGuard");
-        def.setFilter(new IpGuardFilter());
+        def.setFilter(new IpGuardFilter(rules));
         ctx.addFilterDef(def);
 
         FilterMap map = new FilterMap();
@@ -35,6 +41,14 @@ public class Server2 {
         try { files.addMapping("/files"); } catch (Throwable ignored) {}
         ctx.addServletMappingDecoded("/files", "fileQueryServlet");
 
+        // 자동 차단 목록 조회/해제 (경로 훑기로 쌓이는 400/404는 가드가 센다)
+        Tomcat.addServlet(ctx, "banAdminServlet", new BanAdminServlet(rules.bans()));
+        ctx.addServletMappingDecoded("/admin/bans", "banAdminServlet");
+
+        // 실행 중 규칙 편집 (IP_ADMIN_TOKEN이 있을 때만)
+        Tomcat.addServlet(ctx, "ruleAdminServlet", new RuleAdminServlet(rules));
+        ctx.addServletMappingDecoded("/admin/rules", "ruleAdminServlet");
+
         tomcat.start();
         return tomcat;
     }
@@ -0,0 +1,109 @@
+package com.servlet;
+
+import com.constant.AttributeKeys;
+import com.filter.BanList;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * 자동 차단 목록({@link BanList}) 관리 엔드포인트.
+ *
+ * <ul>
+ *   <li><b>GET</b> {@code /admin/bans}: 차단 목록. 한 줄에 하나, {@code IP 끝시각(ISO) 남은초 에러수} (탭 구분).</li>
+ *   <li><b>DELETE</b> {@code /admin/bans?ip=...}: 그 주소 해제. {@code ip}가 없으면 전체 해제.</li>
+ * </ul>
+ *
+ * <p>인증은 {@link AdminAuth}: 가드가 허용한 요청이면서 {@code Authorization: Bearer <토큰>}이
+ * {@value AdminAuth#TOKEN_ENV}와 같아야 한다(토큰 설정이 없으면 404). 관리용 주소까지 좁히려면
+ * {@code IP_PATH_RULES=/admin=/etc/ip/admin.txt}처럼 경로별 규칙을 따로 둔다.
+ * 자동 차단이 꺼져 있으면({@value BanList#ENV} 없음) 404.</p>
+ */
+public class BanAdminServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(BanAdminServlet.class);
+
+    private static final String NAME = "ban admin";
+
+    private final transient BanList bans;
+    private final transient AdminAuth auth;
+
+    /**
+     * {@value AdminAuth#TOKEN_ENV} 환경변수의 토큰으로 생성
+     * @param bans 자동 차단 목록 (null = 꺼짐)
+     */
+    public BanAdminServlet(BanList bans) {
+        this(bans, AdminAuth.fromEnv(NAME));
+    }
+
+    /**
+     * @param bans  자동 차단 목록 (null = 꺼짐)
+     * @param token 관리 토큰 (null = 꺼짐)
+     */
+    public BanAdminServlet(BanList bans, String token) {
+        this(bans, new AdminAuth(NAME, token));
+    }
+
+    private BanAdminServlet(BanList bans, AdminAuth auth) {
+        this.bans = bans;
+        this.auth = auth;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!permitted(req, res)) return;
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        for (BanList.Ban b : bans.bans()) {
+            sb.append(b.ip()).append('\t')
+                    .append(Instant.ofEpochMilli(b.untilMillis())).append('\t')
+                    .append(Math.max(0, (b.untilMillis() - now + 999) / 1000)).append('\t')
+                    .append(b.errors()).append('\n');
+        }
+        plainText(res, 200, sb.toString());
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!permitted(req, res)) return;
+        String ip = req.getParameter("ip");
+        if (ip == null || ip.isBlank()) {
+            int n = bans.clearAll();
+            log.info("IP bans cleared by {} - count={}", req.getAttribute(AttributeKeys.CLIENT.getKey()), n);
+            plainText(res, 200, "cleared " + n + "\n");
+            return;
+        }
+        BanList.Ban b = bans.clear(ip);
+        if (b == null) {
+            plainText(res, 404, "not banned: " + ip.trim() + "\n");
+            return;
+        }
+        log.info("IP ban cleared by {} - ip={}", req.getAttribute(AttributeKeys.CLIENT.getKey()), b.ip());
+        plainText(res, 200, "cleared " + b.ip() + "\n");
+    }
+
+    /** 관리 인증을 통과했고 자동 차단이 켜져 있는지 (아니면 응답까지 쓴다) */
+    private boolean permitted(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        if (!auth.permit(req, res)) return false;
+        if (bans == null) {
+            plainText(res, 404, "auto ban is off (" + BanList.ENV + ")\n");
+            return false;
+        }
+        return true;
+    }
+
+    private static void plainText(HttpServletResponse res, int status, String body) throws IOException {
+        res.setStatus(status);
+        res.setCharacterEncoding("UTF-8");
+        res.setContentType("text/plain; charset=UTF-8");
+        try (OutputStream out = res.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
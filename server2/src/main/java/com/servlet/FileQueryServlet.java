@@ -2,6 +2,7 @@ package com.servlet;
 
 import com.config.EnvConfig;
 import com.config.FileConfig;
+import com.constant.AttributeKeys;
 import com.constant.MimeConst;
 
 import jakarta.servlet.http.*;
@@ -49,9 +50,9 @@ public class FileQueryServlet extends HttpServlet {
         // 1) 입력 이름 정리 (슬래시/.. 제거, 앞뒤 / 제거)
         String name = FileConfig.sanitizeName(req.getParameter("name"));
 
-        // (옵션) 관찰용 헤더 수신 값
-        String clientIp = req.getHeader("X-Client-IP");
-        String allowed  = req.getHeader("X-Ip-Allowed");
+        // (옵션) 관찰용: 가드가 판정한 값 (서버1의 서명 토큰이 있으면 그 값, 평문 헤더는 믿지 않는다)
+        Object clientIp = req.getAttribute(AttributeKeys.CLIENT.getKey());
+        Object allowed  = req.getAttribute(AttributeKeys.ALLOWED.getKey());
 
         // 2) 기준(base) 경로 계산: ROOT/(S2_SOURCE_FOLDER)
         String srcSub = EnvConfig.env("S2_SOURCE_FOLDER");